@@ -0,0 +1,113 @@
+package com.example.productDemo.Controller;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.productDemo.Event.InvalidationBroadcaster;
+import com.example.productDemo.Event.ProductEventBus;
+import com.example.productDemo.Event.ProductJournal;
+import com.example.productDemo.Event.ProductStream;
+import com.example.productDemo.Service.HotProducts;
+import com.example.productDemo.Service.ProductReadCache;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    @Autowired
+    private ProductEventBus productEventBus;
+
+    @Autowired
+    private ProductJournal productJournal;
+
+    @Autowired
+    private ProductStream productStream;
+
+    @Autowired
+    private ProductReadCache productReadCache;
+
+    @Autowired
+    private List<InvalidationBroadcaster> invalidationBroadcasters;
+
+    @Autowired
+    private HotProducts hotProducts;
+
+    //**TO READ THE EVENT BUS METRICS**
+    @Operation(
+            summary = "Product event bus metrics",
+            description = "Ring size, wait strategy and events published on the in-process product event bus, with the "
+                    + "lag, batch sizes and errors of each consumer."
+    )
+    @GetMapping("/events")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getEventBusMetrics() {
+        return ResponseEntity.ok(new ApiResponse<>("200", "Event bus metrics retrieved successfully", productEventBus.metrics()));
+    }
+
+    //**TO READ THE WRITE JOURNAL METRICS**
+    @Operation(
+            summary = "Product journal metrics",
+            description = "Segments, next sequence number, records written and disk forces of the append-only product "
+                    + "journal; recordsPerForce shows how many records each group commit covered."
+    )
+    @GetMapping("/journal")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getJournalMetrics() {
+        return ResponseEntity.ok(new ApiResponse<>("200", "Journal metrics retrieved successfully", productJournal.metrics()));
+    }
+
+    //**TO READ THE CHANGE STREAM METRICS**
+    @Operation(
+            summary = "Product change stream metrics",
+            description = "Subscribers of GET /products/stream, and the notifications sent, coalesced for slow clients "
+                    + "and dropped by disconnecting clients that fell too far behind."
+    )
+    @GetMapping("/stream")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getStreamMetrics() {
+        return ResponseEntity.ok(new ApiResponse<>("200", "Stream metrics retrieved successfully", productStream.metrics()));
+    }
+
+    //**TO READ THE CROSS-NODE INVALIDATION METRICS**
+    @Operation(
+            summary = "Cache invalidation metrics",
+            description = "Product cache hit rate and staleness bound, and per invalidation transport the changes received "
+                    + "from other nodes and how long after their commit they arrived."
+    )
+    @GetMapping("/invalidation")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getInvalidationMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cache", productReadCache.metrics());
+        Map<String, Object> transports = new LinkedHashMap<>();
+        invalidationBroadcasters.forEach(broadcaster -> transports.put(broadcaster.name(), broadcaster.metrics()));
+        metrics.put("transports", transports);
+        return ResponseEntity.ok(new ApiResponse<>("200", "Invalidation metrics retrieved successfully", metrics));
+    }
+
+    //**TO READ THE MOST ACCESSED PRODUCTS**
+    @Operation(
+            summary = "Hot products",
+            description = "The products read most recently, by product reads and by review page reads, with upper and lower "
+                    + "bounds of their (decaying) read counts, and the products pinned in the product cache."
+    )
+    @GetMapping("/hot-products")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getHotProducts(
+            @RequestParam(defaultValue = "20", required = false) int limit
+    ) {
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: Invalid limit. Limit must be greater than 0.", null));
+        }
+        Map<String, Object> hot = new LinkedHashMap<>();
+        hot.put("products", hotProducts.top(HotProducts.Access.PRODUCT, limit));
+        hot.put("reviewPages", hotProducts.top(HotProducts.Access.REVIEWS, limit));
+        hot.put("pinned", productReadCache.pinnedIds());
+        return ResponseEntity.ok(new ApiResponse<>("200", "Hot products retrieved successfully", hot));
+    }
+}
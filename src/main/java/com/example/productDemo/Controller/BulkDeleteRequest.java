@@ -0,0 +1,44 @@
+package com.example.productDemo.Controller;
+
+import java.util.List;
+
+import javax.validation.constraints.PositiveOrZero;
+
+/**
+ * Request body for bulk deletes. Either an explicit list of product IDs,
+ * or a price range selecting the products to delete.
+ */
+public class BulkDeleteRequest {
+
+    private List<String> ids;
+
+    @PositiveOrZero(message = "Minimum price must be positive")
+    private Double minPrice;
+
+    @PositiveOrZero(message = "Maximum price must be positive")
+    private Double maxPrice;
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+}
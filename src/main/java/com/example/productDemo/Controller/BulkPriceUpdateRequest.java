@@ -0,0 +1,97 @@
+package com.example.productDemo.Controller;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+
+/**
+ * Request body for bulk repricing. Either a percentage change applied to every product
+ * priced between minPrice and maxPrice, or an explicit list of id/price pairs.
+ */
+public class BulkPriceUpdateRequest {
+
+    @PositiveOrZero(message = "Minimum price must be positive")
+    private Double minPrice;
+
+    @PositiveOrZero(message = "Maximum price must be positive")
+    private Double maxPrice;
+
+    // Percentage change, e.g. 5 for +5% or -10 for -10%
+    @DecimalMin(value = "-99.99", message = "Percentage must be greater than -100")
+    private Double percentage;
+
+    @Valid
+    private List<PriceChange> prices;
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Double getPercentage() {
+        return percentage;
+    }
+
+    public void setPercentage(Double percentage) {
+        this.percentage = percentage;
+    }
+
+    public List<PriceChange> getPrices() {
+        return prices;
+    }
+
+    public void setPrices(List<PriceChange> prices) {
+        this.prices = prices;
+    }
+
+    //***New price for a single product***
+    public static class PriceChange {
+
+        @NotBlank(message = "Product ID is required")
+        private String id;
+
+        @NotNull(message = "Price is required")
+        @Positive(message = "Price must be greater than zero")
+        private Double price;
+
+        public PriceChange() {
+        }
+
+        public PriceChange(String id, Double price) {
+            this.id = id;
+            this.price = price;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public Double getPrice() {
+            return price;
+        }
+
+        public void setPrice(Double price) {
+            this.price = price;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.productDemo.Controller;
 
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -25,5 +28,13 @@ public class DataGeneratorController {
         String responseMessage = "Products created successfully";
         return new ResponseEntity<>(responseMessage, HttpStatus.OK);
     }
-}
 
+    //***End point to remove all product data.***
+    @DeleteMapping
+    public ResponseEntity<ApiResponse<Map<String, Object>>> resetData() {
+
+    	// Purge products, reviews and offers in bounded chunks
+        Map<String, Object> report = dataPopulationScript.resetDatabase();
+        return new ResponseEntity<>(new ApiResponse<>("200", "Products deleted successfully", report), HttpStatus.OK);
+    }
+}
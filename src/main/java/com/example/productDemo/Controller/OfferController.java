@@ -0,0 +1,73 @@
+package com.example.productDemo.Controller;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.productDemo.Service.ProductService;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+@RestController
+@RequestMapping("/offers")
+public class OfferController {
+
+    @Autowired
+    private ProductService productService;
+
+    //**TO LOOK UP A COUPON CODE**
+    @Operation(
+            summary = "Look up a coupon code",
+            description = "Retrieve the offers that carry a coupon code and have not ended, with the product each belongs to. "
+                    + "Pass productId to validate the coupon for one product at checkout. Answered from an in-memory coupon index."
+    )
+    @GetMapping("/coupon/{code}")
+    public ResponseEntity<Object> getOffersByCoupon(@PathVariable String code, @RequestParam(required = false) String productId) {
+        List<Map<String, Object>> offers = productService.findOffersByCoupon(code, productId);
+
+        // Check if the coupon is unknown, expired or not valid for the product
+        if (offers.isEmpty()) {
+            List<String> errors = Collections.singletonList("Error occured in looking up the coupon");
+            String message = productId == null ? "No current offer found for coupon " + code
+                    : "Coupon " + code + " is not valid for product " + productId;
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>("404", message, errors));
+        }
+        return ResponseEntity.ok(new ApiResponse<>("200", "Offers retrieved successfully", offers));
+    }
+
+    //**TO REDEEM A COUPON**
+    @Operation(
+            summary = "Redeem a coupon",
+            description = "Redeem a coupon code for a product at checkout. The coupon's offer must be running, and offers with "
+                    + "maxRedemptions are refused with 409 once that many redemptions were made across all nodes."
+    )
+    @PostMapping("/coupon/{code}/redeem")
+    public ResponseEntity<Object> redeemCoupon(@PathVariable String code, @RequestParam String productId) {
+        Optional<Map<String, Object>> offer;
+        try {
+            offer = productService.redeemCoupon(code, productId);
+        } catch (IllegalStateException e) {
+            List<String> errors = Collections.singletonList("Error occured in redeeming the coupon");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse<>("409", e.getMessage(), errors));
+        }
+
+        // Check if the coupon has no running offer for the product
+        if (offer.isEmpty()) {
+            List<String> errors = Collections.singletonList("Error occured in redeeming the coupon");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>("404", "Coupon " + code + " is not valid for product " + productId + " today", errors));
+        }
+        return ResponseEntity.ok(new ApiResponse<>("200", "Coupon redeemed successfully", offer.get()));
+    }
+}
@@ -1,27 +1,45 @@
 package com.example.productDemo.Controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.productDemo.Entity.Product;
 import com.example.productDemo.Entity.Product.Offer;
 import com.example.productDemo.Entity.Product.Review;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Event.ProductStream;
+import com.example.productDemo.Index.Leaderboards;
+import com.example.productDemo.Service.HotProducts;
 import com.example.productDemo.Service.ProductService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.validation.Valid;
+import javax.validation.Validator;
 
 @RestController
 @RequestMapping("/products")
@@ -29,6 +47,23 @@ public class ProductController {
 
     @Autowired
     private ProductService productService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ProductStream productStream;
+
+    // Counts client reads only, not the lookups other endpoints and background work make through the service
+    @Autowired
+    private HotProducts hotProducts;
+
+    // Fields that PATCH /products/{productId} may change
+    private static final Set<String> PATCHABLE_FIELDS = Set.of("name", "description", "price");
+
+    // Upper bound on the number of IDs accepted by the multi-get endpoints
+    @Value("${product.multi-get.max-ids:500}")
+    private int maxMultiGetIds = 500;
     
     //**TO CREATE A PRODUCT**
     @Operation(
@@ -67,6 +102,7 @@ public class ProductController {
     )
     @GetMapping("/{productId}")
     public ResponseEntity<ApiResponse<Optional<Product>>> getProduct(@PathVariable String productId) {
+        hotProducts.record(HotProducts.Access.PRODUCT, productId);
         Optional<Product> product = productService.getProduct(productId);
 
         // Check if the product is present in the optional result
@@ -80,6 +116,39 @@ public class ProductController {
         }
     }
 
+    //**TO RETRIEVE SEVERAL PRODUCTS**
+    @Operation(
+        summary = "Get products by IDs",
+        description = "Retrieve several products in one request. Results follow the request order and carry a not-found marker for unknown IDs."
+    )
+    @GetMapping
+    public ResponseEntity<Object> getProducts(@RequestParam(required = false) List<String> ids) {
+        return multiGet(ids);
+    }
+
+    //**TO RETRIEVE SEVERAL PRODUCTS (long ID lists)**
+    @Operation(
+        summary = "Get products by IDs (POST)",
+        description = "Same as GET /products?ids=... but takes the IDs as a JSON array, for lists too long for a URL."
+    )
+    @PostMapping("/multi-get")
+    public ResponseEntity<Object> getProductsByPost(@RequestBody List<String> ids) {
+        return multiGet(ids);
+    }
+
+    private ResponseEntity<Object> multiGet(List<String> ids) {
+        // Check that the list of IDs is usable
+        if (ids == null || ids.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: At least one product ID is required.", null));
+        }
+        if (ids.size() > maxMultiGetIds) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: At most " + maxMultiGetIds + " product IDs can be requested at once.", null));
+        }
+
+        List<Map<String, Object>> products = productService.getProducts(ids);
+        return ResponseEntity.ok(new ApiResponse<>("200", "Products retrieved successfully", products));
+    }
+
     //**TO UPDATE A PRODUCT**
     @Operation(
             summary = "Update product by ID",
@@ -126,6 +195,98 @@ public class ProductController {
         }
     }
 
+    //**TO PARTIALLY UPDATE A PRODUCT**
+    @Operation(
+            summary = "Partially update product by ID",
+            description = "Update only the provided fields (name, description, price) of a product by its ID."
+        )
+    @PatchMapping("/{productId}")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> patchProduct(@PathVariable String productId, @RequestBody Map<String, Object> changes) {
+        try {
+            if (changes == null || changes.isEmpty()) {
+                List<String> errors = Collections.singletonList("At least one field is required");
+                return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Validation errors occurred. Please check your input", errors));
+            }
+
+            // Validate only the provided fields, against the constraints declared on Product
+            List<String> errors = new ArrayList<>();
+            Map<String, Object> columns = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                if (!PATCHABLE_FIELDS.contains(change.getKey())) {
+                    errors.add("Field '" + change.getKey() + "' cannot be updated");
+                    continue;
+                }
+                Object value = change.getValue();
+                if ("price".equals(change.getKey())) {
+                    if (value != null && !(value instanceof Number)) {
+                        errors.add("Price must be a number");
+                        continue;
+                    }
+                    value = value != null ? ((Number) value).doubleValue() : null;
+                } else if (value != null && !(value instanceof String)) {
+                    errors.add("Field '" + change.getKey() + "' must be text");
+                    continue;
+                }
+                validator.validateValue(Product.class, change.getKey(), value)
+                        .forEach(violation -> errors.add(violation.getMessage()));
+                columns.put(change.getKey(), value);
+            }
+            if (!errors.isEmpty()) {
+                return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Validation errors occurred. Please check your input", errors));
+            }
+
+            if (productService.patchProduct(productId, columns)) {
+                return ResponseEntity.ok(new ApiResponse<>("200", "Product updated successfully", columns));
+            } else {
+            	// If the product is not found, create an error response with status code 404 (Not Found)
+                List<String> notFound = Collections.singletonList("Error occured in updating the product");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse<>("404", "Product with ID " + productId + " not found", notFound));
+            }
+        } catch (IllegalArgumentException e) {
+        	// Handle exceptions related to product updating and return a bad request response with error details
+            List<String> errors = Collections.singletonList(e.getMessage());
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error in updating the product", errors));
+        }
+    }
+
+    //**TO REPRICE PRODUCTS IN BULK**
+    @Operation(
+            summary = "Update prices in bulk",
+            description = "Apply a percentage change to all products in a price range, or set explicit prices for a list of products. Offer discount amounts are recomputed."
+    )
+    @PostMapping("/bulk/price")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> bulkUpdatePrices(@Valid @RequestBody BulkPriceUpdateRequest request,
+                                                                         BindingResult bindingResult) {
+        // Check if there are validation errors in the input
+        if (bindingResult.hasErrors()) {
+            List<String> errors = bindingResult.getFieldErrors().stream()
+                    .map(FieldError::getDefaultMessage)
+                    .toList();
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Validation errors occurred. Please check your input", errors));
+        }
+
+        boolean byPercentage = request.getPercentage() != null;
+        boolean byList = request.getPrices() != null && !request.getPrices().isEmpty();
+        if (byPercentage == byList) {
+            List<String> errors = Collections.singletonList("Provide either a percentage (with an optional price range) or a list of prices");
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error in updating prices", errors));
+        }
+
+        Map<String, Object> report;
+        if (byPercentage) {
+            double minPrice = request.getMinPrice() != null ? request.getMinPrice() : 0;
+            double maxPrice = request.getMaxPrice() != null ? request.getMaxPrice() : Double.MAX_VALUE;
+            report = productService.bulkAdjustPrices(minPrice, maxPrice, request.getPercentage());
+        } else {
+            // Keep the request order; the last price wins for repeated ids
+            Map<String, Double> pricesById = new LinkedHashMap<>();
+            request.getPrices().forEach(change -> pricesById.put(change.getId(), change.getPrice()));
+            report = productService.bulkSetPrices(pricesById);
+        }
+        return ResponseEntity.ok(new ApiResponse<>("200", "Prices updated successfully", report));
+    }
+
     //**TO ADD REVIEW TO A PRODUCT**
     @Operation(
             summary = "Add review to product",
@@ -146,6 +307,11 @@ public class ProductController {
                 return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Validation errors occurred. Please check your input", errors));
             }
 
+            // Write-behind mode: the review is queued and stored in a batch shortly after
+            if (productService.isReviewIngestionAsync()) {
+                return addReviewAsync(productId, review);
+            }
+
             Optional<Product> existingProduct = productService.getProduct(productId);
 
             // Check if the product with the given ID exists
@@ -165,6 +331,23 @@ public class ProductController {
         }
     }
 
+    // Accepts a review for the write-behind writer: 202 once queued (and journaled in durable mode),
+    // 429 while the queue is full
+    private ResponseEntity<ApiResponse<@Valid Review>> addReviewAsync(String productId, Review review) {
+        if (!productService.productExists(productId)) {
+            List<String> errors = Collections.singletonList("Error occured in adding review to the product");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>("404", "Product with ID " + productId + " not found", errors));
+        }
+        if (!productService.submitReview(productId, review)) {
+            List<String> errors = Collections.singletonList("Review queue is full, retry later");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1")
+                    .body(new ApiResponse<>("429", "Too many reviews are waiting to be stored", errors));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse<>("202", "Review accepted for product " + productId, review));
+    }
+
     //**TO ADD OFFER TO A PRODUCT**
     @Operation(
             summary = "Add offer to product",
@@ -209,12 +392,20 @@ public class ProductController {
     //***To retrieve summaries of all products***
     @Operation(
             summary = "Get all product summaries",
-            description = "Retrieve summaries of all products in a paginated format."
+            description = "Retrieve summaries of all products (with average rating, review count and discounted price) in a paginated format. "
+                    + "Optionally filter by price range and minimum rating, and sort with sort=<field>[,asc|desc] on "
+                    + "id, name, price, discountedPrice, averageRating or reviewCount. With facets=true the response also "
+                    + "carries counts of price buckets, rating bands, active offers and review-count ranges under the filters."
     )
     @GetMapping("/summaries")
     public ResponseEntity<Object> getAllProductSummaries(
             @RequestParam(defaultValue = "0", required = false) int page,
-            @RequestParam(defaultValue = "4", required = false) int size
+            @RequestParam(defaultValue = "4", required = false) int size,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Double minRating,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "false", required = false) boolean facets
     ) {
 
         // Check if the requested page is valid
@@ -222,13 +413,18 @@ public class ProductController {
             return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: Invalid page number. Page number must be greater than or equal to 0.", null));
         }
 
+        Sort summarySort = parseSummarySort(sort);
+        if (summarySort == null) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: Invalid sort. Use sort=<field>[,asc|desc] with one of " + ProductSummary.SORTABLE_FIELDS + ".", null));
+        }
+
         try {
            
             
-            PageRequest pageRequest = PageRequest.of(page, size);
+            PageRequest pageRequest = PageRequest.of(page, size, summarySort);
 
             // Retrieve reviews for the specified product
-            Page<Map<String, Object>> productReviews = productService.getAllProductSummaries(pageRequest);
+            Page<Map<String, Object>> productReviews = productService.getAllProductSummaries(minPrice, maxPrice, minRating, pageRequest);
 
             // Check if there are no reviews
             if (productReviews.isEmpty()) {
@@ -246,6 +442,10 @@ public class ProductController {
             response.put("TotalElements", productReviews.getTotalElements());
             response.put("CurrentPage", productReviews.getNumber());
             response.put("PRODUCTS", productReviews.getContent());
+            if (facets) {
+                // Counted from the in-memory facet bitmaps; left out while they are not built
+                productService.getSummaryFacets(minPrice, maxPrice, minRating).ifPresent(counts -> response.put("FACETS", counts));
+            }
 
             return ResponseEntity.ok(response);
 
@@ -255,20 +455,168 @@ public class ProductController {
         }
     }
     
+    // Parses sort=<field>[,asc|desc]; returns null if the field or direction is not supported
+    private Sort parseSummarySort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return Sort.unsorted();
+        }
+        String[] parts = sort.split(",");
+        if (parts.length > 2 || !ProductSummary.SORTABLE_FIELDS.contains(parts[0].trim())) {
+            return null;
+        }
+        Optional<Sort.Direction> direction = parts.length == 2 ? Sort.Direction.fromOptionalString(parts[1].trim()) : Optional.of(Sort.Direction.ASC);
+        return direction.map(value -> Sort.by(value, parts[0].trim())).orElse(null);
+    }
+    
+    //**TO RETRIEVE A PAGE OF A LEADERBOARD**
+    @Operation(
+            summary = "Get a product leaderboard",
+            description = "Retrieve a page of the top-rated board (rated products by average rating, best first) or the "
+                    + "cheapest board (products by discounted price, lowest first). Served from in-memory rankings."
+    )
+    @GetMapping("/leaderboards/{board}")
+    public ResponseEntity<Object> getLeaderboard(
+            @PathVariable String board,
+            @RequestParam(defaultValue = "0", required = false) int page,
+            @RequestParam(defaultValue = "10", required = false) int size
+    ) {
+        if (!Leaderboards.exists(board)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>("404", "Error: Unknown leaderboard. Use "
+                    + Leaderboards.TOP_RATED + " or " + Leaderboards.CHEAPEST + ".", null));
+        }
+        if (page < 0 || size <= 0) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: Please provide valid values for size and page.", null));
+        }
+
+        Page<Map<String, Object>> ranking = productService.getLeaderboard(board, PageRequest.of(page, size));
+        if (ranking.isEmpty()) {
+            return ResponseEntity.ok(new ApiResponse<>("200", "No products on the leaderboard for the specified page.", null));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("TotalPages", ranking.getTotalPages());
+        response.put("TotalElements", ranking.getTotalElements());
+        response.put("CurrentPage", ranking.getNumber());
+        response.put("PRODUCTS", ranking.getContent());
+        return ResponseEntity.ok(response);
+    }
+
+    //**TO SUGGEST PRODUCT NAMES FOR A PREFIX**
+    @Operation(
+            summary = "Suggest product names",
+            description = "Autocompletes a typed prefix with the names of matching products (case-insensitive), "
+                    + "most reviewed first, then best rated. Answered from an in-memory prefix trie."
+    )
+    @GetMapping("/suggest")
+    public ResponseEntity<Object> suggestProductNames(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(defaultValue = "10", required = false) int limit
+    ) {
+        if (prefix == null || prefix.isBlank()) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: Please provide a prefix to suggest names for.", null));
+        }
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: Invalid limit. Limit must be greater than 0.", null));
+        }
+
+        List<Map<String, Object>> suggestions = productService.suggestNames(prefix, limit);
+        if (suggestions.isEmpty()) {
+            return ResponseEntity.ok(new ApiResponse<>("200", "No products match the prefix.", suggestions));
+        }
+        return ResponseEntity.ok(new ApiResponse<>("200", "Product name suggestions.", suggestions));
+    }
+
+    //**TO READ THE CHANGES SINCE A CURSOR**
+    @Operation(
+            summary = "Get product changes since a cursor",
+            description = "Incremental sync: returns the products created, updated, reviewed, offered or deleted after the "
+                    + "cursor, oldest first, with the cursor to read from next. Without since, returns only the current "
+                    + "cursor, to save before a full reload from /products/summaries. 410 if the changes after the cursor "
+                    + "were already pruned, in which case the consumer reloads in full."
+    )
+    @GetMapping("/changes")
+    public ResponseEntity<Object> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "100", required = false) int limit
+    ) {
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: Invalid limit. Limit must be greater than 0.", null));
+        }
+
+        Optional<Map<String, Object>> changes;
+        try {
+            changes = productService.getChanges(since, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error: " + e.getMessage(), null));
+        }
+        if (changes.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.GONE).body(new ApiResponse<>("410",
+                    "Error: Changes after the cursor were pruned. Reload from /products/summaries.", null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>("200", "Product changes retrieved successfully", changes.get()));
+    }
+
+    //**TO STREAM PRODUCT CHANGES AS SERVER-SENT EVENTS**
+    @Operation(
+            summary = "Stream product changes",
+            description = "Server-sent events, named by change type (CREATED, UPDATED, REVIEW_ADDED, OFFER_ADDED, DELETED), "
+                    + "carrying the product's price, discounted price, active offer and rating once a change commits. "
+                    + "Optionally limited to the products in ids. A slow client receives only the latest change of each "
+                    + "product; one too far behind gets an overflow event and is disconnected."
+    )
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(@RequestParam(required = false) List<String> ids) {
+        if (ids != null && ids.size() > maxMultiGetIds) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<SseEmitter> emitter = productStream.subscribe(ids);
+        if (emitter.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+        return ResponseEntity.ok(emitter.get());
+    }
+
+    //**TO DOWNLOAD THE CATALOG SNAPSHOT FILE**
+    @Operation(
+            summary = "Download the catalog snapshot file",
+            description = "Streams the binary catalog snapshot (summaries, rating aggregates and offers), "
+                    + "for replicas that warm from it or serve it in read-only mode."
+    )
+    @GetMapping("/snapshot")
+    public ResponseEntity<StreamingResponseBody> downloadSnapshot() throws IOException {
+        Optional<FileChannel> snapshot = productService.openSnapshotFile();
+        if (snapshot.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        FileChannel channel = snapshot.get();
+        long size = channel.size();
+        StreamingResponseBody body = out -> {
+            // transferTo lets the kernel move the file pages to the response channel without a user-space copy
+            try (FileChannel source = channel) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = 0;
+                while (position < size) {
+                    position += source.transferTo(position, size - position, target);
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(size)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalog.snapshot\"")
+                .body(body);
+    }
+
     //***To Delete a product
     @Operation(
             summary = "Delete product by ID",
             description = "Delete a product by its ID."
         )
     @DeleteMapping("/{productId}")
-    public ResponseEntity<ApiResponse<Optional<Product>>> deleteProduct(@PathVariable String productId) {
-        Optional<Product> existingProduct = productService.getProduct(productId);
-
-        if (existingProduct.isPresent()) {
-            //If Product found, delete it
-            productService.deleteProduct(productId);
-
-            return ResponseEntity.ok(new ApiResponse<>("200", "Product deleted successfully",existingProduct));
+    public ResponseEntity<ApiResponse<String>> deleteProduct(@PathVariable String productId) {
+        //Deletes without loading the product first; no deleted row means it did not exist
+        if (productService.deleteProduct(productId)) {
+            return ResponseEntity.ok(new ApiResponse<>("200", "Product deleted successfully", productId));
         } else {
             //If Product not found, return a not found response with a error message
             List<String> errors = Collections.singletonList("Error occured in deleting the product");
@@ -277,6 +625,40 @@ public class ProductController {
         }
     }
 
+    //***To Delete products in bulk
+    @Operation(
+            summary = "Delete products in bulk",
+            description = "Delete a list of products, or all products in a price range, with chunked set-based statements."
+        )
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> bulkDeleteProducts(@Valid @RequestBody BulkDeleteRequest request,
+                                                                           BindingResult bindingResult) {
+        // Check if there are validation errors in the input
+        if (bindingResult.hasErrors()) {
+            List<String> errors = bindingResult.getFieldErrors().stream()
+                    .map(FieldError::getDefaultMessage)
+                    .toList();
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Validation errors occurred. Please check your input", errors));
+        }
+
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean byPrice = request.getMinPrice() != null || request.getMaxPrice() != null;
+        if (byIds == byPrice) {
+            List<String> errors = Collections.singletonList("Provide either a list of product IDs or a price range");
+            return ResponseEntity.badRequest().body(new ApiResponse<>("400", "Error in deleting products", errors));
+        }
+
+        Map<String, Object> report;
+        if (byIds) {
+            report = productService.deleteProducts(request.getIds());
+        } else {
+            double minPrice = request.getMinPrice() != null ? request.getMinPrice() : 0;
+            double maxPrice = request.getMaxPrice() != null ? request.getMaxPrice() : Double.MAX_VALUE;
+            report = productService.deleteProductsByPrice(minPrice, maxPrice);
+        }
+        return ResponseEntity.ok(new ApiResponse<>("200", "Products deleted successfully", report));
+    }
+
    //*** Retrieves product reviews in a paginated format****
     @Operation(
             summary = "Get reviews for product",
@@ -303,6 +685,7 @@ public class ProductController {
             PageRequest pageRequest = PageRequest.of(page, size);
 
             // Retrieve reviews for the specified product
+            hotProducts.record(HotProducts.Access.REVIEWS, productId);
             Page<Map<String, Object>> productReviews = productService.getReviewsForProduct(productId, pageRequest);
 
             // Check if there are no reviews
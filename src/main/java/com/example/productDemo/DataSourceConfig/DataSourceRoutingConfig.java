@@ -0,0 +1,64 @@
+package com.example.productDemo.DataSourceConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Read/write splitting: read-only transactions go to the configured replicas, everything else
+ * (and any request from a client that has just written) goes to the primary spring.datasource.
+ *
+ * Enabled with product.datasource.routing.enabled=true; otherwise the single auto-configured
+ * datasource is used as before.
+ */
+@Configuration
+@ConditionalOnProperty(name = "product.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(RoutingProperties.class)
+public class DataSourceRoutingConfig {
+
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, RoutingProperties routingProperties) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (ConnectionProperties replica : routingProperties.getReplicas()) {
+            HikariDataSource pool = replica.createPool("replica-" + replicas.size());
+            pool.setReadOnly(true);
+            replicaPools.add(pool);
+            replicas.add(pool);
+        }
+        // The lazy proxy defers fetching a connection until the transaction's read-only flag is set
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicas));
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(RoutingProperties routingProperties) {
+        return new FilterRegistrationBean<>(new ReadYourWritesFilter(routingProperties.getStickinessMs()));
+    }
+
+    @PreDestroy
+    public void closeReplicas() {
+        replicaPools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.productDemo.DataSourceConfig;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Read-only mode: reads are answered from the memory-mapped catalog snapshot file and
+ * the database is never contacted (see the "readonly" profile), so writes are refused.
+ */
+@Configuration
+@ConditionalOnProperty(name = "product.snapshot-file.read-only", havingValue = "true")
+public class ReadOnlyModeConfig {
+
+    @Bean
+    public FilterRegistrationBean<ReadOnlyModeFilter> readOnlyModeFilter(ObjectMapper objectMapper) {
+        return new FilterRegistrationBean<>(new ReadOnlyModeFilter(objectMapper));
+    }
+}
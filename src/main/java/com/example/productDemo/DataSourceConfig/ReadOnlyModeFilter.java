@@ -0,0 +1,51 @@
+package com.example.productDemo.DataSourceConfig;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.productDemo.Controller.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Rejects writes while the application serves reads from the catalog snapshot file only.
+ *
+ * GET, HEAD and OPTIONS pass, as does POST /products/multi-get, which is a read that takes
+ * its IDs in the body; everything else gets a 503.
+ */
+public class ReadOnlyModeFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper;
+
+    public ReadOnlyModeFilter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isRead(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse<>("503",
+                "Service is in read-only mode; writes are not accepted.",
+                Collections.singletonList("Error occured: the catalog is served from a snapshot")));
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)
+                || ("POST".equals(method) && "/products/multi-get".equals(request.getRequestURI()));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.productDemo.DataSourceConfig;
+
+/**
+ * Per-thread routing hints for the read/write routing datasource.
+ *
+ * A thread pinned to the primary sends even read-only transactions to the primary,
+ * which gives a client read-your-writes consistency right after its own write.
+ */
+public final class ReadRoutingContext {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private ReadRoutingContext() {
+    }
+
+    public static void pinToPrimary(boolean pinned) {
+        PINNED_TO_PRIMARY.set(pinned);
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED_TO_PRIMARY.get());
+    }
+
+    public static void clear() {
+        PINNED_TO_PRIMARY.remove();
+    }
+}
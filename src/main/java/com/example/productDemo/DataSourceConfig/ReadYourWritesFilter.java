@@ -0,0 +1,73 @@
+package com.example.productDemo.DataSourceConfig;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Pins a client's requests to the primary for a short window after it wrote something,
+ * so it never reads stale data from a lagging replica right after its own write.
+ *
+ * Clients are identified by the X-Client-Id header, falling back to the remote address.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    // Above this many tracked clients, expired entries are pruned on the next write
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private final long stickinessMs;
+    private final Map<String, Long> lastWriteByClient = new ConcurrentHashMap<>();
+
+    public ReadYourWritesFilter(long stickinessMs) {
+        this.stickinessMs = stickinessMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientId = clientId(request);
+        boolean write = isWrite(request.getMethod());
+
+        ReadRoutingContext.pinToPrimary(write || wroteRecently(clientId));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadRoutingContext.clear();
+            // The window starts once the write has committed on the primary
+            if (write && response.getStatus() < 400) {
+                recordWrite(clientId);
+            }
+        }
+    }
+
+    boolean wroteRecently(String clientId) {
+        Long lastWrite = lastWriteByClient.get(clientId);
+        return lastWrite != null && System.currentTimeMillis() - lastWrite < stickinessMs;
+    }
+
+    void recordWrite(String clientId) {
+        long now = System.currentTimeMillis();
+        lastWriteByClient.put(clientId, now);
+        if (lastWriteByClient.size() > PRUNE_THRESHOLD) {
+            lastWriteByClient.values().removeIf(lastWrite -> now - lastWrite >= stickinessMs);
+        }
+    }
+
+    private static String clientId(HttpServletRequest request) {
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        return clientId != null && !clientId.isBlank() ? clientId : request.getRemoteAddr();
+    }
+
+    private static boolean isWrite(String method) {
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.productDemo.DataSourceConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Replica connections and read-your-writes settings, bound from product.datasource.*
+@ConfigurationProperties("product.datasource")
+public class RoutingProperties {
+
+    private List<ConnectionProperties> replicas = new ArrayList<>();
+
+    // How long a client's reads stay on the primary after its own write
+    private long stickinessMs = 2000;
+
+    public List<ConnectionProperties> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<ConnectionProperties> replicas) {
+        this.replicas = replicas;
+    }
+
+    public long getStickinessMs() {
+        return stickinessMs;
+    }
+
+    public void setStickinessMs(long stickinessMs) {
+        this.stickinessMs = stickinessMs;
+    }
+}
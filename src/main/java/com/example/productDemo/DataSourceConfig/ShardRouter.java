@@ -0,0 +1,156 @@
+package com.example.productDemo.DataSourceConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Decides which shard owns a product and runs database work there.
+ *
+ * A product lives on shard hash(id) mod N, together with its reviews and offers. Point operations
+ * run in a transaction on the owning shard; reads over the whole catalog scatter to every shard in
+ * parallel and let the caller merge. With sharding disabled there is a single shard and all work
+ * runs on the calling thread, in the caller's transaction if there is one.
+ */
+@Component
+public class ShardRouter {
+
+    @Autowired
+    private ShardingProperties properties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readWriteTransaction;
+    private TransactionTemplate readOnlyTransaction;
+    private ExecutorService scatterPool;
+
+    @PostConstruct
+    public void start() {
+        // Each shard needs its own transaction (and connection), even inside an outer transaction
+        int propagation = isEnabled()
+                ? TransactionDefinition.PROPAGATION_REQUIRES_NEW
+                : TransactionDefinition.PROPAGATION_REQUIRED;
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readWriteTransaction.setPropagationBehavior(propagation);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setPropagationBehavior(propagation);
+        readOnlyTransaction.setReadOnly(true);
+
+        if (isEnabled()) {
+            scatterPool = Executors.newFixedThreadPool(properties.getScatterThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scatterPool != null) {
+            scatterPool.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public int shardCount() {
+        return isEnabled() ? properties.getShards().size() : 1;
+    }
+
+    //----- Returns the shard that owns the given product.-----
+    public int shardFor(String productId) {
+        return isEnabled() ? Math.floorMod(productId.hashCode(), shardCount()) : 0;
+    }
+
+    //----- Groups product ids by owning shard.-----
+    public Map<Integer, List<String>> groupByShard(Collection<String> productIds) {
+        Map<Integer, List<String>> groups = new TreeMap<>();
+        for (String productId : productIds) {
+            groups.computeIfAbsent(shardFor(productId), shard -> new ArrayList<>()).add(productId);
+        }
+        return groups;
+    }
+
+    //----- Runs work against one shard, without starting a transaction.-----
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        Integer previous = ShardContext.current();
+        ShardContext.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    //----- Runs work in a transaction on the given shard.-----
+    public <T> T inTransactionOnShard(int shard, boolean readOnly, Supplier<T> work) {
+        TransactionTemplate transaction = readOnly ? readOnlyTransaction : readWriteTransaction;
+        return onShard(shard, () -> transaction.execute(status -> work.get()));
+    }
+
+    //----- Runs work in a read-write transaction on the shard owning the product.-----
+    public <T> T inTransaction(String productId, Supplier<T> work) {
+        return inTransactionOnShard(shardFor(productId), false, work);
+    }
+
+    //----- Runs work in a read-only transaction on the shard owning the product.-----
+    public <T> T inReadOnlyTransaction(String productId, Supplier<T> work) {
+        return inTransactionOnShard(shardFor(productId), true, work);
+    }
+
+    /**
+     * Runs work once per shard, in parallel, and returns the results in shard order.
+     * The work receives the shard number and runs with that shard selected.
+     */
+    public <T> List<T> scatter(IntFunction<T> work) {
+        if (!isEnabled()) {
+            return Collections.singletonList(work.apply(0));
+        }
+        List<Future<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shardCount(); shard++) {
+            int target = shard;
+            futures.add(scatterPool.submit(() -> onShard(target, () -> work.apply(target))));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Shard query failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for shards", e);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.productDemo.DataSourceConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Hash-sharded storage: with product.sharding.enabled=true, products (with their reviews and
+ * offers) are spread over the databases listed in product.sharding.shards by ShardRouter, and
+ * spring.datasource is not used.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Configuration
+    @ConditionalOnProperty(name = "product.sharding.enabled", havingValue = "true")
+    static class ShardedDataSourceConfig {
+
+        private final List<HikariDataSource> shardPools = new ArrayList<>();
+
+        @Bean
+        @Primary
+        public DataSource dataSource(ShardingProperties properties, Environment environment) {
+            if (properties.getShards().isEmpty()) {
+                throw new IllegalStateException("product.sharding.shards must list at least one database");
+            }
+            if (environment.getProperty("product.datasource.routing.enabled", Boolean.class, false)) {
+                throw new IllegalStateException("Sharding cannot be combined with product.datasource.routing.enabled");
+            }
+            // An open-in-view session would hold on to the first shard's connection for the whole request
+            if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+                throw new IllegalStateException("Sharding requires spring.jpa.open-in-view=false");
+            }
+
+            for (ConnectionProperties shard : properties.getShards()) {
+                shardPools.add(shard.createPool("shard-" + shardPools.size()));
+            }
+            return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shardPools));
+        }
+
+        // Applies the same migrations to every shard
+        @Bean
+        public FlywayMigrationStrategy shardMigrationStrategy() {
+            return flyway -> shardPools.forEach(shard -> Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(shard)
+                    .load()
+                    .migrate());
+        }
+
+        @PreDestroy
+        public void closeShards() {
+            shardPools.forEach(HikariDataSource::close);
+        }
+    }
+}
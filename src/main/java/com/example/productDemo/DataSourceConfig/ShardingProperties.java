@@ -0,0 +1,43 @@
+package com.example.productDemo.DataSourceConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Shard connections for hash-sharded storage, bound from product.sharding.*
+@ConfigurationProperties("product.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    // Order matters: a product lives on shards[hash(id) mod shards.size()]
+    private List<ConnectionProperties> shards = new ArrayList<>();
+
+    // Threads used to query the shards in parallel for scatter-gather reads
+    private int scatterThreads = 8;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<ConnectionProperties> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<ConnectionProperties> shards) {
+        this.shards = shards;
+    }
+
+    public int getScatterThreads() {
+        return scatterThreads;
+    }
+
+    public void setScatterThreads(int scatterThreads) {
+        this.scatterThreads = scatterThreads;
+    }
+}
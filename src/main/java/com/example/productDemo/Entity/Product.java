@@ -3,8 +3,14 @@ package com.example.productDemo.Entity;
 import javax.persistence.*;
 import javax.validation.constraints.*;
 
+import org.hibernate.annotations.BatchSize;
+
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 public class Product {
@@ -19,6 +25,11 @@ public class Product {
     @Pattern(regexp = "^[a-zA-Z0-9]*[a-zA-Z][a-zA-Z0-9]*$", message = "Name must be alpha-numeric")
 	private String name;
     
+    // Lower-cased name backing the case-insensitive unique index
+    @JsonIgnore
+    @Column(name = "name_normalized", nullable = false, unique = true)
+    private String nameNormalized;
+    
     @Column(nullable = false)
     @NotBlank(message = "Description is required")
     @NotNull(message="Description should not be null")
@@ -32,19 +43,22 @@ public class Product {
     // Reviews associated with the product
 	@ElementCollection
     @CollectionTable(name = "product_reviews", joinColumns = @JoinColumn(name = "product_id"))
+    @BatchSize(size = 100)
     private List<Review> reviews;
 
 	// Offers associated with the product
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "product_offers", joinColumns = @JoinColumn(name = "product_id"))
+    @BatchSize(size = 100)
     private List<Offer> offers;
 
     // Transient field for storing calculated average rating
     @Transient
     private Double averageRating;
     
-    // Transient field to store the discounted price of the product, calculated based on the applied offers.
-    @Transient
+    // Price less the best offer running today. Written only by ProductRepository.refreshDiscountedPrices,
+    // on every write and when offers start or end, so reads never evaluate offers.
+    @Column(name = "discounted_price", insertable = false, updatable = false)
     private Double discountedPrice;
    
     // Constructors 
@@ -61,6 +75,19 @@ public class Product {
         
     } 
 
+    // Detached copy with its own lists, for handing one loaded product to several callers
+    public Product(Product other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.nameNormalized = other.nameNormalized;
+        this.description = other.description;
+        this.price = other.price;
+        this.reviews = other.reviews == null ? null : new ArrayList<>(other.reviews);
+        this.offers = other.offers == null ? null : new ArrayList<>(other.offers);
+        this.averageRating = other.averageRating;
+        this.discountedPrice = other.discountedPrice;
+    }
+
     // Getters and setters
     public String getId() {
         return id;
@@ -78,6 +105,21 @@ public class Product {
         this.name = name;
     }
 
+    public String getNameNormalized() {
+        return nameNormalized;
+    }
+
+    // Keeps the normalized name in step with the name before every insert and update
+    @PrePersist
+    @PreUpdate
+    void normalizeName() {
+        this.nameNormalized = normalizeName(name);
+    }
+
+    public static String normalizeName(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
     public String getDescription() {
         return description;
     }
@@ -195,7 +237,8 @@ public class Product {
 		@Column(nullable = false)
     	@NotBlank(message = "offer details are required")
     	@NotNull(message="offer details should not be null")
-		@Pattern(regexp = "^\\d+% discount$", message = "Offer details must be in the format like '20% discount'")
+		// At most 100%, which also keeps the percentage within the DECIMAL(5,2) the discount SQL casts it to
+		@Pattern(regexp = "^(100|[1-9]?\\d)% discount$", message = "Offer details must be in the format like '20% discount', at most 100%")
         private String offerdetails;
     	
     	@Column(nullable=false)
@@ -213,6 +256,11 @@ public class Product {
     	
     	@Column(nullable = false)
         private Double discountAmount;
+
+    	// Redemptions allowed across all nodes; null for no cap
+    	@Column(name = "max_redemptions")
+    	@Min(value = 1, message = "maxRedemptions must be at least 1")
+    	private Integer maxRedemptions;
         
 		// Constructors
         public Offer() {
@@ -267,6 +315,14 @@ public class Product {
 	    public void setDiscountAmount(Double discountAmount) {
 	        this.discountAmount = discountAmount;
 	    }
+
+		public Integer getMaxRedemptions() {
+			return maxRedemptions;
+		}
+
+		public void setMaxRedemptions(Integer maxRedemptions) {
+			this.maxRedemptions = maxRedemptions;
+		}
         
     }
 }
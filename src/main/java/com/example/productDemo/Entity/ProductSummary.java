@@ -0,0 +1,90 @@
+package com.example.productDemo.Entity;
+
+import javax.persistence.*;
+
+import java.util.Set;
+
+/**
+ * Read model of a product for listings: the product columns plus its review statistics and
+ * discounted price, precomputed on every write so listings never touch reviews or offers.
+ * Rows are written only by ProductSummaryRepository.refresh.
+ */
+@Entity
+@Table(name = "product_summary")
+public class ProductSummary {
+
+    // Properties the summary listing can be sorted by
+    public static final Set<String> SORTABLE_FIELDS = Set.of("id", "name", "price", "discountedPrice", "averageRating", "reviewCount");
+
+    @Id
+    private String id;
+
+    private String name;
+
+    private String description;
+
+    private double price;
+
+    @Column(name = "average_rating")
+    private Double averageRating;
+
+    @Column(name = "review_count")
+    private int reviewCount;
+
+    @Column(name = "discounted_price")
+    private double discountedPrice;
+
+    // Whether an offer runs today; recomputed nightly since offers start and end with the calendar
+    @Column(name = "has_active_offer")
+    private boolean activeOffer;
+
+    public ProductSummary() { }
+
+    public ProductSummary(String id, String name, String description, double price, Double averageRating, int reviewCount, double discountedPrice) {
+        this(id, name, description, price, averageRating, reviewCount, discountedPrice, false);
+    }
+
+    public ProductSummary(String id, String name, String description, double price, Double averageRating, int reviewCount,
+            double discountedPrice, boolean activeOffer) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.averageRating = averageRating;
+        this.reviewCount = reviewCount;
+        this.discountedPrice = discountedPrice;
+        this.activeOffer = activeOffer;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public Double getAverageRating() {
+        return averageRating;
+    }
+
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    public double getDiscountedPrice() {
+        return discountedPrice;
+    }
+
+    public boolean hasActiveOffer() {
+        return activeOffer;
+    }
+}
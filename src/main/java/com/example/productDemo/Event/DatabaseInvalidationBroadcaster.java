@@ -0,0 +1,227 @@
+package com.example.productDemo.Event;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Index.CatalogFileStore;
+import com.example.productDemo.Repository.ProductRepository;
+
+/**
+ * Invalidation transport that needs nothing but the shared database: it polls the product_changes
+ * feed every product.invalidation.poll-ms and delivers the changes recorded by other nodes.
+ *
+ * The feed is written in the transaction of every write and numbered gaplessly in commit order
+ * (see ProductChangeLog), so polling past the last number read never misses a change, and a change
+ * older than the start of the last successful poll has been delivered: that time is the staleness
+ * bound. Polls go to the primary, so replica lag does not add to it. If the feed was pruned past
+ * the cursor, for instance after a long outage, the listener is told to drop everything instead.
+ */
+@Component
+public class DatabaseInvalidationBroadcaster implements InvalidationBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseInvalidationBroadcaster.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Value("${product.invalidation.enabled:true}")
+    private boolean enabled;
+
+    // The feed this transport reads
+    @Value("${product.changes.enabled:true}")
+    private boolean changesEnabled;
+
+    @Value("${product.invalidation.poll-ms:1000}")
+    private long pollMs = 1000;
+
+    // Changes read per query
+    @Value("${product.invalidation.batch-size:1000}")
+    private int batchSize = 1000;
+
+    private String nodeId;
+    private InvalidationListener listener;
+    private ScheduledExecutorService poller;
+    private volatile boolean running;
+    // Last sequence number read per shard; null until the head has been read
+    private volatile long[] cursor;
+    private volatile long lastPollStartedAt;
+
+    private final InvalidationLag lag = new InvalidationLag();
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder pollErrors = new LongAdder();
+    private final LongAdder ownChangesSkipped = new LongAdder();
+    private final LongAdder fullInvalidations = new LongAdder();
+
+    @Override
+    public String name() {
+        return "database";
+    }
+
+    @Override
+    public synchronized void start(String nodeId, InvalidationListener listener) {
+        // A read-only node never connects to the database
+        if (running || !enabled || !changesEnabled || catalogFileStore.isReadOnly()) {
+            return;
+        }
+        this.nodeId = nodeId;
+        this.listener = listener;
+        lastPollStartedAt = System.currentTimeMillis();
+        poller = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "invalidation-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        // Changes committed before the start are already reflected in what this node loads
+        poller.execute(this::readHead);
+        poller.scheduleWithFixedDelay(this::poll, pollMs, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.shutdownNow();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return running;
+    }
+
+    @Override
+    public long stalenessBoundMs() {
+        return running ? System.currentTimeMillis() - lastPollStartedAt : -1;
+    }
+
+    private void readHead() {
+        try {
+            cursor = head();
+        } catch (RuntimeException e) {
+            // Retried by the next poll
+            pollErrors.increment();
+            log.warn("Invalidation poller could not read the change feed: {}", e.getMessage());
+        }
+    }
+
+    private long[] head() {
+        long[] head = new long[shardRouter.shardCount()];
+        for (int shard = 0; shard < head.length; shard++) {
+            head[shard] = shardRouter.inTransactionOnShard(shard, false, productRepository::findLastChangeSequence);
+        }
+        return head;
+    }
+
+    //----- Delivers the changes other nodes committed since the last poll; runs on the poller thread.-----
+    public void poll() {
+        if (!running) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        try {
+            if (cursor == null) {
+                // The head could not be read at start: anything loaded meanwhile may be stale
+                cursor = head();
+                fullInvalidations.increment();
+                listener.invalidateAll();
+            }
+            long[] next = cursor.clone();
+            for (int shard = 0; shard < next.length; shard++) {
+                next[shard] = pollShard(shard, next[shard]);
+            }
+            cursor = next;
+            polls.increment();
+            lastPollStartedAt = startedAt;
+        } catch (RuntimeException e) {
+            // The staleness bound keeps growing until a poll succeeds
+            pollErrors.increment();
+            log.warn("Invalidation poll failed: {}", e.getMessage());
+        }
+    }
+
+    // Reads a shard's changes after the cursor, page by page, and returns the new cursor
+    private long pollShard(int shard, long after) {
+        while (true) {
+            long since = after;
+            List<Object[]> rows = shardRouter.inTransactionOnShard(shard, false, () -> productRepository.findChangesAfter(since, batchSize));
+            boolean pruned = rows.isEmpty()
+                    ? shardRouter.inTransactionOnShard(shard, false, productRepository::findLastChangeSequence) > after
+                    : ((Number) rows.get(0)[0]).longValue() > after + 1;
+            if (pruned) {
+                long head = shardRouter.inTransactionOnShard(shard, false, productRepository::findLastChangeSequence);
+                log.warn("Invalidation poller fell behind the retained changes of shard {}, invalidating everything", shard);
+                fullInvalidations.increment();
+                listener.invalidateAll();
+                return head;
+            }
+            if (rows.isEmpty()) {
+                return after;
+            }
+
+            long now = System.currentTimeMillis();
+            List<Invalidation> invalidations = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                String originNode = (String) row[4];
+                if (nodeId.equals(originNode)) {
+                    ownChangesSkipped.increment();
+                    continue;
+                }
+                long changedAt = ((Timestamp) row[3]).getTime();
+                invalidations.add(new Invalidation((String) row[1], ProductEvent.Type.valueOf((String) row[2]), changedAt, originNode));
+                lag.record(changedAt, now);
+            }
+            if (!invalidations.isEmpty()) {
+                listener.invalidate(invalidations);
+            }
+            // Advanced only once delivered, so a failing listener sees the changes again on the next poll
+            after = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+            if (rows.size() < batchSize) {
+                return after;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", running);
+        metrics.put("nodeId", nodeId);
+        metrics.put("pollMs", pollMs);
+        metrics.put("polls", polls.sum());
+        metrics.put("pollErrors", pollErrors.sum());
+        lag.putMetrics(metrics);
+        metrics.put("ownChangesSkipped", ownChangesSkipped.sum());
+        metrics.put("fullInvalidations", fullInvalidations.sum());
+        metrics.put("stalenessBoundMs", stalenessBoundMs());
+        long[] position = cursor;
+        metrics.put("cursor", position == null ? null : Arrays.stream(position).mapToObj(Long::toString).collect(Collectors.joining(",")));
+        return metrics;
+    }
+}
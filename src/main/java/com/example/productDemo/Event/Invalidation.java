@@ -0,0 +1,37 @@
+package com.example.productDemo.Event;
+
+/**
+ * A product changed by another node, as delivered by an InvalidationBroadcaster: whatever this
+ * node holds for the product is stale and must be dropped or reloaded.
+ */
+public final class Invalidation {
+
+    private final String productId;
+    private final ProductEvent.Type type;
+    // Commit time on the writing side, in epoch milliseconds
+    private final long changedAt;
+    private final String originNode;
+
+    public Invalidation(String productId, ProductEvent.Type type, long changedAt, String originNode) {
+        this.productId = productId;
+        this.type = type;
+        this.changedAt = changedAt;
+        this.originNode = originNode;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public ProductEvent.Type getType() {
+        return type;
+    }
+
+    public long getChangedAt() {
+        return changedAt;
+    }
+
+    public String getOriginNode() {
+        return originNode;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.productDemo.Event;
+
+import java.util.Map;
+
+/**
+ * Transport that tells this node about product writes made on other nodes, so caches and in-memory
+ * indexes in front of the shared database do not keep serving what another node has changed.
+ *
+ * Every enabled implementation is started by ProductService with the same listener. Transports can
+ * be combined: a fast but lossy one for low lag, and one that never misses a change to bound how
+ * stale this node can be.
+ */
+public interface InvalidationBroadcaster {
+
+    String name();
+
+    // Starts delivering the changes of nodes other than nodeId (this node's) to the listener; does nothing when disabled
+    void start(String nodeId, InvalidationListener listener);
+
+    void stop();
+
+    // Whether the broadcaster was started and is delivering
+    boolean isEnabled();
+
+    /**
+     * Longest time a change committed on another node may have gone undelivered, in milliseconds: any
+     * change older than this has reached the listener.
+     *
+     * @return The bound, or -1 if the transport cannot guarantee one (it may lose messages).
+     */
+    long stalenessBoundMs();
+
+    // Invalidations received and their lag, plus transport details
+    Map<String, Object> metrics();
+}
@@ -0,0 +1,31 @@
+package com.example.productDemo.Event;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Delay between a change committing on another node and its invalidation reaching this one. Node clocks
+// (and, for the database transport, the database clock) are assumed to be in sync.
+final class InvalidationLag {
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder totalLagMs = new LongAdder();
+    private final AtomicLong lastLagMs = new AtomicLong(-1);
+    private final AtomicLong maxLagMs = new AtomicLong();
+
+    void record(long changedAt, long now) {
+        long lag = Math.max(0, now - changedAt);
+        received.increment();
+        totalLagMs.add(lag);
+        lastLagMs.set(lag);
+        maxLagMs.accumulateAndGet(lag, Math::max);
+    }
+
+    void putMetrics(Map<String, Object> metrics) {
+        long count = received.sum();
+        metrics.put("received", count);
+        metrics.put("lastLagMs", lastLagMs.get());
+        metrics.put("averageLagMs", count == 0 ? 0 : totalLagMs.sum() / count);
+        metrics.put("maxLagMs", maxLagMs.get());
+    }
+}
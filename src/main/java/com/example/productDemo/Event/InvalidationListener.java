@@ -0,0 +1,16 @@
+package com.example.productDemo.Event;
+
+import java.util.List;
+
+/**
+ * Receives the invalidations an InvalidationBroadcaster picks up from other nodes. Calls come from
+ * the broadcaster's own thread, one at a time per broadcaster.
+ */
+public interface InvalidationListener {
+
+    // Products changed elsewhere; a product may be listed more than once, and by more than one broadcaster
+    void invalidate(List<Invalidation> invalidations);
+
+    // Changes were missed (the broadcaster fell behind what is retained): drop everything derived from the database
+    void invalidateAll();
+}
@@ -0,0 +1,48 @@
+package com.example.productDemo.Event;
+
+import com.example.productDemo.Entity.ProductSummary;
+
+/**
+ * A committed change to a product, as delivered to ProductEventHandlers.
+ *
+ * Events live in the pre-allocated slots of the ProductEventBus ring and are overwritten once
+ * every consumer has passed them: handlers must copy what they keep instead of holding on to the
+ * event itself.
+ */
+public final class ProductEvent {
+
+    public enum Type {
+        CREATED, UPDATED, REVIEW_ADDED, OFFER_ADDED, DELETED
+    }
+
+    private Type type;
+    private String productId;
+    // The product's summary row as committed; null for DELETED
+    private ProductSummary summary;
+    private long timestamp;
+
+    // Written by the publisher that claimed the slot, before the slot is published
+    void set(Type type, String productId, ProductSummary summary, long timestamp) {
+        this.type = type;
+        this.productId = productId;
+        this.summary = summary;
+        this.timestamp = timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public ProductSummary getSummary() {
+        return summary;
+    }
+
+    // Commit time, in epoch milliseconds
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.productDemo.Event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.productDemo.Entity.ProductSummary;
+
+/**
+ * In-process bus of committed product changes, for caches and indexes that update asynchronously.
+ *
+ * Events are written into a pre-allocated ring of slots (Disruptor-style): publishers claim slots
+ * with a compare-and-set on the claim sequence and mark each slot published with its lap number,
+ * without locks. Every registered consumer reads the ring on its own thread, in sequence order and
+ * in batches of whatever has been published since its last pass, and advances its own sequence.
+ * A publisher only waits when the slowest consumer is a full ring behind.
+ *
+ * ProductService publishes once the write commits, so consumers never see rolled-back changes and
+ * writes do not wait for consumers.
+ */
+@Component
+public class ProductEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductEventBus.class);
+
+    @Value("${product.events.enabled:true}")
+    private boolean enabled;
+
+    // Rounded up to a power of two
+    @Value("${product.events.ring-size:8192}")
+    private int ringSize = 8192;
+
+    // blocking, sleeping, yielding or busy-spin
+    @Value("${product.events.wait-strategy:blocking}")
+    private String waitStrategyName = "blocking";
+
+    private ProductEvent[] slots;
+    private int mask;
+    private int lapShift;
+    // Per slot, the lap of the ring (sequence / size) whose event it holds once published
+    private AtomicIntegerArray publishedLaps;
+    // Highest sequence claimed by a publisher; published events may trail it briefly
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long gatingCache = -1;
+    private WaitStrategy waitStrategy;
+
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    private final LongAdder publisherWaits = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        int size = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+        slots = new ProductEvent[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ProductEvent();
+        }
+        mask = size - 1;
+        lapShift = Integer.numberOfTrailingZeros(size);
+        publishedLaps = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            publishedLaps.set(i, -1);
+        }
+        waitStrategy = WaitStrategy.valueOf(waitStrategyName.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    @PreDestroy
+    public void stop() {
+        consumers.forEach(Consumer::stop);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds a consumer, which receives the events published from now on.
+     *
+     * @param name Identifies the consumer in the metrics and names its thread.
+     */
+    public void register(String name, ProductEventHandler handler) {
+        Consumer consumer = new Consumer(name, handler, claimed.get());
+        consumers.add(consumer);
+        consumer.thread.start();
+    }
+
+    //----- Publishes an event per product once the current transaction commits (at once without one).-----
+    public void publishAfterCommit(ProductEvent.Type type, Collection<String> productIds, List<ProductSummary> summaries) {
+        if (!enabled || productIds.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(productIds);
+        Map<String, ProductSummary> summariesById = summaries.stream()
+                .collect(Collectors.toMap(ProductSummary::getId, Function.identity(), (first, second) -> second));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(type, ids, summariesById);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(type, ids, summariesById);
+            }
+        });
+    }
+
+    private void publish(ProductEvent.Type type, List<String> ids, Map<String, ProductSummary> summariesById) {
+        long timestamp = System.currentTimeMillis();
+        // Claimed in runs of at most half the ring, so a run never waits on itself
+        int run = Math.max(1, slots.length / 2);
+        for (int from = 0; from < ids.size(); from += run) {
+            int count = Math.min(run, ids.size() - from);
+            long last = claim(count);
+            long first = last - count + 1;
+            for (long sequence = first; sequence <= last; sequence++) {
+                String productId = ids.get(from + (int) (sequence - first));
+                slots[(int) (sequence & mask)].set(type, productId, summariesById.get(productId), timestamp);
+            }
+            for (long sequence = first; sequence <= last; sequence++) {
+                publishedLaps.set((int) (sequence & mask), (int) (sequence >>> lapShift));
+            }
+            waitStrategy.signalAll();
+        }
+    }
+
+    // Claims the next count sequences, waiting while that would overwrite events a consumer has not read
+    private long claim(int count) {
+        while (true) {
+            long current = claimed.get();
+            long next = current + count;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > gatingCache) {
+                long slowest = slowestConsumer(current);
+                if (wrapPoint > slowest) {
+                    publisherWaits.increment();
+                    LockSupport.parkNanos(1000);
+                    continue;
+                }
+                gatingCache = slowest;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long slowestConsumer(long fallback) {
+        long slowest = fallback;
+        for (Consumer consumer : consumers) {
+            slowest = Math.min(slowest, consumer.sequence.get());
+        }
+        return slowest;
+    }
+
+    private boolean isPublished(long sequence) {
+        return publishedLaps.get((int) (sequence & mask)) == (int) (sequence >>> lapShift);
+    }
+
+    //----- Events claimed but not yet handled by the named consumer, or 0 if there is none.-----
+    public long lag(String name) {
+        long cursor = claimed.get();
+        return consumers.stream().filter(consumer -> consumer.name.equals(name))
+                .mapToLong(consumer -> cursor - consumer.sequence.get()).findFirst().orElse(0L);
+    }
+
+    //----- Ring and per-consumer metrics; lag is the number of claimed events a consumer has not read.-----
+    public Map<String, Object> metrics() {
+        long cursor = claimed.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("ringSize", slots.length);
+        metrics.put("waitStrategy", waitStrategy.name().toLowerCase(Locale.ROOT));
+        metrics.put("published", cursor + 1);
+        metrics.put("publisherWaits", publisherWaits.sum());
+        List<Map<String, Object>> consumerMetrics = new ArrayList<>();
+        for (Consumer consumer : consumers) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            long batches = consumer.batches;
+            entry.put("name", consumer.name);
+            entry.put("sequence", consumer.sequence.get());
+            entry.put("lag", cursor - consumer.sequence.get());
+            entry.put("processed", consumer.processed);
+            entry.put("batches", batches);
+            entry.put("averageBatchSize", batches == 0 ? 0.0 : Math.round(consumer.processed * 100.0 / batches) / 100.0);
+            entry.put("maxBatchSize", consumer.maxBatchSize);
+            entry.put("errors", consumer.errors);
+            consumerMetrics.add(entry);
+        }
+        metrics.put("consumers", consumerMetrics);
+        return metrics;
+    }
+
+    //***A consumer thread reading the ring in batches***
+    private final class Consumer {
+
+        private final String name;
+        private final ProductEventHandler handler;
+        // Last sequence handled; publishers may overwrite every slot up to it
+        private final AtomicLong sequence;
+        private final Thread thread;
+        private volatile boolean running = true;
+        // Written by the consumer thread only
+        private volatile long processed;
+        private volatile long batches;
+        private volatile long maxBatchSize;
+        private volatile long errors;
+
+        Consumer(String name, ProductEventHandler handler, long start) {
+            this.name = name;
+            this.handler = handler;
+            this.sequence = new AtomicLong(start);
+            this.thread = new Thread(this::run, "product-events-" + name);
+            thread.setDaemon(true);
+        }
+
+        void run() {
+            long next = sequence.get() + 1;
+            try {
+                while (running) {
+                    long seen = waitStrategy.waitFor(next, claimed::get, () -> !running);
+                    // Claimed slots are published in order by each publisher, but publishers interleave
+                    long highest = next - 1;
+                    while (highest < seen && isPublished(highest + 1)) {
+                        highest++;
+                    }
+                    if (highest < next) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    for (long current = next; current <= highest; current++) {
+                        try {
+                            handler.onEvent(slots[(int) (current & mask)], current, current == highest);
+                        } catch (RuntimeException e) {
+                            errors++;
+                            log.error("Product event consumer {} failed on event {}", name, current, e);
+                        }
+                    }
+                    long batchSize = highest - next + 1;
+                    processed += batchSize;
+                    batches++;
+                    maxBatchSize = Math.max(maxBatchSize, batchSize);
+                    sequence.set(highest);
+                    next = highest + 1;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void stop() {
+            running = false;
+            waitStrategy.signalAll();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
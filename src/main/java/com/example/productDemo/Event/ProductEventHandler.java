@@ -0,0 +1,15 @@
+package com.example.productDemo.Event;
+
+/**
+ * A consumer of the ProductEventBus, called on its own thread for every event in sequence order.
+ */
+@FunctionalInterface
+public interface ProductEventHandler {
+
+    /**
+     * @param sequence   Position of the event on the bus, increasing by one per event.
+     * @param endOfBatch Whether this is the last event currently available, so a handler can
+     *                   apply work accumulated over the batch.
+     */
+    void onEvent(ProductEvent event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,488 @@
+package com.example.productDemo.Event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Index.CatalogFileStore;
+
+/**
+ * Append-only journal of committed product changes, fed by the ProductEventBus.
+ *
+ * Records (sequence number, commit time, event type, product id and committed summary, with a
+ * CRC32) are appended to fixed-size memory-mapped segment files. The journal consumer forces the
+ * mapped pages to disk once per batch of events rather than per record (group commit), and rolls
+ * over to a new segment when one is full, keeping the newest product.journal.max-segments.
+ *
+ * At startup the in-memory indexes load the catalog snapshot file and then replay the journal from
+ * the time the file was written, instead of rescanning the database; replaySince refuses when
+ * the journal has a gap (a crash before the last batch was forced, or deleted segments). The
+ * static read method also lets tools replay a copied journal directory elsewhere.
+ */
+@Component
+public class ProductJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductJournal.class);
+
+    private static final int MAGIC = 0x504A4E4C; // "PJNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    // Record kinds after the event types: end of a full segment, clean shutdown
+    private static final byte ROLLOVER = 100;
+    private static final byte CLOSE = 101;
+    // Length, sequence, time, kind and CRC of a marker record
+    private static final int MARKER_SIZE = 4 + 8 + 8 + 1 + 4;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Autowired
+    private ProductEventBus productEventBus;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Value("${product.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.journal.directory:./data/journal}")
+    private String directory = "./data/journal";
+
+    @Value("${product.journal.segment-size:67108864}")
+    private int segmentSize = 64 * 1024 * 1024;
+
+    @Value("${product.journal.max-segments:16}")
+    private int maxSegments = 16;
+
+    @Value("${product.journal.replay-at-startup:true}")
+    private boolean replayAtStartup = true;
+
+    // Replay starts this long before the snapshot file was finished, covering the writes made while it was written
+    @Value("${product.journal.replay-overlap-ms:300000}")
+    private long replayOverlapMs = 300000;
+
+    private volatile boolean open;
+    private MappedByteBuffer segment;
+    private Path segmentPath;
+    private int position;
+    private int forcedPosition;
+    private long nextSequence = 1;
+    private long recordsWritten;
+    private long forces;
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+
+    private long replayedSince = Long.MIN_VALUE;
+    private Optional<Replay> replay = Optional.empty();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || !productEventBus.isEnabled() || catalogFileStore.isReadOnly()) {
+            return;
+        }
+        try {
+            Files.createDirectories(Paths.get(directory));
+            List<Path> segments = segments(Paths.get(directory));
+            if (!segments.isEmpty()) {
+                // Sequences continue across runs; a new run always starts a new segment
+                long[] last = { baseSequence(segments.get(segments.size() - 1)) - 1 };
+                readSegment(segments.get(segments.size() - 1), record -> last[0] = record.getSequence());
+                nextSequence = last[0] + 1;
+            }
+            openSegment();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Product journal not opened", e);
+            return;
+        }
+        open = true;
+        productEventBus.register("journal", this::append);
+    }
+
+    //----- Writes the clean shutdown marker once the journal consumer has caught up.-----
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!open) {
+            return;
+        }
+        for (int attempt = 0; attempt < 200 && productEventBus.lag("journal") > 0; attempt++) {
+            Thread.sleep(10);
+        }
+        synchronized (this) {
+            // Left unmarked when events were still pending, so the next start does not trust the journal
+            if (productEventBus.lag("journal") == 0) {
+                writeRecord(System.currentTimeMillis(), CLOSE, null, null);
+                force();
+            }
+            open = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return open;
+    }
+
+    // Called on the journal consumer thread; the batch is forced once, after its last event
+    private synchronized void append(ProductEvent event, long busSequence, boolean endOfBatch) {
+        if (!open) {
+            return;
+        }
+        writeRecord(event.getTimestamp(), (byte) event.getType().ordinal(), event.getProductId(), event.getSummary());
+        if (endOfBatch) {
+            force();
+        }
+    }
+
+    private void writeRecord(long timestamp, byte kind, String productId, ProductSummary summary) {
+        byte[] record = encode(nextSequence, timestamp, kind, productId, summary);
+        // Room is always left for the rollover marker
+        if (position + record.length > segmentSize - MARKER_SIZE) {
+            segment.position(position);
+            segment.put(marker(ROLLOVER));
+            position += MARKER_SIZE;
+            // Markers take a sequence number too, so the next segment starts right after this one
+            nextSequence++;
+            force();
+            try {
+                openSegment();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not roll the product journal over", e);
+            }
+            record = encode(nextSequence, timestamp, kind, productId, summary);
+            if (record.length > segmentSize - HEADER_SIZE - MARKER_SIZE) {
+                throw new IllegalStateException("Journal record larger than a segment");
+            }
+        }
+        segment.position(position);
+        segment.put(record);
+        position += record.length;
+        nextSequence++;
+        recordsWritten++;
+    }
+
+    private void force() {
+        if (position > forcedPosition) {
+            segment.force(forcedPosition, position - forcedPosition);
+            forcedPosition = position;
+            forces++;
+        }
+    }
+
+    private byte[] marker(byte kind) {
+        return encode(nextSequence, System.currentTimeMillis(), kind, null, null);
+    }
+
+    private void openSegment() throws IOException {
+        Path path = Paths.get(directory, String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence, SEGMENT_SUFFIX));
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(segmentSize);
+            // The mapping stays valid after the file is closed
+            segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.putInt(MAGIC).putInt(VERSION).putLong(nextSequence).putLong(System.currentTimeMillis());
+        segment.force(0, HEADER_SIZE);
+        segmentPath = path;
+        position = HEADER_SIZE;
+        forcedPosition = HEADER_SIZE;
+
+        List<Path> segments = segments(Paths.get(directory));
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    // Record: payload length, then sequence, time, kind, product id and summary, then a CRC32 of the payload
+    private byte[] encode(long sequence, long timestamp, byte kind, String productId, ProductSummary summary) {
+        recordBytes.reset();
+        try {
+            DataOutputStream out = new DataOutputStream(recordBytes);
+            out.writeInt(0);
+            out.writeLong(sequence);
+            out.writeLong(timestamp);
+            out.writeByte(kind);
+            if (productId != null) {
+                out.writeUTF(productId);
+                out.writeBoolean(summary != null);
+                if (summary != null) {
+                    out.writeUTF(summary.getName() == null ? "" : summary.getName());
+                    out.writeUTF(summary.getDescription() == null ? "" : summary.getDescription());
+                    out.writeDouble(summary.getPrice());
+                    out.writeDouble(summary.getAverageRating() == null ? Double.NaN : summary.getAverageRating());
+                    out.writeInt(summary.getReviewCount());
+                    out.writeDouble(summary.getDiscountedPrice());
+                    out.writeBoolean(summary.hasActiveOffer());
+                }
+            }
+            out.writeInt(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] record = recordBytes.toByteArray();
+        int payloadLength = record.length - 8;
+        CRC32 crc = new CRC32();
+        crc.update(record, 4, payloadLength);
+        ByteBuffer.wrap(record).putInt(0, payloadLength).putInt(record.length - 4, (int) crc.getValue());
+        return record;
+    }
+
+    /**
+     * Final state of every product changed since a point in time, if the journal covers that time
+     * without a gap. Computed once per point in time, so several indexes can share it.
+     *
+     * @param snapshotTime When the snapshot to catch up was written, in epoch milliseconds.
+     */
+    public synchronized Optional<Replay> replaySince(long snapshotTime) {
+        if (!open || !replayAtStartup) {
+            return Optional.empty();
+        }
+        if (snapshotTime != replayedSince) {
+            replayedSince = snapshotTime;
+            long startTime = System.currentTimeMillis();
+            force();
+            replay = replay(Paths.get(directory), snapshotTime - replayOverlapMs, segmentPath);
+            if (replay.isPresent()) {
+                log.info("Product journal replayed {} records in {} ms", replay.get().getRecords(), System.currentTimeMillis() - startTime);
+            } else {
+                log.info("Product journal does not cover the catalog snapshot file");
+            }
+        }
+        return replay;
+    }
+
+    private static Optional<Replay> replay(Path directory, long since, Path currentSegment) {
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty() || createdAt(segments.get(0)) > since) {
+            return Optional.empty();
+        }
+        Map<String, ProductSummary> changes = new LinkedHashMap<>();
+        int[] records = { 0 };
+        long expectedSequence = baseSequence(segments.get(0));
+        for (Path path : segments) {
+            long[] last = { expectedSequence - 1 };
+            boolean[] ended = { false };
+            if (baseSequence(path) != expectedSequence) {
+                return Optional.empty();
+            }
+            readSegment(path, record -> {
+                last[0] = record.getSequence();
+                ended[0] = record.getType() == null;
+                if (record.getType() != null && record.getTimestamp() >= since) {
+                    changes.remove(record.getProductId());
+                    changes.put(record.getProductId(), record.getSummary());
+                    records[0]++;
+                }
+            });
+            // Every segment but the one being written must end in a rollover or clean shutdown marker
+            if (!path.equals(currentSegment) && !ended[0]) {
+                return Optional.empty();
+            }
+            expectedSequence = last[0] + 1;
+        }
+        List<ProductSummary> upserts = changes.values().stream().filter(summary -> summary != null).collect(Collectors.toList());
+        List<String> removedIds = changes.entrySet().stream().filter(entry -> entry.getValue() == null)
+                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return Optional.of(new Replay(upserts, removedIds, records[0]));
+    }
+
+    /**
+     * Reads every valid record of a journal directory in sequence order, e.g. to replay the changes
+     * of one environment against another build. Markers are passed with a null type.
+     */
+    public static void read(Path directory, Consumer<Record> reader) {
+        segments(directory).forEach(path -> readSegment(path, reader));
+    }
+
+    private static void readSegment(Path path, Consumer<Record> reader) {
+        try (FileChannel channel = FileChannel.open(path)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return;
+            }
+            int position = HEADER_SIZE;
+            while (position + 4 <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                // Zeroes mark the end of what was written; anything else invalid is a torn write
+                if (length <= 0 || position + 8 + length > buffer.capacity()) {
+                    return;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(buffer.duplicate().position(position + 4).limit(position + 4 + length));
+                if ((int) crc.getValue() != buffer.getInt(position + 4 + length)) {
+                    return;
+                }
+                reader.accept(decode(buffer.duplicate().position(position + 4).limit(position + 4 + length)));
+                position += 8 + length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (BufferUnderflowException e) {
+            // A record that passed its checksum but not decoding; treated as the end
+        }
+    }
+
+    private static Record decode(ByteBuffer payload) {
+        long sequence = payload.getLong();
+        long timestamp = payload.getLong();
+        byte kind = payload.get();
+        if (kind == ROLLOVER || kind == CLOSE) {
+            return new Record(sequence, timestamp, null, null, null);
+        }
+        String productId = readUtf(payload);
+        ProductSummary summary = null;
+        if (payload.get() != 0) {
+            String name = readUtf(payload);
+            String description = readUtf(payload);
+            double price = payload.getDouble();
+            double rating = payload.getDouble();
+            int reviewCount = payload.getInt();
+            double discountedPrice = payload.getDouble();
+            boolean activeOffer = payload.get() != 0;
+            summary = new ProductSummary(productId, name, description, price, Double.isNaN(rating) ? null : rating,
+                    reviewCount, discountedPrice, activeOffer);
+        }
+        return new Record(sequence, timestamp, ProductEvent.Type.values()[kind], productId, summary);
+    }
+
+    // DataOutput.writeUTF encoding; product text is plain enough for it to match UTF-8
+    private static String readUtf(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getShort() & 0xFFFF];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<Path> segments(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            // Zero-padded base sequences sort by name
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long baseSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static long createdAt(Path segment) {
+        try (FileChannel channel = FileChannel.open(segment)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            return header.getInt(0) == MAGIC ? header.getLong(16) : Long.MAX_VALUE;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //----- Segment and group commit metrics.-----
+    public synchronized Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", open);
+        if (!open) {
+            return metrics;
+        }
+        metrics.put("directory", directory);
+        metrics.put("segments", segments(Paths.get(directory)).size());
+        metrics.put("currentSegment", segmentPath.getFileName().toString());
+        metrics.put("segmentBytesUsed", position);
+        metrics.put("nextSequence", nextSequence);
+        metrics.put("recordsWritten", recordsWritten);
+        metrics.put("forces", forces);
+        metrics.put("recordsPerForce", forces == 0 ? 0.0 : Math.round(recordsWritten * 100.0 / forces) / 100.0);
+        metrics.put("consumerLag", productEventBus.lag("journal"));
+        return metrics;
+    }
+
+    //***A journal record; type, product id and summary are null for markers, the summary for deletes***
+    public static final class Record {
+
+        private final long sequence;
+        private final long timestamp;
+        private final ProductEvent.Type type;
+        private final String productId;
+        private final ProductSummary summary;
+
+        Record(long sequence, long timestamp, ProductEvent.Type type, String productId, ProductSummary summary) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.type = type;
+            this.productId = productId;
+            this.summary = summary;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public ProductEvent.Type getType() {
+            return type;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public ProductSummary getSummary() {
+            return summary;
+        }
+    }
+
+    //***Latest state per product changed since a point in time***
+    public static final class Replay {
+
+        private final List<ProductSummary> upserts;
+        private final List<String> removedIds;
+        private final int records;
+
+        Replay(List<ProductSummary> upserts, List<String> removedIds, int records) {
+            this.upserts = upserts;
+            this.removedIds = removedIds;
+            this.records = records;
+        }
+
+        public List<ProductSummary> getUpserts() {
+            return upserts;
+        }
+
+        public List<String> getRemovedIds() {
+            return removedIds;
+        }
+
+        public int getRecords() {
+            return records;
+        }
+    }
+}
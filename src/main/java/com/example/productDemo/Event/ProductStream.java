@@ -0,0 +1,328 @@
+package com.example.productDemo.Event;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.productDemo.Entity.ProductSummary;
+
+/**
+ * Server-sent event stream of product changes (GET /products/stream), replacing dashboards that
+ * poll products for price, offer and rating changes.
+ *
+ * The stream is a consumer of the ProductEventBus. Each subscriber holds at most one pending
+ * notification per product: a change to a product that is still pending replaces it, so a slow
+ * client receives the latest state of each product rather than every intermediate one. Sending
+ * happens on a small shared pool, one task per subscriber with something pending, so subscribers
+ * do not hold threads while idle. A subscriber with more than product.stream.max-pending products
+ * pending has fallen too far behind and is disconnected; it can reconnect and re-read the products.
+ */
+@Component
+public class ProductStream {
+
+    @Autowired
+    private ProductEventBus productEventBus;
+
+    @Value("${product.stream.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.stream.max-subscribers:5000}")
+    private int maxSubscribers = 5000;
+
+    // Products a subscriber may have pending before it is disconnected
+    @Value("${product.stream.max-pending:10000}")
+    private int maxPending = 10000;
+
+    // Sending threads shared by all subscribers
+    @Value("${product.stream.threads:2}")
+    private int threads = 2;
+
+    // Idle subscribers get a comment this often, which also detects closed connections
+    @Value("${product.stream.heartbeat-ms:15000}")
+    private long heartbeatMs = 15000;
+
+    // Clients reconnect after this long (EventSource does so by itself)
+    @Value("${product.stream.timeout-ms:1800000}")
+    private long timeoutMs = 1800000;
+
+    private ScheduledExecutorService senders;
+    private volatile boolean running;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Subscribers to every product, and the others by product id, so an event only visits its subscribers
+    private final Set<Subscriber> allProducts = new CopyOnWriteArraySet<>();
+    private final Map<String, Set<Subscriber>> byProduct = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // Subscribers given something to send during the current batch of events; consumer thread only
+    private final List<Subscriber> toFlush = new ArrayList<>();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder laggardsDisconnected = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || !productEventBus.isEnabled()) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = Executors.newScheduledThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "product-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        senders.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        running = true;
+        productEventBus.register("stream", this::onEvent);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> close(subscriber, false));
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Opens a stream of the changes to the given products.
+     *
+     * @param productIds Products to follow, or null or empty for every product.
+     * @return The emitter to return from the request, or empty if the stream is disabled or full.
+     */
+    public Optional<SseEmitter> subscribe(Collection<String> productIds) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        return subscribe(productIds, emitter) ? Optional.of(emitter) : Optional.empty();
+    }
+
+    //----- Streams the changes to the given products (null or empty for all) to an emitter; false if refused.-----
+    public boolean subscribe(Collection<String> productIds, SseEmitter emitter) {
+        if (!running) {
+            return false;
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return false;
+        }
+        Subscriber subscriber = new Subscriber(emitter, productIds == null || productIds.isEmpty() ? null : Set.copyOf(productIds));
+        subscribers.add(subscriber);
+        if (subscriber.productIds == null) {
+            allProducts.add(subscriber);
+        } else {
+            subscriber.productIds.forEach(id -> byProduct.computeIfAbsent(id, key -> new CopyOnWriteArraySet<>()).add(subscriber));
+        }
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> close(subscriber, false));
+        emitter.onError(error -> close(subscriber, false));
+        try {
+            // Sent at once, so the client sees the stream open before the first change
+            emitter.send(SseEmitter.event().comment("subscribed"));
+        } catch (IOException e) {
+            close(subscriber, false);
+            return false;
+        }
+        return true;
+    }
+
+    // Called on the bus consumer thread
+    private void onEvent(ProductEvent event, long sequence, boolean endOfBatch) {
+        Set<Subscriber> following = byProduct.get(event.getProductId());
+        if (!allProducts.isEmpty() || following != null) {
+            // Built once per event and shared, since the bus reuses its event slots
+            Map<String, Object> notification = toNotification(event);
+            allProducts.forEach(subscriber -> offer(subscriber, event.getProductId(), notification));
+            if (following != null) {
+                following.forEach(subscriber -> offer(subscriber, event.getProductId(), notification));
+            }
+        }
+        if (endOfBatch && !toFlush.isEmpty()) {
+            toFlush.forEach(subscriber -> senders.execute(() -> flush(subscriber)));
+            toFlush.clear();
+        }
+    }
+
+    private void offer(Subscriber subscriber, String productId, Map<String, Object> notification) {
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            if (subscriber.pending.remove(productId) != null) {
+                coalesced.increment();
+            }
+            // Re-inserted, so pending notifications go out in the order of their latest change
+            subscriber.pending.put(productId, notification);
+            if (subscriber.pending.size() <= maxPending) {
+                if (subscriber.scheduled.compareAndSet(false, true)) {
+                    toFlush.add(subscriber);
+                }
+                return;
+            }
+        }
+        laggardsDisconnected.increment();
+        close(subscriber, true);
+    }
+
+    // Sends what is pending until nothing is; only one flush of a subscriber runs at a time
+    private void flush(Subscriber subscriber) {
+        while (true) {
+            List<Map<String, Object>> batch;
+            synchronized (subscriber) {
+                batch = new ArrayList<>(subscriber.pending.values());
+                subscriber.pending.clear();
+            }
+            try {
+                for (Map<String, Object> notification : batch) {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .name((String) notification.get("type"))
+                            .data(notification, MediaType.APPLICATION_JSON));
+                    sent.increment();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away
+                close(subscriber, false);
+                return;
+            }
+            synchronized (subscriber) {
+                if (subscriber.pending.isEmpty() || subscriber.closed) {
+                    subscriber.scheduled.set(false);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.scheduled.compareAndSet(false, true)) {
+                senders.execute(() -> {
+                    try {
+                        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } catch (IOException | IllegalStateException e) {
+                        close(subscriber, false);
+                        return;
+                    }
+                    // Anything offered meanwhile found the subscriber scheduled and waits for this flush
+                    flush(subscriber);
+                });
+            }
+        }
+    }
+
+    private void close(Subscriber subscriber, boolean laggard) {
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            subscriber.closed = true;
+            subscriber.pending.clear();
+        }
+        remove(subscriber);
+        // The emitter is locked while a send to a slow client blocks, so it is completed off the caller's thread
+        Runnable complete = () -> {
+            try {
+                if (laggard) {
+                    subscriber.emitter.send(SseEmitter.event().name("overflow").data("Too far behind; reconnect and re-read the products"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Closed anyway
+            }
+            subscriber.emitter.complete();
+        };
+        if (running) {
+            senders.execute(complete);
+        } else {
+            complete.run();
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        if (subscriber.productIds == null) {
+            allProducts.remove(subscriber);
+        } else {
+            subscriber.productIds.forEach(id -> byProduct.computeIfPresent(id, (key, following) -> {
+                following.remove(subscriber);
+                return following.isEmpty() ? null : following;
+            }));
+        }
+    }
+
+    private Map<String, Object> toNotification(ProductEvent event) {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("productId", event.getProductId());
+        notification.put("type", event.getType().name());
+        ProductSummary summary = event.getSummary();
+        if (summary != null) {
+            notification.put("price", summary.getPrice());
+            notification.put("discountedPrice", summary.getDiscountedPrice());
+            notification.put("hasActiveOffer", summary.hasActiveOffer());
+            notification.put("averageRating", summary.getAverageRating());
+            notification.put("reviewCount", summary.getReviewCount());
+        }
+        notification.put("timestamp", event.getTimestamp());
+        return notification;
+    }
+
+    //----- Subscriber counts and notifications sent, coalesced and dropped with disconnected laggards.-----
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", running);
+        metrics.put("subscribers", subscriberCount.get());
+        metrics.put("allProductSubscribers", allProducts.size());
+        metrics.put("followedProducts", byProduct.size());
+        metrics.put("sent", sent.sum());
+        metrics.put("coalesced", coalesced.sum());
+        metrics.put("laggardsDisconnected", laggardsDisconnected.sum());
+        metrics.put("busLag", productEventBus.lag("stream"));
+        return metrics;
+    }
+
+    //***A client of the stream and the notifications waiting to be sent to it***
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        // Null for every product
+        private final Set<String> productIds;
+        // Latest notification per product, oldest change first; guarded by the subscriber
+        private final LinkedHashMap<String, Map<String, Object>> pending = new LinkedHashMap<>();
+        // Set while a flush is scheduled or running
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter, Set<String> productIds) {
+            this.emitter = emitter;
+            this.productIds = productIds;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.productDemo.Event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Low-latency invalidation transport over UDP, for nodes on one host or one network segment.
+ *
+ * A consumer of the ProductEventBus packs this node's committed changes into datagrams of at most
+ * MAX_DATAGRAM bytes, one or more per batch of events, and sends them to every peer in
+ * product.invalidation.udp.peers and to the multicast group if one is set. A receiver thread
+ * delivers datagrams from other nodes to the listener. Delivery is best effort: a datagram can be
+ * lost, so this transport gives no staleness bound and is meant to run alongside the database one,
+ * which catches whatever it misses.
+ *
+ * Only changes published on the bus are sent, and remote invalidations are never published there,
+ * so datagrams are not echoed between nodes.
+ */
+@Component
+public class UdpInvalidationBroadcaster implements InvalidationBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(UdpInvalidationBroadcaster.class);
+
+    // Fits an Ethernet frame, so datagrams are not fragmented
+    static final int MAX_DATAGRAM = 1400;
+    private static final int MAGIC = 0x50494E56; // "PINV"
+
+    @Autowired
+    private ProductEventBus productEventBus;
+
+    @Value("${product.invalidation.udp.enabled:false}")
+    private boolean enabled;
+
+    // Port this node receives on (0 for any free port)
+    @Value("${product.invalidation.udp.port:47100}")
+    private int port = 47100;
+
+    // host:port of the other nodes, separated by commas
+    @Value("${product.invalidation.udp.peers:}")
+    private String peers = "";
+
+    // Multicast group to send to and join instead of, or as well as, listing peers
+    @Value("${product.invalidation.udp.group:}")
+    private String group = "";
+
+    private String nodeId;
+    private InvalidationListener listener;
+    private DatagramSocket socket;
+    private Thread receiver;
+    private final List<InetSocketAddress> targets = new ArrayList<>();
+    private volatile boolean running;
+
+    // Datagram being filled by the bus consumer; consumer thread only
+    private final List<Object[]> pending = new ArrayList<>();
+    private int pendingBytes;
+
+    private final InvalidationLag lag = new InvalidationLag();
+    private final LongAdder datagramsSent = new LongAdder();
+    private final LongAdder invalidationsSent = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder ownDatagramsSkipped = new LongAdder();
+    private final LongAdder malformedDatagrams = new LongAdder();
+
+    @Override
+    public String name() {
+        return "udp";
+    }
+
+    @Override
+    public synchronized void start(String nodeId, InvalidationListener listener) {
+        if (running || !enabled || !productEventBus.isEnabled()) {
+            return;
+        }
+        this.nodeId = nodeId;
+        this.listener = listener;
+        try {
+            targets.clear();
+            for (String peer : peers.split(",")) {
+                if (!peer.isBlank()) {
+                    int colon = peer.trim().lastIndexOf(':');
+                    targets.add(new InetSocketAddress(peer.trim().substring(0, colon), Integer.parseInt(peer.trim().substring(colon + 1))));
+                }
+            }
+            if (group.isBlank()) {
+                socket = new DatagramSocket(port);
+            } else {
+                MulticastSocket multicast = new MulticastSocket(port);
+                InetSocketAddress groupAddress = new InetSocketAddress(InetAddress.getByName(group.trim()), multicast.getLocalPort());
+                multicast.joinGroup(groupAddress, null);
+                socket = multicast;
+                targets.add(groupAddress);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("UDP invalidation disabled, could not open port {}: {}", port, e.getMessage());
+            return;
+        }
+        pendingBytes = headerBytes();
+        running = true;
+        receiver = new Thread(this::receive, "invalidation-udp-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        productEventBus.register("invalidation-udp", this::onEvent);
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // Unblocks the receiver
+        socket.close();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return running;
+    }
+
+    @Override
+    public long stalenessBoundMs() {
+        return -1;
+    }
+
+    //----- Port this node receives on, or -1 when not running.-----
+    public int localPort() {
+        return running ? socket.getLocalPort() : -1;
+    }
+
+    // Called on the bus consumer thread
+    private void onEvent(ProductEvent event, long sequence, boolean endOfBatch) {
+        if (!running) {
+            return;
+        }
+        int entryBytes = 1 + 2 + event.getProductId().getBytes(StandardCharsets.UTF_8).length + 8;
+        if (!pending.isEmpty() && pendingBytes + entryBytes > MAX_DATAGRAM) {
+            send();
+        }
+        pending.add(new Object[] { event.getType(), event.getProductId(), event.getTimestamp() });
+        pendingBytes += entryBytes;
+        if (endOfBatch) {
+            send();
+        }
+    }
+
+    private void send() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(MAX_DATAGRAM);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeUTF(nodeId);
+            out.writeShort(pending.size());
+            for (Object[] entry : pending) {
+                out.writeByte(((ProductEvent.Type) entry[0]).ordinal());
+                out.writeUTF((String) entry[1]);
+                out.writeLong((Long) entry[2]);
+            }
+            byte[] data = bytes.toByteArray();
+            for (InetSocketAddress target : targets) {
+                try {
+                    socket.send(new DatagramPacket(data, data.length, target));
+                    datagramsSent.increment();
+                } catch (IOException e) {
+                    // Lost, like any datagram; the database transport catches up
+                    sendErrors.increment();
+                }
+            }
+            invalidationsSent.add(pending.size());
+        } catch (IOException e) {
+            sendErrors.increment();
+        } finally {
+            pending.clear();
+            pendingBytes = headerBytes();
+        }
+    }
+
+    // Magic, node id and count
+    private int headerBytes() {
+        return 4 + 2 + nodeId.getBytes(StandardCharsets.UTF_8).length + 2;
+    }
+
+    private void receive() {
+        byte[] buffer = new byte[MAX_DATAGRAM * 2];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (SocketException e) {
+                // Closed by stop()
+                return;
+            } catch (IOException e) {
+                continue;
+            }
+            List<Invalidation> invalidations;
+            try {
+                invalidations = decode(packet);
+            } catch (IOException | RuntimeException e) {
+                malformedDatagrams.increment();
+                continue;
+            }
+            if (invalidations == null) {
+                ownDatagramsSkipped.increment();
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            invalidations.forEach(invalidation -> lag.record(invalidation.getChangedAt(), now));
+            try {
+                listener.invalidate(invalidations);
+            } catch (RuntimeException e) {
+                log.warn("Applying UDP invalidations failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Null for this node's own datagrams (multicast loops them back)
+    private List<Invalidation> decode(DatagramPacket packet) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(packet.getData(), packet.getOffset(), packet.getLength()));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an invalidation datagram");
+        }
+        String originNode = in.readUTF();
+        if (nodeId.equals(originNode)) {
+            return null;
+        }
+        int count = in.readUnsignedShort();
+        ProductEvent.Type[] types = ProductEvent.Type.values();
+        List<Invalidation> invalidations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ProductEvent.Type type = types[in.readUnsignedByte()];
+            String productId = in.readUTF();
+            invalidations.add(new Invalidation(productId, type, in.readLong(), originNode));
+        }
+        return invalidations;
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", running);
+        metrics.put("nodeId", nodeId);
+        metrics.put("port", localPort());
+        metrics.put("targets", targets.size());
+        metrics.put("datagramsSent", datagramsSent.sum());
+        metrics.put("invalidationsSent", invalidationsSent.sum());
+        metrics.put("sendErrors", sendErrors.sum());
+        lag.putMetrics(metrics);
+        metrics.put("ownDatagramsSkipped", ownDatagramsSkipped.sum());
+        metrics.put("malformedDatagrams", malformedDatagrams.sum());
+        metrics.put("busLag", running ? productEventBus.lag("invalidation-udp") : 0);
+        return metrics;
+    }
+}
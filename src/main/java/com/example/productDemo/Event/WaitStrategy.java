@@ -0,0 +1,107 @@
+package com.example.productDemo.Event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * How ProductEventBus consumers wait for events, trading latency against idle CPU
+ * (product.events.wait-strategy).
+ */
+public enum WaitStrategy {
+
+    // Parks on a condition signalled by publishers: no idle CPU, wake-up latency of a signal
+    BLOCKING {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+
+        @Override
+        long waitFor(long sequence, LongSupplier cursor, BooleanSupplier stopped) throws InterruptedException {
+            long available;
+            while ((available = cursor.getAsLong()) < sequence && !stopped.getAsBoolean()) {
+                lock.lock();
+                try {
+                    if (cursor.getAsLong() < sequence) {
+                        published.await(10, TimeUnit.MILLISECONDS);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return available;
+        }
+
+        @Override
+        void signalAll() {
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    },
+
+    // Spins, then yields, then sleeps briefly: little idle CPU, low latency under steady load
+    SLEEPING {
+        @Override
+        long waitFor(long sequence, LongSupplier cursor, BooleanSupplier stopped) {
+            long available;
+            int tries = 0;
+            while ((available = cursor.getAsLong()) < sequence && !stopped.getAsBoolean()) {
+                if (tries < 100) {
+                    Thread.onSpinWait();
+                } else if (tries < 200) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(100_000);
+                }
+                tries++;
+            }
+            return available;
+        }
+    },
+
+    // Spins, then yields the core: low latency, one busy core per consumer while idle
+    YIELDING {
+        @Override
+        long waitFor(long sequence, LongSupplier cursor, BooleanSupplier stopped) {
+            long available;
+            int tries = 0;
+            while ((available = cursor.getAsLong()) < sequence && !stopped.getAsBoolean()) {
+                if (tries++ < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return available;
+        }
+    },
+
+    // Spins without pause: lowest latency, only for consumers with a dedicated core
+    BUSY_SPIN {
+        @Override
+        long waitFor(long sequence, LongSupplier cursor, BooleanSupplier stopped) {
+            long available;
+            while ((available = cursor.getAsLong()) < sequence && !stopped.getAsBoolean()) {
+                Thread.onSpinWait();
+            }
+            return available;
+        }
+    };
+
+    /**
+     * Waits until the cursor reaches the sequence, or the consumer is stopped.
+     *
+     * @return The cursor seen last, which may be past the sequence.
+     */
+    abstract long waitFor(long sequence, LongSupplier cursor, BooleanSupplier stopped) throws InterruptedException;
+
+    // Wakes consumers after a publish; only blocked waiters need it
+    void signalAll() {
+    }
+}
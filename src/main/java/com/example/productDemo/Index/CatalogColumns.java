@@ -0,0 +1,272 @@
+package com.example.productDemo.Index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.example.productDemo.Entity.ProductSummary;
+
+/**
+ * Immutable column store of product summaries.
+ *
+ * Rows are kept in id order, one primitive array per column; names and descriptions are
+ * dictionary-encoded (the name dictionary is sorted, so name codes compare like names).
+ * For every sortable field there is a permutation of the rows ordered by (field, id), which
+ * makes sorted pages a walk over an int[] and price ranges a binary search.
+ */
+public final class CatalogColumns {
+
+    // Case-insensitive like the database collation, then exact for a stable order
+    static final Comparator<String> NAME_ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    final String[] ids;
+    final int[] nameCodes;
+    final String[] names;
+    final int[] descriptionCodes;
+    final String[] descriptions;
+    final double[] prices;
+    // NaN for products without ratings
+    final float[] averageRatings;
+    final double[] discountedPrices;
+    final int[] reviewCounts;
+    final boolean[] activeOffers;
+
+    private final int[] byName;
+    private final int[] byPrice;
+    private final int[] byDiscountedPrice;
+    private final int[] byAverageRating;
+    private final int[] byReviewCount;
+
+    private CatalogColumns(Builder builder) {
+        int size = builder.size;
+        // Put the rows in id order
+        int[] order = sortRows(size, (a, b) -> builder.ids.get(a).compareTo(builder.ids.get(b)));
+
+        ids = new String[size];
+        prices = new double[size];
+        averageRatings = new float[size];
+        discountedPrices = new double[size];
+        reviewCounts = new int[size];
+        activeOffers = new boolean[size];
+        String[] rowNames = new String[size];
+        String[] rowDescriptions = new String[size];
+        for (int row = 0; row < size; row++) {
+            int source = order[row];
+            ids[row] = builder.ids.get(source);
+            rowNames[row] = builder.names.get(source);
+            rowDescriptions[row] = builder.descriptions.get(source);
+            prices[row] = builder.prices[source];
+            averageRatings[row] = builder.averageRatings[source];
+            discountedPrices[row] = builder.discountedPrices[source];
+            reviewCounts[row] = builder.reviewCounts[source];
+            activeOffers[row] = builder.activeOffers[source];
+        }
+
+        names = dictionary(rowNames);
+        nameCodes = encode(rowNames, names);
+        descriptions = dictionary(rowDescriptions);
+        descriptionCodes = encode(rowDescriptions, descriptions);
+
+        byName = sortRows(size, (a, b) -> compareKeys("name", a, b));
+        byPrice = sortRows(size, (a, b) -> compareKeys("price", a, b));
+        byDiscountedPrice = sortRows(size, (a, b) -> compareKeys("discountedPrice", a, b));
+        byAverageRating = sortRows(size, (a, b) -> compareKeys("averageRating", a, b));
+        byReviewCount = sortRows(size, (a, b) -> compareKeys("reviewCount", a, b));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    //----- Rows ordered by (field, id); null for id, since rows are already in id order.-----
+    int[] ordering(String field) {
+        switch (field) {
+            case "name": return byName;
+            case "price": return byPrice;
+            case "discountedPrice": return byDiscountedPrice;
+            case "averageRating": return byAverageRating;
+            case "reviewCount": return byReviewCount;
+            default: return null;
+        }
+    }
+
+    /**
+     * Sort key of a row for the given field. Names compare by dictionary code and ids by row
+     * number; missing ratings sort first, as in the database.
+     */
+    double key(String field, int row) {
+        switch (field) {
+            case "name": return nameCodes[row];
+            case "price": return prices[row];
+            case "discountedPrice": return discountedPrices[row];
+            case "averageRating": return Float.isNaN(averageRatings[row]) ? Double.NEGATIVE_INFINITY : averageRating(row);
+            case "reviewCount": return reviewCounts[row];
+            default: return row;
+        }
+    }
+
+    // Ratings are stored as floats; round back to the two decimals they were computed with
+    Double averageRating(int row) {
+        float rating = averageRatings[row];
+        return Float.isNaN(rating) ? null : roundRating(rating);
+    }
+
+    // Rows written after the base compare by the same rounded rating
+    static double roundRating(double rating) {
+        return Math.round(rating * 100.0) / 100.0;
+    }
+
+    //----- Materializes one row.-----
+    ProductSummary summary(int row) {
+        return new ProductSummary(ids[row], names[nameCodes[row]], descriptions[descriptionCodes[row]],
+                prices[row], averageRating(row), reviewCounts[row], discountedPrices[row], activeOffers[row]);
+    }
+
+    //----- Row of a product id, or a negative number if it is not in the columns.-----
+    int row(String id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    //----- Rows whose key for the field lies in [from, to], found by binary search in the field's ordering.-----
+    RoaringBitmap rowsBetween(String field, double from, double to) {
+        int[] ordering = ordering(field);
+        int start = firstKeyAtLeast(field, ordering, from, false);
+        int end = firstKeyAtLeast(field, ordering, to, true);
+        int[] rows = Arrays.copyOfRange(ordering, start, Math.max(start, end));
+        Arrays.sort(rows);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int row : rows) {
+            bitmap.add(row);
+        }
+        return bitmap;
+    }
+
+    // Index in the ordering of the first row whose key is at least (or, if strictly, above) the bound
+    private int firstKeyAtLeast(String field, int[] ordering, double bound, boolean strictly) {
+        int low = 0;
+        int high = ordering.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            double key = key(field, ordering[middle]);
+            if (strictly ? key <= bound : key < bound) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareKeys(String field, int a, int b) {
+        int cmp = Double.compare(key(field, a), key(field, b));
+        return cmp != 0 ? cmp : Integer.compare(a, b);
+    }
+
+    // Distinct values, sorted the way the database sorts names
+    private static String[] dictionary(String[] values) {
+        TreeSet<String> distinct = new TreeSet<>(NAME_ORDER);
+        distinct.addAll(Arrays.asList(values));
+        return distinct.toArray(new String[0]);
+    }
+
+    private static int[] encode(String[] values, String[] dictionary) {
+        Map<String, Integer> codes = new HashMap<>(dictionary.length * 2);
+        for (int code = 0; code < dictionary.length; code++) {
+            codes.put(dictionary[code], code);
+        }
+        int[] encoded = new int[values.length];
+        for (int row = 0; row < values.length; row++) {
+            encoded[row] = codes.get(values[row]);
+        }
+        return encoded;
+    }
+
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    // Stable merge sort of row numbers, without boxing them
+    private static int[] sortRows(int size, RowComparator comparator) {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int left = 0; left < size - width; left += 2 * width) {
+                int middle = left + width;
+                int right = Math.min(left + 2 * width, size);
+                int i = left, j = middle, k = left;
+                while (i < middle && j < right) {
+                    buffer[k++] = comparator.compare(rows[i], rows[j]) <= 0 ? rows[i++] : rows[j++];
+                }
+                while (i < middle) {
+                    buffer[k++] = rows[i++];
+                }
+                while (j < right) {
+                    buffer[k++] = rows[j++];
+                }
+                System.arraycopy(buffer, left, rows, left, right - left);
+            }
+        }
+        return rows;
+    }
+
+    //***Accumulates rows in any order; build() sorts and encodes them***
+    public static final class Builder {
+
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<String> descriptions = new ArrayList<>();
+        private double[] prices = new double[1024];
+        private float[] averageRatings = new float[1024];
+        private double[] discountedPrices = new double[1024];
+        private int[] reviewCounts = new int[1024];
+        private boolean[] activeOffers = new boolean[1024];
+        private int size;
+
+        public Builder add(ProductSummary summary) {
+            Double rating = summary.getAverageRating();
+            return add(summary.getId(), summary.getName(), summary.getDescription(), summary.getPrice(),
+                    rating == null ? Float.NaN : rating.floatValue(), summary.getReviewCount(), summary.getDiscountedPrice(),
+                    summary.hasActiveOffer());
+        }
+
+        //----- Copies a row of existing columns, without materializing it.-----
+        public Builder add(CatalogColumns columns, int row) {
+            return add(columns.ids[row], columns.names[columns.nameCodes[row]], columns.descriptions[columns.descriptionCodes[row]],
+                    columns.prices[row], columns.averageRatings[row], columns.reviewCounts[row], columns.discountedPrices[row],
+                    columns.activeOffers[row]);
+        }
+
+        private Builder add(String id, String name, String description, double price, float averageRating,
+                int reviewCount, double discountedPrice, boolean activeOffer) {
+            if (size == prices.length) {
+                int capacity = size * 2;
+                prices = Arrays.copyOf(prices, capacity);
+                averageRatings = Arrays.copyOf(averageRatings, capacity);
+                discountedPrices = Arrays.copyOf(discountedPrices, capacity);
+                reviewCounts = Arrays.copyOf(reviewCounts, capacity);
+                activeOffers = Arrays.copyOf(activeOffers, capacity);
+            }
+            ids.add(id);
+            names.add(name);
+            descriptions.add(description);
+            prices[size] = price;
+            averageRatings[size] = averageRating;
+            discountedPrices[size] = discountedPrice;
+            reviewCounts[size] = reviewCount;
+            activeOffers[size] = activeOffer;
+            size++;
+            return this;
+        }
+
+        public CatalogColumns build() {
+            return new CatalogColumns(this);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.productDemo.Index;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.productDemo.Entity.ProductSummary;
+
+/**
+ * Facet bitmaps over the rows of one CatalogColumns base: for every facet value, the set of
+ * row numbers (dense ordinals) having it. Counting a facet under a filter is then one
+ * intersection cardinality per value against the bitmap of rows that pass the filter.
+ *
+ * Facets are price buckets, rating bands, whether an offer is active today, and review-count
+ * ranges. Bucket boundaries are lower-inclusive and come from Buckets.
+ */
+public final class CatalogFacets {
+
+    public static final List<String> FACETS = List.of("price", "averageRating", "activeOffer", "reviewCount");
+
+    private static final String[] RATING_BANDS = {"none", "0-1", "1-2", "2-3", "3-4", "4-5"};
+    private static final String[] ACTIVE_OFFER = {"true", "false"};
+
+    private final Buckets buckets;
+    // Per facet, one bitmap per value, in the order of the value labels
+    private final Map<String, RoaringBitmap[]> bitmaps = new LinkedHashMap<>();
+    private final RoaringBitmap allRows = new RoaringBitmap();
+
+    CatalogFacets(CatalogColumns columns, Buckets buckets) {
+        this.buckets = buckets;
+        for (String facet : FACETS) {
+            RoaringBitmap[] values = new RoaringBitmap[buckets.labels(facet).length];
+            for (int value = 0; value < values.length; value++) {
+                values[value] = new RoaringBitmap();
+            }
+            bitmaps.put(facet, values);
+        }
+        // Rows are added in ascending order, which appends to the bitmaps
+        for (int row = 0; row < columns.size(); row++) {
+            allRows.add(row);
+            bitmaps.get("price")[buckets.priceBucket(columns.prices[row])].add(row);
+            bitmaps.get("averageRating")[Buckets.ratingBand(columns.averageRating(row))].add(row);
+            bitmaps.get("activeOffer")[columns.activeOffers[row] ? 0 : 1].add(row);
+            bitmaps.get("reviewCount")[buckets.reviewCountBucket(columns.reviewCounts[row])].add(row);
+        }
+    }
+
+    //----- Every row of the base.-----
+    RoaringBitmap allRows() {
+        return allRows;
+    }
+
+    /**
+     * Counts every facet value over a set of base rows plus rows that are not in the base.
+     *
+     * @param rows Base rows to count.
+     * @param extraRows Rows written since the base was built that pass the same filters.
+     * @return Per facet, the count of every value (including zero counts), in label order.
+     */
+    Map<String, Map<String, Long>> count(RoaringBitmap rows, Collection<ProductSummary> extraRows) {
+        Map<String, long[]> counts = new LinkedHashMap<>();
+        bitmaps.forEach((facet, values) -> {
+            long[] facetCounts = new long[values.length];
+            for (int value = 0; value < values.length; value++) {
+                facetCounts[value] = rows.andCardinality(values[value]);
+            }
+            counts.put(facet, facetCounts);
+        });
+        for (ProductSummary summary : extraRows) {
+            counts.get("price")[buckets.priceBucket(summary.getPrice())]++;
+            counts.get("averageRating")[Buckets.ratingBand(summary.getAverageRating())]++;
+            counts.get("activeOffer")[summary.hasActiveOffer() ? 0 : 1]++;
+            counts.get("reviewCount")[buckets.reviewCountBucket(summary.getReviewCount())]++;
+        }
+
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        counts.forEach((facet, facetCounts) -> {
+            String[] labels = buckets.labels(facet);
+            Map<String, Long> values = new LinkedHashMap<>();
+            for (int value = 0; value < labels.length; value++) {
+                values.put(labels[value], facetCounts[value]);
+            }
+            result.put(facet, values);
+        });
+        return result;
+    }
+
+    //***Bucket boundaries of the price and review-count facets***
+    public static final class Buckets {
+
+        private final double[] priceBounds;
+        private final int[] reviewCountBounds;
+        private final String[] priceLabels;
+        private final String[] reviewCountLabels;
+
+        /**
+         * @param priceBounds Ascending lower bounds of the price buckets after the first, e.g. 25, 50, 100
+         *                    for 0-25, 25-50, 50-100 and 100+.
+         * @param reviewCountBounds Ascending lower bounds of the review-count ranges after 0, e.g. 1, 5, 20
+         *                          for 0, 1-4, 5-19 and 20+.
+         */
+        public Buckets(double[] priceBounds, int[] reviewCountBounds) {
+            this.priceBounds = priceBounds.clone();
+            this.reviewCountBounds = reviewCountBounds.clone();
+
+            priceLabels = new String[priceBounds.length + 1];
+            for (int bucket = 0; bucket <= priceBounds.length; bucket++) {
+                String lower = bucket == 0 ? "0" : format(priceBounds[bucket - 1]);
+                priceLabels[bucket] = bucket == priceBounds.length ? lower + "+" : lower + "-" + format(priceBounds[bucket]);
+            }
+            reviewCountLabels = new String[reviewCountBounds.length + 1];
+            for (int bucket = 0; bucket <= reviewCountBounds.length; bucket++) {
+                int lower = bucket == 0 ? 0 : reviewCountBounds[bucket - 1];
+                if (bucket == reviewCountBounds.length) {
+                    reviewCountLabels[bucket] = lower + "+";
+                } else {
+                    int upper = reviewCountBounds[bucket] - 1;
+                    reviewCountLabels[bucket] = upper == lower ? String.valueOf(lower) : lower + "-" + upper;
+                }
+            }
+        }
+
+        String[] labels(String facet) {
+            switch (facet) {
+                case "price": return priceLabels;
+                case "averageRating": return RATING_BANDS;
+                case "activeOffer": return ACTIVE_OFFER;
+                default: return reviewCountLabels;
+            }
+        }
+
+        int priceBucket(double price) {
+            int bucket = 0;
+            while (bucket < priceBounds.length && price >= priceBounds[bucket]) {
+                bucket++;
+            }
+            return bucket;
+        }
+
+        int reviewCountBucket(int reviewCount) {
+            int bucket = 0;
+            while (bucket < reviewCountBounds.length && reviewCount >= reviewCountBounds[bucket]) {
+                bucket++;
+            }
+            return bucket;
+        }
+
+        // "none" for unrated products, then whole-star bands; a rating of 5 falls in 4-5
+        static int ratingBand(Double averageRating) {
+            return averageRating == null ? 0 : 1 + Math.min(4, (int) Math.floor(averageRating));
+        }
+
+        private static String format(double bound) {
+            return BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.productDemo.Index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Entity.Product.Offer;
+import com.example.productDemo.Entity.ProductSummary;
+
+/**
+ * Compact binary snapshot of the catalog (summaries with rating aggregates, plus offers),
+ * read through a read-only memory mapping.
+ *
+ * Layout: a header (magic, version), one record per product, an index of record offsets
+ * sorted by product id, and a footer (index position, count, creation time, version, magic).
+ * Lookups by id are a binary search over the index; nothing is decoded until it is read.
+ */
+public final class CatalogFile {
+
+    private static final int MAGIC = 0x50434154; // "PCAT"
+    private static final int VERSION = 2;
+    private static final int FOOTER_SIZE = 8 + 4 + 8 + 4 + 4;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final int indexPosition;
+    private final int count;
+    private final long createdAt;
+
+    private CatalogFile(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        int footer = buffer.capacity() - FOOTER_SIZE;
+        if (footer < 8 || buffer.getInt(0) != MAGIC || buffer.getInt(footer + 24) != MAGIC
+                || buffer.getInt(footer + 20) != VERSION) {
+            throw new IllegalStateException("Not a catalog snapshot file of version " + VERSION);
+        }
+        this.indexPosition = (int) buffer.getLong(footer);
+        this.count = buffer.getInt(footer + 8);
+        this.createdAt = buffer.getLong(footer + 12);
+    }
+
+    //----- Maps an existing snapshot file.-----
+    public static CatalogFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new CatalogFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    //----- Summary of the product at the given index position (in id order).-----
+    public ProductSummary summary(int index) {
+        return new Cursor(recordPosition(index)).summary();
+    }
+
+    //----- Finds a product by id, with its offers and rating aggregates but without reviews.-----
+    public Optional<Product> findProduct(String productId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Cursor cursor = new Cursor(recordPosition(middle));
+            int cmp = cursor.string().compareTo(productId);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                return Optional.of(new Cursor(recordPosition(middle)).product());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private int recordPosition(int index) {
+        return (int) buffer.getLong(indexPosition + 8 * index);
+    }
+
+    //***Reads one record with absolute gets, so readers can share the buffer***
+    private final class Cursor {
+
+        private int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+
+        ProductSummary summary() {
+            String id = string();
+            String name = string();
+            String description = string();
+            double price = number();
+            double averageRating = number();
+            int reviewCount = integer();
+            double discountedPrice = number();
+            boolean activeOffer = buffer.get(position++) != 0;
+            return new ProductSummary(id, name, description, price,
+                    Double.isNaN(averageRating) ? null : averageRating, reviewCount, discountedPrice, activeOffer);
+        }
+
+        Product product() {
+            ProductSummary summary = summary();
+            int offerCount = integer();
+            List<Offer> offers = new ArrayList<>(offerCount);
+            for (int i = 0; i < offerCount; i++) {
+                Offer offer = new Offer(string(), string(), date(), date());
+                double discountAmount = number();
+                offer.setDiscountAmount(Double.isNaN(discountAmount) ? null : discountAmount);
+                offers.add(offer);
+            }
+            // Reviews are not part of the snapshot; their aggregate is
+            Product product = new Product(summary.getName(), summary.getDescription(), summary.getPrice(),
+                    new ArrayList<>(), offers, summary.getAverageRating());
+            product.setId(summary.getId());
+            product.setDiscountedPrice(summary.getDiscountedPrice());
+            return product;
+        }
+
+        String string() {
+            int length = integer();
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int integer() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        double number() {
+            double value = buffer.getDouble(position);
+            position += 8;
+            return value;
+        }
+
+        LocalDate date() {
+            long epochDay = buffer.getLong(position);
+            position += 8;
+            return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temporary file next to the target and moves it into place, so
+     * readers never see a partial file and existing mappings of the old file stay valid.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final Path target;
+        private final Path temporary;
+        private final DataOutputStream out;
+        private final List<String> ids = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+        private boolean finished;
+
+        public Writer(Path target) throws IOException {
+            this.target = target;
+            Path directory = target.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            this.temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void add(ProductSummary summary, List<Offer> offers) throws IOException {
+            ids.add(summary.getId());
+            positions.add(out.size());
+            writeString(summary.getId());
+            writeString(summary.getName());
+            writeString(summary.getDescription());
+            out.writeDouble(summary.getPrice());
+            out.writeDouble(summary.getAverageRating() == null ? Double.NaN : summary.getAverageRating());
+            out.writeInt(summary.getReviewCount());
+            out.writeDouble(summary.getDiscountedPrice());
+            out.writeBoolean(summary.hasActiveOffer());
+            out.writeInt(offers.size());
+            for (Offer offer : offers) {
+                writeString(offer.getOfferdetails());
+                writeString(offer.getCouponCode());
+                out.writeLong(offer.getStartDate() == null ? NO_DATE : offer.getStartDate().toEpochDay());
+                out.writeLong(offer.getEndDate() == null ? NO_DATE : offer.getEndDate().toEpochDay());
+                out.writeDouble(offer.getDiscountAmount() == null ? Double.NaN : offer.getDiscountAmount());
+            }
+            // Mapped buffers and DataOutputStream.size() are both int-addressed
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Catalog snapshot exceeds 2 GB");
+            }
+        }
+
+        //----- Id of the last record added, or null if there is none.-----
+        public String lastId() {
+            return ids.isEmpty() ? null : ids.get(ids.size() - 1);
+        }
+
+        //----- Writes the id index and footer and moves the file into place.-----
+        public void finish() throws IOException {
+            // Records may arrive in any order (e.g. shard by shard); the index is sorted by id
+            Integer[] order = new Integer[ids.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> ids.get(a).compareTo(ids.get(b)));
+
+            long indexPosition = out.size();
+            for (Integer record : order) {
+                out.writeLong(positions.get(record));
+            }
+            out.writeLong(indexPosition);
+            out.writeInt(ids.size());
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(VERSION);
+            out.writeInt(MAGIC);
+            out.close();
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.productDemo.Index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Repository.ProductRepository;
+import com.example.productDemo.Repository.ProductSummaryRepository;
+
+/**
+ * Keeps the catalog snapshot file (see CatalogFile) on disk and mapped in memory.
+ *
+ * The file is rewritten periodically from product_summary and the offers of every shard, and
+ * remapped after each write. At startup the mapped file warms the catalog snapshot and the name
+ * filter before the database has been read. With product.snapshot-file.read-only=true the
+ * application never touches the database and serves product reads from the file alone.
+ */
+@Component
+public class CatalogFileStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogFileStore.class);
+
+    @Autowired
+    private ProductSummaryRepository productSummaryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${product.snapshot-file.enabled:false}")
+    private boolean enabled;
+
+    @Value("${product.snapshot-file.path:./data/catalog.snapshot}")
+    private String path;
+
+    @Value("${product.snapshot-file.page-size:1000}")
+    private int pageSize;
+
+    @Value("${product.snapshot-file.read-only:false}")
+    private boolean readOnly;
+
+    private volatile CatalogFile file;
+
+    @PostConstruct
+    public void map() {
+        if (!enabled || !Files.exists(path())) {
+            return;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            file = CatalogFile.open(path());
+            log.info("Catalog snapshot file mapped with {} products in {} ms", file.size(), System.currentTimeMillis() - startTime);
+        } catch (IOException | RuntimeException e) {
+            // A missing or damaged file only costs the warm start
+            log.warn("Catalog snapshot file not usable", e);
+        }
+    }
+
+    //----- True if a mapped snapshot file can answer reads.-----
+    public boolean isAvailable() {
+        return file != null;
+    }
+
+    //----- True if reads are served from the file and the database is not used at all.-----
+    public boolean isReadOnly() {
+        return enabled && readOnly;
+    }
+
+    public Optional<CatalogFile> file() {
+        return Optional.ofNullable(file);
+    }
+
+    public Optional<Product> findProduct(String productId) {
+        CatalogFile current = file;
+        return current == null ? Optional.empty() : current.findProduct(productId);
+    }
+
+    //----- Opens the current file for streaming to a replica, or empty if there is none.-----
+    public Optional<FileChannel> openForDownload() throws IOException {
+        if (!enabled || !Files.exists(path())) {
+            return Optional.empty();
+        }
+        // A concurrent write replaces the file by a rename, so this channel keeps reading the old one
+        return Optional.of(FileChannel.open(path(), StandardOpenOption.READ));
+    }
+
+    //----- Writes a fresh snapshot file from the database and maps it.-----
+    @Scheduled(fixedDelayString = "${product.snapshot-file.write-interval-ms:600000}",
+            initialDelayString = "${product.snapshot-file.initial-delay-ms:60000}")
+    public synchronized void write() {
+        if (!enabled || readOnly) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try (CatalogFile.Writer writer = new CatalogFile.Writer(path())) {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                int target = shard;
+                String lastId = "";
+                while (true) {
+                    String afterId = lastId;
+                    // One short read-only transaction per page: the summaries and their offers
+                    boolean more = shardRouter.inTransactionOnShard(target, true, () -> writePage(writer, afterId));
+                    if (!more) {
+                        break;
+                    }
+                    lastId = writer.lastId();
+                }
+            }
+            writer.finish();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Catalog snapshot file not written", e);
+            return;
+        }
+        map();
+        log.info("Catalog snapshot file written in {} ms", System.currentTimeMillis() - startTime);
+    }
+
+    private boolean writePage(CatalogFile.Writer writer, String afterId) {
+        List<ProductSummary> page = productSummaryRepository.findPageAfter(afterId, PageRequest.of(0, pageSize));
+        if (page.isEmpty()) {
+            return false;
+        }
+        Map<String, Product> products = productRepository.findAllById(page.stream().map(ProductSummary::getId).collect(Collectors.toList()))
+                .stream().collect(Collectors.toMap(Product::getId, Function.identity()));
+        try {
+            for (ProductSummary summary : page) {
+                Product product = products.get(summary.getId());
+                writer.add(summary, product == null ? List.of() : product.getOffers());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    private Path path() {
+        return Paths.get(path);
+    }
+}
@@ -0,0 +1,558 @@
+package com.example.productDemo.Index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Event.ProductJournal;
+import com.example.productDemo.Repository.ProductSummaryRepository;
+
+/**
+ * In-memory columnar snapshot of the product summaries, answering filtered and sorted summary
+ * pages without a database query.
+ *
+ * The snapshot is a CatalogColumns base plus a small delta of rows written since the base was
+ * built (a null row marks a delete). Writes patch the delta after they commit, dropping a patch that
+ * arrives after a later write's (see PatchVersions); once the delta grows past
+ * product.catalog-snapshot.max-delta it is folded into a new base in memory on a background thread,
+ * while patches keep going into the delta until the new base is published.
+ * A periodic rebuild from product_summary picks up changes made by other nodes.
+ * Each base carries CatalogFacets bitmaps over its rows, which answer facet counts.
+ */
+@Component
+public class CatalogSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    @Autowired
+    private ProductSummaryRepository productSummaryRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Autowired
+    private ProductJournal productJournal;
+
+    @Value("${product.catalog-snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.catalog-snapshot.page-size:5000}")
+    private int pageSize;
+
+    @Value("${product.catalog-snapshot.max-delta:1000}")
+    private int maxDelta;
+
+    // Lower bounds of the price facet buckets after the first (0-25, 25-50, ..., 500+)
+    @Value("${product.facets.price-buckets:25,50,100,250,500}")
+    private double[] priceBuckets = {25, 50, 100, 250, 500};
+
+    // Lower bounds of the review-count facet ranges after 0 (0, 1-4, 5-19, 20+)
+    @Value("${product.facets.review-count-buckets:1,5,20}")
+    private int[] reviewCountBuckets = {1, 5, 20};
+
+    private final Object lock = new Object();
+    private volatile State state;
+    // Changes made while a rebuild is loading; they become the delta of the rebuilt snapshot
+    private Map<String, ProductSummary> changedDuringRebuild;
+    // Guarded by lock
+    private final PatchVersions patchVersions = new PatchVersions();
+    // The compaction folding the delta into a new base, if one is running; guarded by lock
+    private CompletableFuture<Void> compaction;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //----- Applies changed summary rows once the current transaction commits.-----
+    public void upsertAfterCommit(Collection<ProductSummary> summaries) {
+        upsertAfterCommit(summaries, PatchVersions.NONE);
+    }
+
+    //----- Applies changed summary rows once the current transaction commits, unless a later write's are applied first.-----
+    public void upsertAfterCommit(Collection<ProductSummary> summaries, LongSupplier version) {
+        Map<String, ProductSummary> changes = new HashMap<>();
+        summaries.forEach(summary -> changes.put(summary.getId(), summary));
+        afterCommit(changes, version);
+    }
+
+    //----- Drops deleted products once the current transaction commits.-----
+    public void removeAfterCommit(Collection<String> productIds) {
+        removeAfterCommit(productIds, PatchVersions.NONE);
+    }
+
+    //----- Drops deleted products once the current transaction commits, unless a later write's changes are applied first.-----
+    public void removeAfterCommit(Collection<String> productIds, LongSupplier version) {
+        Map<String, ProductSummary> changes = new HashMap<>();
+        productIds.forEach(productId -> changes.put(productId, null));
+        afterCommit(changes, version);
+    }
+
+    // The version is read once the write has committed, as it is only assigned at the end of its transaction
+    private void afterCommit(Map<String, ProductSummary> changes, LongSupplier version) {
+        if (!enabled || changes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            patch(changes, version.getAsLong());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                patch(changes, version.getAsLong());
+            }
+        });
+    }
+
+    private void patch(Map<String, ProductSummary> patched, long version) {
+        synchronized (lock) {
+            Map<String, ProductSummary> changes = patchVersions.newer(patched, version);
+            if (changes.isEmpty()) {
+                return;
+            }
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.putAll(changes);
+            }
+            State current = state;
+            if (current == null) {
+                return;
+            }
+            Map<String, ProductSummary> delta = new HashMap<>(current.delta);
+            delta.putAll(changes);
+            state = new State(current.base, current.facets, delta);
+            if (delta.size() > maxDelta && compaction == null) {
+                State started = state;
+                compaction = CompletableFuture.runAsync(() -> compactInBackground(started)).exceptionally(e -> {
+                    log.warn("Catalog snapshot compaction failed", e);
+                    return null;
+                });
+            }
+        }
+    }
+
+    // Builds the new base and its facets outside the lock, then publishes it with the patches applied meanwhile as its delta
+    private void compactInBackground(State started) {
+        try {
+            State compacted = newState(compact(started.base, started.delta), Collections.emptyMap());
+            synchronized (lock) {
+                State current = state;
+                // A rebuild published meanwhile is newer than this compaction
+                if (current != null && current.base == started.base) {
+                    Map<String, ProductSummary> since = new HashMap<>();
+                    current.delta.forEach((productId, summary) -> {
+                        if (!started.delta.containsKey(productId) || started.delta.get(productId) != summary) {
+                            since.put(productId, summary);
+                        }
+                    });
+                    state = new State(compacted.base, compacted.facets, since);
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                compaction = null;
+            }
+        }
+    }
+
+    // A state over a new base, with its facet bitmaps
+    private State newState(CatalogColumns base, Map<String, ProductSummary> delta) {
+        return new State(base, new CatalogFacets(base, new CatalogFacets.Buckets(priceBuckets, reviewCountBuckets)), delta);
+    }
+
+    // Folds the delta into a new base, without going back to the database
+    private static CatalogColumns compact(CatalogColumns base, Map<String, ProductSummary> delta) {
+        CatalogColumns.Builder builder = new CatalogColumns.Builder();
+        for (int row = 0; row < base.size(); row++) {
+            if (!delta.containsKey(base.ids[row])) {
+                builder.add(base, row);
+            }
+        }
+        delta.values().stream().filter(summary -> summary != null).forEach(builder::add);
+        return builder.build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAtStartup() {
+        if (!enabled) {
+            return;
+        }
+        Optional<CatalogFile> file = catalogFileStore.file();
+        file.ifPresent(this::load);
+        if (catalogFileStore.isReadOnly()) {
+            return;
+        }
+        Optional<ProductJournal.Replay> replay = file.flatMap(loaded -> productJournal.replaySince(loaded.createdAt()));
+        if (replay.isPresent()) {
+            // The journal holds every change made since the file was written, so the database is not rescanned
+            upsertAfterCommit(replay.get().getUpserts());
+            removeAfterCommit(replay.get().getRemovedIds());
+        } else if (file.isPresent()) {
+            // Serve from the file right away and catch up with the database in the background
+            CompletableFuture.runAsync(this::rebuild).exceptionally(e -> {
+                log.warn("Catalog snapshot rebuild failed", e);
+                return null;
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    //----- Builds the snapshot from a mapped snapshot file, unless one was already built.-----
+    public void load(CatalogFile file) {
+        long startTime = System.currentTimeMillis();
+        CatalogColumns.Builder builder = new CatalogColumns.Builder();
+        for (int index = 0; index < file.size(); index++) {
+            builder.add(file.summary(index));
+        }
+        State loaded = newState(builder.build(), Collections.emptyMap());
+        synchronized (lock) {
+            if (state == null) {
+                state = loaded;
+            }
+        }
+        log.info("Catalog snapshot loaded from file with {} products in {} ms", loaded.base.size(), System.currentTimeMillis() - startTime);
+    }
+
+    @Scheduled(fixedDelayString = "${product.catalog-snapshot.rebuild-interval-ms:3600000}",
+            initialDelayString = "${product.catalog-snapshot.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        // In read-only mode the snapshot file is the only source
+        if (!catalogFileStore.isReadOnly()) {
+            rebuild();
+        }
+    }
+
+    //----- Reloads the snapshot from the product_summary table of every shard.-----
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        synchronized (lock) {
+            changedDuringRebuild = new HashMap<>();
+        }
+        try {
+            CatalogColumns.Builder builder = new CatalogColumns.Builder();
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                int target = shard;
+                String lastId = "";
+                while (true) {
+                    String afterId = lastId;
+                    // One short read-only transaction per page, so loaded entities do not pile up
+                    List<ProductSummary> page = shardRouter.inTransactionOnShard(target, true,
+                            () -> productSummaryRepository.findPageAfter(afterId, PageRequest.of(0, pageSize)));
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    page.forEach(builder::add);
+                    lastId = page.get(page.size() - 1).getId();
+                }
+            }
+            CatalogColumns base = builder.build();
+            CatalogFacets facets = new CatalogFacets(base, new CatalogFacets.Buckets(priceBuckets, reviewCountBuckets));
+            synchronized (lock) {
+                state = new State(base, facets, new HashMap<>(changedDuringRebuild));
+                changedDuringRebuild = null;
+            }
+            log.info("Catalog snapshot rebuilt with {} products in {} ms", base.size(), System.currentTimeMillis() - startTime);
+        } finally {
+            synchronized (lock) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * Answers a summary page from the snapshot.
+     *
+     * @param pageable Page and sort; the sort must be one field optionally followed by id ascending.
+     * @return The page, or empty if the snapshot is not built yet or cannot serve the sort.
+     */
+    public Optional<Page<ProductSummary>> findSummaries(Double minPrice, Double maxPrice, Double minRating, Pageable pageable) {
+        State current = state;
+        if (!enabled || current == null) {
+            return Optional.empty();
+        }
+        List<Sort.Order> orders = pageable.getSort().toList();
+        Sort.Order primary = orders.isEmpty() ? Sort.Order.asc("id") : orders.get(0);
+        boolean idTieBreak = orders.size() < 2
+                || (orders.size() == 2 && orders.get(1).getProperty().equals("id") && orders.get(1).isAscending());
+        if (!ProductSummary.SORTABLE_FIELDS.contains(primary.getProperty()) || !idTieBreak) {
+            return Optional.empty();
+        }
+        Query query = new Query(current, primary.getProperty(), primary.isDescending(), minPrice, maxPrice, minRating);
+        return Optional.of(query.page(pageable));
+    }
+
+    /**
+     * Counts the facet values of the products matching the summary filters, from the facet
+     * bitmaps of the base and a direct count of the delta.
+     *
+     * @return Per facet, the count of every value, or empty if the snapshot is not built yet.
+     */
+    public Optional<Map<String, Map<String, Long>>> facetCounts(Double minPrice, Double maxPrice, Double minRating) {
+        State current = state;
+        if (!enabled || current == null) {
+            return Optional.empty();
+        }
+        RoaringBitmap rows = filteredBaseRows(current, minPrice, maxPrice, minRating).andNot(current.overridden);
+
+        List<ProductSummary> changed = new ArrayList<>();
+        for (ProductSummary summary : current.delta.values()) {
+            if (summary != null && matches(summary.getPrice(), summary.getAverageRating(), minPrice, maxPrice, minRating)) {
+                changed.add(summary);
+            }
+        }
+        return Optional.of(current.facets.count(rows, changed));
+    }
+
+    // Base rows passing the filters, overridden ones included: binary-searched ranges of the price and rating orderings
+    private static RoaringBitmap filteredBaseRows(State state, Double minPrice, Double maxPrice, Double minRating) {
+        RoaringBitmap rows = state.facets.allRows();
+        if (minPrice != null || maxPrice != null) {
+            rows = rows.and(state.base.rowsBetween("price", minPrice == null ? Double.NEGATIVE_INFINITY : minPrice,
+                    maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice));
+        }
+        if (minRating != null) {
+            rows = rows.and(state.base.rowsBetween("averageRating", minRating, Double.POSITIVE_INFINITY));
+        }
+        return rows;
+    }
+
+    private static boolean matches(double price, Double averageRating, Double minPrice, Double maxPrice, Double minRating) {
+        return (minPrice == null || price >= minPrice)
+                && (maxPrice == null || price <= maxPrice)
+                && (minRating == null || (averageRating != null && averageRating >= minRating));
+    }
+
+    //***Base columns and their facets, plus the rows written since they were built***
+    private static final class State {
+
+        private final CatalogColumns base;
+        private final CatalogFacets facets;
+        private final Map<String, ProductSummary> delta;
+        // Base rows that the delta replaces or deletes
+        private final RoaringBitmap overridden = new RoaringBitmap();
+
+        State(CatalogColumns base, CatalogFacets facets, Map<String, ProductSummary> delta) {
+            this.base = base;
+            this.facets = facets;
+            this.delta = delta;
+            delta.keySet().stream().mapToInt(base::row).filter(row -> row >= 0).sorted().forEach(overridden::add);
+        }
+    }
+
+    //***One filtered, sorted read over a snapshot state***
+    private static final class Query {
+
+        private final State state;
+        private final CatalogColumns columns;
+        private final Map<String, ProductSummary> delta;
+        private final String field;
+        private final boolean descending;
+        private final Double minPrice;
+        private final Double maxPrice;
+        private final Double minRating;
+
+        Query(State state, String field, boolean descending, Double minPrice, Double maxPrice, Double minRating) {
+            this.state = state;
+            this.columns = state.base;
+            this.delta = state.delta;
+            this.field = field;
+            this.descending = descending;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            this.minRating = minRating;
+        }
+
+        // Merges the matching base rows and delta rows in sort order up to the end of the requested
+        // window; the total comes from the cardinality of the matching base rows, not from a full walk
+        Page<ProductSummary> page(Pageable pageable) {
+            List<ProductSummary> changed = new ArrayList<>();
+            for (ProductSummary summary : delta.values()) {
+                if (summary != null && matches(summary.getPrice(), summary.getAverageRating())) {
+                    changed.add(summary);
+                }
+            }
+            changed.sort(this::compare);
+
+            RoaringBitmap baseRows = filteredBaseRows(state, minPrice, maxPrice, minRating);
+            long total = baseRows.cardinality() - baseRows.andCardinality(state.overridden) + changed.size();
+
+            long offset = pageable.getOffset();
+            List<ProductSummary> content = new ArrayList<>(pageable.getPageSize());
+            long position = 0;
+            Iterator<ProductSummary> changedRows = changed.iterator();
+            ProductSummary nextChanged = changedRows.hasNext() ? changedRows.next() : null;
+            BaseCursor cursor = new BaseCursor();
+            int nextRow = cursor.next();
+            while ((nextRow >= 0 || nextChanged != null) && content.size() < pageable.getPageSize()) {
+                boolean takeBase = nextChanged == null || (nextRow >= 0 && compare(nextRow, nextChanged) <= 0);
+                if (position >= offset) {
+                    content.add(takeBase ? columns.summary(nextRow) : nextChanged);
+                }
+                position++;
+                if (takeBase) {
+                    nextRow = cursor.next();
+                } else {
+                    nextChanged = changedRows.hasNext() ? changedRows.next() : null;
+                }
+            }
+            return new PageImpl<>(content, pageable, total);
+        }
+
+        private boolean matches(double price, Double averageRating) {
+            return CatalogSnapshot.matches(price, averageRating, minPrice, maxPrice, minRating);
+        }
+
+        private boolean matches(int row) {
+            return !delta.containsKey(columns.ids[row]) && matches(columns.prices[row], columns.averageRating(row));
+        }
+
+        // Order of a base row against a changed row: the sort field, then id ascending
+        private int compare(int row, ProductSummary summary) {
+            int cmp = 0;
+            if (field.equals("name")) {
+                cmp = CatalogColumns.NAME_ORDER.compare(columns.names[columns.nameCodes[row]], summary.getName());
+            } else if (!field.equals("id")) {
+                cmp = Double.compare(columns.key(field, row), key(summary));
+            }
+            return tieBreak(cmp, columns.ids[row], summary.getId());
+        }
+
+        private int compare(ProductSummary a, ProductSummary b) {
+            int cmp = 0;
+            if (field.equals("name")) {
+                cmp = CatalogColumns.NAME_ORDER.compare(a.getName(), b.getName());
+            } else if (!field.equals("id")) {
+                cmp = Double.compare(key(a), key(b));
+            }
+            return tieBreak(cmp, a.getId(), b.getId());
+        }
+
+        private int tieBreak(int cmp, String firstId, String secondId) {
+            if (cmp != 0) {
+                return descending ? -cmp : cmp;
+            }
+            int byId = firstId.compareTo(secondId);
+            return field.equals("id") && descending ? -byId : byId;
+        }
+
+        private double key(ProductSummary summary) {
+            switch (field) {
+                case "price": return summary.getPrice();
+                case "discountedPrice": return summary.getDiscountedPrice();
+                case "averageRating": return summary.getAverageRating() == null ? Double.NEGATIVE_INFINITY : CatalogColumns.roundRating(summary.getAverageRating());
+                case "reviewCount": return summary.getReviewCount();
+                default: return 0;
+            }
+        }
+
+        /**
+         * Walks the base rows that match the filters in sort order. Price-sorted reads start and
+         * stop at the binary-searched price range. Descending reads walk the ordering backwards
+         * but keep equal keys in ascending id order, as the database does.
+         */
+        private final class BaseCursor {
+
+            private final int[] ordering = columns.ordering(field);
+            private final int from;
+            private final int to;
+            private int position;
+            private int runEnd = -1;
+            private int runPosition;
+
+            BaseCursor() {
+                if (field.equals("price")) {
+                    from = minPrice == null ? 0 : firstPriceAtLeast(minPrice, false);
+                    to = maxPrice == null ? columns.size() : firstPriceAtLeast(maxPrice, true);
+                } else {
+                    from = 0;
+                    to = columns.size();
+                }
+                position = descending ? to - 1 : from;
+            }
+
+            // Next matching row, or -1 when there are none left
+            int next() {
+                while (true) {
+                    int index = nextIndex();
+                    if (index < 0) {
+                        return -1;
+                    }
+                    int row = ordering == null ? index : ordering[index];
+                    if (matches(row)) {
+                        return row;
+                    }
+                }
+            }
+
+            private int nextIndex() {
+                if (!descending) {
+                    return position < to ? position++ : -1;
+                }
+                if (ordering == null) {
+                    return position >= from ? position-- : -1;
+                }
+                if (runPosition > runEnd) {
+                    if (position < from) {
+                        return -1;
+                    }
+                    // Find the run of equal keys ending here and return it front to back
+                    double runKey = columns.key(field, ordering[position]);
+                    runEnd = position;
+                    runPosition = position;
+                    while (runPosition > from && columns.key(field, ordering[runPosition - 1]) == runKey) {
+                        runPosition--;
+                    }
+                    position = runPosition - 1;
+                }
+                return runPosition++;
+            }
+
+            // Index in the price ordering of the first row priced at least (or, if strictly, above) the bound
+            private int firstPriceAtLeast(double bound, boolean strictly) {
+                int low = 0;
+                int high = columns.size();
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    double price = columns.prices[ordering[middle]];
+                    if (strictly ? price <= bound : price < bound) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                return low;
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.productDemo.Index;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Entity.Product.Offer;
+import com.example.productDemo.Repository.ProductRepository;
+
+/**
+ * In-memory hash index from coupon code to the offers carrying it, keyed by product id, so that
+ * validating a coupon for a product at checkout is two hash lookups.
+ *
+ * Offers of written products are replaced once their write commits, deleted products are
+ * dropped, and expired offers are pruned every night; lookups also skip offers that ended
+ * since. A periodic rebuild from product_offers picks up changes made by other nodes.
+ */
+@Component
+public class CouponIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CouponIndex.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Value("${product.coupons.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.coupons.page-size:5000}")
+    private int pageSize = 5000;
+
+    private final Object lock = new Object();
+    private volatile Index index;
+    // Offers replaced while a rebuild is loading (an empty list for a deleted product); they are replayed onto the rebuilt index
+    private Map<String, List<Offer>> changedDuringRebuild;
+    // Guarded by lock
+    private final PatchVersions patchVersions = new PatchVersions();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Offers carrying a coupon code that have not ended yet.
+     *
+     * @param productId Only the offer of this product, or null for every product.
+     * @return Product id to offer, or empty if the index is not built yet.
+     */
+    public Optional<Map<String, Offer>> find(String couponCode, String productId) {
+        Index current = index;
+        if (!enabled || current == null) {
+            return Optional.empty();
+        }
+        Map<String, Offer> offers = current.byCode.getOrDefault(couponCode, Collections.emptyMap());
+        LocalDate today = LocalDate.now();
+        if (productId != null) {
+            Offer offer = offers.get(productId);
+            return Optional.of(offer == null || isExpired(offer, today) ? Collections.emptyMap() : Map.of(productId, offer));
+        }
+        Map<String, Offer> valid = new LinkedHashMap<>();
+        offers.forEach((id, offer) -> {
+            if (!isExpired(offer, today)) {
+                valid.put(id, offer);
+            }
+        });
+        return Optional.of(valid);
+    }
+
+    //----- Replaces the indexed offers of the given products once the current transaction commits.-----
+    public void replaceAfterCommit(Collection<String> productIds, List<Object[]> offerRows) {
+        replaceAfterCommit(productIds, offerRows, PatchVersions.NONE);
+    }
+
+    //----- Replaces the indexed offers of the given products once the current transaction commits, unless a later write's are applied first.-----
+    public void replaceAfterCommit(Collection<String> productIds, List<Object[]> offerRows, LongSupplier version) {
+        Map<String, List<Offer>> changes = new HashMap<>();
+        productIds.forEach(productId -> changes.put(productId, new ArrayList<>()));
+        for (Object[] row : offerRows) {
+            changes.computeIfAbsent((String) row[0], productId -> new ArrayList<>()).add((Offer) row[1]);
+        }
+        afterCommit(changes, version);
+    }
+
+    //----- Drops the offers of deleted products once the current transaction commits.-----
+    public void removeAfterCommit(Collection<String> productIds) {
+        removeAfterCommit(productIds, PatchVersions.NONE);
+    }
+
+    //----- Drops the offers of deleted products once the current transaction commits, unless a later write's are applied first.-----
+    public void removeAfterCommit(Collection<String> productIds, LongSupplier version) {
+        Map<String, List<Offer>> changes = new HashMap<>();
+        productIds.forEach(productId -> changes.put(productId, Collections.emptyList()));
+        afterCommit(changes, version);
+    }
+
+    // The version is read once the write has committed, as it is only assigned at the end of its transaction
+    private void afterCommit(Map<String, List<Offer>> changes, LongSupplier version) {
+        if (!enabled || changes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            patch(changes, version.getAsLong());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                patch(changes, version.getAsLong());
+            }
+        });
+    }
+
+    private void patch(Map<String, List<Offer>> patched, long version) {
+        synchronized (lock) {
+            Map<String, List<Offer>> changes = patchVersions.newer(patched, version);
+            if (changes.isEmpty()) {
+                return;
+            }
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.putAll(changes);
+            }
+            Index current = index;
+            if (current != null) {
+                changes.forEach(current::replace);
+            }
+        }
+    }
+
+    //----- Drops offers that have ended; lookups already skip them, this frees the memory.-----
+    @Scheduled(cron = "${product.coupons.expiry-cron:0 1 0 * * *}")
+    public void pruneExpired() {
+        LocalDate today = LocalDate.now();
+        synchronized (lock) {
+            Index current = index;
+            if (current == null) {
+                return;
+            }
+            int pruned = 0;
+            for (String couponCode : new ArrayList<>(current.byCode.keySet())) {
+                for (Map.Entry<String, Offer> entry : current.byCode.get(couponCode).entrySet()) {
+                    if (isExpired(entry.getValue(), today)) {
+                        current.remove(entry.getKey(), couponCode);
+                        pruned++;
+                    }
+                }
+            }
+            log.info("Coupon index pruned {} expired offers", pruned);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAtStartup() {
+        if (!enabled) {
+            return;
+        }
+        Optional<CatalogFile> file = catalogFileStore.file();
+        file.ifPresent(this::load);
+        if (catalogFileStore.isReadOnly()) {
+            return;
+        }
+        if (file.isPresent()) {
+            CompletableFuture.runAsync(this::rebuild).exceptionally(e -> {
+                log.warn("Coupon index rebuild failed", e);
+                return null;
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    //----- Builds the index from the offers in a mapped snapshot file, unless it was already built.-----
+    public void load(CatalogFile file) {
+        Index loaded = new Index();
+        for (int position = 0; position < file.size(); position++) {
+            String productId = file.summary(position).getId();
+            file.findProduct(productId).map(Product::getOffers).ifPresent(offers -> loaded.replace(productId, offers));
+        }
+        synchronized (lock) {
+            if (index == null) {
+                index = loaded;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.coupons.rebuild-interval-ms:3600000}",
+            initialDelayString = "${product.coupons.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        if (!catalogFileStore.isReadOnly()) {
+            rebuild();
+        }
+    }
+
+    //----- Reloads the index from the product_offers table of every shard.-----
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        synchronized (lock) {
+            changedDuringRebuild = new HashMap<>();
+        }
+        try {
+            Index rebuilt = new Index();
+            int offerCount = 0;
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                int target = shard;
+                String lastId = "";
+                while (true) {
+                    String afterId = lastId;
+                    // Products are paged by id so that all offers of a product arrive together
+                    Map<String, List<Offer>> page = shardRouter.inTransactionOnShard(target, true, () -> {
+                        List<String> ids = productRepository.findIdsAfter(afterId, PageRequest.of(0, pageSize));
+                        Map<String, List<Offer>> offers = new LinkedHashMap<>();
+                        ids.forEach(productId -> offers.put(productId, new ArrayList<>()));
+                        if (!ids.isEmpty()) {
+                            productRepository.findOffersByProductIds(ids)
+                                    .forEach(row -> offers.get((String) row[0]).add((Offer) row[1]));
+                        }
+                        return offers;
+                    });
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    for (Map.Entry<String, List<Offer>> entry : page.entrySet()) {
+                        rebuilt.replace(entry.getKey(), entry.getValue());
+                        offerCount += entry.getValue().size();
+                        lastId = entry.getKey();
+                    }
+                }
+            }
+            synchronized (lock) {
+                changedDuringRebuild.forEach(rebuilt::replace);
+                index = rebuilt;
+                changedDuringRebuild = null;
+            }
+            log.info("Coupon index rebuilt with {} offers in {} ms", offerCount, System.currentTimeMillis() - startTime);
+        } finally {
+            synchronized (lock) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    // Offers without an end date never expire
+    private static boolean isExpired(Offer offer, LocalDate today) {
+        return offer.getEndDate() != null && offer.getEndDate().isBefore(today);
+    }
+
+    //***Coupon code to product id to offer, plus the codes indexed per product for replacing them***
+    private static final class Index {
+
+        private final Map<String, Map<String, Offer>> byCode = new ConcurrentHashMap<>();
+        private final Map<String, List<String>> codesByProduct = new ConcurrentHashMap<>();
+
+        // Callers serialize writes
+        void replace(String productId, List<Offer> offers) {
+            List<String> previous = codesByProduct.remove(productId);
+            if (previous != null) {
+                previous.forEach(couponCode -> remove(productId, couponCode));
+            }
+            if (offers.isEmpty()) {
+                return;
+            }
+            List<String> couponCodes = new ArrayList<>(offers.size());
+            for (Offer offer : offers) {
+                byCode.computeIfAbsent(offer.getCouponCode(), couponCode -> new ConcurrentHashMap<>()).put(productId, offer);
+                couponCodes.add(offer.getCouponCode());
+            }
+            codesByProduct.put(productId, couponCodes);
+        }
+
+        void remove(String productId, String couponCode) {
+            Map<String, Offer> offers = byCode.get(couponCode);
+            if (offers != null) {
+                offers.remove(productId);
+                if (offers.isEmpty()) {
+                    byCode.remove(couponCode);
+                }
+            }
+        }
+    }
+}
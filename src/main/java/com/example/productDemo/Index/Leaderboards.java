@@ -0,0 +1,297 @@
+package com.example.productDemo.Index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Event.ProductJournal;
+import com.example.productDemo.Repository.ProductSummaryRepository;
+
+/**
+ * Live "top rated" and "cheapest" rankings of the catalog, kept in concurrent skip lists.
+ *
+ * Each board is a ConcurrentSkipListSet of product summaries in board order plus a map from
+ * product id to the summary currently ranked, so a changed product is moved with one remove
+ * and one insert, O(log n), once its write commits. Pages are read by walking the skip list
+ * without locks or database access. A periodic rebuild from product_summary picks up changes
+ * made by other nodes.
+ */
+@Component
+public class Leaderboards {
+
+    private static final Logger log = LoggerFactory.getLogger(Leaderboards.class);
+
+    public static final String TOP_RATED = "top-rated";
+    public static final String CHEAPEST = "cheapest";
+
+    // Board orders; ties are broken by id like the summary listing, so the database can serve the same pages
+    private static final Map<String, Sort> SORTS = Map.of(
+            TOP_RATED, Sort.by(Sort.Direction.DESC, "averageRating").and(Sort.by("id")),
+            CHEAPEST, Sort.by("discountedPrice").and(Sort.by("id")));
+
+    @Autowired
+    private ProductSummaryRepository productSummaryRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Autowired
+    private ProductJournal productJournal;
+
+    @Value("${product.leaderboards.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.leaderboards.page-size:5000}")
+    private int pageSize = 5000;
+
+    private final Object lock = new Object();
+    private volatile Map<String, Board> boards;
+    // Changes made while a rebuild is loading; they are replayed onto the rebuilt boards
+    private Map<String, ProductSummary> changedDuringRebuild;
+    // Guarded by lock
+    private final PatchVersions patchVersions = new PatchVersions();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static boolean exists(String board) {
+        return SORTS.containsKey(board);
+    }
+
+    //----- Order of a board, for serving it from the summary table.-----
+    public static Sort sort(String board) {
+        return SORTS.get(board);
+    }
+
+    /**
+     * Reads one page of a board.
+     *
+     * @return The page, or empty if the boards are not built yet.
+     */
+    public Optional<Page<ProductSummary>> page(String board, Pageable pageable) {
+        Map<String, Board> current = boards;
+        if (!enabled || current == null) {
+            return Optional.empty();
+        }
+        Board ranking = current.get(board);
+        List<ProductSummary> content = new ArrayList<>(pageable.getPageSize());
+        Iterator<ProductSummary> iterator = ranking.ranked.iterator();
+        for (long skipped = 0; skipped < pageable.getOffset() && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (content.size() < pageable.getPageSize() && iterator.hasNext()) {
+            content.add(iterator.next());
+        }
+        return Optional.of(new PageImpl<>(content, pageable, ranking.size));
+    }
+
+    //----- Re-ranks changed products once the current transaction commits.-----
+    public void upsertAfterCommit(Collection<ProductSummary> summaries) {
+        upsertAfterCommit(summaries, PatchVersions.NONE);
+    }
+
+    //----- Re-ranks changed products once the current transaction commits, unless a later write's are applied first.-----
+    public void upsertAfterCommit(Collection<ProductSummary> summaries, LongSupplier version) {
+        Map<String, ProductSummary> changes = new HashMap<>();
+        summaries.forEach(summary -> changes.put(summary.getId(), summary));
+        afterCommit(changes, version);
+    }
+
+    //----- Drops deleted products once the current transaction commits.-----
+    public void removeAfterCommit(Collection<String> productIds) {
+        removeAfterCommit(productIds, PatchVersions.NONE);
+    }
+
+    //----- Drops deleted products once the current transaction commits, unless a later write's changes are applied first.-----
+    public void removeAfterCommit(Collection<String> productIds, LongSupplier version) {
+        Map<String, ProductSummary> changes = new HashMap<>();
+        productIds.forEach(productId -> changes.put(productId, null));
+        afterCommit(changes, version);
+    }
+
+    // The version is read once the write has committed, as it is only assigned at the end of its transaction
+    private void afterCommit(Map<String, ProductSummary> changes, LongSupplier version) {
+        if (!enabled || changes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            patch(changes, version.getAsLong());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                patch(changes, version.getAsLong());
+            }
+        });
+    }
+
+    private void patch(Map<String, ProductSummary> patched, long version) {
+        synchronized (lock) {
+            Map<String, ProductSummary> changes = patchVersions.newer(patched, version);
+            if (changes.isEmpty()) {
+                return;
+            }
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.putAll(changes);
+            }
+            Map<String, Board> current = boards;
+            if (current != null) {
+                current.values().forEach(board -> changes.forEach(board::put));
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAtStartup() {
+        if (!enabled) {
+            return;
+        }
+        Optional<CatalogFile> file = catalogFileStore.file();
+        file.ifPresent(this::load);
+        if (catalogFileStore.isReadOnly()) {
+            return;
+        }
+        Optional<ProductJournal.Replay> replay = file.flatMap(loaded -> productJournal.replaySince(loaded.createdAt()));
+        if (replay.isPresent()) {
+            // The journal holds every change made since the file was written, so the database is not rescanned
+            upsertAfterCommit(replay.get().getUpserts());
+            removeAfterCommit(replay.get().getRemovedIds());
+        } else if (file.isPresent()) {
+            CompletableFuture.runAsync(this::rebuild).exceptionally(e -> {
+                log.warn("Leaderboards rebuild failed", e);
+                return null;
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    //----- Builds the boards from a mapped snapshot file, unless they were already built.-----
+    public void load(CatalogFile file) {
+        Map<String, Board> loaded = newBoards();
+        for (int index = 0; index < file.size(); index++) {
+            ProductSummary summary = file.summary(index);
+            loaded.values().forEach(board -> board.put(summary.getId(), summary));
+        }
+        synchronized (lock) {
+            if (boards == null) {
+                boards = loaded;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.leaderboards.rebuild-interval-ms:3600000}",
+            initialDelayString = "${product.leaderboards.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        if (!catalogFileStore.isReadOnly()) {
+            rebuild();
+        }
+    }
+
+    //----- Reloads the boards from the product_summary table of every shard.-----
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        synchronized (lock) {
+            changedDuringRebuild = new HashMap<>();
+        }
+        try {
+            Map<String, Board> rebuilt = newBoards();
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                int target = shard;
+                String lastId = "";
+                while (true) {
+                    String afterId = lastId;
+                    List<ProductSummary> page = shardRouter.inTransactionOnShard(target, true,
+                            () -> productSummaryRepository.findPageAfter(afterId, PageRequest.of(0, pageSize)));
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    page.forEach(summary -> rebuilt.values().forEach(board -> board.put(summary.getId(), summary)));
+                    lastId = page.get(page.size() - 1).getId();
+                }
+            }
+            synchronized (lock) {
+                rebuilt.values().forEach(board -> changedDuringRebuild.forEach(board::put));
+                boards = rebuilt;
+                changedDuringRebuild = null;
+            }
+            log.info("Leaderboards rebuilt with {} products in {} ms", rebuilt.get(CHEAPEST).size, System.currentTimeMillis() - startTime);
+        } finally {
+            synchronized (lock) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    private static Map<String, Board> newBoards() {
+        Map<String, Board> boards = new HashMap<>();
+        // Unrated products have no place on the rating board
+        boards.put(TOP_RATED, new Board(Comparator.comparing(ProductSummary::getAverageRating, Comparator.reverseOrder())
+                .thenComparing(ProductSummary::getId), summary -> summary.getAverageRating() != null));
+        boards.put(CHEAPEST, new Board(Comparator.comparingDouble(ProductSummary::getDiscountedPrice)
+                .thenComparing(ProductSummary::getId), summary -> true));
+        return boards;
+    }
+
+    //***One ranking: the ordered summaries and the entry currently ranked for each product***
+    private static final class Board {
+
+        private final ConcurrentSkipListSet<ProductSummary> ranked;
+        private final Map<String, ProductSummary> byId = new ConcurrentHashMap<>();
+        private final Predicate<ProductSummary> eligible;
+        private volatile int size;
+
+        Board(Comparator<ProductSummary> order, Predicate<ProductSummary> eligible) {
+            this.ranked = new ConcurrentSkipListSet<>(order);
+            this.eligible = eligible;
+        }
+
+        // Moves a product to its new place, or removes it when the summary is null; callers serialize writes
+        void put(String productId, ProductSummary summary) {
+            ProductSummary previous = summary != null && eligible.test(summary) ? byId.put(productId, summary) : byId.remove(productId);
+            if (previous != null) {
+                ranked.remove(previous);
+            }
+            if (summary != null && eligible.test(summary)) {
+                ranked.add(summary);
+            }
+            size = byId.size();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.productDemo.Index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Event.ProductJournal;
+import com.example.productDemo.Repository.ProductSummaryRepository;
+
+/**
+ * Name autocomplete: the best-ranked product names starting with a typed prefix, answered in
+ * memory from a PrefixTrie.
+ *
+ * Like CatalogSnapshot, the trie is an immutable base plus a small delta of products written
+ * since it was built (a null entry marks a delete). Writes patch the delta after they commit;
+ * past product.suggest.max-delta changes the delta is folded into a new trie in memory, and a
+ * periodic rebuild from product_summary picks up changes made by other nodes.
+ */
+@Component
+public class NameSuggester {
+
+    private static final Logger log = LoggerFactory.getLogger(NameSuggester.class);
+
+    @Autowired
+    private ProductSummaryRepository productSummaryRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Autowired
+    private ProductJournal productJournal;
+
+    @Value("${product.suggest.enabled:true}")
+    private boolean enabled;
+
+    // Suggestions precomputed per trie node, and the most a query may ask for
+    @Value("${product.suggest.max-results:10}")
+    private int maxResults = 10;
+
+    @Value("${product.suggest.max-delta:256}")
+    private int maxDelta = 256;
+
+    @Value("${product.suggest.page-size:5000}")
+    private int pageSize = 5000;
+
+    private final Object lock = new Object();
+    private volatile State state;
+    // Changes made while a rebuild is loading; they become the delta of the rebuilt trie
+    private Map<String, PrefixTrie.Entry> changedDuringRebuild;
+    // Guarded by lock
+    private final PatchVersions patchVersions = new PatchVersions();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int maxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Best-ranked products whose name starts with the prefix, ignoring case.
+     *
+     * @param limit Maximum number of suggestions, capped at product.suggest.max-results.
+     * @return The suggestions, or empty if the trie is not built yet.
+     */
+    public Optional<List<PrefixTrie.Entry>> suggest(String prefix, int limit) {
+        State current = state;
+        if (!enabled || current == null) {
+            return Optional.empty();
+        }
+        String normalizedPrefix = Product.normalizeName(prefix);
+        int size = Math.min(limit, maxResults);
+        List<PrefixTrie.Entry> suggestions = new ArrayList<>(current.trie.find(normalizedPrefix, current.delta.keySet(), size));
+        for (PrefixTrie.Entry entry : current.delta.values()) {
+            if (entry != null && entry.normalized.startsWith(normalizedPrefix)) {
+                suggestions.add(entry);
+            }
+        }
+        suggestions.sort(PrefixTrie.RANK);
+        return Optional.of(suggestions.size() > size ? suggestions.subList(0, size) : suggestions);
+    }
+
+    //----- Applies changed products once the current transaction commits.-----
+    public void upsertAfterCommit(Collection<ProductSummary> summaries) {
+        upsertAfterCommit(summaries, PatchVersions.NONE);
+    }
+
+    //----- Applies changed products once the current transaction commits, unless a later write's are applied first.-----
+    public void upsertAfterCommit(Collection<ProductSummary> summaries, LongSupplier version) {
+        Map<String, PrefixTrie.Entry> changes = new HashMap<>();
+        summaries.forEach(summary -> changes.put(summary.getId(), entry(summary)));
+        afterCommit(changes, version);
+    }
+
+    //----- Drops deleted products once the current transaction commits.-----
+    public void removeAfterCommit(Collection<String> productIds) {
+        removeAfterCommit(productIds, PatchVersions.NONE);
+    }
+
+    //----- Drops deleted products once the current transaction commits, unless a later write's changes are applied first.-----
+    public void removeAfterCommit(Collection<String> productIds, LongSupplier version) {
+        Map<String, PrefixTrie.Entry> changes = new HashMap<>();
+        productIds.forEach(productId -> changes.put(productId, null));
+        afterCommit(changes, version);
+    }
+
+    // The version is read once the write has committed, as it is only assigned at the end of its transaction
+    private void afterCommit(Map<String, PrefixTrie.Entry> changes, LongSupplier version) {
+        if (!enabled || changes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            patch(changes, version.getAsLong());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                patch(changes, version.getAsLong());
+            }
+        });
+    }
+
+    private void patch(Map<String, PrefixTrie.Entry> patched, long version) {
+        synchronized (lock) {
+            Map<String, PrefixTrie.Entry> changes = patchVersions.newer(patched, version);
+            if (changes.isEmpty()) {
+                return;
+            }
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.putAll(changes);
+            }
+            State current = state;
+            if (current == null) {
+                return;
+            }
+            Map<String, PrefixTrie.Entry> delta = new HashMap<>(current.delta);
+            delta.putAll(changes);
+            state = delta.size() > maxDelta ? new State(compact(current.trie, delta), Collections.emptyMap()) : new State(current.trie, delta);
+        }
+    }
+
+    // Folds the delta into a new trie, without going back to the database
+    private PrefixTrie compact(PrefixTrie trie, Map<String, PrefixTrie.Entry> delta) {
+        List<PrefixTrie.Entry> entries = new ArrayList<>(trie.size() + delta.size());
+        for (PrefixTrie.Entry entry : trie.entries()) {
+            if (!delta.containsKey(entry.id)) {
+                entries.add(entry);
+            }
+        }
+        delta.values().stream().filter(entry -> entry != null).forEach(entries::add);
+        return new PrefixTrie(entries, maxResults);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAtStartup() {
+        if (!enabled) {
+            return;
+        }
+        Optional<CatalogFile> file = catalogFileStore.file();
+        file.ifPresent(this::load);
+        if (catalogFileStore.isReadOnly()) {
+            return;
+        }
+        Optional<ProductJournal.Replay> replay = file.flatMap(loaded -> productJournal.replaySince(loaded.createdAt()));
+        if (replay.isPresent()) {
+            // The journal holds every change made since the file was written, so the database is not rescanned
+            upsertAfterCommit(replay.get().getUpserts());
+            removeAfterCommit(replay.get().getRemovedIds());
+        } else if (file.isPresent()) {
+            CompletableFuture.runAsync(this::rebuild).exceptionally(e -> {
+                log.warn("Name suggester rebuild failed", e);
+                return null;
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    //----- Builds the trie from a mapped snapshot file, unless one was already built.-----
+    public void load(CatalogFile file) {
+        List<PrefixTrie.Entry> entries = new ArrayList<>(file.size());
+        for (int index = 0; index < file.size(); index++) {
+            entries.add(entry(file.summary(index)));
+        }
+        PrefixTrie trie = new PrefixTrie(entries, maxResults);
+        synchronized (lock) {
+            if (state == null) {
+                state = new State(trie, Collections.emptyMap());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.suggest.rebuild-interval-ms:3600000}",
+            initialDelayString = "${product.suggest.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        if (!catalogFileStore.isReadOnly()) {
+            rebuild();
+        }
+    }
+
+    //----- Reloads the trie from the product_summary table of every shard.-----
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        synchronized (lock) {
+            changedDuringRebuild = new HashMap<>();
+        }
+        try {
+            List<PrefixTrie.Entry> entries = new ArrayList<>();
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                int target = shard;
+                String lastId = "";
+                while (true) {
+                    String afterId = lastId;
+                    List<ProductSummary> page = shardRouter.inTransactionOnShard(target, true,
+                            () -> productSummaryRepository.findPageAfter(afterId, PageRequest.of(0, pageSize)));
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    page.forEach(summary -> entries.add(entry(summary)));
+                    lastId = page.get(page.size() - 1).getId();
+                }
+            }
+            PrefixTrie trie = new PrefixTrie(entries, maxResults);
+            synchronized (lock) {
+                state = new State(trie, new HashMap<>(changedDuringRebuild));
+                changedDuringRebuild = null;
+            }
+            log.info("Name suggester rebuilt with {} names in {} ms", trie.size(), System.currentTimeMillis() - startTime);
+        } finally {
+            synchronized (lock) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    private static PrefixTrie.Entry entry(ProductSummary summary) {
+        return new PrefixTrie.Entry(summary.getId(), summary.getName(), summary.getAverageRating(), summary.getReviewCount());
+    }
+
+    //***Trie plus the products written since it was built***
+    private static final class State {
+
+        private final PrefixTrie trie;
+        private final Map<String, PrefixTrie.Entry> delta;
+
+        State(PrefixTrie trie, Map<String, PrefixTrie.Entry> delta) {
+            this.trie = trie;
+            this.delta = delta;
+        }
+    }
+}
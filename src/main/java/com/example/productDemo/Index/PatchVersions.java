@@ -0,0 +1,51 @@
+package com.example.productDemo.Index;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Last change sequence applied per product by an in-memory index.
+ *
+ * Indexes are patched after their writes commit, and after-commit callbacks of concurrent writes
+ * run in no particular order. Each patch carries the sequence number ProductChangeLog gave its
+ * write, which increases in commit order for a product (a product's changes are all numbered by
+ * the database of its shard), so an index keeps a patch only if no later one was applied before it.
+ * Patches without a sequence (the change feed is disabled, or they replay a journal) are always
+ * applied.
+ *
+ * One entry is kept per product patched since the start. Not thread-safe: callers hold their index
+ * lock.
+ */
+public class PatchVersions {
+
+    public static final long UNVERSIONED = -1;
+
+    public static final LongSupplier NONE = () -> UNVERSIONED;
+
+    private final Map<String, Long> applied = new HashMap<>();
+    private long dropped;
+
+    //----- The changes that are not older than what was already applied to their product, which they now are.-----
+    public <V> Map<String, V> newer(Map<String, V> changes, long version) {
+        if (version == UNVERSIONED) {
+            return changes;
+        }
+        Map<String, V> kept = new HashMap<>();
+        changes.forEach((productId, change) -> {
+            Long last = applied.get(productId);
+            if (last == null || last <= version) {
+                applied.put(productId, version);
+                kept.put(productId, change);
+            } else {
+                dropped++;
+            }
+        });
+        return kept;
+    }
+
+    // Patches dropped for being older than one already applied
+    public long dropped() {
+        return dropped;
+    }
+}
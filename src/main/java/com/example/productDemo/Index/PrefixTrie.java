@@ -0,0 +1,248 @@
+package com.example.productDemo.Index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import com.example.productDemo.Entity.Product;
+
+/**
+ * Immutable prefix index over product names, answering "best names starting with" queries.
+ *
+ * Entries are kept in one array sorted by normalized name, so the names under any prefix form a
+ * contiguous range. Trie nodes exist only for prefixes shared by more than topSize names (a burst
+ * trie): each stores its range, its children packed contiguously and sorted by character, and
+ * its topSize best entries precomputed. Smaller ranges are leaves that are scanned directly.
+ * A lookup is a walk of at most one node per prefix character, then either a precomputed list
+ * or a scan of at most topSize entries; the node count stays below (name length x size / topSize).
+ */
+public final class PrefixTrie {
+
+    // Best first: most reviews, then highest rating (unrated last), then name
+    public static final Comparator<Entry> RANK = Comparator.comparingInt((Entry entry) -> entry.reviewCount).reversed()
+            .thenComparing(entry -> entry.averageRating, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(entry -> entry.normalized)
+            .thenComparing(entry -> entry.id);
+
+    private final int topSize;
+    private final Entry[] entries;
+
+    // Node arrays; node 0 is the root (the empty prefix)
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] from;
+    private final int[] to;
+    // Entry indexes of each internal node's best entries, topSize per node, at topStart[node]
+    private final int[] topStart;
+    private final int[] tops;
+
+    PrefixTrie(Collection<Entry> values, int topSize) {
+        this.topSize = topSize;
+        entries = values.toArray(new Entry[0]);
+        Arrays.sort(entries, Comparator.comparing((Entry entry) -> entry.normalized).thenComparing(entry -> entry.id));
+
+        // Breadth first, so the children of a node are allocated next to each other
+        NodeList nodes = new NodeList();
+        nodes.add('\0', 0, entries.length);
+        List<Integer> topList = new ArrayList<>();
+        for (int node = 0, depth = 0, levelEnd = 1; node < nodes.size; node++) {
+            if (node == levelEnd) {
+                depth++;
+                levelEnd = nodes.size;
+            }
+            int lo = nodes.from[node];
+            int hi = nodes.to[node];
+            if (hi - lo <= topSize) {
+                // Leaf: scanned at query time
+                nodes.topStart[node] = -1;
+                continue;
+            }
+            nodes.topStart[node] = topList.size();
+            for (int index : best(lo, hi, topSize, Set.of())) {
+                topList.add(index);
+            }
+
+            // Names that end at this depth sort first; the rest are grouped by their next character
+            int start = lo;
+            while (start < hi && entries[start].normalized.length() <= depth) {
+                start++;
+            }
+            nodes.firstChild[node] = nodes.size;
+            while (start < hi) {
+                char label = entries[start].normalized.charAt(depth);
+                int end = start;
+                while (end < hi && entries[end].normalized.charAt(depth) == label) {
+                    end++;
+                }
+                nodes.add(label, start, end);
+                start = end;
+            }
+            nodes.childCount[node] = nodes.size - nodes.firstChild[node];
+        }
+
+        labels = Arrays.copyOf(nodes.labels, nodes.size);
+        firstChild = Arrays.copyOf(nodes.firstChild, nodes.size);
+        childCount = Arrays.copyOf(nodes.childCount, nodes.size);
+        from = Arrays.copyOf(nodes.from, nodes.size);
+        to = Arrays.copyOf(nodes.to, nodes.size);
+        topStart = Arrays.copyOf(nodes.topStart, nodes.size);
+        tops = topList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public int topSize() {
+        return topSize;
+    }
+
+    //----- Every entry, in name order.-----
+    List<Entry> entries() {
+        return Arrays.asList(entries);
+    }
+
+    /**
+     * Best entries whose normalized name starts with the normalized prefix.
+     *
+     * @param excludedIds Ids to leave out (entries replaced since the trie was built).
+     * @param limit Maximum number of entries, at most topSize.
+     */
+    List<Entry> find(String normalizedPrefix, Set<String> excludedIds, int limit) {
+        int node = 0;
+        int depth = 0;
+        // Descend while there are internal nodes; a leaf holds at most topSize candidates
+        while (depth < normalizedPrefix.length() && topStart[node] >= 0) {
+            node = child(node, normalizedPrefix.charAt(depth));
+            if (node < 0) {
+                return List.of();
+            }
+            depth++;
+        }
+
+        List<Entry> result = new ArrayList<>(limit);
+        if (topStart[node] >= 0) {
+            // Internal node for exactly this prefix: use the precomputed list unless an entry was replaced
+            boolean complete = true;
+            for (int i = topStart[node]; i < topStart[node] + topSize && result.size() < limit; i++) {
+                Entry entry = entries[tops[i]];
+                if (excludedIds.contains(entry.id)) {
+                    complete = false;
+                    break;
+                }
+                result.add(entry);
+            }
+            if (complete) {
+                return result;
+            }
+            result.clear();
+            // Rare: a best entry changed since the build, so rank the whole range
+            for (int index : best(from[node], to[node], limit, excludedIds)) {
+                result.add(entries[index]);
+            }
+            return result;
+        }
+
+        for (int index : best(from[node], to[node], Integer.MAX_VALUE, excludedIds)) {
+            if (entries[index].normalized.startsWith(normalizedPrefix) && result.size() < limit) {
+                result.add(entries[index]);
+            }
+        }
+        return result;
+    }
+
+    // Index of the child with the given label, or -1
+    private int child(int node, char label) {
+        int low = firstChild[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (labels[middle] < label) {
+                low = middle + 1;
+            } else if (labels[middle] > label) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // Indexes of the best entries in [lo, hi), best first
+    private int[] best(int lo, int hi, int count, Set<String> excludedIds) {
+        return IntStream.range(lo, hi)
+                .filter(index -> !excludedIds.contains(entries[index].id))
+                .boxed()
+                .sorted((a, b) -> RANK.compare(entries[a], entries[b]))
+                .limit(count)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    //***A suggestable product: its name and the statistics it is ranked by***
+    public static final class Entry {
+
+        final String id;
+        final String name;
+        final String normalized;
+        final Double averageRating;
+        final int reviewCount;
+
+        public Entry(String id, String name, Double averageRating, int reviewCount) {
+            this.id = id;
+            this.name = name;
+            this.normalized = name == null ? "" : Product.normalizeName(name);
+            this.averageRating = averageRating;
+            this.reviewCount = reviewCount;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Double getAverageRating() {
+            return averageRating;
+        }
+
+        public int getReviewCount() {
+            return reviewCount;
+        }
+    }
+
+    //***Growable node arrays used while building***
+    private static final class NodeList {
+
+        char[] labels = new char[64];
+        int[] firstChild = new int[64];
+        int[] childCount = new int[64];
+        int[] from = new int[64];
+        int[] to = new int[64];
+        int[] topStart = new int[64];
+        int size;
+
+        void add(char label, int lo, int hi) {
+            if (size == labels.length) {
+                int capacity = size * 2;
+                labels = Arrays.copyOf(labels, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                topStart = Arrays.copyOf(topStart, capacity);
+            }
+            labels[size] = label;
+            from[size] = lo;
+            to[size] = hi;
+            size++;
+        }
+    }
+}
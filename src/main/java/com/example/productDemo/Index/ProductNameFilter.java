@@ -0,0 +1,182 @@
+package com.example.productDemo.Index;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Repository.ProductRepository;
+
+/**
+ * In-memory Bloom filters over normalized product names and name+description+price fingerprints.
+ *
+ * A negative answer means the name (or product) definitely does not exist, so the database
+ * lookup can be skipped. Entries are added as products are created and updated; since Bloom
+ * filters cannot forget, deleted and renamed products are dropped by the periodic rebuild.
+ */
+@Component
+public class ProductNameFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductNameFilter.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Value("${product.name-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.name-filter.expected-insertions:100000}")
+    private int expectedInsertions;
+
+    @Value("${product.name-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${product.name-filter.page-size:5000}")
+    private int pageSize;
+
+    private volatile Filters current;
+    // Filters being rebuilt; writes go to both so nothing added during a rebuild is lost
+    private volatile Filters building;
+
+    //----- Returns false only if no product with this name exists.-----
+    public boolean mightContainName(String name) {
+        Filters filters = current;
+        // Until the first build completes every name must be checked against the database
+        return filters == null || filters.names.mightContain(Product.normalizeName(name));
+    }
+
+    //----- Returns false only if no product with this name, description and price exists.-----
+    public boolean mightContainProduct(String name, String description, double price) {
+        Filters filters = current;
+        return filters == null || filters.products.mightContain(fingerprint(name, description, price));
+    }
+
+    //----- Records a created or updated product.-----
+    public void add(String name, String description, Double price) {
+        Filters filters = current;
+        if (filters != null) {
+            filters.add(name, description, price);
+        }
+        Filters rebuilding = building;
+        if (rebuilding != null) {
+            rebuilding.add(name, description, price);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAtStartup() {
+        if (!enabled) {
+            return;
+        }
+        Optional<CatalogFile> file = catalogFileStore.file();
+        file.ifPresent(this::load);
+        if (catalogFileStore.isReadOnly()) {
+            return;
+        }
+        if (file.isPresent()) {
+            // Names from the file answer right away; the database rebuild runs in the background
+            CompletableFuture.runAsync(this::rebuild).exceptionally(e -> {
+                log.warn("Product name filter rebuild failed", e);
+                return null;
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    //----- Builds both filters from a mapped snapshot file, unless they were already built.-----
+    public synchronized void load(CatalogFile file) {
+        if (current != null) {
+            return;
+        }
+        Filters loaded = new Filters(Math.max(expectedInsertions, file.size()), falsePositiveRate);
+        for (int index = 0; index < file.size(); index++) {
+            ProductSummary summary = file.summary(index);
+            loaded.add(summary.getName(), summary.getDescription(), summary.getPrice());
+        }
+        current = loaded;
+        log.info("Product name filter loaded from file with {} names", loaded.names.size());
+    }
+
+    @Scheduled(fixedDelayString = "${product.name-filter.rebuild-interval-ms:3600000}",
+            initialDelayString = "${product.name-filter.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        if (!catalogFileStore.isReadOnly()) {
+            rebuild();
+        }
+    }
+
+    //----- Rebuilds both filters from the database, dropping deleted and renamed products.-----
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        long productCount = shardRouter.scatter(shard -> productRepository.count()).stream().mapToLong(Long::longValue).sum();
+        Filters rebuilt = new Filters(Math.max(expectedInsertions, (int) productCount), falsePositiveRate);
+        building = rebuilt;
+        try {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                shardRouter.onShard(shard, () -> {
+                    Page<ProductRepository.Projection> page;
+                    int pageNumber = 0;
+                    do {
+                        page = productRepository.findAllBy(PageRequest.of(pageNumber++, pageSize, Sort.by("id")));
+                        page.forEach(product -> rebuilt.add(product.getName(), product.getDescription(), product.getPrice()));
+                    } while (page.hasNext());
+                    return null;
+                });
+            }
+            current = rebuilt;
+        } finally {
+            building = null;
+        }
+        log.info("Product name filter rebuilt with {} names in {} ms", rebuilt.names.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private static String fingerprint(String name, String description, double price) {
+        return Product.normalizeName(name) + '\u0000' + description.toLowerCase(Locale.ROOT) + '\u0000' + price;
+    }
+
+    //***Name and fingerprint filters that are swapped together***
+    private static final class Filters {
+
+        private final ScalableBloomFilter names;
+        private final ScalableBloomFilter products;
+
+        Filters(int expectedEntries, double falsePositiveRate) {
+            this.names = new ScalableBloomFilter(expectedEntries, falsePositiveRate);
+            this.products = new ScalableBloomFilter(expectedEntries, falsePositiveRate);
+        }
+
+        void add(String name, String description, Double price) {
+            if (name == null) {
+                return;
+            }
+            names.add(Product.normalizeName(name));
+            if (description != null && price != null) {
+                products.add(fingerprint(name, description, price));
+            }
+        }
+    }
+}
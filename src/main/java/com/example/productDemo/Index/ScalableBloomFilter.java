@@ -0,0 +1,144 @@
+package com.example.productDemo.Index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe scalable Bloom filter for strings.
+ *
+ * Starts with one filter sized for the expected number of entries; once it is full a new, twice
+ * as large filter with half the false positive rate is appended, so the overall false positive
+ * rate stays bounded however many entries are added. A negative answer is always exact.
+ */
+public class ScalableBloomFilter {
+
+    private final double falsePositiveRate;
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    public ScalableBloomFilter(int expectedEntries, double falsePositiveRate) {
+        // The stage rates form a geometric series (p/2 + p/4 + ...) that sums to at most p
+        this.falsePositiveRate = falsePositiveRate;
+        stages.add(new Stage(Math.max(expectedEntries, 64), falsePositiveRate / 2));
+    }
+
+    //----- Adds a value to the filter.-----
+    public void add(String value) {
+        long hash = hash64(value);
+        if (mightContain(hash)) {
+            return;
+        }
+        Stage stage = stages.get(stages.size() - 1);
+        if (stage.isFull()) {
+            stage = grow(stage);
+        }
+        stage.add(hash);
+    }
+
+    //----- Returns false only if the value was definitely never added.-----
+    public boolean mightContain(String value) {
+        return mightContain(hash64(value));
+    }
+
+    public int size() {
+        return stages.stream().mapToInt(stage -> stage.count.get()).sum();
+    }
+
+    public int stageCount() {
+        return stages.size();
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    private boolean mightContain(long hash) {
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Stage grow(Stage full) {
+        Stage last = stages.get(stages.size() - 1);
+        if (last != full) {
+            // Another thread already appended a stage
+            return last;
+        }
+        Stage next = new Stage(full.capacity * 2, full.falsePositiveRate / 2);
+        stages.add(next);
+        return next;
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, finished with the murmur3 avalanche step
+    static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    //***One fixed-size Bloom filter***
+    private static final class Stage {
+
+        private final int capacity;
+        private final double falsePositiveRate;
+        private final long numBits;
+        private final int numHashes;
+        private final AtomicLongArray words;
+        private final AtomicInteger count = new AtomicInteger();
+
+        Stage(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            double ln2 = Math.log(2);
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.numBits = Math.max(64, (bits + 63) / 64 * 64);
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * ln2));
+            this.words = new AtomicLongArray((int) (numBits / 64));
+        }
+
+        boolean isFull() {
+            return count.get() >= capacity;
+        }
+
+        void add(long hash) {
+            // Double hashing: bit i is h1 + i * h2
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, numBits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = words.get(word);
+                } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+            }
+            count.incrementAndGet();
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, numBits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
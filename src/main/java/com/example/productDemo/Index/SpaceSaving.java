@@ -0,0 +1,138 @@
+package com.example.productDemo.Index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving summary of the most frequent keys in a stream, in a fixed number of counters.
+ *
+ * A key with a counter has it incremented. A new key takes over the counter with the lowest count
+ * once all are in use, starting from that count plus one and remembering the count it inherited as
+ * its error. A key's count is therefore never below its true frequency and at most error above it,
+ * and every key seen more often than total / capacity times holds a counter.
+ *
+ * Not thread-safe: callers lock around it.
+ */
+public class SpaceSaving {
+
+    private static final Comparator<Counter> BY_COUNT = Comparator.comparingLong((Counter counter) -> counter.count)
+            .thenComparing(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    // Counters from the lowest count up; a counter is taken out while its count changes
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.counters = new HashMap<>(this.capacity * 2);
+    }
+
+    //----- Counts one occurrence of the key.-----
+    public void offer(String key) {
+        total++;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count++;
+        } else if (counters.size() < capacity) {
+            counter = new Counter(key, 1, 0);
+            counters.put(key, counter);
+        } else {
+            counter = byCount.pollFirst();
+            counters.remove(counter.key);
+            counter.key = key;
+            counter.error = counter.count;
+            counter.count++;
+            counters.put(key, counter);
+        }
+        byCount.add(counter);
+    }
+
+    //----- Most frequent keys first, at most limit of them.-----
+    public List<Counter> top(int limit) {
+        List<Counter> top = new ArrayList<>(Math.min(limit, counters.size()));
+        Iterator<Counter> highest = byCount.descendingIterator();
+        while (top.size() < limit && highest.hasNext()) {
+            Counter counter = highest.next();
+            top.add(new Counter(counter.key, counter.count, counter.error));
+        }
+        return top;
+    }
+
+    /**
+     * The most an untracked key can have been seen: the lowest count once every counter is in use,
+     * else 0.
+     */
+    public long untrackedBound() {
+        return counters.size() < capacity ? 0 : byCount.first().count;
+    }
+
+    //----- Halves every count (and error), so older occurrences weigh less than recent ones.-----
+    public void decay() {
+        List<Counter> decayed = new ArrayList<>(byCount);
+        byCount.clear();
+        counters.clear();
+        total = 0;
+        for (Counter counter : decayed) {
+            counter.count /= 2;
+            counter.error /= 2;
+            if (counter.count > 0) {
+                counters.put(counter.key, counter);
+                byCount.add(counter);
+                total += counter.count;
+            }
+        }
+    }
+
+    // Occurrences counted, as decayed
+    public long total() {
+        return total;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    //***A tracked key, its count and how much of the count may belong to keys it replaced***
+    public static final class Counter {
+
+        private String key;
+        private long count;
+        private long error;
+
+        Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        // Upper bound of the key's frequency
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        // Lower bound of the key's frequency
+        public long getGuaranteedCount() {
+            return count - error;
+        }
+    }
+}
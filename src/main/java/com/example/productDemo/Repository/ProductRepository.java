@@ -1,16 +1,22 @@
 package com.example.productDemo.Repository;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.productDemo.Entity.Product;
 
-public interface ProductRepository extends JpaRepository<Product, String> {
+public interface ProductRepository extends JpaRepository<Product, String>, ProductRepositoryCustom {
     //  custom query methods if needed
-	Optional<Product> findByNameIgnoreCase(String name);
+    // Case-insensitive name lookup through the unique index on name_normalized
+	Optional<Product> findByNameNormalized(String nameNormalized);
 	
 	List<Projection> findAllBy();
 
@@ -25,7 +31,171 @@ public interface ProductRepository extends JpaRepository<Product, String> {
 	Page<Projection> findAllBy(Pageable pageable);
 
 	 // Add a method to check if a similar product already exists
-    boolean existsByNameIgnoreCaseAndDescriptionIgnoreCaseAndPrice(String name, String description, Double price);
+    boolean existsByNameNormalizedAndDescriptionIgnoreCaseAndPrice(String nameNormalized, String description, Double price);
 
-    
-}
\ No newline at end of file
+    // Keyset-paged ids in a price range, used to process bulk operations in chunks
+    @Query("select p.id from Product p where p.price between :minPrice and :maxPrice and p.id > :afterId order by p.id")
+    List<String> findIdsByPriceBetween(@Param("minPrice") double minPrice, @Param("maxPrice") double maxPrice,
+            @Param("afterId") String afterId, Pageable pageable);
+
+    // Applies a percentage change to the price of the given products in one statement; a steep cut
+    // never rounds a price below 0.01, which would break @Positive
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE product SET price = GREATEST(ROUND(price * :factor, 2), 0.01) WHERE id IN (:ids)", nativeQuery = true)
+    int adjustPrices(@Param("ids") Collection<String> ids, @Param("factor") double factor);
+
+    // Recomputes the stored discount amount of every offer of the given products from their current price
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE product_offers SET discount_amount = ROUND("
+            + "(SELECT p.price FROM product p WHERE p.id = product_offers.product_id)"
+            + " * CAST(SUBSTRING(offerdetails, 1, LOCATE('%', offerdetails) - 1) AS DECIMAL(5,2)) / 100, 2)"
+            + " WHERE product_id IN (:ids)", nativeQuery = true)
+    int recomputeOfferDiscounts(@Param("ids") Collection<String> ids);
+
+    // Recomputes the stored discounted price of the given products from their best offer running today;
+    // same computation as the V6 migration backfill
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE product SET discounted_price = ROUND(price - price * COALESCE(("
+            + "SELECT MAX(CAST(SUBSTRING(o.offerdetails, 1, LOCATE('%', o.offerdetails) - 1) AS DECIMAL(5,2)))"
+            + " FROM product_offers o WHERE o.product_id = product.id AND o.start_date <= CURRENT_DATE AND o.end_date >= CURRENT_DATE"
+            + "), 0) / 100, 2) WHERE id IN (:ids)", nativeQuery = true)
+    int refreshDiscountedPrices(@Param("ids") Collection<String> ids);
+
+    // Keyset-paged ids of products with an offer starting in (from, to] or ending in [from, to), that is,
+    // whose best running offer may have changed between the two dates
+    @Query("select distinct p.id from Product p join p.offers o where p.id > :afterId"
+            + " and ((o.startDate > :fromDate and o.startDate <= :toDate) or (o.endDate >= :fromDate and o.endDate < :toDate))"
+            + " order by p.id")
+    List<String> findIdsWithOfferTransitions(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate,
+            @Param("afterId") String afterId, Pageable pageable);
+
+    // Offers of the given products as {product id, offer} pairs, used to keep the coupon index current
+    @Query("select p.id, o from Product p join p.offers o where p.id in :ids")
+    List<Object[]> findOffersByProductIds(@Param("ids") Collection<String> ids);
+
+    // Offers carrying a coupon code as {product id, offer} pairs, through the index on product_offers.coupon_code
+    @Query("select p.id, o from Product p join p.offers o where o.couponCode = :couponCode")
+    List<Object[]> findOffersByCouponCode(@Param("couponCode") String couponCode);
+
+    // Keyset-paged ids of all products, used to purge the catalog in chunks
+    @Query("select p.id from Product p where p.id > :afterId order by p.id")
+    List<String> findIdsAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    // Which of the given products exist
+    @Query("select p.id from Product p where p.id in :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
+
+    // Claims of node ids in node_registry (see NodeIdentity). A claim is created if missing, then locked
+    // and read as {instance_id, expired (1 or 0)}.
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO node_registry (node_id, instance_id, heartbeat_at)"
+            + " VALUES (:nodeId, :instanceId, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insertNodeClaim(@Param("nodeId") String nodeId, @Param("instanceId") String instanceId);
+
+    @Query(value = "SELECT instance_id, CASE WHEN heartbeat_at < TIMESTAMPADD(SECOND, -:leaseSeconds, CURRENT_TIMESTAMP) THEN 1 ELSE 0 END"
+            + " FROM node_registry WHERE node_id = :nodeId FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockNodeClaim(@Param("nodeId") String nodeId, @Param("leaseSeconds") long leaseSeconds);
+
+    // Takes over an expired claim, or heartbeats this instance's own
+    @Modifying
+    @Query(value = "UPDATE node_registry SET instance_id = :instanceId, heartbeat_at = CURRENT_TIMESTAMP WHERE node_id = :nodeId",
+            nativeQuery = true)
+    int renewNodeClaim(@Param("nodeId") String nodeId, @Param("instanceId") String instanceId);
+
+    @Modifying
+    @Query(value = "DELETE FROM node_registry WHERE node_id = :nodeId AND instance_id = :instanceId", nativeQuery = true)
+    int deleteNodeClaim(@Param("nodeId") String nodeId, @Param("instanceId") String instanceId);
+
+    // Checkpoint of the asynchronous review writer (see ReviewIngestQueue)
+    @Query(value = "SELECT last_sequence FROM review_ingest_checkpoints WHERE node_id = :nodeId", nativeQuery = true)
+    Optional<Long> findReviewIngestCheckpoint(@Param("nodeId") String nodeId);
+
+    @Modifying
+    @Query(value = "INSERT INTO review_ingest_checkpoints (node_id, last_sequence) VALUES (:nodeId, :sequence)"
+            + " ON DUPLICATE KEY UPDATE last_sequence = :sequence", nativeQuery = true)
+    int saveReviewIngestCheckpoint(@Param("nodeId") String nodeId, @Param("sequence") long sequence);
+
+    // Change feed of product_changes (see ProductChangeLog); rows are read in sequence order by primary key
+    @Query(value = "SELECT sequence_number, product_id, change_type, changed_at, origin_node FROM product_changes"
+            + " WHERE sequence_number > :since ORDER BY sequence_number LIMIT :limit", nativeQuery = true)
+    List<Object[]> findChangesAfter(@Param("since") long since, @Param("limit") int limit);
+
+    @Query(value = "SELECT MIN(sequence_number) FROM product_changes", nativeQuery = true)
+    Optional<Long> findOldestChangeSequence();
+
+    @Query(value = "SELECT last_sequence FROM product_change_sequence WHERE id = 1", nativeQuery = true)
+    long findLastChangeSequence();
+
+    @Modifying
+    @Query(value = "DELETE FROM product_changes WHERE changed_at < TIMESTAMPADD(HOUR, -:retentionHours, CURRENT_TIMESTAMP)"
+            + " LIMIT :limit", nativeQuery = true)
+    int deleteChangesOlderThan(@Param("retentionHours") long retentionHours, @Param("limit") int limit);
+
+    // Redemption counters of coupon_redemptions and coupon_redemption_leases (see RedemptionCounters).
+    // The counter row is created on first use and locked while a node reserves a slice of the cap.
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO coupon_redemptions (product_id, coupon_code, redeemed, reserved)"
+            + " VALUES (:productId, :couponCode, 0, 0)", nativeQuery = true)
+    int insertRedemptionCounter(@Param("productId") String productId, @Param("couponCode") String couponCode);
+
+    @Query(value = "SELECT reserved FROM coupon_redemptions WHERE product_id = :productId AND coupon_code = :couponCode FOR UPDATE",
+            nativeQuery = true)
+    long lockReservedRedemptions(@Param("productId") String productId, @Param("couponCode") String couponCode);
+
+    // A negative count returns unused redemptions to the cap
+    @Modifying
+    @Query(value = "UPDATE coupon_redemptions SET reserved = reserved + :count"
+            + " WHERE product_id = :productId AND coupon_code = :couponCode", nativeQuery = true)
+    int addReservedRedemptions(@Param("productId") String productId, @Param("couponCode") String couponCode, @Param("count") long count);
+
+    @Modifying
+    @Query(value = "UPDATE coupon_redemptions SET redeemed = redeemed + :count"
+            + " WHERE product_id = :productId AND coupon_code = :couponCode", nativeQuery = true)
+    int addRedeemed(@Param("productId") String productId, @Param("couponCode") String couponCode, @Param("count") long count);
+
+    @Modifying
+    @Query(value = "INSERT INTO coupon_redemption_leases (node_id, product_id, coupon_code, reserved, redeemed, updated_at)"
+            + " VALUES (:nodeId, :productId, :couponCode, :count, 0, CURRENT_TIMESTAMP)"
+            + " ON DUPLICATE KEY UPDATE reserved = reserved + :count, updated_at = CURRENT_TIMESTAMP", nativeQuery = true)
+    int addLeaseReserved(@Param("nodeId") String nodeId, @Param("productId") String productId,
+            @Param("couponCode") String couponCode, @Param("count") long count);
+
+    // Also the heartbeat of the lease, with a count of 0
+    @Modifying
+    @Query(value = "UPDATE coupon_redemption_leases SET redeemed = redeemed + :count, updated_at = CURRENT_TIMESTAMP"
+            + " WHERE node_id = :nodeId AND product_id = :productId AND coupon_code = :couponCode", nativeQuery = true)
+    int addLeaseRedeemed(@Param("nodeId") String nodeId, @Param("productId") String productId,
+            @Param("couponCode") String couponCode, @Param("count") long count);
+
+    // Leases as {node_id, product_id, coupon_code, reserved, redeemed} that have not been heartbeated
+    // for the given number of seconds
+    @Query(value = "SELECT node_id, product_id, coupon_code, reserved, redeemed FROM coupon_redemption_leases"
+            + " WHERE updated_at < TIMESTAMPADD(SECOND, -:staleSeconds, CURRENT_TIMESTAMP)", nativeQuery = true)
+    List<Object[]> findStaleRedemptionLeases(@Param("staleSeconds") long staleSeconds);
+
+    @Modifying
+    @Query(value = "DELETE FROM coupon_redemption_leases"
+            + " WHERE node_id = :nodeId AND product_id = :productId AND coupon_code = :couponCode", nativeQuery = true)
+    int deleteRedemptionLease(@Param("nodeId") String nodeId, @Param("productId") String productId, @Param("couponCode") String couponCode);
+
+    @Modifying
+    @Query(value = "DELETE FROM coupon_redemption_leases WHERE product_id IN (:ids)", nativeQuery = true)
+    int deleteRedemptionLeasesByProductIds(@Param("ids") Collection<String> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM coupon_redemptions WHERE product_id IN (:ids)", nativeQuery = true)
+    int deleteRedemptionsByProductIds(@Param("ids") Collection<String> ids);
+
+    // Set-based deletes of the given products and their collections, without loading them
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM product_reviews WHERE product_id IN (:ids)", nativeQuery = true)
+    int deleteReviewsByProductIds(@Param("ids") Collection<String> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM product_offers WHERE product_id IN (:ids)", nativeQuery = true)
+    int deleteOffersByProductIds(@Param("ids") Collection<String> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM product WHERE id IN (:ids)", nativeQuery = true)
+    int deleteProductsByIds(@Param("ids") Collection<String> ids);
+}
@@ -0,0 +1,24 @@
+package com.example.productDemo.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.example.productDemo.Entity.Product.Review;
+
+// Set-based operations that Spring Data cannot derive from method names
+public interface ProductRepositoryCustom {
+
+    // Sets the price of each product in one JDBC batch and returns the number of rows updated
+    int setPrices(Map<String, Double> pricesById);
+
+    // Updates only the given columns (entity attribute name -> value) of one product without loading it
+    int patchColumns(String productId, Map<String, Object> columns);
+
+    // Inserts reviews (product id -> its reviews) with multi-row INSERT statements and returns the number inserted
+    int insertReviews(Map<String, List<Review>> reviewsByProduct);
+
+    // Appends one product_changes row per product, numbered from product_change_sequence, whose row stays
+    // locked until the transaction ends and records the writing node; returns the last sequence number used
+    long insertChanges(Collection<String> productIds, String changeType, String originNode);
+}
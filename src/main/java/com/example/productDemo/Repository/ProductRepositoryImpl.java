@@ -0,0 +1,102 @@
+package com.example.productDemo.Repository;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.productDemo.Entity.Product.Review;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    // Rows per multi-row INSERT, keeping statements well below driver packet and parameter limits
+    private static final int INSERT_ROWS = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int setPrices(Map<String, Double> pricesById) {
+        List<Object[]> rows = new ArrayList<>(pricesById.size());
+        pricesById.forEach((id, price) -> rows.add(new Object[] { price, id }));
+
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate("UPDATE product SET price = ? WHERE id = ?", rows)) {
+            // Some drivers report SUCCESS_NO_INFO for batched statements instead of a row count
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public int patchColumns(String productId, Map<String, Object> columns) {
+        // Attribute names are checked against the entity by the caller; only values are bound
+        String assignments = columns.keySet().stream()
+                .map(attribute -> "p." + attribute + " = :" + attribute)
+                .collect(Collectors.joining(", "));
+
+        Query update = entityManager.createQuery("update Product p set " + assignments + " where p.id = :id");
+        columns.forEach(update::setParameter);
+        update.setParameter("id", productId);
+        return update.executeUpdate();
+    }
+
+    @Override
+    public int insertReviews(Map<String, List<Review>> reviewsByProduct) {
+        List<Object> values = new ArrayList<>();
+        reviewsByProduct.forEach((productId, reviews) -> reviews.forEach(review -> {
+            values.add(productId);
+            values.add(review.getReviewer());
+            values.add(review.getComments());
+            values.add(review.getRating());
+        }));
+
+        int inserted = 0;
+        for (int from = 0; from < values.size(); from += INSERT_ROWS * 4) {
+            List<Object> rows = values.subList(from, Math.min(values.size(), from + INSERT_ROWS * 4));
+            String placeholders = String.join(", ", Collections.nCopies(rows.size() / 4, "(?, ?, ?, ?)"));
+            inserted += jdbcTemplate.update("INSERT INTO product_reviews (product_id, reviewer, comments, rating) VALUES " + placeholders,
+                    rows.toArray());
+        }
+        return inserted;
+    }
+
+    @Override
+    public long insertChanges(Collection<String> productIds, String changeType, String originNode) {
+        // The update takes the row lock, so writers number their changes one after another, in commit order.
+        // The lock is held until commit, so callers make this the last statement of the write (see ProductChangeLog).
+        jdbcTemplate.update("UPDATE product_change_sequence SET last_sequence = last_sequence + ? WHERE id = 1", productIds.size());
+        long last = jdbcTemplate.queryForObject("SELECT last_sequence FROM product_change_sequence WHERE id = 1", Long.class);
+
+        List<Object> values = new ArrayList<>();
+        long sequence = last - productIds.size();
+        for (String productId : productIds) {
+            values.add(++sequence);
+            values.add(productId);
+            values.add(changeType);
+            values.add(originNode);
+        }
+        for (int from = 0; from < values.size(); from += INSERT_ROWS * 4) {
+            List<Object> rows = values.subList(from, Math.min(values.size(), from + INSERT_ROWS * 4));
+            String placeholders = String.join(", ", Collections.nCopies(rows.size() / 4, "(?, ?, ?, ?)"));
+            jdbcTemplate.update("INSERT INTO product_changes (sequence_number, product_id, change_type, origin_node) VALUES " + placeholders,
+                    rows.toArray());
+        }
+        return last;
+    }
+}
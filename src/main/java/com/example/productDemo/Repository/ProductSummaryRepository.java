@@ -0,0 +1,65 @@
+package com.example.productDemo.Repository;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.productDemo.Entity.ProductSummary;
+
+public interface ProductSummaryRepository extends JpaRepository<ProductSummary, String>, JpaSpecificationExecutor<ProductSummary> {
+
+    // Filtered, sorted page of summaries; null filters are left out of the query rather than
+    // compared to null, so that each present filter can use the index on its column
+    default Page<ProductSummary> findSummaries(Double minPrice, Double maxPrice, Double minRating, Pageable pageable) {
+        Specification<ProductSummary> filters = Specification.where(null);
+        if (minPrice != null) {
+            filters = filters.and((summary, query, cb) -> cb.greaterThanOrEqualTo(summary.get("price"), minPrice));
+        }
+        if (maxPrice != null) {
+            filters = filters.and((summary, query, cb) -> cb.lessThanOrEqualTo(summary.get("price"), maxPrice));
+        }
+        if (minRating != null) {
+            filters = filters.and((summary, query, cb) -> cb.greaterThanOrEqualTo(summary.get("averageRating"), minRating));
+        }
+        return findAll(filters, pageable);
+    }
+
+    // Keyset-paged summaries in id order, used to load the in-memory catalog snapshot
+    @Query("select s from ProductSummary s where s.id > :afterId order by s.id")
+    List<ProductSummary> findPageAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    // Best-ranked summaries whose name starts with a prefix, used while the name suggester is not built;
+    // the prefix must be lower case with LIKE wildcards escaped by '!'
+    @Query("select s from ProductSummary s where lower(s.name) like concat(:prefix, '%') escape '!'"
+            + " order by s.reviewCount desc, s.averageRating desc, s.id")
+    List<ProductSummary> findByNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    // Rebuilds the summary rows of the given products from the product tables; must run in the
+    // transaction of the write so the read model never lags behind it
+    default void refresh(Collection<String> ids) {
+        deleteByProductIds(ids);
+        insertFromProducts(ids);
+    }
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM product_summary WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByProductIds(@Param("ids") Collection<String> ids);
+
+    // Same computation as the V3 and V4 migration backfills; the discounted price is the product's stored one
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO product_summary (id, name, description, price, average_rating, review_count, discounted_price, has_active_offer)"
+            + " SELECT p.id, p.name, p.description, p.price,"
+            + " (SELECT ROUND(AVG(r.rating), 2) FROM product_reviews r WHERE r.product_id = p.id),"
+            + " (SELECT COUNT(*) FROM product_reviews r WHERE r.product_id = p.id),"
+            + " p.discounted_price,"
+            + " EXISTS (SELECT 1 FROM product_offers o WHERE o.product_id = p.id AND o.start_date <= CURRENT_DATE AND o.end_date >= CURRENT_DATE)"
+            + " FROM product p WHERE p.id IN (:ids)", nativeQuery = true)
+    int insertFromProducts(@Param("ids") Collection<String> ids);
+}
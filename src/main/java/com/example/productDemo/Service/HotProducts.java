@@ -0,0 +1,170 @@
+package com.example.productDemo.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.productDemo.Index.SpaceSaving;
+
+/**
+ * Tracks which products are read most, in fixed memory, to report them (GET /admin/hot-products)
+ * and to pin them in the ProductReadCache.
+ *
+ * Each kind of access is counted in Space-Saving summaries of product.hot.capacity counters. To
+ * keep reads from contending on one lock there is a summary per stripe of threads, merged when the
+ * top products are asked for. Counts are halved every product.hot.decay-interval-ms, so the ranking
+ * follows current traffic rather than all-time totals.
+ */
+@Component
+public class HotProducts {
+
+    public enum Access {
+        // GET /products/{id}; recorded by ProductController, so lookups made for other endpoints do not count
+        PRODUCT,
+        // Pages of GET /products/allreviews/{id}
+        REVIEWS
+    }
+
+    @Value("${product.hot.enabled:true}")
+    private boolean enabled;
+
+    // Counters per stripe; products read more often than 1/capacity of a stripe's reads are always tracked
+    @Value("${product.hot.capacity:1024}")
+    private int capacity = 1024;
+
+    // Most products pinned in the cache
+    @Value("${product.hot.pin-count:200}")
+    private int pinCount = 200;
+
+    // Reads a product must certainly have had, as decayed, before it is pinned
+    @Value("${product.hot.pin-min-reads:20}")
+    private long pinMinReads = 20;
+
+    private final Map<Access, SpaceSaving[]> summaries = new EnumMap<>(Access.class);
+    private int stripeMask;
+
+    @PostConstruct
+    public void start() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        stripeMask = stripes - 1;
+        for (Access access : Access.values()) {
+            SpaceSaving[] stripeSummaries = new SpaceSaving[stripes];
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                stripeSummaries[stripe] = new SpaceSaving(capacity);
+            }
+            summaries.put(access, stripeSummaries);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //----- Counts one access to a product.-----
+    public void record(Access access, String productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        SpaceSaving summary = summaries.get(access)[(int) Thread.currentThread().getId() & stripeMask];
+        synchronized (summary) {
+            summary.offer(productId);
+        }
+    }
+
+    /**
+     * The most accessed products, most first.
+     *
+     * @return productId, reads (an upper bound) and guaranteedReads (a lower bound), counted since the
+     *         last decays, which halve them.
+     */
+    public List<Map<String, Object>> top(Access access, int limit) {
+        return merge(access).stream()
+                .limit(limit)
+                .map(counts -> {
+                    Map<String, Object> product = new LinkedHashMap<>();
+                    product.put("productId", counts.productId);
+                    product.put("reads", counts.reads);
+                    product.put("guaranteedReads", counts.guaranteedReads);
+                    return product;
+                })
+                .collect(Collectors.toList());
+    }
+
+    //----- Products to pin in the cache: the most read, certainly read at least pin-min-reads times.-----
+    public List<String> pinCandidates() {
+        if (!enabled) {
+            return List.of();
+        }
+        return merge(Access.PRODUCT).stream()
+                .filter(counts -> counts.guaranteedReads >= pinMinReads)
+                .limit(pinCount)
+                .map(counts -> counts.productId)
+                .collect(Collectors.toList());
+    }
+
+    // Sums the stripes. A stripe that does not track a product may still have seen it up to its
+    // untracked bound, which is added to the upper bound only.
+    private List<MergedCounts> merge(Access access) {
+        Map<String, MergedCounts> merged = new HashMap<>();
+        long untrackedBounds = 0;
+        for (SpaceSaving summary : summaries.get(access)) {
+            List<SpaceSaving.Counter> counters;
+            long untrackedBound;
+            synchronized (summary) {
+                counters = summary.top(summary.capacity());
+                untrackedBound = summary.untrackedBound();
+            }
+            untrackedBounds += untrackedBound;
+            for (SpaceSaving.Counter counter : counters) {
+                MergedCounts counts = merged.computeIfAbsent(counter.getKey(), MergedCounts::new);
+                counts.reads += counter.getCount() - untrackedBound;
+                counts.guaranteedReads += counter.getGuaranteedCount();
+            }
+        }
+        List<MergedCounts> ranked = new ArrayList<>(merged.values());
+        for (MergedCounts counts : ranked) {
+            counts.reads += untrackedBounds;
+        }
+        ranked.sort(Comparator.comparingLong((MergedCounts counts) -> counts.reads).reversed()
+                .thenComparing(counts -> counts.productId));
+        return ranked;
+    }
+
+    //----- Halves every count, so products that are no longer read drop out of the ranking.-----
+    @Scheduled(fixedDelayString = "${product.hot.decay-interval-ms:60000}")
+    public void decay() {
+        if (!enabled) {
+            return;
+        }
+        summaries.values().forEach(stripeSummaries -> {
+            for (SpaceSaving summary : stripeSummaries) {
+                synchronized (summary) {
+                    summary.decay();
+                }
+            }
+        });
+    }
+
+    //***A product's counts summed over the stripes***
+    private static final class MergedCounts {
+
+        private final String productId;
+        private long reads;
+        private long guaranteedReads;
+
+        MergedCounts(String productId) {
+            this.productId = productId;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.productDemo.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Index.CatalogFileStore;
+import com.example.productDemo.Repository.ProductRepository;
+
+/**
+ * Id of this node among the nodes sharing the databases. It names the node's coupon redemption
+ * leases and review ingestion checkpoint, and tags the changes it records so that its invalidation
+ * transports skip them.
+ *
+ * The id is product.node-id when set, else the host name and server port, which stay the same
+ * across restarts of a node. A node on a random port (server.port=0) gets a random id each run, and
+ * must set product.node-id to ingest reviews durably.
+ *
+ * Two running nodes must never share an id: they would skip each other's changes and take over each
+ * other's leases. The id is therefore claimed in node_registry on the first shard at startup and
+ * heartbeated every product.node.heartbeat-ms. Startup fails if another node holds a live claim.
+ * The claim of a node that crashed stays live for product.node.lease-ms, and a restart waits for it
+ * to run out.
+ */
+@Component
+public class NodeIdentity {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeIdentity.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    // Unique per node; blank for the host name and server port
+    @Value("${product.node-id:}")
+    private String configuredId = "";
+
+    @Value("${server.port:8080}")
+    private int serverPort = 8080;
+
+    // A claim not heartbeated for this long belongs to a node that is gone
+    @Value("${product.node.lease-ms:30000}")
+    private long leaseMs = 30000;
+
+    private String id;
+    // Tells this run's claim from an earlier run's, or another node's
+    private final String instanceId = UUID.randomUUID().toString();
+    private volatile boolean claimed;
+
+    @PostConstruct
+    public void start() {
+        id = resolveId();
+        // A read-only node never connects to the database, and writes nothing under its id
+        if (catalogFileStore.isReadOnly()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + leaseMs + 1000;
+        while (true) {
+            String holder;
+            try {
+                holder = claim();
+            } catch (RuntimeException e) {
+                // Claimed by the heartbeat once the database is back
+                log.warn("Could not claim node id {}: {}", id, e.getMessage());
+                return;
+            }
+            if (holder == null) {
+                log.info("Running as node {}", id);
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Node id " + id + " is in use by another running node;"
+                        + " give each node its own product.node-id");
+            }
+            // The holder may be this node's previous run, whose claim runs out
+            log.info("Node id {} is claimed by {}, waiting for the claim to expire", id, holder);
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while claiming node id " + id, e);
+            }
+        }
+    }
+
+    public String id() {
+        return id;
+    }
+
+    // False if the id was made up for this run, so that nothing stored under it is found after a restart
+    public boolean isStable() {
+        return !id.equals("node-" + instanceId);
+    }
+
+    private String resolveId() {
+        if (!configuredId.isBlank()) {
+            return configuredId.trim();
+        }
+        if (serverPort == 0) {
+            return "node-" + instanceId;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + serverPort;
+        } catch (UnknownHostException e) {
+            return "node-" + instanceId;
+        }
+    }
+
+    // Returns null once the id is claimed by this run, else the instance holding a live claim
+    private String claim() {
+        return shardRouter.inTransactionOnShard(0, false, () -> {
+            productRepository.insertNodeClaim(id, instanceId);
+            List<Object[]> rows = productRepository.lockNodeClaim(id, Math.max(1, leaseMs / 1000));
+            Object[] row = rows.get(0);
+            String holder = (String) row[0];
+            boolean expired = ((Number) row[1]).intValue() == 1;
+            if (!holder.equals(instanceId) && !expired) {
+                return holder;
+            }
+            productRepository.renewNodeClaim(id, instanceId);
+            claimed = true;
+            return null;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${product.node.heartbeat-ms:10000}")
+    public void heartbeat() {
+        if (catalogFileStore.isReadOnly()) {
+            return;
+        }
+        try {
+            String holder = claim();
+            if (holder != null) {
+                // Only if this node's claim expired while it could not reach the database
+                claimed = false;
+                log.error("Node id {} was claimed by another node ({}) while this one was running", id, holder);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Heartbeating node id {} failed: {}", id, e.getMessage());
+        }
+    }
+
+    //----- Gives up the claim, so that a restart does not wait for it to expire.-----
+    @PreDestroy
+    public void release() {
+        if (!claimed) {
+            return;
+        }
+        try {
+            shardRouter.inTransactionOnShard(0, false, () -> productRepository.deleteNodeClaim(id, instanceId));
+        } catch (RuntimeException e) {
+            log.warn("Releasing node id {} failed, it expires on its own: {}", id, e.getMessage());
+        }
+    }
+}
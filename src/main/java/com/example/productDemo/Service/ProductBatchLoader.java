@@ -0,0 +1,223 @@
+package com.example.productDemo.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.productDemo.DataSourceConfig.ReadRoutingContext;
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Repository.ProductRepository;
+
+/**
+ * Micro-batching loader for products.
+ *
+ * A lookup made while no batch is loading goes out at once. Lookups made while one is loading are
+ * merged for a short window (or until the batch reaches its maximum size) into a single findAllById
+ * query plus one batched fetch of the review collections, per owning shard.
+ * Each caller gets back its own future, completed with its own copy of the product when the batch
+ * resolves, so callers can set the average rating without seeing each other's.
+ */
+@Component
+public class ProductBatchLoader {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${product.batch-loader.enabled:true}")
+    private boolean enabled;
+
+    // How long the first lookup of a batch waits for others to join it
+    @Value("${product.batch-loader.window-ms:2}")
+    private long windowMs;
+
+    // A batch is dispatched immediately once it holds this many distinct ids
+    @Value("${product.batch-loader.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${product.batch-loader.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    private final Object lock = new Object();
+    private Map<String, List<CompletableFuture<Optional<Product>>>> pending = new LinkedHashMap<>();
+    // Batches being loaded; guarded by lock
+    private int inFlight;
+
+    private ScheduledExecutorService timer;
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    public void start() {
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "product-batch-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        dispatcher.shutdown();
+    }
+
+    //----- Loads a product, waiting for the batch it was merged into.-----
+    public Optional<Product> load(String productId) {
+        if (!enabled) {
+            return loadAll(List.of(productId)).values().stream().findFirst();
+        }
+        try {
+            return loadAsync(productId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    //----- Queues a lookup; the future completes when its batch has been fetched.-----
+    public CompletableFuture<Optional<Product>> loadAsync(String productId) {
+        CompletableFuture<Optional<Product>> future = new CompletableFuture<>();
+        Map<String, List<CompletableFuture<Optional<Product>>>> readyBatch = null;
+
+        synchronized (lock) {
+            boolean firstInWindow = pending.isEmpty();
+            pending.computeIfAbsent(productId, id -> new ArrayList<>()).add(future);
+
+            // Nothing to merge with when no batch is loading: waiting the window would only add latency
+            if (pending.size() >= maxBatchSize || (firstInWindow && inFlight == 0)) {
+                readyBatch = takePending();
+            } else if (firstInWindow) {
+                timer.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (readyBatch != null) {
+            dispatch(readyBatch);
+        }
+        return future;
+    }
+
+    /**
+     * Loads the given products with one query for the products (and their eager offers)
+     * followed by one batched fetch of their review collections, per owning shard. Shards are
+     * queried in parallel.
+     *
+     * @param productIds Ids to load; missing ids are simply absent from the result.
+     * @return Loaded products keyed by id.
+     */
+    public Map<String, Product> loadAll(Collection<String> productIds) {
+        if (productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<Integer, List<String>> groups = shardRouter.groupByShard(productIds);
+        if (groups.size() == 1) {
+            Map.Entry<Integer, List<String>> group = groups.entrySet().iterator().next();
+            return loadShard(group.getKey(), group.getValue());
+        }
+        // The scatter threads read from the primary too if this thread is pinned to it
+        boolean pinned = ReadRoutingContext.isPinnedToPrimary();
+        Map<String, Product> products = new HashMap<>();
+        shardRouter.scatter(shard -> {
+            List<String> shardIds = groups.get(shard);
+            if (shardIds == null) {
+                return Map.<String, Product>of();
+            }
+            boolean wasPinned = ReadRoutingContext.isPinnedToPrimary();
+            ReadRoutingContext.pinToPrimary(pinned);
+            try {
+                return loadShard(shard, shardIds);
+            } finally {
+                ReadRoutingContext.pinToPrimary(wasPinned);
+            }
+        }).forEach(products::putAll);
+        return products;
+    }
+
+    private Map<String, Product> loadShard(int shard, List<String> shardIds) {
+        return shardRouter.inTransactionOnShard(shard, true, () -> {
+            Map<String, Product> products = new HashMap<>();
+            for (Product product : productRepository.findAllById(shardIds)) {
+                // Initializing one collection loads the whole batch thanks to @BatchSize
+                Hibernate.initialize(product.getReviews());
+                products.put(product.getId(), product);
+            }
+            return products;
+        });
+    }
+
+    private void flush() {
+        Map<String, List<CompletableFuture<Optional<Product>>>> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    // Counted in flight under the same lock, so that lookups arriving meanwhile wait to merge
+    private Map<String, List<CompletableFuture<Optional<Product>>>> takePending() {
+        Map<String, List<CompletableFuture<Optional<Product>>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        inFlight++;
+        return batch;
+    }
+
+    private void dispatch(Map<String, List<CompletableFuture<Optional<Product>>>> batch) {
+        try {
+            dispatcher.execute(() -> loadBatch(batch));
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the batch never runs, so it is no longer in flight
+            synchronized (lock) {
+                inFlight--;
+            }
+            batch.values().forEach(futures -> futures.forEach(future -> future.completeExceptionally(e)));
+        }
+    }
+
+    private void loadBatch(Map<String, List<CompletableFuture<Optional<Product>>>> batch) {
+        try {
+            Map<String, Product> products = loadAll(batch.keySet());
+            batch.forEach((productId, futures) -> {
+                Product product = products.get(productId);
+                futures.forEach(future -> future.complete(Optional.ofNullable(product).map(Product::new)));
+            });
+        } catch (RuntimeException e) {
+            batch.values().forEach(futures -> futures.forEach(future -> future.completeExceptionally(e)));
+        } finally {
+            synchronized (lock) {
+                inFlight--;
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.productDemo.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Event.ProductEvent;
+import com.example.productDemo.Index.CatalogFileStore;
+import com.example.productDemo.Index.PatchVersions;
+import com.example.productDemo.Repository.ProductRepository;
+
+/**
+ * Change feed of product writes, for downstream consumers that sync incrementally instead of
+ * reloading every summary.
+ *
+ * ProductService records one product_changes row per changed product in the transaction of the
+ * write, so a change is visible in the feed exactly when the write commits. Each database numbers
+ * its changes from one counter row that stays locked until the write commits: the numbers have no
+ * gaps and increase in commit order, so a consumer reading past its last number never skips a
+ * change that commits late. With sharding every shard has its own numbers, and the cursor holds
+ * one per shard.
+ *
+ * The price is that writes commit one at a time on each database. Every write locks the counter row
+ * with its last statement and holds the lock through its commit. The rest of each write still runs
+ * concurrently, but commits queue on the row: a database takes at most about one write per commit
+ * latency (one log flush), whatever the number of writers. Bulk operations take it once per
+ * chunk. Where that is too few, shard the catalog or set product.changes.enabled=false, which also
+ * turns off the database invalidation transport and the sequencing of index patches.
+ *
+ * Rows older than product.changes.retention-hours are pruned; a cursor from before the oldest
+ * retained row is refused, and its consumer has to reload in full.
+ */
+@Component
+public class ProductChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeLog.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Value("${product.changes.enabled:true}")
+    private boolean enabled;
+
+    // Its id is recorded with each change, so nodes polling the feed for invalidations skip their own writes
+    @Autowired
+    private NodeIdentity nodeIdentity;
+
+    // Most changes returned by one read
+    @Value("${product.changes.max-limit:1000}")
+    private int maxLimit = 1000;
+
+    @Value("${product.changes.retention-hours:168}")
+    private long retentionHours = 168;
+
+    // Rows deleted per statement while pruning
+    @Value("${product.changes.prune-chunk-size:1000}")
+    private int pruneChunkSize = 1000;
+
+    /**
+     * Records a change of each product, in the transaction of the write (which must be on their shard).
+     *
+     * @return The sequence number of the last change recorded, which orders this write after every
+     *         earlier write of the same products; PatchVersions.UNVERSIONED if nothing was recorded.
+     */
+    public long recordInTransaction(Collection<String> productIds, ProductEvent.Type changeType) {
+        if (!enabled || productIds.isEmpty()) {
+            return PatchVersions.UNVERSIONED;
+        }
+        return productRepository.insertChanges(productIds, changeType.name(), nodeIdentity.id());
+    }
+
+    /**
+     * Reads the changes committed after a cursor, oldest first.
+     *
+     * @param since Cursor returned by an earlier read: a sequence number per shard, separated by commas
+     *              (a single number applies to every shard). Null for no changes and the current cursor,
+     *              to be saved before a full reload.
+     * @return changes (sequence, shard, productId, type, changedAt), next (the cursor to read from next)
+     *         and hasMore; empty if changes after the cursor were already pruned.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public Optional<Map<String, Object>> changesSince(String since, int limit) {
+        int shards = shardRouter.shardCount();
+        if (since == null) {
+            long[] head = new long[shards];
+            for (int shard = 0; shard < shards; shard++) {
+                head[shard] = shardRouter.inTransactionOnShard(shard, true, productRepository::findLastChangeSequence);
+            }
+            return Optional.of(feedPage(List.of(), head, false));
+        }
+
+        long[] cursor = parseCursor(since, shards);
+        int pageSize = Math.min(limit, maxLimit);
+        // One more row than needed per shard tells whether more follow
+        List<List<Object[]>> shardRows = shardRouter.scatter(shard -> shardRouter.inTransactionOnShard(shard, true, () -> {
+            List<Object[]> rows = productRepository.findChangesAfter(cursor[shard], pageSize + 1);
+            boolean pruned = rows.isEmpty() ? productRepository.findLastChangeSequence() > cursor[shard]
+                    : ((Number) rows.get(0)[0]).longValue() > cursor[shard] + 1;
+            return pruned ? null : rows;
+        }));
+        if (shardRows.contains(null)) {
+            return Optional.empty();
+        }
+
+        // Shards are merged by change time, taking each shard's rows in sequence order
+        List<Map<String, Object>> page = new ArrayList<>();
+        int[] taken = new int[shards];
+        while (page.size() < pageSize) {
+            int earliest = -1;
+            for (int shard = 0; shard < shards; shard++) {
+                if (taken[shard] < shardRows.get(shard).size() && (earliest < 0
+                        || changedAt(shardRows.get(shard).get(taken[shard])) < changedAt(shardRows.get(earliest).get(taken[earliest])))) {
+                    earliest = shard;
+                }
+            }
+            if (earliest < 0) {
+                break;
+            }
+            page.add(toChange(earliest, shardRows.get(earliest).get(taken[earliest]++)));
+        }
+        boolean hasMore = false;
+        for (int shard = 0; shard < shards; shard++) {
+            hasMore |= taken[shard] < shardRows.get(shard).size();
+        }
+
+        long[] next = cursor.clone();
+        page.forEach(change -> next[(Integer) change.get("shard")] = (Long) change.get("sequence"));
+        return Optional.of(feedPage(page, next, hasMore));
+    }
+
+    private Map<String, Object> toChange(int shard, Object[] row) {
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("sequence", ((Number) row[0]).longValue());
+        change.put("shard", shard);
+        change.put("productId", row[1]);
+        change.put("type", row[2]);
+        change.put("changedAt", changedAt(row));
+        return change;
+    }
+
+    private long changedAt(Object[] row) {
+        return ((Timestamp) row[3]).getTime();
+    }
+
+    private Map<String, Object> feedPage(List<Map<String, Object>> changes, long[] next, boolean hasMore) {
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("changes", changes);
+        page.put("next", Arrays.stream(next).mapToObj(Long::toString).collect(Collectors.joining(",")));
+        page.put("hasMore", hasMore);
+        return page;
+    }
+
+    private long[] parseCursor(String since, int shards) {
+        String[] parts = since.split(",", -1);
+        if (parts.length != 1 && parts.length != shards) {
+            throw new IllegalArgumentException("Cursor must have one sequence number, or one per shard (" + shards + ")");
+        }
+        long[] cursor = new long[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            try {
+                cursor[shard] = Long.parseLong(parts[parts.length == 1 ? 0 : shard].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Cursor is not a list of sequence numbers: " + since);
+            }
+            if (cursor[shard] < 0) {
+                throw new IllegalArgumentException("Cursor sequence numbers cannot be negative");
+            }
+        }
+        return cursor;
+    }
+
+    //----- Deletes changes older than the retention period on every shard, a chunk per transaction.-----
+    @Scheduled(fixedDelayString = "${product.changes.prune-interval-ms:3600000}")
+    public void prune() {
+        if (!enabled || catalogFileStore.isReadOnly()) {
+            return;
+        }
+        List<Integer> pruned = shardRouter.scatter(shard -> {
+            int total = 0;
+            int deleted;
+            do {
+                deleted = shardRouter.inTransactionOnShard(shard, false,
+                        () -> productRepository.deleteChangesOlderThan(retentionHours, pruneChunkSize));
+                total += deleted;
+            } while (deleted == pruneChunkSize);
+            return total;
+        });
+        int total = pruned.stream().mapToInt(Integer::intValue).sum();
+        if (total > 0) {
+            log.info("Pruned {} product changes older than {} hours", total, retentionHours);
+        }
+    }
+}
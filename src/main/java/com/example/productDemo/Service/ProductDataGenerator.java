@@ -4,12 +4,15 @@ import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.example.productDemo.DataSourceConfig.ShardRouter;
 import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Index.ProductNameFilter;
 import com.example.productDemo.Repository.ProductRepository;
 
 @Component
@@ -21,6 +24,12 @@ public class ProductDataGenerator {
     @Autowired
     ProductRepository productRepository;
 
+    @Autowired
+    private ProductNameFilter productNameFilter;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
     //*** Populates the database with random product data.***
      public void populateData() {
     	
@@ -31,9 +40,11 @@ public class ProductDataGenerator {
         for (int i = 0; i < 2000; i++) {
             Product product = generateRandomProduct();
             try {
-            	// Check if a similar product already exists in the database
-            	if (!productRepository.existsByNameIgnoreCaseAndDescriptionIgnoreCaseAndPrice(
-                        product.getName(), product.getDescription(), product.getPrice())) {
+            	// Check if a similar product already exists, going to the database only
+            	// when the filter cannot rule it out
+            	if (!productNameFilter.mightContainProduct(product.getName(), product.getDescription(), product.getPrice())
+            			|| !shardRouter.scatter(shard -> productRepository.existsByNameNormalizedAndDescriptionIgnoreCaseAndPrice(
+                        Product.normalizeName(product.getName()), product.getDescription(), product.getPrice())).contains(true)) {
             		 System.out.println("Creating product with ID: " + product.getId());
                     productService.createProduct(product);
                 }
@@ -135,9 +146,9 @@ public class ProductDataGenerator {
         return offers;
     }
     
-    public void resetDatabase() {
-        // Delete all records from the Product table
-        productRepository.deleteAll();
+    public Map<String, Object> resetDatabase() {
+        // Delete all products, reviews and offers with chunked set-based statements
+        return productService.purgeAllProducts();
     }
 }
 
@@ -0,0 +1,287 @@
+package com.example.productDemo.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Event.InvalidationBroadcaster;
+
+/**
+ * Read-through cache of products in front of GET /products/{id}, safe with several nodes writing
+ * to the same database.
+ *
+ * Local writes invalidate their products once they commit; writes on other nodes are delivered by
+ * the InvalidationBroadcasters. A load that overlaps an invalidation of its product is not kept:
+ * invalidations bump a generation counter per stripe of products, and a load only stays cached if
+ * the generation it started under is still current once it is stored. Loads go to the primary, as a
+ * lagging replica could hand back a version an invalidation has already dropped. Entries also
+ * expire after product.cache.ttl-ms.
+ *
+ * Staleness is bounded by the broadcasters that can bound it: while the best of them has not
+ * delivered for more than product.cache.max-staleness-ms (the database is unreachable, say), the
+ * cache is emptied and bypassed.
+ *
+ * The hottest products (see HotProducts) are pinned: they are never evicted, and are reloaded
+ * before they expire, once product.cache.refresh-ahead of their time to live has passed, so reads
+ * of them do not miss.
+ */
+@Component
+public class ProductReadCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductReadCache.class);
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    private List<InvalidationBroadcaster> invalidationBroadcasters;
+
+    @Value("${product.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${product.cache.max-size:10000}")
+    private int maxSize = 10000;
+
+    @Value("${product.cache.ttl-ms:60000}")
+    private long ttlMs = 60000;
+
+    @Value("${product.cache.max-staleness-ms:10000}")
+    private long maxStalenessMs = 10000;
+
+    // Fraction of the time to live after which pinned products are reloaded
+    @Value("${product.cache.refresh-ahead:0.8}")
+    private double refreshAhead = 0.8;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private volatile boolean bypassing;
+    private volatile Set<String> pinned = Set.of();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleLoadsDropped = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bypassedStale = new LongAdder();
+    private final LongAdder refreshedAhead = new LongAdder();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached product, or loads it and caches it if found.
+     *
+     * @param loader Loads the product from the database; called on the caller's thread.
+     */
+    public Optional<Product> get(String productId, Supplier<Optional<Product>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        if (!withinStalenessBound()) {
+            bypassedStale.increment();
+            return loader.get();
+        }
+        Entry entry = entries.get(productId);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt < ttlMs) {
+            hits.increment();
+            return Optional.of(entry.product);
+        }
+        misses.increment();
+        long generation = generations.get(stripe(productId));
+        Optional<Product> loaded = loader.get();
+        loaded.ifPresent(product -> store(productId, product, generation));
+        return loaded;
+    }
+
+    private void store(String productId, Product product, long generation) {
+        Entry stored = new Entry(product, System.currentTimeMillis());
+        entries.put(productId, stored);
+        // Checked after storing: an invalidation either saw the entry and removed it, or bumped the generation first
+        if (generations.get(stripe(productId)) != generation) {
+            entries.remove(productId, stored);
+            staleLoadsDropped.increment();
+        } else if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    //----- Replaces the pinned products, which are kept and refreshed ahead of expiry.-----
+    public void pin(Collection<String> productIds) {
+        pinned = Set.copyOf(productIds);
+    }
+
+    public Set<String> pinnedIds() {
+        return pinned;
+    }
+
+    //----- The pinned products that are not cached, or will expire soon.-----
+    public List<String> dueForRefresh() {
+        List<String> due = new ArrayList<>();
+        if (!enabled || !withinStalenessBound()) {
+            return due;
+        }
+        long now = System.currentTimeMillis();
+        for (String productId : pinned) {
+            Entry entry = entries.get(productId);
+            if (entry == null || now - entry.loadedAt >= ttlMs * refreshAhead) {
+                due.add(productId);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Reloads products and caches them, replacing any cached version; products no longer found are
+     * dropped.
+     *
+     * @param loader Loads the products it is given in one go, by id.
+     */
+    public void refresh(Collection<String> productIds, Function<Collection<String>, Map<String, Product>> loader) {
+        if (!enabled || productIds.isEmpty()) {
+            return;
+        }
+        Map<String, Long> generationsBefore = new LinkedHashMap<>();
+        productIds.forEach(productId -> generationsBefore.put(productId, generations.get(stripe(productId))));
+        Map<String, Product> loaded = loader.apply(productIds);
+        generationsBefore.forEach((productId, generation) -> {
+            Product product = loaded.get(productId);
+            if (product != null) {
+                store(productId, product, generation);
+                refreshedAhead.increment();
+            } else {
+                entries.remove(productId);
+            }
+        });
+    }
+
+    //----- Drops the given products once the current transaction commits (at once without one).-----
+    public void invalidateAfterCommit(Collection<String> productIds) {
+        if (!enabled || productIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(productIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(productIds);
+            }
+        });
+    }
+
+    //----- Drops the given products.-----
+    public void invalidate(Collection<String> productIds) {
+        if (!enabled) {
+            return;
+        }
+        for (String productId : productIds) {
+            generations.incrementAndGet(stripe(productId));
+            entries.remove(productId);
+            invalidations.increment();
+        }
+    }
+
+    //----- Drops every product.-----
+    public void clear() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            generations.incrementAndGet(stripe);
+        }
+        entries.clear();
+    }
+
+    // The tightest bound any broadcaster gives; with none running only local writes exist, which invalidate directly
+    private boolean withinStalenessBound() {
+        long bound = stalenessBoundMs();
+        boolean within = bound < 0 || bound <= maxStalenessMs;
+        if (!within && !bypassing) {
+            log.warn("Invalidations are {} ms behind, bypassing the product cache", bound);
+            clear();
+        }
+        bypassing = !within;
+        return within;
+    }
+
+    private long stalenessBoundMs() {
+        long best = -1;
+        for (InvalidationBroadcaster broadcaster : invalidationBroadcasters) {
+            long bound = broadcaster.isEnabled() ? broadcaster.stalenessBoundMs() : -1;
+            if (bound >= 0 && (best < 0 || bound < best)) {
+                best = bound;
+            }
+        }
+        return best;
+    }
+
+    // Drops arbitrary unpinned entries down to nine tenths of the maximum size
+    private void evict() {
+        int target = maxSize - maxSize / 10;
+        Set<String> keep = pinned;
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            if (!keep.contains(keys.next())) {
+                keys.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private int stripe(String productId) {
+        return (productId.hashCode() & 0x7fffffff) % STRIPES;
+    }
+
+    //----- Hit rate, invalidations and the staleness bound the cache is running under.-----
+    public Map<String, Object> metrics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("size", entries.size());
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hitRate", hitCount + missCount == 0 ? 0.0 : Math.round(hitCount * 1000.0 / (hitCount + missCount)) / 1000.0);
+        metrics.put("invalidations", invalidations.sum());
+        metrics.put("staleLoadsDropped", staleLoadsDropped.sum());
+        metrics.put("evictions", evictions.sum());
+        metrics.put("ttlMs", ttlMs);
+        metrics.put("maxStalenessMs", maxStalenessMs);
+        metrics.put("stalenessBoundMs", stalenessBoundMs());
+        metrics.put("bypassing", bypassing);
+        metrics.put("bypassedStale", bypassedStale.sum());
+        metrics.put("pinned", pinned.size());
+        metrics.put("refreshedAhead", refreshedAhead.sum());
+        return metrics;
+    }
+
+    //***A cached product and when it was loaded***
+    private static final class Entry {
+
+        private final Product product;
+        private final long loadedAt;
+
+        Entry(Product product, long loadedAt) {
+            this.product = product;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,34 +1,166 @@
 package com.example.productDemo.Service;
 
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
 
+import com.example.productDemo.DataSourceConfig.ReadRoutingContext;
+import com.example.productDemo.DataSourceConfig.ShardRouter;
 import com.example.productDemo.Entity.Product;
 import com.example.productDemo.Entity.Product.Offer;
 import com.example.productDemo.Entity.Product.Review;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Event.Invalidation;
+import com.example.productDemo.Event.InvalidationBroadcaster;
+import com.example.productDemo.Event.InvalidationListener;
+import com.example.productDemo.Event.ProductEvent;
+import com.example.productDemo.Event.ProductEventBus;
+import com.example.productDemo.Index.CatalogFileStore;
+import com.example.productDemo.Index.CatalogSnapshot;
+import com.example.productDemo.Index.CouponIndex;
+import com.example.productDemo.Index.Leaderboards;
+import com.example.productDemo.Index.NameSuggester;
+import com.example.productDemo.Index.PatchVersions;
+import com.example.productDemo.Index.PrefixTrie;
+import com.example.productDemo.Index.ProductNameFilter;
 import com.example.productDemo.Repository.ProductRepository;
+import com.example.productDemo.Repository.ProductSummaryRepository;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.time.LocalDate;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import javax.annotation.PostConstruct;
 
 @Service
 public class ProductService {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductService.class);
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductSummaryRepository productSummaryRepository;
+
+    @Autowired
+    private ProductBatchLoader productBatchLoader;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ProductNameFilter productNameFilter;
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Autowired
+    private NameSuggester nameSuggester;
+
+    @Autowired
+    private Leaderboards leaderboards;
+
+    @Autowired
+    private CouponIndex couponIndex;
+
+    @Autowired
+    private RedemptionCounters redemptionCounters;
+
+    @Autowired
+    private ReviewIngestQueue reviewIngestQueue;
+
+    @Autowired
+    private ProductEventBus productEventBus;
+
+    @Autowired
+    private ProductChangeLog productChangeLog;
+
+    @Autowired
+    private ProductReadCache productReadCache;
+
+    @Autowired
+    private List<InvalidationBroadcaster> invalidationBroadcasters;
+
+    @Autowired
+    private HotProducts hotProducts;
+
+    @Autowired
+    private NodeIdentity nodeIdentity;
+
+    // Merge order of the summary listing per sortable property, matching the database ordering
+    private static final Map<String, Comparator<ProductSummary>> SUMMARY_ORDER = Map.of(
+            "id", Comparator.comparing(ProductSummary::getId),
+            "name", Comparator.comparing(ProductSummary::getName, String.CASE_INSENSITIVE_ORDER),
+            "price", Comparator.comparingDouble(ProductSummary::getPrice),
+            "discountedPrice", Comparator.comparingDouble(ProductSummary::getDiscountedPrice),
+            "averageRating", Comparator.comparing(ProductSummary::getAverageRating, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "reviewCount", Comparator.comparingInt(ProductSummary::getReviewCount));
+
+    // Number of products touched per statement (and per transaction) by bulk operations
+    @Value("${product.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    // Days of offer transitions replayed by the first run after a start
+    @Value("${product.offers.transition-catch-up-days:7}")
+    private int offerCatchUpDays = 7;
+
+    private volatile LocalDate lastOfferTransitionDate;
+
+    @PostConstruct
+    public void startBackgroundWork() {
+        reviewIngestQueue.start(this::writeQueuedReviews);
+        // A read-only node serves its snapshot file and never sees other nodes' writes
+        if (!catalogFileStore.isReadOnly()) {
+            InvalidationListener listener = new InvalidationListener() {
+                @Override
+                public void invalidate(List<Invalidation> invalidations) {
+                    applyRemoteChanges(invalidations);
+                }
+
+                @Override
+                public void invalidateAll() {
+                    reloadAfterMissedChanges();
+                }
+            };
+            invalidationBroadcasters.forEach(broadcaster -> broadcaster.start(nodeIdentity.id(), listener));
+        }
+    }
+
     //----- Creates a new product--------- 
     public Product createProduct(Product product) {
-    	 // Checks if the product name is unique.
-        if (productRepository.findByNameIgnoreCase(product.getName()).isPresent()) {
+    	 // Checks if the product name is unique (an index probe on name_normalized),
+        // skipping the query when the name filter says the name is definitely new.
+        if (productNameFilter.mightContainName(product.getName()) && isNameTaken(product.getName(), null)) {
             throw new IllegalArgumentException("Name must be unique");
         }
         // Generate a new ID based on the last product ID
@@ -37,78 +169,445 @@ public class ProductService {
         // Set the new ID to the product
         product.setId(newProductId);
         
-        return productRepository.save(product);
+        Product savedProduct;
+        try {
+            // Flush so a concurrent insert of the same name surfaces here as a constraint violation
+            savedProduct = shardRouter.inTransaction(newProductId, () -> {
+                Product saved = productRepository.saveAndFlush(product);
+                refreshSummaries(List.of(newProductId), ProductEvent.Type.CREATED);
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw uniqueNameViolation(e, product.getName(), newProductId);
+        }
+        productNameFilter.add(savedProduct.getName(), savedProduct.getDescription(), savedProduct.getPrice());
+        return savedProduct;
     }
 
     //----- Retrieves a product by its ID and updates its average rating if available.-----
     public Optional<Product> getProduct(String productId) {
-        Optional<Product> productOptional = productRepository.findById(productId);
+        if (catalogFileStore.isReadOnly()) {
+            return catalogFileStore.findProduct(productId);
+        }
+        Optional<Product> productOptional;
+        try {
+            // Concurrent lookups are merged into one batched query by the loader. A client pinned to the
+            // primary after its own write loads on its own thread, where the pin applies.
+            if (productReadCache.isEnabled()) {
+                productOptional = productReadCache.get(productId, () -> loadFromPrimary(productId));
+            } else {
+                productOptional = ReadRoutingContext.isPinnedToPrimary()
+                        ? Optional.ofNullable(productBatchLoader.loadAll(List.of(productId)).get(productId))
+                        : productBatchLoader.load(productId);
+            }
+        } catch (DataAccessResourceFailureException | CannotCreateTransactionException e) {
+            databaseUnavailable(e);
+            return catalogFileStore.findProduct(productId);
+        }
         productOptional.ifPresent(this::updateAverageRating);
-        productOptional.ifPresent(this::calculateDiscountedPrice); // Calculate discounted price if product is present
         return productOptional;
     }
 
+    // Loads one product on this thread, pinned to the primary
+    private Optional<Product> loadFromPrimary(String productId) {
+        return Optional.ofNullable(loadAllFromPrimary(List.of(productId)).get(productId));
+    }
+
+    private Map<String, Product> loadAllFromPrimary(Collection<String> productIds) {
+        boolean pinned = ReadRoutingContext.isPinnedToPrimary();
+        ReadRoutingContext.pinToPrimary(true);
+        try {
+            return productBatchLoader.loadAll(productIds);
+        } finally {
+            ReadRoutingContext.pinToPrimary(pinned);
+        }
+    }
+
+    /**
+     * Pins the most read products in the product cache and reloads those about to expire, in one
+     * batched query per shard, so reads of them keep hitting the cache.
+     */
+    @Scheduled(fixedDelayString = "${product.hot.refresh-interval-ms:5000}")
+    public void refreshHotProducts() {
+        if (!productReadCache.isEnabled() || catalogFileStore.isReadOnly()) {
+            return;
+        }
+        productReadCache.pin(hotProducts.pinCandidates());
+        List<String> due = productReadCache.dueForRefresh();
+        if (due.isEmpty()) {
+            return;
+        }
+        try {
+            productReadCache.refresh(due, this::loadAllFromPrimary);
+        } catch (DataAccessResourceFailureException | CannotCreateTransactionException e) {
+            // Retried on the next run; the cached versions expire as usual meanwhile
+            log.warn("Refreshing hot products failed: {}", e.getMessage());
+        }
+    }
+
+    //----- Retrieves several products in one round trip, in request order.-----
+    public List<Map<String, Object>> getProducts(List<String> productIds) {
+        Map<String, Product> products;
+        // Products from the snapshot file already carry their rating
+        boolean fromFile = catalogFileStore.isReadOnly();
+        if (fromFile) {
+            products = findInSnapshotFile(productIds);
+        } else {
+            try {
+                // One query for the products plus one batched fetch for their collections, per owning shard
+                products = productBatchLoader.loadAll(new LinkedHashSet<>(productIds));
+            } catch (DataAccessResourceFailureException | CannotCreateTransactionException e) {
+                databaseUnavailable(e);
+                products = findInSnapshotFile(productIds);
+                fromFile = true;
+            }
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(productIds.size());
+        for (String productId : productIds) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", productId);
+            Product product = products.get(productId);
+            if (product != null) {
+                if (!fromFile) {
+                    updateAverageRating(product);
+                }
+                result.put("found", true);
+                result.put("product", product);
+            } else {
+                // Marker for ids that do not exist
+                result.put("found", false);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private Map<String, Product> findInSnapshotFile(Collection<String> productIds) {
+        Map<String, Product> products = new HashMap<>();
+        for (String productId : productIds) {
+            catalogFileStore.findProduct(productId).ifPresent(product -> products.put(productId, product));
+        }
+        return products;
+    }
+
+    // Reads fall back to the snapshot file when the database cannot be reached, if there is one
+    private void databaseUnavailable(RuntimeException e) {
+        if (!catalogFileStore.isAvailable()) {
+            throw e;
+        }
+        log.warn("Database unavailable, serving reads from the catalog snapshot file: {}", e.getMessage());
+    }
+
     //---- Updates an existing product with the provided details.------
     public Product updateProduct(String productId, Product updatedProduct) {
-        Optional<Product> optionalProduct = productRepository.findById(productId);
-        optionalProduct.ifPresent(product -> {
-            // Update product attributes based on the updatedProduct
-            product.setName(updatedProduct.getName());
-            product.setDescription(updatedProduct.getDescription());
-            product.setPrice(updatedProduct.getPrice());
-            // Save the changes
-            productRepository.save(product);
-        });
+        checkNameOnOtherShards(updatedProduct.getName(), productId);
+        Optional<Product> optionalProduct;
+        try {
+            optionalProduct = shardRouter.inTransaction(productId, () -> {
+                Optional<Product> found = productRepository.findById(productId);
+                found.ifPresent(product -> {
+                    // Update product attributes based on the updatedProduct
+                    product.setName(updatedProduct.getName());
+                    product.setDescription(updatedProduct.getDescription());
+                    product.setPrice(updatedProduct.getPrice());
+                    // Keep the stored discount amounts in line with the new price
+                    if (product.getOffers() != null) {
+                        product.getOffers().forEach(offer -> offer.setDiscountAmount(calculateDiscountAmount(product.getPrice(), offer)));
+                    }
+                    // Save the changes
+                    productRepository.saveAndFlush(product);
+                    // The product is returned after the transaction ends
+                    Hibernate.initialize(product.getReviews());
+                    refreshSummaries(List.of(productId), ProductEvent.Type.UPDATED);
+                });
+                return found;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw uniqueNameViolation(e, updatedProduct.getName(), productId);
+        }
+        optionalProduct.ifPresent(product -> productNameFilter.add(product.getName(), product.getDescription(), product.getPrice()));
         return optionalProduct.orElseGet(() -> null);
 
 
     }
     
+    //---- Updates only the given fields of a product, without loading it.------
+    public boolean patchProduct(String productId, Map<String, Object> changes) {
+        Map<String, Object> columns = new LinkedHashMap<>(changes);
+        String newName = (String) changes.get("name");
+        if (newName != null) {
+            // The unique index on the normalized name enforces uniqueness
+            columns.put("nameNormalized", Product.normalizeName(newName));
+            checkNameOnOtherShards(newName, productId);
+        }
+
+        // Issues one UPDATE for the changed columns only
+        boolean patched;
+        try {
+            patched = shardRouter.inTransaction(productId, () -> {
+                if (productRepository.patchColumns(productId, columns) == 0) {
+                    return false;
+                }
+                if (changes.containsKey("price")) {
+                    // Keep the stored discount amounts in line with the new price
+                    productRepository.recomputeOfferDiscounts(List.of(productId));
+                }
+                refreshSummaries(List.of(productId), ProductEvent.Type.UPDATED);
+                return true;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw uniqueNameViolation(e, newName, productId);
+        }
+        if (!patched) {
+            return false;
+        }
+        // Only the name is known here; the product fingerprint catches up on the next rebuild
+        if (newName != null) {
+            productNameFilter.add(newName, null, null);
+        }
+        return true;
+    }
+
+    // Translates a violation of the unique name index into the usual validation error
+    private RuntimeException uniqueNameViolation(DataIntegrityViolationException e, String name, String productId) {
+        if (name != null && isNameTaken(name, productId)) {
+            return new IllegalArgumentException("Name must be unique");
+        }
+        return e;
+    }
+
+    // The unique index only covers the product's own shard, so renames are checked against all of them
+    private void checkNameOnOtherShards(String name, String productId) {
+        if (shardRouter.isEnabled() && name != null && isNameTaken(name, productId)) {
+            throw new IllegalArgumentException("Name must be unique");
+        }
+    }
+
+    // Probes every shard's name index
+    private boolean isNameTaken(String name, String excludedProductId) {
+        String nameNormalized = Product.normalizeName(name);
+        return shardRouter.scatter(shard -> productRepository.findByNameNormalized(nameNormalized)
+                .filter(existing -> !existing.getId().equals(excludedProductId))
+                .isPresent())
+                .contains(true);
+    }
+
     //---- Adds a review to the specified product.-------
     public Product addReviewToProduct(String productId, Review review) {
-        Optional<Product> optionalProduct = productRepository.findById(productId);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            // Add the review to the product and update average rating
-            product.getReviews().add(review);
-            updateAverageRating(product);
-            // Save the changes to the repository
-            productRepository.save(product);
-            System.out.println("Review added successfully for product with ID: " + productId);
-            return product;
-        }else {
-            return null;
-        }
+        return shardRouter.inTransaction(productId, () -> {
+            Optional<Product> optionalProduct = productRepository.findById(productId);
+            if (optionalProduct.isPresent()) {
+                Product product = optionalProduct.get();
+                // Add the review to the product and update average rating
+                product.getReviews().add(review);
+                updateAverageRating(product);
+                // Save the changes to the repository
+                productRepository.save(product);
+                refreshSummaries(List.of(productId), ProductEvent.Type.REVIEW_ADDED);
+                log.info("Review added successfully for product with ID: {}", productId);
+                return product;
+            }else {
+                return null;
+            }
+        });
         
     }
 
+    //---- Whether reviews are queued and written behind (product.reviews.async.enabled).-----
+    public boolean isReviewIngestionAsync() {
+        return reviewIngestQueue.isEnabled();
+    }
+
+    //---- Checks that a product exists with a primary key probe, without loading it.-----
+    public boolean productExists(String productId) {
+        if (catalogFileStore.isReadOnly()) {
+            return catalogFileStore.findProduct(productId).isPresent();
+        }
+        return shardRouter.inReadOnlyTransaction(productId, () -> productRepository.existsById(productId));
+    }
+
+    //---- Queues a validated review for the write-behind writer; false if the queue is full.-----
+    public boolean submitReview(String productId, Review review) {
+        return reviewIngestQueue.submit(productId, review);
+    }
+
+    // Stores queued reviews of one shard: one multi-row insert and one summary refresh per product, in one
+    // transaction. Reviews of products deleted since they were queued are dropped.
+    private void writeQueuedReviews(int shard, List<ReviewIngestQueue.QueuedReview> queued) {
+        shardRouter.inTransactionOnShard(shard, false, () -> {
+            Map<String, List<Review>> reviewsByProduct = new LinkedHashMap<>();
+            queued.forEach(entry -> reviewsByProduct.computeIfAbsent(entry.getProductId(), id -> new ArrayList<>()).add(entry.getReview()));
+            reviewsByProduct.keySet().retainAll(productRepository.findExistingIds(reviewsByProduct.keySet()));
+            if (!reviewsByProduct.isEmpty()) {
+                productRepository.insertReviews(reviewsByProduct);
+                refreshSummaries(new ArrayList<>(reviewsByProduct.keySet()), ProductEvent.Type.REVIEW_ADDED);
+            }
+            reviewIngestQueue.markApplied(queued);
+            return null;
+        });
+    }
+
     //---- Adds an offer to the specified product.-----
     public Product addOfferToProduct(String productId, Offer offer) {
-        Optional<Product> optionalProduct = productRepository.findById(productId);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            
-            // Calculate discount amount based on the product's price and the offer details
-            double productPrice = product.getPrice();
-            int percentageDiscount = Integer.parseInt(offer.getOfferdetails().split("%")[0]);
-            double discountAmount = productPrice * (percentageDiscount / 100.0);
-            // Round the discounted price to two decimal places
-            double roundedDiscountedAmount = Math.round(discountAmount * 100.0) / 100.0;
-
-            // Set the discount amount in the offer object
-            offer.setDiscountAmount(roundedDiscountedAmount);
-            
-            // Remove existing offers if any
-            product.getOffers().clear();// Clearing existing offers to ensure only one offer or null is present
-            
-            // Add the offer to the product and save the changes
-            product.getOffers().add(offer);
-            productRepository.save(product);
-            return product;
-        }else {
+        return shardRouter.inTransaction(productId, () -> {
+            Optional<Product> optionalProduct = productRepository.findById(productId);
+            if (optionalProduct.isPresent()) {
+                Product product = optionalProduct.get();
+                
+                // Calculate discount amount based on the product's price and the offer details
+                offer.setDiscountAmount(calculateDiscountAmount(product.getPrice(), offer));
+                
+                // Offers accumulate; the best one running on a given day sets the discounted price
+                product.getOffers().add(offer);
+                productRepository.save(product);
+                // The product is returned after the transaction ends
+                Hibernate.initialize(product.getReviews());
+                refreshSummaries(List.of(productId), ProductEvent.Type.OFFER_ADDED);
+                return product;
+            }else {
+                return null;
+            }
+        });
+       
+    }
+
+    //----- Applies a percentage price change to every product priced between minPrice and maxPrice.-----
+    public Map<String, Object> bulkAdjustPrices(double minPrice, double maxPrice, double percentage) {
+        long startTime = System.currentTimeMillis();
+        double factor = 1 + percentage / 100.0;
+
+        // Shards are processed in parallel; per shard, totals[0] = products updated,
+        // totals[1] = offers recomputed, totals[2] = chunks
+        List<int[]> shardTotals = shardRouter.scatter(shard -> {
+            int[] totals = new int[3];
+            String lastId = "";
+            while (true) {
+                String afterId = lastId;
+                // Each chunk is selected by keyset on the id and updated in its own short transaction
+                List<String> chunkIds = shardRouter.inTransactionOnShard(shard, false, () -> {
+                    List<String> ids = productRepository.findIdsByPriceBetween(minPrice, maxPrice, afterId, PageRequest.of(0, bulkChunkSize));
+                    if (!ids.isEmpty()) {
+                        totals[0] += productRepository.adjustPrices(ids, factor);
+                        totals[1] += productRepository.recomputeOfferDiscounts(ids);
+                        refreshSummaries(ids, ProductEvent.Type.UPDATED);
+                    }
+                    return ids;
+                });
+                if (chunkIds.isEmpty()) {
+                    break;
+                }
+                totals[2]++;
+                lastId = chunkIds.get(chunkIds.size() - 1);
+            }
+            return totals;
+        });
+        return bulkReport(sum(shardTotals, 3), startTime);
+    }
+
+    //----- Sets explicit prices for a list of products.-----
+    public Map<String, Object> bulkSetPrices(Map<String, Double> pricesById) {
+        long startTime = System.currentTimeMillis();
+        Map<Integer, List<String>> idsByShard = shardRouter.groupByShard(pricesById.keySet());
+
+        List<int[]> shardTotals = shardRouter.scatter(shard -> {
+            int[] totals = new int[3];
+            List<String> ids = idsByShard.getOrDefault(shard, Collections.emptyList());
+            for (int start = 0; start < ids.size(); start += bulkChunkSize) {
+                Map<String, Double> chunk = new LinkedHashMap<>();
+                ids.subList(start, Math.min(start + bulkChunkSize, ids.size()))
+                        .forEach(id -> chunk.put(id, pricesById.get(id)));
+
+                shardRouter.inTransactionOnShard(shard, false, () -> {
+                    totals[0] += productRepository.setPrices(chunk);
+                    totals[1] += productRepository.recomputeOfferDiscounts(chunk.keySet());
+                    refreshSummaries(chunk.keySet(), ProductEvent.Type.UPDATED);
+                    return null;
+                });
+                totals[2]++;
+            }
+            return totals;
+        });
+        return bulkReport(sum(shardTotals, 3), startTime);
+    }
+
+    // Recomputes the discounted prices and summary rows of the given products, records the change in the
+    // change feed, and patches the in-memory indexes (coupons included) and publishes the change on the
+    // event bus once the write commits. The patches carry the change's sequence number, so that one
+    // committed earlier but patched later does not replace this one.
+    private void refreshSummaries(Collection<String> ids, ProductEvent.Type eventType) {
+        productRepository.refreshDiscountedPrices(ids);
+        productSummaryRepository.refresh(ids);
+        AtomicLong version = new AtomicLong(PatchVersions.UNVERSIONED);
+        if (catalogSnapshot.isEnabled() || nameSuggester.isEnabled() || leaderboards.isEnabled() || productEventBus.isEnabled()) {
+            List<ProductSummary> summaries = productSummaryRepository.findAllById(ids);
+            catalogSnapshot.upsertAfterCommit(summaries, version::get);
+            nameSuggester.upsertAfterCommit(summaries, version::get);
+            leaderboards.upsertAfterCommit(summaries, version::get);
+            productEventBus.publishAfterCommit(eventType, ids, summaries);
+        }
+        if (couponIndex.isEnabled()) {
+            couponIndex.replaceAfterCommit(ids, productRepository.findOffersByProductIds(ids), version::get);
+        }
+        productReadCache.invalidateAfterCommit(ids);
+        // Last, as it locks the change counter until the transaction ends
+        version.set(productChangeLog.recordInTransaction(ids, eventType));
+    }
+
+    // Patches this node's cache and indexes with products another node changed, reloaded from the primary.
+    // Not published on the event bus, which only carries this node's own writes.
+    private void applyRemoteChanges(List<Invalidation> invalidations) {
+        Set<String> changedIds = invalidations.stream().map(Invalidation::getProductId).collect(Collectors.toCollection(LinkedHashSet::new));
+        productReadCache.invalidate(changedIds);
+        shardRouter.groupByShard(changedIds).forEach((shard, ids) -> shardRouter.inTransactionOnShard(shard, false, () -> {
+            List<ProductSummary> summaries = productSummaryRepository.findAllById(ids);
+            Set<String> removedIds = new LinkedHashSet<>(ids);
+            summaries.forEach(summary -> removedIds.remove(summary.getId()));
+            catalogSnapshot.upsertAfterCommit(summaries);
+            nameSuggester.upsertAfterCommit(summaries);
+            leaderboards.upsertAfterCommit(summaries);
+            summaries.forEach(summary -> productNameFilter.add(summary.getName(), summary.getDescription(), summary.getPrice()));
+            if (couponIndex.isEnabled()) {
+                couponIndex.replaceAfterCommit(ids, productRepository.findOffersByProductIds(ids));
+            }
+            if (!removedIds.isEmpty()) {
+                catalogSnapshot.removeAfterCommit(removedIds);
+                nameSuggester.removeAfterCommit(removedIds);
+                leaderboards.removeAfterCommit(removedIds);
+                couponIndex.removeAfterCommit(removedIds);
+            }
             return null;
+        }));
+    }
+
+    // Changes from other nodes were missed: drops the cache and rebuilds the indexes from the database
+    private void reloadAfterMissedChanges() {
+        productReadCache.clear();
+        catalogSnapshot.rebuild();
+        nameSuggester.rebuild();
+        leaderboards.rebuild();
+        couponIndex.rebuild();
+        productNameFilter.rebuild();
+    }
+
+    // Adds up per-shard totals
+    private int[] sum(List<int[]> shardTotals, int length) {
+        int[] totals = new int[length];
+        for (int[] shard : shardTotals) {
+            for (int i = 0; i < length; i++) {
+                totals[i] += shard[i];
+            }
         }
-       
+        return totals;
+    }
+
+    private Map<String, Object> bulkReport(int[] totals, long startTime) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("rowsAffected", totals[0]);
+        report.put("offersRecomputed", totals[1]);
+        report.put("chunks", totals[2]);
+        report.put("durationMs", System.currentTimeMillis() - startTime);
+        return report;
     }
 
     public String generateNewId() {
@@ -136,14 +635,25 @@ public class ProductService {
     //---- Retrieves the last product ID from the database using Spring Data JPA.----
     public String getLastProductId() {
     	
-        // Use Spring Data JPA to retrieve the last product ID from the database
-        Optional<Product> lastProduct = productRepository.findTopByOrderByIdDesc();
+        // Use Spring Data JPA to retrieve the last product ID from each shard
+        List<String> lastIds = shardRouter.scatter(shard -> productRepository.findTopByOrderByIdDesc()
+                .map(Product::getId)
+                .orElse("PDNO_0"));
 
-        // If a product is present, extract and return its ID
-        return lastProduct.map(Product::getId).orElse("PDNO_0");
+        // The highest of them is the last product ID overall
+        return Collections.max(lastIds);
     }
 
    
+    //----- Calculates the discount amount of an offer for the given price.-----
+    private double calculateDiscountAmount(double productPrice, Offer offer) {
+        // Assuming offerdetails contains the percentage discount
+        int percentageDiscount = Integer.parseInt(offer.getOfferdetails().split("%")[0]);
+        double discountAmount = productPrice * (percentageDiscount / 100.0);
+        // Round the discount amount to two decimal places
+        return Math.round(discountAmount * 100.0) / 100.0;
+    }
+
     //----- Updates the average rating of a product based on its reviews.-----
     public void updateAverageRating(Product product) {
         Double averageRating = calculateAverageRating(product);
@@ -179,65 +689,362 @@ public class ProductService {
         // Round to two decimal places
         return Math.round(average * 100.0) / 100.0;
     }
-    
- // Method to calculate discounted price for a product
-    private void calculateDiscountedPrice(Product product) {
-        // Calculate the discounted price based on the offers
-        if (product.getOffers() != null && !product.getOffers().isEmpty()) {
-            double productPrice = product.getPrice();
-            for (Offer offer : product.getOffers()) {
-                // Assuming offerdetails contains the percentage discount
-                int percentageDiscount = Integer.parseInt(offer.getOfferdetails().split("%")[0]);
-                double discountAmount = productPrice * (percentageDiscount / 100.0);
-                double discountedPrice = productPrice - discountAmount;
-                // Round the discounted price to two decimal places
-                double roundedDiscountedPrice = Math.round(discountedPrice * 100.0) / 100.0;
-
-                product.setDiscountedPrice(roundedDiscountedPrice);
-            }
-        } else {
-            product.setDiscountedPrice(product.getPrice()); // If no offers, discounted price is same as regular price
-        }
+
+    //----- Opens the catalog snapshot file for download, or empty if none has been written.-----
+    public Optional<FileChannel> openSnapshotFile() throws IOException {
+        return catalogFileStore.openForDownload();
     }
-  
+
     //----- Retrieves summaries of all products.-----
     public Page<Map<String, Object>> getAllProductSummaries(Pageable pageable) {
-        // Fetch all products
-        List<Product> products = productRepository.findAll();
-
-        // Transform the list of products into a list of Map<String, Object>
-        List<Map<String, Object>> productSummaries = products.stream()
-                .map(product -> {
-                    Map<String, Object> summaryMap = new LinkedHashMap<>();
-                    summaryMap.put("id", product.getId());
-                    summaryMap.put("name", product.getName());
-                    summaryMap.put("description", product.getDescription());
-                    summaryMap.put("price", product.getPrice());
-                    // Add other fields as needed
-                    return summaryMap;
-                })
-                .collect(Collectors.toList());
+        return getAllProductSummaries(null, null, null, pageable);
+    }
+
+    //----- Retrieves a filtered, sorted page of product summaries from the summary table.-----
+    public Page<Map<String, Object>> getAllProductSummaries(Double minPrice, Double maxPrice, Double minRating, Pageable pageable) {
+        // Ties are broken by id so pages are stable
+        Sort sort = pageable.getSort().getOrderFor("id") != null ? pageable.getSort() : pageable.getSort().and(Sort.by("id"));
+
+        // Served from the in-memory columns once they are built, on every shard layout
+        Optional<Page<ProductSummary>> fromSnapshot = catalogSnapshot.findSummaries(minPrice, maxPrice, minRating,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort));
+        if (fromSnapshot.isPresent()) {
+            return fromSnapshot.get().map(this::toSummary);
+        }
+
+        if (shardRouter.shardCount() == 1) {
+            // One indexed query on the summary table; the database filters, sorts and pages
+            Pageable sorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+            return shardRouter.inTransactionOnShard(0, true, () ->
+                    productSummaryRepository.findSummaries(minPrice, maxPrice, minRating, sorted).map(this::toSummary));
+        }
 
-        // Use Spring Data JPA's built-in pagination
+        // Scatter-gather: every shard returns its first offset + size rows in the requested order,
+        // which are merged and cut down to the requested page; the totals add up
         int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), productSummaries.size());
-        List<Map<String, Object>> paginatedProductSummaries = productSummaries.subList(start, end);
+        Pageable head = PageRequest.of(0, start + pageable.getPageSize(), sort);
+        List<Page<ProductSummary>> shardPages = shardRouter.scatter(shard ->
+                shardRouter.inTransactionOnShard(shard, true, () -> productSummaryRepository.findSummaries(minPrice, maxPrice, minRating, head)));
+
+        List<Map<String, Object>> paginatedProductSummaries = shardPages.stream()
+                .flatMap(page -> page.getContent().stream())
+                .sorted(summaryOrder(sort))
+                .skip(start)
+                .limit(pageable.getPageSize())
+                .map(this::toSummary)
+                .collect(Collectors.toList());
+        long total = shardPages.stream().mapToLong(Page::getTotalElements).sum();
 
         // Create a Page from the paginated products
-        return new PageImpl<>(paginatedProductSummaries, pageable, productSummaries.size());
+        return new PageImpl<>(paginatedProductSummaries, pageable, total);
+    }
+
+    /**
+     * Counts price buckets, rating bands, active offers and review-count ranges over the products
+     * matching the summary filters, from the bitmaps of the in-memory catalog snapshot.
+     *
+     * @return Per facet, the count of every value, or empty while the snapshot is disabled or not built.
+     */
+    public Optional<Map<String, Map<String, Long>>> getSummaryFacets(Double minPrice, Double maxPrice, Double minRating) {
+        return catalogSnapshot.facetCounts(minPrice, maxPrice, minRating);
+    }
+
+    /**
+     * Reads the change feed: the products created, updated, reviewed, offered or deleted after a cursor.
+     *
+     * @param since Cursor from the previous read, or null for the current cursor only.
+     * @return The changes and the next cursor, or empty if the changes after the cursor were pruned.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public Optional<Map<String, Object>> getChanges(String since, int limit) {
+        return productChangeLog.changesSince(since, limit);
+    }
+
+    /**
+     * Finds the offers carrying a coupon code that have not ended yet.
+     *
+     * @param productId Only the offer of this product (checkout validation), or null for every product.
+     * @return productId, the offer fields and whether the offer is running today, ordered by product id.
+     */
+    public List<Map<String, Object>> findOffersByCoupon(String couponCode, String productId) {
+        LocalDate today = LocalDate.now();
+        Map<String, Offer> offers = couponIndex.find(couponCode, productId).orElseGet(() -> {
+            // Until the index is built: the coupon code index of product_offers on every shard
+            Map<String, Offer> found = new HashMap<>();
+            shardRouter.scatter(shard -> shardRouter.inTransactionOnShard(shard, true, () -> productRepository.findOffersByCouponCode(couponCode)))
+                    .forEach(rows -> rows.forEach(row -> {
+                        Offer offer = (Offer) row[1];
+                        if ((productId == null || productId.equals(row[0])) && (offer.getEndDate() == null || !offer.getEndDate().isBefore(today))) {
+                            found.put((String) row[0], offer);
+                        }
+                    }));
+            return found;
+        });
+
+        return offers.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> {
+                    Offer offer = entry.getValue();
+                    Map<String, Object> coupon = new LinkedHashMap<>();
+                    coupon.put("productId", entry.getKey());
+                    coupon.put("couponCode", offer.getCouponCode());
+                    coupon.put("offerdetails", offer.getOfferdetails());
+                    coupon.put("startDate", offer.getStartDate());
+                    coupon.put("endDate", offer.getEndDate());
+                    coupon.put("discountAmount", offer.getDiscountAmount());
+                    coupon.put("maxRedemptions", offer.getMaxRedemptions());
+                    coupon.put("active", offer.getStartDate() == null || !offer.getStartDate().isAfter(today));
+                    return coupon;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Redeems a coupon for a product, counted against the redemption cap of its offer.
+     *
+     * @return The redeemed offer as returned by findOffersByCoupon, or empty if the coupon has no
+     *         running offer for the product.
+     * @throws IllegalStateException if the offer's redemption cap is used up.
+     */
+    public Optional<Map<String, Object>> redeemCoupon(String couponCode, String productId) {
+        Optional<Map<String, Object>> offer = findOffersByCoupon(couponCode, productId).stream()
+                .filter(coupon -> Boolean.TRUE.equals(coupon.get("active")))
+                .findFirst();
+        if (offer.isPresent() && !redemptionCounters.tryRedeem(productId, couponCode, (Integer) offer.get().get("maxRedemptions"))) {
+            throw new IllegalStateException("Coupon " + couponCode + " has reached its redemption limit for product " + productId);
+        }
+        return offer;
+    }
+
+    /**
+     * Reads a page of a leaderboard: top-rated (rated products by average rating, best first) or
+     * cheapest (by discounted price).
+     *
+     * @return The page of summaries, served from the in-memory boards once they are built.
+     */
+    public Page<Map<String, Object>> getLeaderboard(String board, Pageable pageable) {
+        Optional<Page<ProductSummary>> fromBoards = leaderboards.page(board, pageable);
+        if (fromBoards.isPresent()) {
+            return fromBoards.get().map(this::toSummary);
+        }
+        // Until the boards are built: the same order from the summaries, where a minimum rating of 0 leaves out unrated products
+        Double minRating = Leaderboards.TOP_RATED.equals(board) ? 0.0 : null;
+        return getAllProductSummaries(null, null, minRating,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Leaderboards.sort(board)));
+    }
+
+    /**
+     * Suggests product names starting with a prefix (ignoring case), most reviewed first, then best rated.
+     *
+     * @param limit Maximum number of suggestions; capped at product.suggest.max-results.
+     * @return id, name, averageRating and reviewCount of every suggestion.
+     */
+    public List<Map<String, Object>> suggestNames(String prefix, int limit) {
+        int size = Math.min(limit, nameSuggester.maxResults());
+        Optional<List<PrefixTrie.Entry>> fromTrie = nameSuggester.suggest(prefix, size);
+        if (fromTrie.isPresent()) {
+            return fromTrie.get().stream()
+                    .map(entry -> toSuggestion(entry.getId(), entry.getName(), entry.getAverageRating(), entry.getReviewCount()))
+                    .collect(Collectors.toList());
+        }
+
+        // Until the trie is built: an indexed prefix query per shard, merged in the same order
+        String pattern = Product.normalizeName(prefix).replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        Comparator<ProductSummary> rank = Comparator.comparingInt(ProductSummary::getReviewCount).reversed()
+                .thenComparing(ProductSummary::getAverageRating, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(ProductSummary::getId);
+        return shardRouter.scatter(shard -> shardRouter.inTransactionOnShard(shard, true,
+                        () -> productSummaryRepository.findByNamePrefix(pattern, PageRequest.of(0, size))))
+                .stream()
+                .flatMap(List::stream)
+                .sorted(rank)
+                .limit(size)
+                .map(summary -> toSuggestion(summary.getId(), summary.getName(), summary.getAverageRating(), summary.getReviewCount()))
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, Object> toSuggestion(String id, String name, Double averageRating, int reviewCount) {
+        Map<String, Object> suggestion = new LinkedHashMap<>();
+        suggestion.put("id", id);
+        suggestion.put("name", name);
+        suggestion.put("averageRating", averageRating);
+        suggestion.put("reviewCount", reviewCount);
+        return suggestion;
+    }
+
+    /**
+     * Applies the offers that started or ended since the last run: the products concerned get their
+     * discounted price and summary recomputed, in chunks. Offers start and end at midnight, and the
+     * start and end date indexes of product_offers deliver the due products in id order.
+     *
+     * @return The number of products recomputed.
+     */
+    @Scheduled(cron = "${product.offers.transition-cron:0 0 0 * * *}")
+    public synchronized int applyOfferTransitions() {
+        if (catalogFileStore.isReadOnly()) {
+            return 0;
+        }
+        long startTime = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        // After a restart, transitions of the last few days are replayed; recomputing is idempotent
+        LocalDate from = lastOfferTransitionDate != null ? lastOfferTransitionDate : today.minusDays(offerCatchUpDays);
+        if (!from.isBefore(today)) {
+            return 0;
+        }
+
+        List<Integer> shardTotals = shardRouter.scatter(shard -> {
+            int total = 0;
+            String lastId = "";
+            while (true) {
+                String afterId = lastId;
+                List<String> chunkIds = shardRouter.inTransactionOnShard(shard, false, () -> {
+                    List<String> ids = productRepository.findIdsWithOfferTransitions(from, today, afterId, PageRequest.of(0, bulkChunkSize));
+                    if (!ids.isEmpty()) {
+                        refreshSummaries(ids, ProductEvent.Type.UPDATED);
+                    }
+                    return ids;
+                });
+                if (chunkIds.isEmpty()) {
+                    break;
+                }
+                total += chunkIds.size();
+                lastId = chunkIds.get(chunkIds.size() - 1);
+            }
+            return total;
+        });
+        lastOfferTransitionDate = today;
+        int recomputed = shardTotals.stream().mapToInt(Integer::intValue).sum();
+        log.info("Offer transitions since {} applied to {} products in {} ms", from, recomputed, System.currentTimeMillis() - startTime);
+        return recomputed;
+    }
+
+    private Comparator<ProductSummary> summaryOrder(Sort sort) {
+        Comparator<ProductSummary> order = (a, b) -> 0;
+        for (Sort.Order property : sort) {
+            Comparator<ProductSummary> comparator = SUMMARY_ORDER.get(property.getProperty());
+            order = order.thenComparing(property.isDescending() ? comparator.reversed() : comparator);
+        }
+        return order;
+    }
+
+    private Map<String, Object> toSummary(ProductSummary product) {
+        Map<String, Object> summaryMap = new LinkedHashMap<>();
+        summaryMap.put("id", product.getId());
+        summaryMap.put("name", product.getName());
+        summaryMap.put("description", product.getDescription());
+        summaryMap.put("price", product.getPrice());
+        summaryMap.put("averageRating", product.getAverageRating());
+        summaryMap.put("reviewCount", product.getReviewCount());
+        summaryMap.put("discountedPrice", product.getDiscountedPrice());
+        summaryMap.put("hasActiveOffer", product.hasActiveOffer());
+        return summaryMap;
     }
 
     //----- Deletes the product.----
-    public Product deleteProduct(String productId) {
-        Optional<Product> optionalProduct = productRepository.findById(productId);
+    public boolean deleteProduct(String productId) {
+        // Removes the product and its collections without loading them
+        return shardRouter.inTransaction(productId, () -> deleteChunk(List.of(productId))[0] > 0);
+    }
+
+    //----- Deletes the given products, in chunks.-----
+    public Map<String, Object> deleteProducts(List<String> productIds) {
+        long startTime = System.currentTimeMillis();
+        Map<Integer, List<String>> idsByShard = shardRouter.groupByShard(new LinkedHashSet<>(productIds));
 
-            Product deletedProduct = optionalProduct.get();
-            productRepository.deleteById(productId);
-            return deletedProduct;
+        // Per shard, totals[0] = products, totals[1] = reviews, totals[2] = offers, totals[3] = chunks
+        List<int[]> shardTotals = shardRouter.scatter(shard -> {
+            int[] totals = new int[4];
+            List<String> ids = idsByShard.getOrDefault(shard, Collections.emptyList());
+            for (int start = 0; start < ids.size(); start += bulkChunkSize) {
+                List<String> chunkIds = ids.subList(start, Math.min(start + bulkChunkSize, ids.size()));
+                addDeleted(totals, shardRouter.inTransactionOnShard(shard, false, () -> deleteChunk(chunkIds)));
+            }
+            return totals;
+        });
+        return deleteReport(sum(shardTotals, 4), startTime);
+    }
+
+    //----- Deletes every product priced between minPrice and maxPrice, in chunks.-----
+    public Map<String, Object> deleteProductsByPrice(double minPrice, double maxPrice) {
+        return deleteInChunks((afterId, chunk) -> productRepository.findIdsByPriceBetween(minPrice, maxPrice, afterId, chunk));
+    }
+
+    //----- Deletes all products, reviews and offers, in chunks.-----
+    public Map<String, Object> purgeAllProducts() {
+        return deleteInChunks(productRepository::findIdsAfter);
+    }
+
+    private Map<String, Object> deleteInChunks(BiFunction<String, Pageable, List<String>> nextIds) {
+        long startTime = System.currentTimeMillis();
+
+        List<int[]> shardTotals = shardRouter.scatter(shard -> {
+            int[] totals = new int[4];
+            String lastId = "";
+            while (true) {
+                String afterId = lastId;
+                // Each chunk is selected by keyset on the id and deleted in its own short transaction
+                List<String> chunkIds = shardRouter.inTransactionOnShard(shard, false, () -> {
+                    List<String> ids = nextIds.apply(afterId, PageRequest.of(0, bulkChunkSize));
+                    if (!ids.isEmpty()) {
+                        addDeleted(totals, deleteChunk(ids));
+                    }
+                    return ids;
+                });
+                if (chunkIds.isEmpty()) {
+                    break;
+                }
+                lastId = chunkIds.get(chunkIds.size() - 1);
+            }
+            return totals;
+        });
+        return deleteReport(sum(shardTotals, 4), startTime);
+    }
+
+    // Deletes the collections first, then the products; returns {products, reviews, offers}
+    private int[] deleteChunk(List<String> ids) {
+        productSummaryRepository.deleteByProductIds(ids);
+        productReadCache.invalidateAfterCommit(ids);
+        AtomicLong version = new AtomicLong(PatchVersions.UNVERSIONED);
+        catalogSnapshot.removeAfterCommit(ids, version::get);
+        nameSuggester.removeAfterCommit(ids, version::get);
+        leaderboards.removeAfterCommit(ids, version::get);
+        couponIndex.removeAfterCommit(ids, version::get);
+        redemptionCounters.removeAfterCommit(ids);
+        productRepository.deleteRedemptionLeasesByProductIds(ids);
+        productRepository.deleteRedemptionsByProductIds(ids);
+        int reviews = productRepository.deleteReviewsByProductIds(ids);
+        int offers = productRepository.deleteOffersByProductIds(ids);
+        int products = productRepository.deleteProductsByIds(ids);
+        if (products > 0) {
+            productEventBus.publishAfterCommit(ProductEvent.Type.DELETED, ids, Collections.emptyList());
+            version.set(productChangeLog.recordInTransaction(ids, ProductEvent.Type.DELETED));
+        }
+        return new int[] { products, reviews, offers };
+    }
+
+    private void addDeleted(int[] totals, int[] deleted) {
+        totals[0] += deleted[0];
+        totals[1] += deleted[1];
+        totals[2] += deleted[2];
+        totals[3]++;
+    }
+
+    private Map<String, Object> deleteReport(int[] totals, long startTime) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("rowsAffected", totals[0]);
+        report.put("reviewsDeleted", totals[1]);
+        report.put("offersDeleted", totals[2]);
+        report.put("chunks", totals[3]);
+        report.put("durationMs", System.currentTimeMillis() - startTime);
+        return report;
     }
   
     //---- Retrieves the product reviews in a paginated format.-----
     public Page<Map<String, Object>> getReviewsForProduct(String productId, Pageable pageable) {
+        return shardRouter.inReadOnlyTransaction(productId, () -> findReviewsForProduct(productId, pageable));
+    }
+
+    private Page<Map<String, Object>> findReviewsForProduct(String productId, Pageable pageable) {
         // Check if the product exists
         Optional<Product> optionalProduct = productRepository.findById(productId);
 
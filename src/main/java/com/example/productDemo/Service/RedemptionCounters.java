@@ -0,0 +1,320 @@
+package com.example.productDemo.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Index.CatalogFileStore;
+import com.example.productDemo.Repository.ProductRepository;
+
+/**
+ * Coupon redemption counters that do not serialize on a database row.
+ *
+ * Each offer's cap is handed out to nodes in slices: a node reserves a slice in coupon_redemptions
+ * (locking the row once per slice, not per redemption) and spreads it over per-core stripes that
+ * redemptions take from with a compare-and-set, so concurrent redemptions rarely touch the same
+ * cache line. Redemptions are counted in a LongAdder and added to coupon_redemptions in one batch
+ * per shard on every flush.
+ *
+ * The database never hands out more than the cap, so a crash can lose at most the unflushed
+ * count and the unused part of the slices a node held: its lease rows record what it reserved and
+ * flushed, and once they stop being heartbeated for product.coupons.redemption-lease-timeout-ms
+ * they are reconciled by keeping the difference reserved. Leases are named by the node's id (see
+ * NodeIdentity), which no two running nodes share, and only expired ones are reconciled, so a
+ * node never ends the leases of a live one.
+ */
+@Component
+public class RedemptionCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(RedemptionCounters.class);
+
+    // Longs per stripe, so that stripes sit on separate cache lines
+    private static final int PADDING = 8;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Autowired
+    private NodeIdentity nodeIdentity;
+
+    // 0 for one stripe per available processor
+    @Value("${product.coupons.redemption-stripes:0}")
+    private int stripes;
+
+    // Largest slice of a cap reserved at once; slices shrink as the cap runs out
+    @Value("${product.coupons.redemption-slice:100}")
+    private int sliceSize = 100;
+
+    // Leases not heartbeated for this long are reconciled
+    @Value("${product.coupons.redemption-lease-timeout-ms:300000}")
+    private long leaseTimeoutMs = 300000;
+
+    private final Map<List<String>, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Counts one redemption of an offer, taking it from this node's slice of the cap.
+     *
+     * @param maxRedemptions The offer's cap, or null for no cap.
+     * @return false if the cap is used up.
+     */
+    public boolean tryRedeem(String productId, String couponCode, Integer maxRedemptions) {
+        Counter counter = counters.computeIfAbsent(List.of(productId, couponCode), key -> new Counter(productId, couponCode, stripeCount()));
+        if (maxRedemptions == null) {
+            counter.unflushed.increment();
+            return true;
+        }
+        int stripe = (int) (Thread.currentThread().getId() % counter.stripeCount);
+        while (!counter.tryAcquire(stripe)) {
+            synchronized (counter) {
+                // Another thread may have refilled the stripes while this one waited
+                if (counter.available() > 0) {
+                    continue;
+                }
+                if (counter.soldOutCap == maxRedemptions) {
+                    return false;
+                }
+                long granted = reserve(counter, maxRedemptions);
+                if (granted == 0) {
+                    counter.soldOutCap = maxRedemptions;
+                    return false;
+                }
+                counter.leased = true;
+                counter.spread(granted);
+            }
+        }
+        counter.unflushed.increment();
+        return true;
+    }
+
+    //----- Reserves the next slice of the cap in the counter row, recording it in this node's lease.-----
+    private long reserve(Counter counter, int maxRedemptions) {
+        return shardRouter.inTransaction(counter.productId, () -> {
+            productRepository.insertRedemptionCounter(counter.productId, counter.couponCode);
+            long remaining = maxRedemptions - productRepository.lockReservedRedemptions(counter.productId, counter.couponCode);
+            if (remaining <= 0) {
+                return 0L;
+            }
+            // A quarter of what is left at most, so the last redemptions are not all stranded on one node
+            long granted = Math.max(1, Math.min(sliceSize, remaining / 4));
+            productRepository.addReservedRedemptions(counter.productId, counter.couponCode, granted);
+            productRepository.addLeaseReserved(nodeIdentity.id(), counter.productId, counter.couponCode, granted);
+            return granted;
+        });
+    }
+
+    //----- Adds the counted redemptions to the database, one transaction per shard, and heartbeats the leases.-----
+    @Scheduled(fixedDelayString = "${product.coupons.redemption-flush-ms:1000}")
+    public synchronized void flush() {
+        Map<Integer, List<Counter>> byShard = counters.values().stream()
+                .collect(Collectors.groupingBy(counter -> shardRouter.shardFor(counter.productId)));
+        byShard.forEach((shard, shardCounters) -> {
+            Map<Counter, Long> deltas = new LinkedHashMap<>();
+            for (Counter counter : shardCounters) {
+                long delta = counter.unflushed.sumThenReset();
+                // The cap may have been freed by a node returning its slice since
+                counter.soldOutCap = 0;
+                if (delta > 0 || counter.leased) {
+                    deltas.put(counter, delta);
+                }
+            }
+            if (deltas.isEmpty()) {
+                return;
+            }
+            try {
+                shardRouter.inTransactionOnShard(shard, false, () -> {
+                    deltas.forEach((counter, delta) -> {
+                        if (delta > 0) {
+                            if (!counter.rowCreated) {
+                                productRepository.insertRedemptionCounter(counter.productId, counter.couponCode);
+                            }
+                            productRepository.addRedeemed(counter.productId, counter.couponCode, delta);
+                        }
+                        if (counter.leased) {
+                            productRepository.addLeaseRedeemed(nodeIdentity.id(), counter.productId, counter.couponCode, delta);
+                        }
+                    });
+                    return null;
+                });
+                deltas.keySet().forEach(counter -> counter.rowCreated = true);
+            } catch (RuntimeException e) {
+                // Counted again on the next flush
+                deltas.forEach((counter, delta) -> counter.unflushed.add(delta));
+                log.warn("Flushing coupon redemptions of shard {} failed, retried on the next flush", shard, e);
+            }
+        });
+    }
+
+    //----- Flushes and returns the unused slices to the caps, ending this node's leases.-----
+    @PreDestroy
+    public synchronized void release() {
+        flush();
+        for (Counter counter : counters.values()) {
+            if (!counter.leased || counter.unflushed.sum() > 0) {
+                continue;
+            }
+            long unused = counter.drain();
+            try {
+                shardRouter.inTransaction(counter.productId, () -> {
+                    productRepository.addReservedRedemptions(counter.productId, counter.couponCode, -unused);
+                    return productRepository.deleteRedemptionLease(nodeIdentity.id(), counter.productId, counter.couponCode);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Releasing coupon redemptions of {} on {} failed, left to reconciliation", counter.couponCode, counter.productId, e);
+            }
+        }
+    }
+
+    //----- Drops the counters of deleted products once the current transaction commits.-----
+    public void removeAfterCommit(Collection<String> productIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counters.keySet().removeIf(key -> productIds.contains(key.get(0)));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counters.keySet().removeIf(key -> productIds.contains(key.get(0)));
+            }
+        });
+    }
+
+    // Leases left by this node's previous run are reconciled too, once they expire like any other
+    @PostConstruct
+    public void reconcileAtStartup() {
+        try {
+            reconcileStaleLeases();
+        } catch (RuntimeException e) {
+            log.error("Reconciling coupon redemption leases failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.coupons.redemption-lease-timeout-ms:300000}",
+            initialDelayString = "${product.coupons.redemption-lease-timeout-ms:300000}")
+    public void reconcileStaleLeases() {
+        if (catalogFileStore.isReadOnly()) {
+            return;
+        }
+        // A lease this node still holds expires only while its flushes fail; it is kept for when they succeed
+        reconcile(shard -> productRepository.findStaleRedemptionLeases(leaseTimeoutMs / 1000).stream()
+                .filter(lease -> !isHeld(lease))
+                .collect(Collectors.toList()));
+    }
+
+    private boolean isHeld(Object[] lease) {
+        Counter counter = counters.get(List.of((String) lease[1], (String) lease[2]));
+        return lease[0].equals(nodeIdentity.id()) && counter != null && counter.leased;
+    }
+
+    /**
+     * Ends expired leases, left by nodes that crashed. What such a node reserved but did not flush as redeemed may
+     * have been redeemed, or not; it stays reserved so that the cap can never be exceeded.
+     *
+     * @return The number of leases ended.
+     */
+    private int reconcile(IntFunction<List<Object[]>> findLeases) {
+        int reconciled = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            int target = shard;
+            List<Object[]> leases = shardRouter.inTransactionOnShard(target, false, () -> {
+                List<Object[]> found = new ArrayList<>(findLeases.apply(target));
+                found.forEach(lease -> productRepository.deleteRedemptionLease((String) lease[0], (String) lease[1], (String) lease[2]));
+                return found;
+            });
+            for (Object[] lease : leases) {
+                long reserved = ((Number) lease[3]).longValue();
+                long redeemed = ((Number) lease[4]).longValue();
+                log.warn("Reconciled redemption lease of node {} on coupon {} of {}: {} of {} reserved were flushed, {} stay reserved",
+                        lease[0], lease[2], lease[1], redeemed, reserved, reserved - redeemed);
+            }
+            reconciled += leases.size();
+        }
+        return reconciled;
+    }
+
+    private int stripeCount() {
+        return stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+    }
+
+    //***Striped remaining slice and unflushed redemptions of one offer on this node***
+    private static final class Counter {
+
+        private final String productId;
+        private final String couponCode;
+        private final int stripeCount;
+        private final AtomicLongArray permits;
+        private final LongAdder unflushed = new LongAdder();
+        // The cap for which no slice was left at the last attempt, until the next flush; 0 if none
+        private volatile int soldOutCap;
+        private volatile boolean leased;
+        private volatile boolean rowCreated;
+
+        Counter(String productId, String couponCode, int stripeCount) {
+            this.productId = productId;
+            this.couponCode = couponCode;
+            this.stripeCount = stripeCount;
+            this.permits = new AtomicLongArray(stripeCount * PADDING);
+        }
+
+        // Takes a permit from the caller's stripe, or from the others once it is empty
+        boolean tryAcquire(int firstStripe) {
+            for (int i = 0; i < stripeCount; i++) {
+                int slot = ((firstStripe + i) % stripeCount) * PADDING;
+                long available;
+                while ((available = permits.get(slot)) > 0) {
+                    if (permits.compareAndSet(slot, available, available - 1)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        long available() {
+            long available = 0;
+            for (int i = 0; i < stripeCount; i++) {
+                available += permits.get(i * PADDING);
+            }
+            return available;
+        }
+
+        void spread(long granted) {
+            for (int i = 0; i < stripeCount; i++) {
+                permits.addAndGet(i * PADDING, granted / stripeCount + (i < granted % stripeCount ? 1 : 0));
+            }
+        }
+
+        long drain() {
+            long drained = 0;
+            for (int i = 0; i < stripeCount; i++) {
+                drained += permits.getAndSet(i * PADDING, 0);
+            }
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.productDemo.Service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.Product.Review;
+import com.example.productDemo.Index.CatalogFileStore;
+import com.example.productDemo.Repository.ProductRepository;
+
+/**
+ * Write-behind ingestion of reviews, used when product.reviews.async.enabled is set.
+ *
+ * Accepted reviews wait in a bounded queue; a single writer thread drains it in batches and hands
+ * the reviews of each shard to the writer registered by ProductService, which stores them in one
+ * transaction. A full queue refuses reviews instead of blocking, so callers can answer 429.
+ *
+ * In durable mode every review is appended to a journal file and forced to disk before it is
+ * acknowledged; concurrent submitters share one force. Each shard records, in the transaction of
+ * the batch, the last journal sequence it applied, so that a restart replays exactly the reviews
+ * that never reached the database. Checkpoints are keyed by the node's id (see NodeIdentity), which
+ * no two running nodes share and which must stay the same across restarts. The journal is truncated
+ * whenever the queue drains.
+ */
+@Component
+public class ReviewIngestQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewIngestQueue.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CatalogFileStore catalogFileStore;
+
+    @Autowired
+    private NodeIdentity nodeIdentity;
+
+    @Value("${product.reviews.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${product.reviews.async.queue-capacity:10000}")
+    private int queueCapacity = 10000;
+
+    // Reviews handed to the writer at once, across shards
+    @Value("${product.reviews.async.batch-size:500}")
+    private int batchSize = 500;
+
+    // Pause before a failed batch is retried
+    @Value("${product.reviews.async.retry-ms:1000}")
+    private long retryMs = 1000;
+
+    @Value("${product.reviews.async.durable:false}")
+    private boolean durable;
+
+    @Value("${product.reviews.async.journal-path:./data/review-ingest.journal}")
+    private String journalPath;
+
+    private BlockingQueue<QueuedReview> queue;
+    private BiConsumer<Integer, List<QueuedReview>> writer;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    // Guards sequence numbers, journal appends and truncation
+    private final Object journalLock = new Object();
+    private long nextSequence = 1;
+    private FileChannel journal;
+    // Journal bytes known to be on disk
+    private final Object forceLock = new Object();
+    private long forcedPosition;
+
+    public boolean isEnabled() {
+        return enabled && !catalogFileStore.isReadOnly();
+    }
+
+    /**
+     * Starts the writer thread, after replaying the journal of a previous run in durable mode.
+     *
+     * @param writer Stores the reviews of one shard in one transaction, calling markApplied in it.
+     */
+    public void start(BiConsumer<Integer, List<QueuedReview>> writer) {
+        if (!isEnabled()) {
+            return;
+        }
+        // A checkpoint under an id of this run alone would be lost on restart, and its reviews replayed twice
+        if (durable && !nodeIdentity.isStable()) {
+            throw new IllegalStateException("Durable review ingestion needs a node id that survives restarts;"
+                    + " set product.node-id");
+        }
+        this.writer = writer;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::drain, "review-ingest-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        if (durable) {
+            openJournal();
+        }
+    }
+
+    /**
+     * Queues a validated review; in durable mode it is on disk when this returns.
+     *
+     * @return false if the queue is full (or shutting down) and the review was not accepted.
+     */
+    public boolean submit(String productId, Review review) {
+        if (!running) {
+            return false;
+        }
+        long end;
+        synchronized (journalLock) {
+            if (queue.remainingCapacity() == 0) {
+                return false;
+            }
+            QueuedReview queued = new QueuedReview(nextSequence++, productId, review);
+            if (!durable) {
+                return queue.offer(queued);
+            }
+            try {
+                ByteBuffer record = ByteBuffer.wrap(encode(queued));
+                while (record.hasRemaining()) {
+                    journal.write(record);
+                }
+                end = journal.position();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not journal the review", e);
+            }
+            queue.offer(queued);
+        }
+        // Group commit: one force covers every record appended before it
+        synchronized (forceLock) {
+            if (forcedPosition < end) {
+                try {
+                    long appended;
+                    synchronized (journalLock) {
+                        appended = journal.position();
+                    }
+                    journal.force(false);
+                    forcedPosition = appended;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not journal the review", e);
+                }
+            }
+        }
+        return true;
+    }
+
+    public int depth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    //----- Records, in the transaction storing a shard's batch, the last sequence the shard applied.-----
+    public void markApplied(List<QueuedReview> reviews) {
+        if (durable && !reviews.isEmpty()) {
+            productRepository.saveReviewIngestCheckpoint(nodeIdentity.id(), reviews.get(reviews.size() - 1).getSequence());
+        }
+    }
+
+    private void drain() {
+        List<QueuedReview> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedReview first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+                batch.clear();
+                truncateJournalIfDrained();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Retries each shard's part until it is stored; parts already stored are not written again
+    private void write(List<QueuedReview> batch) throws InterruptedException {
+        Map<Integer, List<QueuedReview>> byShard = new LinkedHashMap<>();
+        batch.forEach(queued -> byShard.computeIfAbsent(shardRouter.shardFor(queued.getProductId()), shard -> new ArrayList<>()).add(queued));
+        for (Map.Entry<Integer, List<QueuedReview>> part : byShard.entrySet()) {
+            while (true) {
+                try {
+                    writer.accept(part.getKey(), part.getValue());
+                    break;
+                } catch (RuntimeException e) {
+                    log.error("Writing {} queued reviews to shard {} failed, retrying", part.getValue().size(), part.getKey(), e);
+                    Thread.sleep(retryMs);
+                }
+            }
+        }
+    }
+
+    private void truncateJournalIfDrained() {
+        if (!durable) {
+            return;
+        }
+        synchronized (journalLock) {
+            // Only this thread takes from the queue, so everything journaled so far has been stored
+            if (!queue.isEmpty()) {
+                return;
+            }
+            try {
+                if (journal.size() > 0) {
+                    journal.truncate(0);
+                    journal.position(0);
+                    synchronized (forceLock) {
+                        forcedPosition = 0;
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Truncating the review journal failed", e);
+            }
+        }
+    }
+
+    //----- Opens the journal and queues the reviews no shard has applied yet; a torn last record is dropped.-----
+    private void openJournal() {
+        try {
+            Path file = Paths.get(journalPath);
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Map<Integer, Long> applied = new LinkedHashMap<>();
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                int target = shard;
+                applied.put(shard, shardRouter.inTransactionOnShard(target, true,
+                        () -> productRepository.findReviewIngestCheckpoint(nodeIdentity.id()).orElse(0L)));
+            }
+            long lastSequence = applied.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+
+            List<QueuedReview> pending = new ArrayList<>();
+            long validLength = 0;
+            if (Files.exists(file)) {
+                try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+                    DataInputStream in = new DataInputStream(stream);
+                    QueuedReview queued;
+                    while ((queued = decode(in)) != null) {
+                        validLength += encode(queued).length;
+                        lastSequence = Math.max(lastSequence, queued.getSequence());
+                        if (queued.getSequence() > applied.get(shardRouter.shardFor(queued.getProductId()))) {
+                            pending.add(queued);
+                        }
+                    }
+                } catch (EOFException e) {
+                    // Torn record at the end of the file, from a crash while appending
+                }
+            }
+            journal = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (journal.size() > validLength) {
+                // Never acknowledged: the crash came before its force completed
+                log.warn("Dropped {} bytes of a torn record at the end of the review journal", journal.size() - validLength);
+            }
+            journal.truncate(validLength);
+            journal.position(validLength);
+            forcedPosition = validLength;
+            nextSequence = lastSequence + 1;
+            for (QueuedReview queued : pending) {
+                queue.put(queued);
+            }
+            log.info("Review journal replayed {} reviews not yet stored", pending.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the review journal " + journalPath, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        // The writer stores what is queued before it exits
+        running = false;
+        try {
+            writerThread.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread.interrupt();
+        if (!queue.isEmpty()) {
+            if (durable) {
+                log.warn("{} queued reviews were not stored and will be replayed from the journal", queue.size());
+            } else {
+                log.error("{} queued reviews were not stored and are lost", queue.size());
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.error("Closing the review journal failed", e);
+            }
+        }
+    }
+
+    // Record: length, then sequence, product id, reviewer, comments and rating, then a CRC32 of those
+    private static byte[] encode(QueuedReview queued) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeLong(queued.getSequence());
+        out.writeUTF(queued.getProductId());
+        out.writeUTF(queued.getReview().getReviewer());
+        out.writeUTF(queued.getReview().getComments());
+        out.writeDouble(queued.getReview().getRating());
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return ByteBuffer.allocate(8 + bytes.length).putInt(bytes.length).put(bytes).putInt((int) crc.getValue()).array();
+    }
+
+    // Returns null at the end of the journal or at a record that fails its checksum
+    private static QueuedReview decode(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > 1 << 20) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        int expected = in.readInt();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != expected) {
+            return null;
+        }
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(bytes));
+        long sequence = record.readLong();
+        String productId = record.readUTF();
+        Review review = new Review(record.readUTF(), record.readUTF(), record.readDouble());
+        return new QueuedReview(sequence, productId, review);
+    }
+
+    //***A review waiting to be stored, numbered in submission order***
+    public static final class QueuedReview {
+
+        private final long sequence;
+        private final String productId;
+        private final Review review;
+
+        QueuedReview(long sequence, String productId, Review review) {
+            this.sequence = sequence;
+            this.productId = productId;
+            this.review = review;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public Review getReview() {
+            return review;
+        }
+    }
+}
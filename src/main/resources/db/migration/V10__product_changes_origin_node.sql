@@ -0,0 +1,4 @@
+-- Node that made each change (product.node-id), so a node polling product_changes for cache
+-- invalidation skips its own writes. Rows written before this migration have no origin.
+
+ALTER TABLE product_changes ADD COLUMN origin_node VARCHAR(255);
@@ -0,0 +1,11 @@
+-- Nodes running against this database, by node id (see NodeIdentity). A node claims its id at
+-- startup and heartbeats it; a second node with the same id refuses to start while the claim is
+-- live, since ids name coupon redemption leases, review ingestion checkpoints and the origin of
+-- each change.
+
+CREATE TABLE node_registry (
+    node_id VARCHAR(255) NOT NULL,
+    instance_id VARCHAR(36) NOT NULL,
+    heartbeat_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (node_id)
+);
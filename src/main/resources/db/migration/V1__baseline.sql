@@ -0,0 +1,29 @@
+-- Baseline schema, matching what hibernate ddl-auto=update created before migrations were introduced.
+-- IF NOT EXISTS lets the same script run against both fresh and pre-existing databases.
+
+CREATE TABLE IF NOT EXISTS product (
+    id VARCHAR(255) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(255) NOT NULL,
+    price DOUBLE NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_product_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS product_reviews (
+    product_id VARCHAR(255) NOT NULL,
+    reviewer VARCHAR(255) NOT NULL,
+    comments VARCHAR(255) NOT NULL,
+    rating DOUBLE NOT NULL,
+    CONSTRAINT fk_product_reviews_product FOREIGN KEY (product_id) REFERENCES product (id)
+);
+
+CREATE TABLE IF NOT EXISTS product_offers (
+    product_id VARCHAR(255) NOT NULL,
+    offerdetails VARCHAR(255) NOT NULL,
+    coupon_code VARCHAR(255) NOT NULL,
+    start_date DATE,
+    end_date DATE,
+    discount_amount DOUBLE NOT NULL,
+    CONSTRAINT fk_product_offers_product FOREIGN KEY (product_id) REFERENCES product (id)
+);
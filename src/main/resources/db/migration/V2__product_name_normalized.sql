@@ -0,0 +1,11 @@
+-- Lower-cased copy of the product name with a unique index, so case-insensitive
+-- uniqueness checks are an index probe instead of a scan over upper(name).
+-- Fails if the existing data already contains names that differ only by case.
+
+ALTER TABLE product ADD COLUMN name_normalized VARCHAR(255);
+
+UPDATE product SET name_normalized = LOWER(name);
+
+ALTER TABLE product MODIFY name_normalized VARCHAR(255) NOT NULL;
+
+CREATE UNIQUE INDEX ux_product_name_normalized ON product (name_normalized);
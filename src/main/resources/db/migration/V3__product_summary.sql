@@ -0,0 +1,28 @@
+-- Denormalized read model behind the product summary listing: one row per product with the
+-- review statistics and discounted price precomputed, so listing, filtering and sorting are
+-- single-table index reads. Kept up to date by ProductService in the same transaction as each write.
+
+CREATE TABLE product_summary (
+    id VARCHAR(255) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(255) NOT NULL,
+    price DOUBLE NOT NULL,
+    average_rating DOUBLE,
+    review_count INT NOT NULL,
+    discounted_price DOUBLE NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX ix_product_summary_name ON product_summary (name);
+CREATE INDEX ix_product_summary_price ON product_summary (price);
+CREATE INDEX ix_product_summary_discounted_price ON product_summary (discounted_price);
+CREATE INDEX ix_product_summary_average_rating ON product_summary (average_rating);
+CREATE INDEX ix_product_summary_review_count ON product_summary (review_count);
+
+INSERT INTO product_summary (id, name, description, price, average_rating, review_count, discounted_price)
+SELECT p.id, p.name, p.description, p.price,
+       (SELECT ROUND(AVG(r.rating), 2) FROM product_reviews r WHERE r.product_id = p.id),
+       (SELECT COUNT(*) FROM product_reviews r WHERE r.product_id = p.id),
+       ROUND(p.price - p.price * COALESCE((SELECT MAX(CAST(SUBSTRING(o.offerdetails, 1, LOCATE('%', o.offerdetails) - 1) AS DECIMAL(5,2)))
+                                           FROM product_offers o WHERE o.product_id = p.id), 0) / 100, 2)
+FROM product p;
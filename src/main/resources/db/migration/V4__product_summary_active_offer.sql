@@ -0,0 +1,10 @@
+-- Whether a product has an offer running today, behind the "activeOffer" summary facet.
+-- Written with the rest of the summary row on every write, and recomputed when offers start or
+-- end by ProductService.applyOfferTransitions, which refreshes the products' discounted prices
+-- (ProductRepository.refreshDiscountedPrices, V6) and then their summary rows.
+
+ALTER TABLE product_summary ADD COLUMN has_active_offer BOOLEAN NOT NULL DEFAULT FALSE;
+
+UPDATE product_summary SET has_active_offer = EXISTS (
+    SELECT 1 FROM product_offers o
+    WHERE o.product_id = product_summary.id AND o.start_date <= CURRENT_DATE AND o.end_date >= CURRENT_DATE);
@@ -0,0 +1,3 @@
+-- Coupon lookups (GET /offers/coupon/{code}) go through this index instead of scanning every offer.
+
+CREATE INDEX idx_product_offers_coupon_code ON product_offers (coupon_code);
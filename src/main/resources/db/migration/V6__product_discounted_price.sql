@@ -0,0 +1,16 @@
+-- Effective price of each product: its price less the best offer running today. Written on every
+-- product or offer write and by the offer transition job when offers start or end, so reads no
+-- longer evaluate offer rules. Offers that have not started or have ended no longer count.
+
+ALTER TABLE product ADD COLUMN discounted_price DOUBLE;
+
+UPDATE product SET discounted_price = ROUND(price - price * COALESCE((
+    SELECT MAX(CAST(SUBSTRING(o.offerdetails, 1, LOCATE('%', o.offerdetails) - 1) AS DECIMAL(5,2)))
+    FROM product_offers o
+    WHERE o.product_id = product.id AND o.start_date <= CURRENT_DATE AND o.end_date >= CURRENT_DATE), 0) / 100, 2);
+
+UPDATE product_summary SET discounted_price = (SELECT p.discounted_price FROM product p WHERE p.id = product_summary.id);
+
+-- The transition job finds the offers starting or ending in a date window through these
+CREATE INDEX ix_product_offers_start_date ON product_offers (start_date);
+CREATE INDEX ix_product_offers_end_date ON product_offers (end_date);
@@ -0,0 +1,27 @@
+-- Redemption caps per offer (NULL = unlimited) and the redemption counters behind
+-- POST /offers/coupon/{code}/redeem. Nodes count redemptions in memory and reserve slices of a
+-- cap here: coupon_redemptions.reserved never exceeds the cap, so no node can oversell.
+
+ALTER TABLE product_offers ADD COLUMN max_redemptions INT;
+
+CREATE TABLE coupon_redemptions (
+    product_id VARCHAR(255) NOT NULL,
+    coupon_code VARCHAR(255) NOT NULL,
+    redeemed BIGINT NOT NULL,
+    reserved BIGINT NOT NULL,
+    PRIMARY KEY (product_id, coupon_code)
+);
+
+-- The slice each node holds and how much of it was flushed as redeemed; a lease that stops being
+-- heartbeated belongs to a crashed node and is reconciled by the others
+CREATE TABLE coupon_redemption_leases (
+    node_id VARCHAR(255) NOT NULL,
+    product_id VARCHAR(255) NOT NULL,
+    coupon_code VARCHAR(255) NOT NULL,
+    reserved BIGINT NOT NULL,
+    redeemed BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (node_id, product_id, coupon_code)
+);
+
+CREATE INDEX ix_coupon_redemption_leases_updated_at ON coupon_redemption_leases (updated_at);
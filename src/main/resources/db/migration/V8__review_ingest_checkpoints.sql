@@ -0,0 +1,8 @@
+-- Last journal sequence of asynchronously ingested reviews stored by each node on this database,
+-- written in the transaction of each batch so a restart replays only what was never stored.
+
+CREATE TABLE review_ingest_checkpoints (
+    node_id VARCHAR(255) NOT NULL,
+    last_sequence BIGINT NOT NULL,
+    PRIMARY KEY (node_id)
+);
@@ -0,0 +1,21 @@
+-- Change feed of committed product writes (GET /products/changes), written in the transaction of
+-- each write. Sequence numbers come from the single product_change_sequence row, whose lock is held
+-- until the write commits, so they are gapless and increase in commit order on each database.
+
+CREATE TABLE product_changes (
+    sequence_number BIGINT NOT NULL,
+    product_id VARCHAR(255) NOT NULL,
+    change_type VARCHAR(20) NOT NULL,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (sequence_number)
+);
+
+CREATE INDEX ix_product_changes_changed_at ON product_changes (changed_at);
+
+CREATE TABLE product_change_sequence (
+    id INT NOT NULL,
+    last_sequence BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO product_change_sequence (id, last_sequence) VALUES (1, 0);
@@ -0,0 +1,154 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.Controller.AdminController;
+import com.example.productDemo.Controller.ApiResponse;
+import com.example.productDemo.Event.DatabaseInvalidationBroadcaster;
+import com.example.productDemo.Event.ProductEventBus;
+import com.example.productDemo.Event.ProductJournal;
+import com.example.productDemo.Event.ProductStream;
+import com.example.productDemo.Service.HotProducts;
+import com.example.productDemo.Service.ProductReadCache;
+
+@ExtendWith(MockitoExtension.class)
+public class AdminControllerTest {
+
+    @InjectMocks
+    private AdminController adminController;
+
+    @Mock
+    private ProductEventBus productEventBus;
+
+    @Mock
+    private ProductJournal productJournal;
+
+    @Mock
+    private ProductStream productStream;
+
+    @Mock
+    private ProductReadCache productReadCache;
+
+    @Mock
+    private DatabaseInvalidationBroadcaster databaseInvalidationBroadcaster;
+
+    @Mock
+    private HotProducts hotProducts;
+
+    /**
+     * Test case for reading the event bus metrics.
+     * Scenario: The admin controller should return the bus metrics wrapped in an OK ApiResponse.
+     */
+    @Test
+    public void testGetEventBusMetrics() {
+        // Arrange
+        Map<String, Object> metrics = Map.of("ringSize", 8192, "published", 42L);
+        when(productEventBus.metrics()).thenReturn(metrics);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = adminController.getEventBusMetrics();
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(metrics, responseEntity.getBody().getData());
+    }
+
+    /**
+     * Test case for reading the write journal metrics.
+     * Scenario: The admin controller should return the journal metrics wrapped in an OK ApiResponse.
+     */
+    @Test
+    public void testGetJournalMetrics() {
+        // Arrange
+        Map<String, Object> metrics = Map.of("segments", 2, "nextSequence", 1001L);
+        when(productJournal.metrics()).thenReturn(metrics);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = adminController.getJournalMetrics();
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(metrics, responseEntity.getBody().getData());
+    }
+
+    /**
+     * Test case for reading the change stream metrics.
+     * Scenario: The admin controller should return the stream metrics wrapped in an OK ApiResponse.
+     */
+    @Test
+    public void testGetStreamMetrics() {
+        // Arrange
+        Map<String, Object> metrics = Map.of("subscribers", 12, "coalesced", 40L);
+        when(productStream.metrics()).thenReturn(metrics);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = adminController.getStreamMetrics();
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(metrics, responseEntity.getBody().getData());
+    }
+
+    /**
+     * Test case for reading the cross-node invalidation metrics.
+     * Scenario: The admin controller should return the cache metrics and each transport's metrics under
+     * its name, wrapped in an OK ApiResponse.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetInvalidationMetrics() {
+        // Arrange
+        ReflectionTestUtils.setField(adminController, "invalidationBroadcasters", List.of(databaseInvalidationBroadcaster));
+        Map<String, Object> cacheMetrics = Map.of("hits", 90L, "stalenessBoundMs", 800L);
+        Map<String, Object> transportMetrics = Map.of("received", 7L, "maxLagMs", 1200L);
+        when(productReadCache.metrics()).thenReturn(cacheMetrics);
+        when(databaseInvalidationBroadcaster.name()).thenReturn("database");
+        when(databaseInvalidationBroadcaster.metrics()).thenReturn(transportMetrics);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = adminController.getInvalidationMetrics();
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(cacheMetrics, responseEntity.getBody().getData().get("cache"));
+        assertEquals(transportMetrics, ((Map<String, Object>) responseEntity.getBody().getData().get("transports")).get("database"));
+    }
+
+    /**
+     * Test case for reading the hot products.
+     * Scenario: The admin controller should return the most read products, the most read review pages
+     * and the pinned products for a valid limit, and 400 for a limit that is not positive.
+     */
+    @Test
+    public void testGetHotProducts() {
+        // Arrange
+        List<Map<String, Object>> products = List.of(Map.of("productId", "PDNO_00007", "reads", 900L, "guaranteedReads", 850L));
+        when(hotProducts.top(HotProducts.Access.PRODUCT, 5)).thenReturn(products);
+        when(hotProducts.top(HotProducts.Access.REVIEWS, 5)).thenReturn(List.of());
+        when(productReadCache.pinnedIds()).thenReturn(Set.of("PDNO_00007"));
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = adminController.getHotProducts(5);
+        ResponseEntity<ApiResponse<Map<String, Object>>> invalid = adminController.getHotProducts(0);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(products, responseEntity.getBody().getData().get("products"));
+        assertEquals(Set.of("PDNO_00007"), responseEntity.getBody().getData().get("pinned"));
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+}
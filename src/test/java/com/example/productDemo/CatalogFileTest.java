@@ -0,0 +1,68 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Entity.Product.Offer;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Index.CatalogFile;
+
+public class CatalogFileTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Test case for writing and mapping a snapshot file.
+     * Scenario: Products added out of id order should be found by id with their summary fields,
+     * offers and missing ratings intact, and listed in id order.
+     */
+    @Test
+    public void testWriteAndFind() throws Exception {
+        // Arrange
+        Path path = directory.resolve("catalog.snapshot");
+        Offer offer = new Offer("20% discount", "SAVE20", LocalDate.of(2030, 1, 1), LocalDate.of(2030, 2, 1));
+        offer.setDiscountAmount(20.0);
+        try (CatalogFile.Writer writer = new CatalogFile.Writer(path)) {
+            writer.add(new ProductSummary("PDNO_00003", "Lamp", "Desk lamp é", 100.0, 4.5, 2, 80.0), List.of(offer));
+            writer.add(new ProductSummary("PDNO_00001", "Chair", "Oak chair", 50.0, null, 0, 50.0), List.of());
+            writer.finish();
+        }
+
+        // Act
+        CatalogFile file = CatalogFile.open(path);
+
+        // Assert
+        assertEquals(2, file.size());
+        assertEquals("PDNO_00001", file.summary(0).getId());
+        assertEquals("PDNO_00003", file.summary(1).getId());
+        assertFalse(file.findProduct("PDNO_00002").isPresent());
+
+        Product lamp = file.findProduct("PDNO_00003").get();
+        assertEquals("Lamp", lamp.getName());
+        assertEquals("Desk lamp é", lamp.getDescription());
+        assertEquals(100.0, lamp.getPrice());
+        assertEquals(4.5, lamp.getAverageRating());
+        assertEquals(80.0, lamp.getDiscountedPrice());
+        assertEquals(1, lamp.getOffers().size());
+        assertEquals("SAVE20", lamp.getOffers().get(0).getCouponCode());
+        assertEquals(LocalDate.of(2030, 2, 1), lamp.getOffers().get(0).getEndDate());
+        assertEquals(20.0, lamp.getOffers().get(0).getDiscountAmount());
+        assertTrue(lamp.getReviews().isEmpty());
+
+        assertNull(file.findProduct("PDNO_00001").get().getAverageRating());
+        // Only the finished file is left behind
+        assertEquals(1, Files.list(directory).count());
+    }
+}
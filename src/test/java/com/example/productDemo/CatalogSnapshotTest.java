@@ -0,0 +1,297 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Index.CatalogSnapshot;
+import com.example.productDemo.Repository.ProductSummaryRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogSnapshotTest {
+
+    @Mock
+    private ProductSummaryRepository productSummaryRepository;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @InjectMocks
+    private CatalogSnapshot catalogSnapshot;
+
+    private final Random random = new Random(42);
+    // What the database would hold: the expected answers are computed from this
+    private final Map<String, ProductSummary> table = new LinkedHashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(catalogSnapshot, "enabled", true);
+        ReflectionTestUtils.setField(catalogSnapshot, "pageSize", 50);
+        ReflectionTestUtils.setField(catalogSnapshot, "maxDelta", 25);
+
+        for (int i = 0; i < 300; i++) {
+            put(randomSummary(i));
+        }
+        List<ProductSummary> rows = new ArrayList<>(table.values());
+        when(shardRouter.shardCount()).thenReturn(1);
+        when(shardRouter.inTransactionOnShard(anyInt(), anyBoolean(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(2)).get());
+        when(productSummaryRepository.findPageAfter(eq(""), any())).thenReturn(rows.subList(0, 150));
+        when(productSummaryRepository.findPageAfter(eq(rows.get(149).getId()), any())).thenReturn(rows.subList(150, 300));
+        when(productSummaryRepository.findPageAfter(eq(rows.get(299).getId()), any())).thenReturn(Collections.emptyList());
+        catalogSnapshot.rebuild();
+    }
+
+    /**
+     * Test case for sorted, filtered pages straight after a build.
+     * Scenario: For every sortable field and direction, with and without filters, the snapshot
+     * should return the same pages and totals as sorting the table by (field, id).
+     */
+    @Test
+    public void testPagesMatchSortedTable() {
+        assertAllQueriesMatch();
+    }
+
+    /**
+     * Test case for writes applied after the build.
+     * Scenario: After updates, inserts and deletes (enough to start folding the delta into the base in the background),
+     * the snapshot should still answer exactly like the table.
+     */
+    @Test
+    public void testPagesMatchAfterWrites() {
+        for (int i = 0; i < 80; i++) {
+            int id = random.nextInt(400);
+            if (random.nextInt(4) == 0) {
+                table.remove(productId(id));
+                catalogSnapshot.removeAfterCommit(List.of(productId(id)));
+            } else {
+                ProductSummary summary = randomSummary(id);
+                put(summary);
+                catalogSnapshot.upsertAfterCommit(List.of(summary));
+            }
+            if (i % 20 == 0) {
+                assertAllQueriesMatch();
+            }
+        }
+        assertAllQueriesMatch();
+    }
+
+    /**
+     * Test case for patches applied out of commit order.
+     * Scenario: When the patches of several writes of the same products arrive shuffled, older ones
+     * after newer ones, the snapshot should keep the latest write of each product, deletes included.
+     */
+    @Test
+    public void testOlderPatchesAreDropped() {
+        List<Runnable> patches = new ArrayList<>();
+        for (long version = 1; version <= 60; version++) {
+            int id = random.nextInt(20);
+            long sequence = version;
+            if (random.nextInt(4) == 0) {
+                table.remove(productId(id));
+                patches.add(() -> catalogSnapshot.removeAfterCommit(List.of(productId(id)), () -> sequence));
+            } else {
+                ProductSummary summary = randomSummary(id);
+                put(summary);
+                patches.add(() -> catalogSnapshot.upsertAfterCommit(List.of(summary), () -> sequence));
+            }
+        }
+
+        Collections.shuffle(patches, random);
+        patches.forEach(Runnable::run);
+
+        assertAllQueriesMatch();
+    }
+
+    /**
+     * Test case for folding the delta into a new base.
+     * Scenario: When the delta grows past the limit, a compaction should run in the background while
+     * further writes keep patching the delta; once it is published the delta should be back under the
+     * limit, and no write made during the compaction should be lost.
+     */
+    @Test
+    public void testCompactionKeepsWritesMadeMeanwhile() {
+        // Arrange
+        for (int i = 0; i < 26; i++) {
+            ProductSummary summary = randomSummary(i);
+            put(summary);
+            catalogSnapshot.upsertAfterCommit(List.of(summary));
+        }
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            int id = 20 + random.nextInt(380);
+            if (random.nextInt(4) == 0) {
+                table.remove(productId(id));
+                catalogSnapshot.removeAfterCommit(List.of(productId(id)));
+            } else {
+                ProductSummary summary = randomSummary(id);
+                put(summary);
+                catalogSnapshot.upsertAfterCommit(List.of(summary));
+            }
+        }
+        CompletableFuture<?> compaction;
+        while ((compaction = (CompletableFuture<?>) ReflectionTestUtils.getField(catalogSnapshot, "compaction")) != null) {
+            compaction.join();
+        }
+
+        // Assert
+        Map<?, ?> delta = (Map<?, ?>) ReflectionTestUtils.getField(ReflectionTestUtils.getField(catalogSnapshot, "state"), "delta");
+        assertTrue(delta.size() <= 25, "delta " + delta.size());
+        assertAllQueriesMatch();
+        assertAllFacetCountsMatch();
+    }
+
+    /**
+     * Test case for facet counts.
+     * Scenario: Under each filter combination, before and after writes, the facet counts should
+     * equal the bucket counts of the matching rows of the table.
+     */
+    @Test
+    public void testFacetCountsMatchTable() {
+        assertAllFacetCountsMatch();
+        for (int i = 0; i < 60; i++) {
+            int id = random.nextInt(400);
+            if (random.nextInt(4) == 0) {
+                table.remove(productId(id));
+                catalogSnapshot.removeAfterCommit(List.of(productId(id)));
+            } else {
+                ProductSummary summary = randomSummary(id);
+                put(summary);
+                catalogSnapshot.upsertAfterCommit(List.of(summary));
+            }
+        }
+        assertAllFacetCountsMatch();
+    }
+
+    private void assertAllFacetCountsMatch() {
+        assertFacetCountsMatch(null, null, null);
+        assertFacetCountsMatch(20.0, 60.0, null);
+        assertFacetCountsMatch(null, 75.5, 3.0);
+        assertFacetCountsMatch(500.0, null, null);
+    }
+
+    private void assertFacetCountsMatch(Double minPrice, Double maxPrice, Double minRating) {
+        Map<String, Map<String, Long>> expected = new LinkedHashMap<>();
+        table.values().stream()
+                .filter(s -> (minPrice == null || s.getPrice() >= minPrice) && (maxPrice == null || s.getPrice() <= maxPrice)
+                        && (minRating == null || (s.getAverageRating() != null && s.getAverageRating() >= minRating)))
+                .forEach(s -> {
+                    int priceBucket = 0;
+                    for (double bound : new double[] {25, 50, 100, 250, 500}) {
+                        priceBucket += s.getPrice() >= bound ? 1 : 0;
+                    }
+                    String rating = s.getAverageRating() == null ? "none"
+                            : new String[] {"0-1", "1-2", "2-3", "3-4", "4-5"}[Math.min(4, (int) Math.floor(s.getAverageRating()))];
+                    String reviews = s.getReviewCount() == 0 ? "0" : s.getReviewCount() < 5 ? "1-4" : s.getReviewCount() < 20 ? "5-19" : "20+";
+                    increment(expected, "price", new String[] {"0-25", "25-50", "50-100", "100-250", "250-500", "500+"}[priceBucket]);
+                    increment(expected, "averageRating", rating);
+                    increment(expected, "activeOffer", String.valueOf(s.hasActiveOffer()));
+                    increment(expected, "reviewCount", reviews);
+                });
+
+        Map<String, Map<String, Long>> counts = catalogSnapshot.facetCounts(minPrice, maxPrice, minRating).get();
+
+        String query = "price " + minPrice + ".." + maxPrice + " rating " + minRating;
+        for (Map.Entry<String, Map<String, Long>> facet : counts.entrySet()) {
+            for (Map.Entry<String, Long> value : facet.getValue().entrySet()) {
+                long expectedCount = expected.getOrDefault(facet.getKey(), Map.of()).getOrDefault(value.getKey(), 0L);
+                assertEquals(expectedCount, value.getValue(), query + " " + facet.getKey() + "=" + value.getKey());
+            }
+        }
+        expected.forEach((facet, values) -> assertTrue(counts.get(facet).keySet().containsAll(values.keySet()), query + " " + facet));
+    }
+
+    private static void increment(Map<String, Map<String, Long>> counts, String facet, String value) {
+        counts.computeIfAbsent(facet, key -> new LinkedHashMap<>()).merge(value, 1L, Long::sum);
+    }
+
+    private void assertAllQueriesMatch() {
+        for (String field : ProductSummary.SORTABLE_FIELDS) {
+            for (Sort.Direction direction : Sort.Direction.values()) {
+                Sort sort = field.equals("id") ? Sort.by(direction, "id") : Sort.by(direction, field).and(Sort.by("id"));
+                assertQueryMatches(null, null, null, PageRequest.of(0, 500, sort));
+                assertQueryMatches(20.0, 60.0, null, PageRequest.of(1, 7, sort));
+                assertQueryMatches(null, 75.5, 3.0, PageRequest.of(2, 5, sort));
+            }
+        }
+    }
+
+    private void assertQueryMatches(Double minPrice, Double maxPrice, Double minRating, Pageable pageable) {
+        List<ProductSummary> expected = table.values().stream()
+                .filter(s -> (minPrice == null || s.getPrice() >= minPrice) && (maxPrice == null || s.getPrice() <= maxPrice)
+                        && (minRating == null || (s.getAverageRating() != null && s.getAverageRating() >= minRating)))
+                .sorted(order(pageable.getSort()))
+                .collect(Collectors.toList());
+
+        Page<ProductSummary> page = catalogSnapshot.findSummaries(minPrice, maxPrice, minRating, pageable).get();
+
+        String query = pageable + " price " + minPrice + ".." + maxPrice + " rating " + minRating;
+        assertEquals(expected.size(), page.getTotalElements(), query);
+        List<String> expectedIds = expected.stream().skip(pageable.getOffset()).limit(pageable.getPageSize())
+                .map(ProductSummary::getId).collect(Collectors.toList());
+        assertEquals(expectedIds, page.getContent().stream().map(ProductSummary::getId).collect(Collectors.toList()), query);
+    }
+
+    // Database ordering: missing ratings first, then the sort field, then id ascending
+    private static Comparator<ProductSummary> order(Sort sort) {
+        Comparator<ProductSummary> order = (a, b) -> 0;
+        for (Sort.Order property : sort) {
+            Comparator<ProductSummary> comparator;
+            switch (property.getProperty()) {
+                case "name": comparator = Comparator.comparing(ProductSummary::getName, String.CASE_INSENSITIVE_ORDER); break;
+                case "price": comparator = Comparator.comparingDouble(ProductSummary::getPrice); break;
+                case "discountedPrice": comparator = Comparator.comparingDouble(ProductSummary::getDiscountedPrice); break;
+                case "averageRating": comparator = Comparator.comparing(ProductSummary::getAverageRating, Comparator.nullsFirst(Comparator.naturalOrder())); break;
+                case "reviewCount": comparator = Comparator.comparingInt(ProductSummary::getReviewCount); break;
+                default: comparator = Comparator.comparing(ProductSummary::getId);
+            }
+            order = order.thenComparing(property.isDescending() ? comparator.reversed() : comparator);
+        }
+        return order;
+    }
+
+    private void put(ProductSummary summary) {
+        table.put(summary.getId(), summary);
+    }
+
+    // Few distinct prices, ratings and counts, so ties are common
+    private ProductSummary randomSummary(int id) {
+        double price = 10 + random.nextInt(20) * 4.5;
+        Double rating = random.nextInt(5) == 0 ? null : (1 + random.nextInt(400) / 100.0);
+        return new ProductSummary(productId(id), "Name" + random.nextInt(100000) + "x" + id, "Description" + random.nextInt(5),
+                price, rating, random.nextInt(6) * random.nextInt(6), Math.round(price * 0.9 * 100.0) / 100.0, random.nextBoolean());
+    }
+
+    private static String productId(int id) {
+        return "PDNO_" + String.format("%05d", id);
+    }
+}
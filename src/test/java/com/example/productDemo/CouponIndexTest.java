@@ -0,0 +1,87 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.Product.Offer;
+import com.example.productDemo.Index.CouponIndex;
+import com.example.productDemo.Repository.ProductRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class CouponIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @InjectMocks
+    private CouponIndex couponIndex;
+
+    /**
+     * Test case for keeping the coupon index current.
+     * Scenario: After a build, a replaced offer should move to its new coupon, a deleted product
+     * should disappear, and an ended offer should be skipped and then pruned.
+     */
+    @Test
+    public void testLookupsFollowWrites() {
+        // Arrange
+        ReflectionTestUtils.setField(couponIndex, "enabled", true);
+        LocalDate today = LocalDate.now();
+        Offer first = offer("SAVE10", today.minusDays(1), today.plusDays(5));
+        Offer second = offer("SAVE10", today.plusDays(1), today.plusDays(5));
+        Offer ended = offer("SAVE20", today.minusDays(10), today.minusDays(1));
+        when(shardRouter.shardCount()).thenReturn(1);
+        when(shardRouter.inTransactionOnShard(anyInt(), anyBoolean(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(2)).get());
+        when(productRepository.findIdsAfter(eq(""), any())).thenReturn(List.of("PDNO_00001", "PDNO_00002", "PDNO_00003"));
+        when(productRepository.findIdsAfter(eq("PDNO_00003"), any())).thenReturn(Collections.emptyList());
+        when(productRepository.findOffersByProductIds(List.of("PDNO_00001", "PDNO_00002", "PDNO_00003"))).thenReturn(List.of(
+                new Object[] {"PDNO_00001", first}, new Object[] {"PDNO_00002", second}, new Object[] {"PDNO_00003", ended}));
+
+        // Act
+        couponIndex.rebuild();
+
+        // Assert
+        assertEquals(Set.of("PDNO_00001", "PDNO_00002"), couponIndex.find("SAVE10", null).get().keySet());
+        assertEquals(first, couponIndex.find("SAVE10", "PDNO_00001").get().get("PDNO_00001"));
+        assertTrue(couponIndex.find("SAVE20", null).get().isEmpty());
+
+        // Act: the first product's offer is replaced, the second product is deleted
+        Offer replacement = offer("SAVE30", today, today.plusDays(5));
+        couponIndex.replaceAfterCommit(List.of("PDNO_00001"), List.<Object[]>of(new Object[] {"PDNO_00001", replacement}));
+        couponIndex.removeAfterCommit(List.of("PDNO_00002"));
+        couponIndex.pruneExpired();
+
+        // Assert
+        assertTrue(couponIndex.find("SAVE10", null).get().isEmpty());
+        assertTrue(couponIndex.find("SAVE10", "PDNO_00001").get().isEmpty());
+        assertEquals(replacement, couponIndex.find("SAVE30", "PDNO_00001").get().get("PDNO_00001"));
+        assertTrue(couponIndex.find("SAVE20", "PDNO_00003").get().isEmpty());
+    }
+
+    private static Offer offer(String couponCode, LocalDate startDate, LocalDate endDate) {
+        Offer offer = new Offer("10% discount", couponCode, startDate, endDate);
+        offer.setDiscountAmount(1.0);
+        return offer;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.Service.HotProducts;
+
+public class HotProductsTest {
+
+    /**
+     * Test case for ranking products read from many threads.
+     * Scenario: Reads counted in different stripes should add up, so the top products and their
+     * bounds reflect all threads, and only products certainly read often enough are pin candidates.
+     */
+    @Test
+    public void testMergesStripesAndSelectsPinCandidates() throws Exception {
+        // Arrange
+        HotProducts hotProducts = new HotProducts();
+        ReflectionTestUtils.setField(hotProducts, "enabled", true);
+        ReflectionTestUtils.setField(hotProducts, "capacity", 64);
+        ReflectionTestUtils.setField(hotProducts, "pinMinReads", 500L);
+        hotProducts.start();
+        ExecutorService readers = Executors.newFixedThreadPool(8);
+
+        // Act: per thread, 200 reads of product 1, 100 of product 2 and 1000 spread over 5000 others
+        List<Future<?>> done = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread;
+            done.add(readers.submit(() -> {
+                for (int i = 0; i < 1300; i++) {
+                    String productId = i < 200 ? "PDNO_00001" : i < 300 ? "PDNO_00002" : String.format("PDNO_%05d", 10 + (i * 7 + offset * 13) % 5000);
+                    hotProducts.record(HotProducts.Access.PRODUCT, productId);
+                }
+            }));
+        }
+        for (Future<?> future : done) {
+            future.get();
+        }
+        readers.shutdown();
+        List<Map<String, Object>> top = hotProducts.top(HotProducts.Access.PRODUCT, 2);
+
+        // Assert
+        assertEquals("PDNO_00001", top.get(0).get("productId"));
+        assertEquals("PDNO_00002", top.get(1).get("productId"));
+        long reads = (Long) top.get(0).get("reads");
+        long guaranteedReads = (Long) top.get(0).get("guaranteedReads");
+        assertTrue(guaranteedReads <= 1600 && reads >= 1600, reads + " / " + guaranteedReads);
+        assertEquals(List.of("PDNO_00001"), hotProducts.pinCandidates().subList(0, 1));
+        assertTrue(hotProducts.top(HotProducts.Access.REVIEWS, 10).isEmpty());
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Event.DatabaseInvalidationBroadcaster;
+import com.example.productDemo.Event.Invalidation;
+import com.example.productDemo.Event.InvalidationBroadcaster;
+import com.example.productDemo.Event.InvalidationListener;
+import com.example.productDemo.Event.ProductEvent;
+import com.example.productDemo.Event.ProductEventBus;
+import com.example.productDemo.Event.UdpInvalidationBroadcaster;
+import com.example.productDemo.Index.CatalogFileStore;
+import com.example.productDemo.Repository.ProductRepository;
+
+public class InvalidationBroadcasterTest {
+
+    private final List<InvalidationBroadcaster> broadcasters = new ArrayList<>();
+    private final List<ProductEventBus> buses = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        broadcasters.forEach(InvalidationBroadcaster::stop);
+        buses.forEach(ProductEventBus::stop);
+    }
+
+    /**
+     * Test case for polling the change feed of the shared database.
+     * Scenario: Changes made by other nodes should be delivered and this node's own skipped; when the
+     * feed was pruned past the cursor, everything should be invalidated and polling resume from the head.
+     */
+    @Test
+    public void testDatabasePollingSkipsOwnChangesAndDetectsPrunedFeed() throws Exception {
+        // Arrange
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        CatalogFileStore catalogFileStore = mock(CatalogFileStore.class);
+        when(shardRouter.shardCount()).thenReturn(1);
+        when(shardRouter.inTransactionOnShard(anyInt(), anyBoolean(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(2)).get());
+        when(productRepository.findLastChangeSequence()).thenReturn(10L, 20L);
+        long changedAt = System.currentTimeMillis() - 300;
+        when(productRepository.findChangesAfter(10L, 1000)).thenReturn(List.of(
+                change(11, "PDNO_00001", "UPDATED", changedAt, "node-a"), change(12, "PDNO_00002", "DELETED", changedAt, "node-b")));
+        when(productRepository.findChangesAfter(12L, 1000)).thenReturn(List.<Object[]>of(
+                change(15, "PDNO_00003", "UPDATED", changedAt, "node-b")));
+
+        DatabaseInvalidationBroadcaster broadcaster = new DatabaseInvalidationBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "productRepository", productRepository);
+        ReflectionTestUtils.setField(broadcaster, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(broadcaster, "catalogFileStore", catalogFileStore);
+        ReflectionTestUtils.setField(broadcaster, "enabled", true);
+        ReflectionTestUtils.setField(broadcaster, "changesEnabled", true);
+        ReflectionTestUtils.setField(broadcaster, "pollMs", 60000L);
+        RecordingListener listener = new RecordingListener();
+        broadcaster.start("node-a", listener);
+        broadcasters.add(broadcaster);
+        waitFor(() -> "10".equals(broadcaster.metrics().get("cursor")));
+
+        // Act
+        broadcaster.poll();
+        broadcaster.poll();
+
+        // Assert
+        assertEquals(List.of("PDNO_00002"), listener.productIds());
+        assertEquals(ProductEvent.Type.DELETED, listener.invalidations.get(0).getType());
+        assertEquals(1, listener.invalidateAllCalls.get());
+        assertEquals("20", broadcaster.metrics().get("cursor"));
+        assertEquals(1L, broadcaster.metrics().get("ownChangesSkipped"));
+        assertTrue((Long) broadcaster.metrics().get("maxLagMs") >= 300);
+        assertTrue(broadcaster.stalenessBoundMs() < 60000);
+    }
+
+    /**
+     * Test case for the UDP transport between two nodes on one host.
+     * Scenario: A burst of changes committed on one node should reach the other in several datagrams,
+     * each product once, tagged with the sending node.
+     */
+    @Test
+    public void testUdpDeliversBurstAcrossDatagrams() throws Exception {
+        // Arrange
+        RecordingListener receiverListener = new RecordingListener();
+        UdpInvalidationBroadcaster receiver = startUdp("node-b", "", receiverListener);
+        UdpInvalidationBroadcaster sender = startUdp("node-a", "127.0.0.1:" + receiver.localPort(), new RecordingListener());
+        List<String> ids = IntStream.range(0, 200).mapToObj(i -> String.format("PDNO_%05d", i)).collect(Collectors.toList());
+
+        // Act
+        busOf(sender).publishAfterCommit(ProductEvent.Type.UPDATED, ids, List.of());
+        waitFor(() -> receiverListener.invalidations.size() == ids.size());
+
+        // Assert
+        assertEquals(ids, receiverListener.productIds());
+        assertTrue(receiverListener.invalidations.stream().allMatch(invalidation -> "node-a".equals(invalidation.getOriginNode())));
+        assertTrue((Long) sender.metrics().get("datagramsSent") > 1);
+        assertEquals(200L, receiver.metrics().get("received"));
+    }
+
+    private UdpInvalidationBroadcaster startUdp(String nodeId, String peers, InvalidationListener listener) {
+        ProductEventBus bus = new ProductEventBus();
+        ReflectionTestUtils.setField(bus, "enabled", true);
+        ReflectionTestUtils.setField(bus, "ringSize", 256);
+        bus.start();
+        buses.add(bus);
+        UdpInvalidationBroadcaster broadcaster = new UdpInvalidationBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "productEventBus", bus);
+        ReflectionTestUtils.setField(broadcaster, "enabled", true);
+        ReflectionTestUtils.setField(broadcaster, "port", 0);
+        ReflectionTestUtils.setField(broadcaster, "peers", peers);
+        broadcaster.start(nodeId, listener);
+        broadcasters.add(broadcaster);
+        return broadcaster;
+    }
+
+    private ProductEventBus busOf(UdpInvalidationBroadcaster broadcaster) {
+        return (ProductEventBus) ReflectionTestUtils.getField(broadcaster, "productEventBus");
+    }
+
+    private Object[] change(long sequence, String productId, String type, long changedAt, String originNode) {
+        return new Object[] { sequence, productId, type, new Timestamp(changedAt), originNode };
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (int attempt = 0; attempt < 500 && !condition.getAsBoolean(); attempt++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    //***Collects what a broadcaster delivers***
+    private static final class RecordingListener implements InvalidationListener {
+
+        private final List<Invalidation> invalidations = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger invalidateAllCalls = new AtomicInteger();
+
+        @Override
+        public void invalidate(List<Invalidation> delivered) {
+            invalidations.addAll(delivered);
+        }
+
+        @Override
+        public void invalidateAll() {
+            invalidateAllCalls.incrementAndGet();
+        }
+
+        List<String> productIds() {
+            synchronized (invalidations) {
+                return invalidations.stream().map(Invalidation::getProductId).collect(Collectors.toList());
+            }
+        }
+    }
+}
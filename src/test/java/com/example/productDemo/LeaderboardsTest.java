@@ -0,0 +1,132 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Index.Leaderboards;
+import com.example.productDemo.Repository.ProductSummaryRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class LeaderboardsTest {
+
+    @Mock
+    private ProductSummaryRepository productSummaryRepository;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @InjectMocks
+    private Leaderboards leaderboards;
+
+    private final Random random = new Random(11);
+    // What the database would hold: the expected boards are computed from this
+    private final Map<String, ProductSummary> table = new LinkedHashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(leaderboards, "enabled", true);
+
+        for (int i = 0; i < 200; i++) {
+            put(randomSummary(i));
+        }
+        List<ProductSummary> rows = new ArrayList<>(table.values());
+        when(shardRouter.shardCount()).thenReturn(1);
+        when(shardRouter.inTransactionOnShard(anyInt(), anyBoolean(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(2)).get());
+        when(productSummaryRepository.findPageAfter(eq(""), any())).thenReturn(rows);
+        when(productSummaryRepository.findPageAfter(eq(rows.get(199).getId()), any())).thenReturn(Collections.emptyList());
+        leaderboards.rebuild();
+    }
+
+    /**
+     * Test case for leaderboard pages after re-ranking writes.
+     * Scenario: After every batch of new, re-scored and deleted products, each page of both boards
+     * should match sorting the table, with unrated products left off the top-rated board.
+     */
+    @Test
+    public void testPagesMatchAfterWrites() {
+        assertBoardsMatch();
+        int nextId = 200;
+        for (int batch = 0; batch < 20; batch++) {
+            List<String> ids = new ArrayList<>(table.keySet());
+            List<ProductSummary> upserts = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int choice = random.nextInt(3);
+                if (choice == 0) {
+                    upserts.add(randomSummary(nextId++));
+                } else if (choice == 1) {
+                    upserts.add(randomSummary(Integer.parseInt(ids.get(random.nextInt(ids.size())).substring(5))));
+                } else {
+                    removed.add(ids.get(random.nextInt(ids.size())));
+                }
+            }
+            upserts.forEach(this::put);
+            removed.forEach(table::remove);
+            leaderboards.upsertAfterCommit(upserts);
+            leaderboards.removeAfterCommit(removed);
+
+            assertBoardsMatch();
+        }
+    }
+
+    private void assertBoardsMatch() {
+        Comparator<ProductSummary> byId = Comparator.comparing(ProductSummary::getId);
+        List<ProductSummary> topRated = table.values().stream()
+                .filter(summary -> summary.getAverageRating() != null)
+                .sorted(Comparator.comparing(ProductSummary::getAverageRating, Comparator.reverseOrder()).thenComparing(byId))
+                .collect(Collectors.toList());
+        List<ProductSummary> cheapest = table.values().stream()
+                .sorted(Comparator.comparingDouble(ProductSummary::getDiscountedPrice).thenComparing(byId))
+                .collect(Collectors.toList());
+        assertPagesMatch(Leaderboards.TOP_RATED, topRated);
+        assertPagesMatch(Leaderboards.CHEAPEST, cheapest);
+    }
+
+    private void assertPagesMatch(String board, List<ProductSummary> expected) {
+        for (int page = 0; page * 15 <= expected.size(); page++) {
+            Page<ProductSummary> actual = leaderboards.page(board, PageRequest.of(page, 15)).get();
+            List<String> expectedIds = expected.stream().skip(page * 15L).limit(15).map(ProductSummary::getId).collect(Collectors.toList());
+            assertEquals(expectedIds, actual.getContent().stream().map(ProductSummary::getId).collect(Collectors.toList()), board + " page " + page);
+            assertEquals(expected.size(), actual.getTotalElements(), board + " total");
+        }
+    }
+
+    private void put(ProductSummary summary) {
+        table.put(summary.getId(), summary);
+    }
+
+    // Coarse ratings and prices, so many products tie on their score
+    private ProductSummary randomSummary(int number) {
+        double price = 5.0 * (1 + random.nextInt(20));
+        Double rating = random.nextInt(4) == 0 ? null : random.nextInt(9) / 2.0 + 0.5;
+        double discountedPrice = price * (random.nextBoolean() ? 1.0 : 0.8);
+        return new ProductSummary(String.format("PDNO_%05d", number), "Product " + number, "description", price,
+                rating, random.nextInt(10), discountedPrice);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Index.NameSuggester;
+import com.example.productDemo.Index.PrefixTrie;
+import com.example.productDemo.Repository.ProductSummaryRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class NameSuggesterTest {
+
+    // Most reviewed first, then best rated (unrated last), then name and id
+    private static final Comparator<ProductSummary> RANK = Comparator.comparingInt(ProductSummary::getReviewCount).reversed()
+            .thenComparing(ProductSummary::getAverageRating, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing((ProductSummary summary) -> summary.getName().toLowerCase(Locale.ROOT))
+            .thenComparing(ProductSummary::getId);
+
+    @Mock
+    private ProductSummaryRepository productSummaryRepository;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @InjectMocks
+    private NameSuggester nameSuggester;
+
+    private final Random random = new Random(7);
+    // What the database would hold: the expected suggestions are computed from this
+    private final Map<String, ProductSummary> table = new LinkedHashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(nameSuggester, "enabled", true);
+        ReflectionTestUtils.setField(nameSuggester, "maxResults", 5);
+        ReflectionTestUtils.setField(nameSuggester, "maxDelta", 20);
+
+        for (int i = 0; i < 400; i++) {
+            put(randomSummary(i));
+        }
+        List<ProductSummary> rows = new ArrayList<>(table.values());
+        when(shardRouter.shardCount()).thenReturn(1);
+        when(shardRouter.inTransactionOnShard(anyInt(), anyBoolean(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(2)).get());
+        when(productSummaryRepository.findPageAfter(eq(""), any())).thenReturn(rows);
+        when(productSummaryRepository.findPageAfter(eq(rows.get(399).getId()), any())).thenReturn(Collections.emptyList());
+        nameSuggester.rebuild();
+    }
+
+    /**
+     * Test case for suggestions straight after a build.
+     * Scenario: For every prefix of up to three letters, in either case, and every limit, the
+     * suggester should return the same products as ranking every matching name in the table.
+     */
+    @Test
+    public void testSuggestionsMatchTable() {
+        assertAllPrefixesMatch();
+    }
+
+    /**
+     * Test case for suggestions after creates, updates and deletes.
+     * Scenario: Random writes patched into the suggester (enough of them to fold the delta into
+     * new tries several times) should leave it answering like the table after every batch.
+     */
+    @Test
+    public void testSuggestionsMatchAfterWrites() {
+        int nextId = 400;
+        List<String> ids = new ArrayList<>(table.keySet());
+        for (int batch = 0; batch < 15; batch++) {
+            List<ProductSummary> upserts = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                int choice = random.nextInt(3);
+                if (choice == 0) {
+                    upserts.add(randomSummary(nextId++));
+                } else if (choice == 1 && !ids.isEmpty()) {
+                    upserts.add(randomSummary(Integer.parseInt(ids.get(random.nextInt(ids.size())).substring(5))));
+                } else if (!ids.isEmpty()) {
+                    removed.add(ids.remove(random.nextInt(ids.size())));
+                }
+            }
+            upserts.forEach(this::put);
+            upserts.forEach(summary -> {
+                if (!ids.contains(summary.getId())) {
+                    ids.add(summary.getId());
+                }
+            });
+            removed.forEach(table::remove);
+            nameSuggester.upsertAfterCommit(upserts);
+            nameSuggester.removeAfterCommit(removed);
+
+            assertAllPrefixesMatch();
+        }
+    }
+
+    private void assertAllPrefixesMatch() {
+        List<String> prefixes = new ArrayList<>(List.of("", "Q"));
+        for (char first = 'a'; first <= 'c'; first++) {
+            prefixes.add(String.valueOf(first));
+            for (char second = 'a'; second <= 'c'; second++) {
+                prefixes.add("" + first + second);
+                prefixes.add(("" + first + second).toUpperCase(Locale.ROOT));
+                for (char third = 'a'; third <= 'c'; third++) {
+                    prefixes.add("" + first + second + third);
+                }
+            }
+        }
+        for (String prefix : prefixes) {
+            for (int limit : new int[] {1, 3, 5, 8}) {
+                List<String> expected = table.values().stream()
+                        .filter(summary -> summary.getName().toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT)))
+                        .sorted(RANK)
+                        .limit(Math.min(limit, 5))
+                        .map(ProductSummary::getId)
+                        .collect(Collectors.toList());
+                List<String> actual = nameSuggester.suggest(prefix, limit).get().stream()
+                        .map(PrefixTrie.Entry::getId)
+                        .collect(Collectors.toList());
+                assertEquals(expected, actual, "prefix " + prefix + ", limit " + limit);
+            }
+        }
+    }
+
+    private void put(ProductSummary summary) {
+        table.put(summary.getId(), summary);
+    }
+
+    // Short names over a small alphabet, so many share prefixes and some are prefixes of others
+    private ProductSummary randomSummary(int number) {
+        StringBuilder name = new StringBuilder();
+        int length = 1 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            char letter = (char) ('a' + random.nextInt(3));
+            name.append(random.nextInt(4) == 0 ? Character.toUpperCase(letter) : letter);
+        }
+        Double rating = random.nextInt(5) == 0 ? null : random.nextInt(9) / 2.0 + 0.5;
+        return new ProductSummary(String.format("PDNO_%05d", number), name.toString(), "description", 10.0,
+                rating, random.nextInt(4), 10.0);
+    }
+}
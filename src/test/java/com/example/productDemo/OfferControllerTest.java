@@ -0,0 +1,112 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.example.productDemo.Controller.ApiResponse;
+import com.example.productDemo.Controller.OfferController;
+import com.example.productDemo.Service.ProductService;
+
+@ExtendWith(MockitoExtension.class)
+public class OfferControllerTest {
+
+    @InjectMocks
+    private OfferController offerController;
+
+    @Mock
+    private ProductService productService;
+
+    /**
+     * Test case for looking up a coupon code.
+     * Scenario: When offers carry the coupon, the offer controller should return them
+     * wrapped in an OK ApiResponse.
+     */
+    @Test
+    public void testGetOffersByCoupon_Success() {
+        // Arrange
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("productId", "PDNO_00001");
+        offer.put("couponCode", "SAVE25");
+        when(productService.findOffersByCoupon("SAVE25", null)).thenReturn(List.of(offer));
+
+        // Act
+        ResponseEntity<Object> responseEntity = offerController.getOffersByCoupon("SAVE25", null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(List.of(offer), ((ApiResponse<?>) responseEntity.getBody()).getData());
+    }
+
+    /**
+     * Test case for a coupon that is not valid for a product.
+     * Scenario: When the product has no current offer with the coupon, the offer controller
+     * should return a NOT_FOUND response.
+     */
+    @Test
+    public void testGetOffersByCoupon_NotValidForProduct() {
+        // Arrange
+        when(productService.findOffersByCoupon("SAVE25", "PDNO_00002")).thenReturn(List.of());
+
+        // Act
+        ResponseEntity<Object> responseEntity = offerController.getOffersByCoupon("SAVE25", "PDNO_00002");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
+        assertEquals("Coupon SAVE25 is not valid for product PDNO_00002", ((ApiResponse<?>) responseEntity.getBody()).getMessage());
+    }
+
+    /**
+     * Test case for redeeming a coupon.
+     * Scenario: When the coupon's offer is running for the product, the offer controller should
+     * return the redeemed offer wrapped in an OK ApiResponse.
+     */
+    @Test
+    public void testRedeemCoupon_Success() {
+        // Arrange
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("productId", "PDNO_00001");
+        offer.put("couponCode", "SAVE25");
+        offer.put("maxRedemptions", 1000);
+        when(productService.redeemCoupon("SAVE25", "PDNO_00001")).thenReturn(Optional.of(offer));
+
+        // Act
+        ResponseEntity<Object> responseEntity = offerController.redeemCoupon("SAVE25", "PDNO_00001");
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(offer, ((ApiResponse<?>) responseEntity.getBody()).getData());
+    }
+
+    /**
+     * Test case for redeeming a coupon whose cap is used up.
+     * Scenario: When the offer has reached its redemption limit, the offer controller should
+     * return a CONFLICT response.
+     */
+    @Test
+    public void testRedeemCoupon_LimitReached() {
+        // Arrange
+        when(productService.redeemCoupon("SAVE25", "PDNO_00001"))
+                .thenThrow(new IllegalStateException("Coupon SAVE25 has reached its redemption limit for product PDNO_00001"));
+
+        // Act
+        ResponseEntity<Object> responseEntity = offerController.redeemCoupon("SAVE25", "PDNO_00001");
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, responseEntity.getStatusCode());
+        assertEquals("Coupon SAVE25 has reached its redemption limit for product PDNO_00001",
+                ((ApiResponse<?>) responseEntity.getBody()).getMessage());
+    }
+}
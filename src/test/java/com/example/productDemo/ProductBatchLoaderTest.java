@@ -0,0 +1,141 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Repository.ProductRepository;
+import com.example.productDemo.Service.ProductBatchLoader;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductBatchLoaderTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @InjectMocks
+    private ProductBatchLoader productBatchLoader;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(productBatchLoader, "enabled", true);
+        ReflectionTestUtils.setField(productBatchLoader, "windowMs", 100L);
+        ReflectionTestUtils.setField(productBatchLoader, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(productBatchLoader, "dispatchThreads", 4);
+        productBatchLoader.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productBatchLoader.stop();
+    }
+
+    /**
+     * Test case for lookups arriving together while no batch is loading.
+     * Scenario: When many threads look products up at the same moment, only the first should go out
+     * at once; the others should wait for it and be merged into one more batch, not one batch each.
+     */
+    @Test
+    public void testConcurrentFirstLookupsAreMerged() throws Exception {
+        // Arrange
+        CountDownLatch allQueued = new CountDownLatch(8);
+        List<List<String>> batches = new ArrayList<>();
+        when(shardRouter.groupByShard(any())).thenAnswer(call -> Map.of(0, new ArrayList<>((Collection<String>) call.getArgument(0))));
+        when(shardRouter.inTransactionOnShard(anyInt(), anyBoolean(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(2)).get());
+        when(productRepository.findAllById(any())).thenAnswer(call -> {
+            List<String> ids = new ArrayList<>((Collection<String>) call.getArgument(0));
+            synchronized (batches) {
+                batches.add(ids);
+            }
+            // The first batch stays in flight until every lookup has been queued
+            allQueued.await(5, TimeUnit.SECONDS);
+            return ids.stream().map(this::product).collect(Collectors.toList());
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        List<Future<CompletableFuture<Optional<Product>>>> lookups = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            String productId = String.format("PDNO_%05d", i);
+            lookups.add(callers.submit(() -> {
+                start.await();
+                CompletableFuture<Optional<Product>> future = productBatchLoader.loadAsync(productId);
+                allQueued.countDown();
+                return future;
+            }));
+        }
+        start.countDown();
+        List<Optional<Product>> products = new ArrayList<>();
+        for (Future<CompletableFuture<Optional<Product>>> lookup : lookups) {
+            products.add(lookup.get().get(5, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+
+        // Assert
+        assertEquals(2, batches.size(), batches.toString());
+        assertEquals(1, batches.get(0).size());
+        assertEquals(7, batches.get(1).size());
+        assertTrue(products.stream().allMatch(Optional::isPresent));
+    }
+
+    /**
+     * Test case for lookups after the loader has shut down.
+     * Scenario: When the dispatcher refuses a batch, its lookups should fail at once and the batch
+     * should not stay counted in flight, which would make every later lookup wait the window.
+     */
+    @Test
+    public void testRejectedBatchFailsAndIsNotLeftInFlight() {
+        // Arrange
+        productBatchLoader.stop();
+
+        // Act
+        CompletableFuture<Optional<Product>> lookup = productBatchLoader.loadAsync("PDNO_00001");
+
+        // Assert
+        assertTrue(lookup.isCompletedExceptionally());
+        ExecutionException failure = assertThrows(ExecutionException.class, lookup::get);
+        assertTrue(failure.getCause() instanceof RejectedExecutionException);
+        assertEquals(0, ReflectionTestUtils.getField(productBatchLoader, "inFlight"));
+    }
+
+    private Product product(String id) {
+        Product product = new Product();
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Repository.ProductRepository;
+import com.example.productDemo.Service.ProductChangeLog;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductChangeLogTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @InjectMocks
+    private ProductChangeLog productChangeLog;
+
+    /**
+     * Test case for reading the change feed across shards.
+     * Scenario: Changes of two shards should be merged by change time, each shard in sequence order,
+     * with a cursor advanced per shard; a cursor whose next change was pruned should be refused.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMergesShardsAndDetectsPrunedCursor() {
+        // Arrange
+        when(shardRouter.shardCount()).thenReturn(2);
+        when(shardRouter.scatter(any())).thenAnswer(call -> {
+            List<Object> results = new ArrayList<>();
+            for (int shard = 0; shard < 2; shard++) {
+                results.add(((IntFunction<Object>) call.getArgument(0)).apply(shard));
+            }
+            return results;
+        });
+        when(shardRouter.inTransactionOnShard(anyInt(), anyBoolean(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(2)).get());
+        when(productRepository.findChangesAfter(3L, 4)).thenReturn(List.of(
+                change(4, "PDNO_00002", "UPDATED", 1000), change(5, "PDNO_00004", "DELETED", 3000)));
+        when(productRepository.findChangesAfter(9L, 4)).thenReturn(List.of(
+                change(10, "PDNO_00001", "CREATED", 2000), change(11, "PDNO_00003", "REVIEW_ADDED", 4000)));
+        when(productRepository.findChangesAfter(1L, 4)).thenReturn(List.<Object[]>of(change(4, "PDNO_00002", "UPDATED", 1000)));
+
+        // Act
+        Optional<Map<String, Object>> page = productChangeLog.changesSince("3,9", 3);
+        Optional<Map<String, Object>> pruned = productChangeLog.changesSince("1,9", 3);
+
+        // Assert
+        List<Map<String, Object>> changes = (List<Map<String, Object>>) page.get().get("changes");
+        assertEquals(List.of("PDNO_00002", "PDNO_00001", "PDNO_00004"),
+                changes.stream().map(change -> change.get("productId")).collect(Collectors.toList()));
+        assertEquals("5,10", page.get().get("next"));
+        assertEquals(true, page.get().get("hasMore"));
+        assertFalse(pruned.isPresent());
+    }
+
+    private Object[] change(long sequence, String productId, String type, long changedAt) {
+        return new Object[] { sequence, productId, type, new Timestamp(changedAt) };
+    }
+}
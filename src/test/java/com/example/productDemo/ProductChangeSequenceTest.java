@@ -0,0 +1,81 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Service.ProductChangeLog;
+import com.example.productDemo.Service.ProductService;
+
+@SpringBootTest
+public class ProductChangeSequenceTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductChangeLog productChangeLog;
+
+    private final List<String> created = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    public void tearDown() {
+        created.forEach(productService::deleteProduct);
+    }
+
+    /**
+     * Test case for concurrent writes recording their changes.
+     * Scenario: Writes from many threads take the change counter row one after another until they
+     * commit; all of them should succeed, and the feed should number their changes without gaps
+     * or duplicates.
+     */
+    @Test
+    public void testConcurrentWritesGetGaplessSequences() throws Exception {
+        // Arrange
+        String run = Long.toString(System.nanoTime() % 1_000_000, 36);
+        for (int writer = 0; writer < 8; writer++) {
+            created.add(productService.createProduct(
+                    new Product("Seq" + run + "w" + writer, "Sequenced", 10.0, new ArrayList<>(), new ArrayList<>(), null)).getId());
+        }
+        long head = Long.parseLong((String) productChangeLog.changesSince(null, 1).get().get("next"));
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+
+        // Act: each thread reprices its own product, so the writes contend only on the change counter
+        List<Future<?>> done = new ArrayList<>();
+        for (String productId : created) {
+            done.add(writers.submit(() -> {
+                for (int i = 1; i <= 5; i++) {
+                    productService.patchProduct(productId, Map.of("price", 10.0 + i));
+                }
+            }));
+        }
+        for (Future<?> writes : done) {
+            writes.get();
+        }
+        writers.shutdown();
+        List<Map<String, Object>> changes = (List<Map<String, Object>>) productChangeLog.changesSince(String.valueOf(head), 1000).get().get("changes");
+
+        // Assert
+        List<Long> sequences = changes.stream().map(change -> (Long) change.get("sequence")).collect(Collectors.toList());
+        for (int i = 0; i < sequences.size(); i++) {
+            assertEquals(head + 1 + i, sequences.get(i), "sequences " + sequences);
+        }
+        Map<Object, Long> changesPerProduct = changes.stream().map(change -> change.get("productId")).filter(created::contains)
+                .collect(Collectors.groupingBy(productId -> productId, Collectors.counting()));
+        assertEquals(8, changesPerProduct.size());
+        changesPerProduct.values().forEach(count -> assertEquals(5L, count));
+    }
+}
@@ -13,25 +13,33 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import javax.validation.Validator;
+
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.validation.FieldError;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.example.productDemo.Controller.ApiResponse;
+import com.example.productDemo.Controller.BulkDeleteRequest;
+import com.example.productDemo.Controller.BulkPriceUpdateRequest;
 import com.example.productDemo.Controller.ProductController;
 import com.example.productDemo.Entity.Product;
 import com.example.productDemo.Entity.Product.Offer;
 import com.example.productDemo.Entity.Product.Review;
+import com.example.productDemo.Event.ProductStream;
 import com.example.productDemo.Repository.ProductRepository;
+import com.example.productDemo.Service.HotProducts;
 import com.example.productDemo.Service.ProductService;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,6 +54,15 @@ public class ProductControllerTest {
     @Mock
     private ProductRepository productRepository; 
 
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private ProductStream productStream;
+
+    @Mock
+    private HotProducts hotProducts;
+
     /**
      * Test case for successful creation of a product.
      * Scenario: When a valid product object is provided with no validation errors, 
@@ -261,6 +278,55 @@ public class ProductControllerTest {
         assertEquals("Product with ID " + productId + " not found", responseEntity.getBody().getMessage());
     }
 
+    /**
+     * Test case for adding a review in write-behind mode.
+     * Scenario: When reviews are ingested asynchronously and the queue has room, the product
+     * controller should return ACCEPTED without loading the product.
+     */
+    @Test
+    public void testAddReviewToProduct_Accepted() {
+        // Arrange
+        String productId = "PDNO_00001";
+        Review review = new Review("JohnDoe", "Good product!", 4.8);
+        BindingResult bindingResult = mock(BindingResult.class);
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(productService.isReviewIngestionAsync()).thenReturn(true);
+        when(productService.productExists(productId)).thenReturn(true);
+        when(productService.submitReview(productId, review)).thenReturn(true);
+
+        // Act
+        ResponseEntity<ApiResponse<Review>> responseEntity = productController.addReviewToProduct(productId, review, bindingResult);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, responseEntity.getStatusCode());
+        assertEquals("Review accepted for product " + productId, responseEntity.getBody().getMessage());
+        verify(productService, never()).getProduct(productId);
+    }
+
+    /**
+     * Test case for adding a review while the write-behind queue is full.
+     * Scenario: When the review queue has no room, the product controller should return
+     * TOO_MANY_REQUESTS with a Retry-After header.
+     */
+    @Test
+    public void testAddReviewToProduct_QueueFull() {
+        // Arrange
+        String productId = "PDNO_00001";
+        Review review = new Review("JohnDoe", "Good product!", 4.8);
+        BindingResult bindingResult = mock(BindingResult.class);
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(productService.isReviewIngestionAsync()).thenReturn(true);
+        when(productService.productExists(productId)).thenReturn(true);
+        when(productService.submitReview(productId, review)).thenReturn(false);
+
+        // Act
+        ResponseEntity<ApiResponse<Review>> responseEntity = productController.addReviewToProduct(productId, review, bindingResult);
+
+        // Assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, responseEntity.getStatusCode());
+        assertEquals("1", responseEntity.getHeaders().getFirst("Retry-After"));
+    }
+
 
     /**
      * Test case for adding a review to a product with validation errors.
@@ -391,6 +457,7 @@ public class ProductControllerTest {
         assertEquals("Product retrieved successfully", responseEntity.getBody().getMessage());
         assertTrue(responseEntity.getBody().getData().isPresent());
         assertEquals("Product1", responseEntity.getBody().getData().get().getName());
+        verify(hotProducts).record(HotProducts.Access.PRODUCT, productId);
     }
 
     /**
@@ -467,6 +534,10 @@ public class ProductControllerTest {
         // Checking that the HTTP status code is 200 (OK)
         assertEquals(HttpStatus.OK, response.getStatusCode());
 
+        // Only the review page counts as a read, not the existence check
+        verify(hotProducts).record(HotProducts.Access.REVIEWS, productId);
+        verify(hotProducts, never()).record(HotProducts.Access.PRODUCT, productId);
+
         // Checking that the response body is not null
         assertNotNull(response.getBody());
 
@@ -587,15 +658,16 @@ public class ProductControllerTest {
     public void testDeleteProduct_SuccessfulDeletion() {
         // Arrange
         String productId = "PDNO_00123";
-        when(productService.getProduct(productId)).thenReturn(Optional.of(new Product()));
+        when(productService.deleteProduct(productId)).thenReturn(true);
 
         // Act
-        ResponseEntity<ApiResponse<Optional<Product>>> responseEntity = productController.deleteProduct(productId);
+        ResponseEntity<ApiResponse<String>> responseEntity = productController.deleteProduct(productId);
 
         // Assert
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals("Product deleted successfully", responseEntity.getBody().getMessage());
-        assertTrue(responseEntity.getBody().getData().isPresent());
+        assertEquals(productId, responseEntity.getBody().getData());
+        verify(productService, never()).getProduct(productId);
     }
 
     /**
@@ -607,15 +679,353 @@ public class ProductControllerTest {
     public void testDeleteProduct_ProductNotFound() {
         // Arrange
         String productId = "NonExistentPD_456";
-        when(productService.getProduct(productId)).thenReturn(Optional.empty());
+        when(productService.deleteProduct(productId)).thenReturn(false);
 
         // Act
-        ResponseEntity<ApiResponse<Optional<Product>>> responseEntity = productController.deleteProduct(productId);
+        ResponseEntity<ApiResponse<String>> responseEntity = productController.deleteProduct(productId);
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
         assertEquals("404", responseEntity.getBody().getCode());
         assertEquals("Product with ID " + productId + " not found", responseEntity.getBody().getMessage());
     }
-}
 
+    /**
+     * Test case for retrieving several products at once.
+     * Scenario: When some of the requested IDs exist and some do not,
+     * the product controller should return an OK response with one entry per requested ID, in request order.
+     */
+    @Test
+    public void testGetProducts_MixedFoundAndNotFound() {
+        // Arrange
+        List<String> ids = Arrays.asList("PDNO_00002", "PDNO_99999");
+        Map<String, Object> found = new HashMap<>();
+        found.put("id", "PDNO_00002");
+        found.put("found", true);
+        found.put("product", new Product("Product2", "Description2", 50.0, null, null, null));
+        Map<String, Object> missing = new HashMap<>();
+        missing.put("id", "PDNO_99999");
+        missing.put("found", false);
+        when(productService.getProducts(ids)).thenReturn(Arrays.asList(found, missing));
+
+        // Act
+        ResponseEntity<Object> response = productController.getProducts(ids);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<Map<String, Object>> products = (List<Map<String, Object>>) ((ApiResponse<?>) response.getBody()).getData();
+        assertEquals(2, products.size());
+        assertEquals("PDNO_00002", products.get(0).get("id"));
+        assertEquals(false, products.get(1).get("found"));
+    }
+
+    /**
+     * Test case for a multi-get request without any IDs.
+     * Scenario: When an empty list of IDs is posted,
+     * the product controller should return a BAD_REQUEST response without calling the service.
+     */
+    @Test
+    public void testGetProductsByPost_EmptyIds() {
+        // Act
+        ResponseEntity<Object> response = productController.getProductsByPost(Collections.emptyList());
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Error: At least one product ID is required.", ((ApiResponse<?>) response.getBody()).getMessage());
+        verifyNoInteractions(productService);
+    }
+
+    /**
+     * Test case for a multi-get request without the ids parameter.
+     * Scenario: When GET /products is called without ids,
+     * the product controller should return a BAD_REQUEST response without calling the service.
+     */
+    @Test
+    public void testGetProducts_MissingIds() {
+        // Act
+        ResponseEntity<Object> response = productController.getProducts(null);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Error: At least one product ID is required.", ((ApiResponse<?>) response.getBody()).getMessage());
+        verifyNoInteractions(productService);
+    }
+
+    /**
+     * Test case for a bulk percentage price change.
+     * Scenario: When a percentage and a price range are provided,
+     * the product controller should delegate to the set-based service operation and return its report.
+     */
+    @Test
+    public void testBulkUpdatePrices_ByPercentage() {
+        // Arrange
+        BulkPriceUpdateRequest request = new BulkPriceUpdateRequest();
+        request.setMinPrice(100.0);
+        request.setMaxPrice(500.0);
+        request.setPercentage(5.0);
+        BindingResult bindingResult = mock(BindingResult.class);
+        when(bindingResult.hasErrors()).thenReturn(false);
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("rowsAffected", 42);
+        when(productService.bulkAdjustPrices(100.0, 500.0, 5.0)).thenReturn(report);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = productController.bulkUpdatePrices(request, bindingResult);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(42, responseEntity.getBody().getData().get("rowsAffected"));
+    }
+
+    /**
+     * Test case for a bulk price request that mixes both modes.
+     * Scenario: When both a percentage and a list of prices are provided,
+     * the product controller should return a BAD_REQUEST response.
+     */
+    @Test
+    public void testBulkUpdatePrices_AmbiguousRequest() {
+        // Arrange
+        BulkPriceUpdateRequest request = new BulkPriceUpdateRequest();
+        request.setPercentage(5.0);
+        request.setPrices(Collections.singletonList(new BulkPriceUpdateRequest.PriceChange("PDNO_00001", 10.0)));
+        BindingResult bindingResult = mock(BindingResult.class);
+        when(bindingResult.hasErrors()).thenReturn(false);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = productController.bulkUpdatePrices(request, bindingResult);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verifyNoInteractions(productService);
+    }
+
+    /**
+     * Test case for partially updating a product.
+     * Scenario: When only the price is provided,
+     * the product controller should validate just that field and patch only that column.
+     */
+    @Test
+    public void testPatchProduct_PriceOnly() {
+        // Arrange
+        String productId = "PDNO_00001";
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("price", 250);
+        when(validator.validateValue(Product.class, "price", 250.0)).thenReturn(Collections.emptySet());
+        when(productService.patchProduct(eq(productId), anyMap())).thenReturn(true);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = productController.patchProduct(productId, changes);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(250.0, responseEntity.getBody().getData().get("price"));
+        assertEquals(1, responseEntity.getBody().getData().size());
+    }
+
+    /**
+     * Test case for partially updating a field that cannot be patched.
+     * Scenario: When the body contains an unknown field,
+     * the product controller should return a BAD_REQUEST response without calling the service.
+     */
+    @Test
+    public void testPatchProduct_UnknownField() {
+        // Arrange
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("id", "PDNO_00002");
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = productController.patchProduct("PDNO_00001", changes);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Field 'id' cannot be updated", responseEntity.getBody().getErrors().get(0));
+        verifyNoInteractions(productService);
+    }
+
+    /**
+     * Test case for deleting products in bulk by ID.
+     * Scenario: When a list of product IDs is provided,
+     * the product controller should delegate to the chunked service delete and return its report.
+     */
+    @Test
+    public void testBulkDeleteProducts_ByIds() {
+        // Arrange
+        BulkDeleteRequest request = new BulkDeleteRequest();
+        request.setIds(Arrays.asList("PDNO_00001", "PDNO_00002"));
+        BindingResult bindingResult = mock(BindingResult.class);
+        when(bindingResult.hasErrors()).thenReturn(false);
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("rowsAffected", 2);
+        when(productService.deleteProducts(request.getIds())).thenReturn(report);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> responseEntity = productController.bulkDeleteProducts(request, bindingResult);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals("Products deleted successfully", responseEntity.getBody().getMessage());
+        assertEquals(2, responseEntity.getBody().getData().get("rowsAffected"));
+    }
+
+    /**
+     * Test case for sorted, filtered product summaries.
+     * Scenario: When a minimum rating and sort=price,desc are provided,
+     * the product controller should pass the filter and a descending price sort to the service.
+     */
+    @Test
+    public void testGetAllProductSummaries_SortedByPriceDesc() {
+        // Arrange
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("id", "PDNO_00001");
+        PageRequest expected = PageRequest.of(0, 4, Sort.by(Sort.Direction.DESC, "price"));
+        when(productService.getAllProductSummaries(null, null, 4.0, expected))
+                .thenReturn(new PageImpl<>(Collections.singletonList(summary), expected, 1));
+
+        // Act
+        ResponseEntity<Object> responseEntity = productController.getAllProductSummaries(0, 4, null, null, 4.0, "price,desc", false);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(1L, ((Map<?, ?>) responseEntity.getBody()).get("TotalElements"));
+    }
+
+    /**
+     * Test case for summaries with facet counts.
+     * Scenario: When facets are requested, the product controller should return the facet counts
+     * for the same filters next to the page of summaries.
+     */
+    @Test
+    public void testGetAllProductSummaries_WithFacets() {
+        // Arrange
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("id", "PDNO_00001");
+        PageRequest expected = PageRequest.of(0, 4, Sort.unsorted());
+        when(productService.getAllProductSummaries(10.0, null, null, expected))
+                .thenReturn(new PageImpl<>(Collections.singletonList(summary), expected, 1));
+        Map<String, Map<String, Long>> counts = Map.of("activeOffer", Map.of("true", 1L, "false", 0L));
+        when(productService.getSummaryFacets(10.0, null, null)).thenReturn(Optional.of(counts));
+
+        // Act
+        ResponseEntity<Object> responseEntity = productController.getAllProductSummaries(0, 4, 10.0, null, null, null, true);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(counts, ((Map<?, ?>) responseEntity.getBody()).get("FACETS"));
+    }
+
+    /**
+     * Test case for leaderboard pages.
+     * Scenario: The product controller should return the requested page of a known board, and
+     * NOT_FOUND for an unknown board without querying.
+     */
+    @Test
+    public void testGetLeaderboard() {
+        // Arrange
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("id", "PDNO_00001");
+        PageRequest expected = PageRequest.of(0, 10);
+        when(productService.getLeaderboard("top-rated", expected))
+                .thenReturn(new PageImpl<>(Collections.singletonList(summary), expected, 1));
+
+        // Act
+        ResponseEntity<Object> responseEntity = productController.getLeaderboard("top-rated", 0, 10);
+        ResponseEntity<Object> unknownEntity = productController.getLeaderboard("most-viewed", 0, 10);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(List.of(summary), ((Map<?, ?>) responseEntity.getBody()).get("PRODUCTS"));
+        assertEquals(HttpStatus.NOT_FOUND, unknownEntity.getStatusCode());
+        verify(productService, times(1)).getLeaderboard(anyString(), any());
+    }
+
+    /**
+     * Test case for name suggestions.
+     * Scenario: The product controller should return the suggestions for the prefix wrapped in an
+     * OK ApiResponse, and reject a blank prefix with BAD_REQUEST without querying.
+     */
+    @Test
+    public void testSuggestProductNames() {
+        // Arrange
+        Map<String, Object> suggestion = new HashMap<>();
+        suggestion.put("id", "PDNO_00001");
+        suggestion.put("name", "Lamp");
+        when(productService.suggestNames("la", 5)).thenReturn(List.of(suggestion));
+
+        // Act
+        ResponseEntity<Object> responseEntity = productController.suggestProductNames("la", 5);
+        ResponseEntity<Object> blankEntity = productController.suggestProductNames(" ", 5);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(List.of(suggestion), ((ApiResponse<?>) responseEntity.getBody()).getData());
+        assertEquals(HttpStatus.BAD_REQUEST, blankEntity.getStatusCode());
+        verify(productService, times(1)).suggestNames(anyString(), anyInt());
+    }
+
+    /**
+     * Test case for reading the change feed.
+     * Scenario: Changes after a valid cursor should be returned with the next cursor; a malformed cursor
+     * should return BAD_REQUEST and a cursor whose changes were pruned should return GONE.
+     */
+    @Test
+    public void testGetChanges() {
+        // Arrange
+        Map<String, Object> feed = new HashMap<>();
+        feed.put("changes", List.of(Map.of("sequence", 8L, "productId", "PDNO_00001", "type", "UPDATED")));
+        feed.put("next", "8");
+        feed.put("hasMore", false);
+        when(productService.getChanges("7", 100)).thenReturn(Optional.of(feed));
+        when(productService.getChanges("x", 100)).thenThrow(new IllegalArgumentException("Cursor is not a list of sequence numbers: x"));
+        when(productService.getChanges("1", 100)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<Object> responseEntity = productController.getChanges("7", 100);
+        ResponseEntity<Object> malformedEntity = productController.getChanges("x", 100);
+        ResponseEntity<Object> prunedEntity = productController.getChanges("1", 100);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(feed, ((ApiResponse<?>) responseEntity.getBody()).getData());
+        assertEquals(HttpStatus.BAD_REQUEST, malformedEntity.getStatusCode());
+        assertEquals(HttpStatus.GONE, prunedEntity.getStatusCode());
+    }
+
+    /**
+     * Test case for subscribing to the change stream.
+     * Scenario: A subscription should return the stream's emitter, and SERVICE_UNAVAILABLE
+     * when the stream refuses it (disabled or at its subscriber limit).
+     */
+    @Test
+    public void testStreamChanges() {
+        // Arrange
+        SseEmitter emitter = new SseEmitter();
+        when(productStream.subscribe(List.of("PDNO_00001"))).thenReturn(Optional.of(emitter));
+        when(productStream.subscribe(null)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<SseEmitter> responseEntity = productController.streamChanges(List.of("PDNO_00001"));
+        ResponseEntity<SseEmitter> refusedEntity = productController.streamChanges(null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(emitter, responseEntity.getBody());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, refusedEntity.getStatusCode());
+    }
+
+    /**
+     * Test case for an unsupported summary sort.
+     * Scenario: When sorting by a field that is not in the summary table,
+     * the product controller should return a BAD_REQUEST response without querying.
+     */
+    @Test
+    public void testGetAllProductSummaries_InvalidSort() {
+        // Act
+        ResponseEntity<Object> responseEntity = productController.getAllProductSummaries(0, 4, null, null, null, "reviews,asc", false);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verifyNoInteractions(productService);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.Event.ProductEvent;
+import com.example.productDemo.Event.ProductEventBus;
+
+public class ProductEventBusTest {
+
+    /**
+     * Test case for delivering events from concurrent publishers through a small ring.
+     * Scenario: With every wait strategy, each consumer should receive every published event
+     * exactly once, in sequence order and in each publisher's order, ending with no lag.
+     */
+    @Test
+    public void testEveryConsumerSeesEveryEventInOrder() throws Exception {
+        for (String waitStrategy : List.of("blocking", "sleeping", "yielding", "busy-spin")) {
+            // Arrange
+            ProductEventBus bus = new ProductEventBus();
+            ReflectionTestUtils.setField(bus, "enabled", true);
+            ReflectionTestUtils.setField(bus, "ringSize", 64);
+            ReflectionTestUtils.setField(bus, "waitStrategyName", waitStrategy);
+            bus.start();
+
+            int publishers = 4;
+            int perPublisher = 2000;
+            CountDownLatch delivered = new CountDownLatch(2 * publishers * perPublisher);
+            List<List<String>> received = List.of(Collections.synchronizedList(new ArrayList<>()),
+                    Collections.synchronizedList(new ArrayList<>()));
+            List<List<Long>> sequences = List.of(new ArrayList<>(), new ArrayList<>());
+            for (int consumer = 0; consumer < 2; consumer++) {
+                int index = consumer;
+                bus.register("test-" + consumer, (event, sequence, endOfBatch) -> {
+                    received.get(index).add(event.getProductId());
+                    sequences.get(index).add(sequence);
+                    delivered.countDown();
+                });
+            }
+
+            // Act
+            ExecutorService pool = Executors.newFixedThreadPool(publishers);
+            for (int publisher = 0; publisher < publishers; publisher++) {
+                int number = publisher;
+                pool.submit(() -> {
+                    for (int i = 0; i < perPublisher; i += 5) {
+                        List<String> ids = new ArrayList<>();
+                        for (int j = i; j < i + 5; j++) {
+                            ids.add(number + "-" + j);
+                        }
+                        bus.publishAfterCommit(ProductEvent.Type.UPDATED, ids, Collections.emptyList());
+                    }
+                });
+            }
+            pool.shutdown();
+
+            // Assert
+            assertTrue(delivered.await(30, TimeUnit.SECONDS), waitStrategy + " delivered everything");
+            assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+            for (int consumer = 0; consumer < 2; consumer++) {
+                List<Long> seen = sequences.get(consumer);
+                for (int i = 0; i < seen.size(); i++) {
+                    assertEquals(i, seen.get(i).longValue(), waitStrategy + " sequence");
+                }
+                Map<String, Integer> nextPerPublisher = new HashMap<>();
+                for (String productId : received.get(consumer)) {
+                    String[] parts = productId.split("-");
+                    int expected = nextPerPublisher.getOrDefault(parts[0], 0);
+                    assertEquals(expected, Integer.parseInt(parts[1]), waitStrategy + " order of publisher " + parts[0]);
+                    nextPerPublisher.put(parts[0], expected + 1);
+                }
+                assertEquals(publishers * perPublisher, received.get(consumer).size());
+            }
+            waitForNoLag(bus);
+            bus.stop();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void waitForNoLag(ProductEventBus bus) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            List<Map<String, Object>> consumers = (List<Map<String, Object>>) bus.metrics().get("consumers");
+            if (consumers.stream().allMatch(consumer -> ((Long) consumer.get("lag")) == 0)) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Consumers still lag: " + bus.metrics());
+    }
+}
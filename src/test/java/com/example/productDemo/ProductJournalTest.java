@@ -0,0 +1,149 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Event.ProductEvent;
+import com.example.productDemo.Event.ProductEventBus;
+import com.example.productDemo.Event.ProductJournal;
+import com.example.productDemo.Index.CatalogFileStore;
+
+public class ProductJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<ProductEventBus> buses = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        buses.forEach(ProductEventBus::stop);
+    }
+
+    /**
+     * Test case for rolling over segments and replaying them after a clean restart.
+     * Scenario: Changes written across several small segments should replay, in a later run, as the
+     * last state of each product, with deleted products listed as removed.
+     */
+    @Test
+    public void testReplaysLastStatePerProductAcrossSegments() throws Exception {
+        // Arrange
+        ProductEventBus bus = startBus();
+        ProductJournal journal = startJournal(bus);
+        long since = System.currentTimeMillis();
+
+        // Act: 300 updates over ten products, then one delete
+        for (int round = 0; round < 30; round++) {
+            for (int product = 0; product < 10; product++) {
+                String id = String.format("PDNO_%05d", product);
+                bus.publishAfterCommit(ProductEvent.Type.UPDATED, List.of(id),
+                        List.of(new ProductSummary(id, "Product " + product, "Round " + round, 10.0 + round, null, round, 9.0 + round, false)));
+            }
+        }
+        bus.publishAfterCommit(ProductEvent.Type.DELETED, List.of("PDNO_00003"), List.of());
+        waitForJournal(bus);
+        journal.stop();
+        ProductJournal restarted = startJournal(bus);
+        Optional<ProductJournal.Replay> replay = restarted.replaySince(since);
+
+        // Assert
+        assertTrue((Integer) restarted.metrics().get("segments") > 3, "rolled over");
+        assertTrue(replay.isPresent());
+        assertEquals(301, replay.get().getRecords());
+        assertEquals(List.of("PDNO_00003"), replay.get().getRemovedIds());
+        Map<String, ProductSummary> upserts = replay.get().getUpserts().stream()
+                .collect(Collectors.toMap(ProductSummary::getId, summary -> summary));
+        assertEquals(9, upserts.size());
+        assertEquals("Round 29", upserts.get("PDNO_00007").getDescription());
+        assertEquals(39.0, upserts.get("PDNO_00007").getPrice());
+        assertEquals(null, upserts.get("PDNO_00007").getAverageRating());
+
+        List<Long> sequences = new ArrayList<>();
+        ProductJournal.read(directory, record -> sequences.add(record.getSequence()));
+        for (int i = 1; i < sequences.size(); i++) {
+            assertEquals(sequences.get(i - 1) + 1, sequences.get(i).longValue());
+        }
+    }
+
+    /**
+     * Test case for a journal left behind by a crash.
+     * Scenario: A segment without a shutdown marker and with a torn last record should not be trusted
+     * for replay, and the next run should continue numbering after the last intact record.
+     */
+    @Test
+    public void testUncleanShutdownIsNotReplayed() throws Exception {
+        // Arrange
+        ProductEventBus bus = startBus();
+        ProductJournal crashed = startJournal(bus);
+        long since = System.currentTimeMillis();
+        for (int product = 0; product < 5; product++) {
+            String id = String.format("PDNO_%05d", product);
+            bus.publishAfterCommit(ProductEvent.Type.CREATED, List.of(id),
+                    List.of(new ProductSummary(id, "Product", "New", 10.0, 4.5, 1, 10.0, false)));
+        }
+        waitForJournal(bus);
+        Path segment = directory.resolve((String) crashed.metrics().get("currentSegment"));
+        int used = (Integer) crashed.metrics().get("segmentBytesUsed");
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(used - 1);
+            int last = file.read();
+            file.seek(used - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        // Act
+        ProductJournal restarted = startJournal(startBus());
+        Optional<ProductJournal.Replay> replay = restarted.replaySince(since);
+
+        // Assert
+        assertFalse(replay.isPresent());
+        assertEquals(5L, restarted.metrics().get("nextSequence"));
+    }
+
+    private ProductEventBus startBus() {
+        ProductEventBus bus = new ProductEventBus();
+        ReflectionTestUtils.setField(bus, "enabled", true);
+        ReflectionTestUtils.setField(bus, "ringSize", 64);
+        bus.start();
+        buses.add(bus);
+        return bus;
+    }
+
+    private ProductJournal startJournal(ProductEventBus bus) {
+        CatalogFileStore catalogFileStore = mock(CatalogFileStore.class);
+        when(catalogFileStore.isReadOnly()).thenReturn(false);
+        ProductJournal journal = new ProductJournal();
+        ReflectionTestUtils.setField(journal, "productEventBus", bus);
+        ReflectionTestUtils.setField(journal, "catalogFileStore", catalogFileStore);
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", directory.toString());
+        ReflectionTestUtils.setField(journal, "segmentSize", 4096);
+        ReflectionTestUtils.setField(journal, "replayOverlapMs", 0L);
+        journal.start();
+        return journal;
+    }
+
+    private void waitForJournal(ProductEventBus bus) throws InterruptedException {
+        for (int attempt = 0; attempt < 500 && bus.lag("journal") > 0; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, bus.lag("journal"));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Event.InvalidationBroadcaster;
+import com.example.productDemo.Service.ProductReadCache;
+
+public class ProductReadCacheTest {
+
+    private final InvalidationBroadcaster broadcaster = mock(InvalidationBroadcaster.class);
+    private ProductReadCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new ProductReadCache();
+        ReflectionTestUtils.setField(cache, "invalidationBroadcasters", List.of(broadcaster));
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        when(broadcaster.isEnabled()).thenReturn(true);
+        when(broadcaster.stalenessBoundMs()).thenReturn(500L);
+    }
+
+    /**
+     * Test case for a load racing an invalidation.
+     * Scenario: A product invalidated while it was being loaded should not be cached, so the next read
+     * loads it again; once loaded without interference it should be served from the cache.
+     */
+    @Test
+    public void testLoadOverlappingInvalidationIsNotCached() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        Product product = product("PDNO_00001");
+
+        // Act: another node's change arrives while the first load is running
+        cache.get("PDNO_00001", () -> {
+            loads.incrementAndGet();
+            cache.invalidate(List.of("PDNO_00001"));
+            return Optional.of(product);
+        });
+        cache.get("PDNO_00001", () -> {
+            loads.incrementAndGet();
+            return Optional.of(product);
+        });
+        Optional<Product> cached = cache.get("PDNO_00001", () -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        // Assert
+        assertEquals(2, loads.get());
+        assertSame(product, cached.get());
+        Map<String, Object> metrics = cache.metrics();
+        assertEquals(1L, metrics.get("staleLoadsDropped"));
+        assertEquals(1L, metrics.get("hits"));
+    }
+
+    /**
+     * Test case for invalidations falling behind.
+     * Scenario: Once the broadcasters cannot vouch for changes within the maximum staleness, cached
+     * products should no longer be served, and caching should resume when they catch up.
+     */
+    @Test
+    public void testBypassesCacheBeyondStalenessBound() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("PDNO_00002", () -> {
+            loads.incrementAndGet();
+            return Optional.of(product("PDNO_00002"));
+        });
+
+        // Act
+        when(broadcaster.stalenessBoundMs()).thenReturn(60000L);
+        cache.get("PDNO_00002", () -> {
+            loads.incrementAndGet();
+            return Optional.of(product("PDNO_00002"));
+        });
+        Map<String, Object> behind = cache.metrics();
+        when(broadcaster.stalenessBoundMs()).thenReturn(200L);
+        cache.get("PDNO_00002", () -> {
+            loads.incrementAndGet();
+            return Optional.of(product("PDNO_00002"));
+        });
+
+        // Assert: emptied while behind, so the read after catching up loads again
+        assertEquals(3, loads.get());
+        assertEquals(true, behind.get("bypassing"));
+        assertEquals(1L, behind.get("bypassedStale"));
+        assertEquals(1, cache.metrics().get("size"));
+    }
+
+    /**
+     * Test case for pinned products.
+     * Scenario: Pinned products should be due for a refresh when missing or close to expiry, be
+     * replaced in one batched reload, and stay cached when the cache evicts to make room.
+     */
+    @Test
+    public void testRefreshesPinnedProductsAheadOfExpiryAndKeepsThem() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(cache, "ttlMs", 200L);
+        ReflectionTestUtils.setField(cache, "maxSize", 10);
+        cache.pin(List.of("PDNO_00001", "PDNO_00002"));
+        List<List<String>> batches = new ArrayList<>();
+
+        // Act: both are loaded at once, then one of them ages past the refresh-ahead point
+        List<String> missing = cache.dueForRefresh();
+        cache.refresh(missing, ids -> {
+            batches.add(new ArrayList<>(ids));
+            return Map.of("PDNO_00001", product("PDNO_00001"), "PDNO_00002", product("PDNO_00002"));
+        });
+        List<String> fresh = cache.dueForRefresh();
+        Thread.sleep(170);
+        List<String> ageing = cache.dueForRefresh();
+        for (int i = 3; i < 20; i++) {
+            String id = String.format("PDNO_%05d", i);
+            cache.get(id, () -> Optional.of(product(id)));
+        }
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("PDNO_00001", () -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        // Assert
+        assertEquals(List.of("PDNO_00001", "PDNO_00002"), missing.stream().sorted().collect(Collectors.toList()));
+        assertEquals(1, batches.size());
+        assertTrue(fresh.isEmpty());
+        assertEquals(2, ageing.size());
+        assertEquals(0, loads.get());
+        assertEquals(2L, cache.metrics().get("refreshedAhead"));
+    }
+
+    private Product product(String id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Lamp");
+        product.setPrice(10.0);
+        return product;
+    }
+}
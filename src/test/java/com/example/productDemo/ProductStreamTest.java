@@ -0,0 +1,165 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Event.ProductEvent;
+import com.example.productDemo.Event.ProductEventBus;
+import com.example.productDemo.Event.ProductStream;
+
+public class ProductStreamTest {
+
+    private ProductEventBus bus;
+    private ProductStream stream;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setUp() {
+        bus = new ProductEventBus();
+        ReflectionTestUtils.setField(bus, "enabled", true);
+        ReflectionTestUtils.setField(bus, "ringSize", 64);
+        bus.start();
+        stream = new ProductStream();
+        ReflectionTestUtils.setField(stream, "productEventBus", bus);
+        ReflectionTestUtils.setField(stream, "enabled", true);
+        ReflectionTestUtils.setField(stream, "heartbeatMs", 60000L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        stream.stop();
+        bus.stop();
+    }
+
+    /**
+     * Test case for filtering and coalescing notifications.
+     * Scenario: A subscriber to one product should receive its changes, up to the latest, and nothing
+     * else, while a subscriber blocked on a slow connection should afterwards receive only the latest
+     * change of each product, in the order of those changes.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFiltersAndCoalescesForSlowClients() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(stream, "maxPending", 100);
+        stream.start();
+        RecordingEmitter following = new RecordingEmitter(null);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        assertTrue(stream.subscribe(List.of("PDNO_00001"), following));
+        assertTrue(stream.subscribe(null, slow));
+
+        // Act: the slow client blocks on its first notification while fifty more changes arrive
+        publish("PDNO_00002", 1.0);
+        waitFor(() -> slow.blocked.getCount() == 0);
+        for (int i = 0; i < 50; i++) {
+            publish("PDNO_00001", i);
+        }
+        publish("PDNO_00003", 1.0);
+        waitFor(() -> bus.lag("stream") == 0 && !following.notifications.isEmpty()
+                && following.notifications.get(following.notifications.size() - 1).get("price").equals(49.0));
+        release.countDown();
+        waitFor(() -> slow.notifications.size() == 3);
+
+        // Assert
+        assertTrue(following.notifications.stream().allMatch(notification -> "PDNO_00001".equals(notification.get("productId"))));
+        assertEquals(List.of("PDNO_00002", "PDNO_00001", "PDNO_00003"),
+                slow.notifications.stream().map(notification -> notification.get("productId")).collect(Collectors.toList()));
+        assertEquals(49.0, slow.notifications.get(1).get("price"));
+        assertTrue((Long) stream.metrics().get("coalesced") >= 49);
+    }
+
+    /**
+     * Test case for a client that falls too far behind.
+     * Scenario: Once more products are pending for a blocked subscriber than allowed, it should be sent
+     * an overflow event and disconnected, and no longer count as a subscriber.
+     */
+    @Test
+    public void testDisconnectsClientsTooFarBehind() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(stream, "maxPending", 5);
+        stream.start();
+        RecordingEmitter slow = new RecordingEmitter(release);
+        assertTrue(stream.subscribe(null, slow));
+
+        // Act
+        publish("PDNO_00000", 1.0);
+        waitFor(() -> slow.blocked.getCount() == 0);
+        for (int product = 1; product <= 10; product++) {
+            publish(String.format("PDNO_%05d", product), 1.0);
+        }
+        waitFor(() -> slow.completed);
+
+        // Assert
+        assertTrue(slow.overflow);
+        assertEquals(1L, stream.metrics().get("laggardsDisconnected"));
+        assertEquals(0, stream.metrics().get("subscribers"));
+    }
+
+    private void publish(String productId, double price) {
+        bus.publishAfterCommit(ProductEvent.Type.UPDATED, List.of(productId),
+                List.of(new ProductSummary(productId, "Lamp", "Desk lamp", price, 4.0, 2, price, false)));
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (int attempt = 0; attempt < 500 && !condition.getAsBoolean(); attempt++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    //***Records what is sent; with a gate, the first notification blocks until it opens, like a slow client***
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch gate;
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final List<Map<String, Object>> notifications = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean overflow;
+        private volatile boolean completed;
+
+        RecordingEmitter(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void send(SseEventBuilder builder) {
+            for (DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof Map) {
+                    if (gate != null && blocked.getCount() > 0) {
+                        blocked.countDown();
+                        try {
+                            gate.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    notifications.add((Map<String, Object>) part.getData());
+                } else if (part.getData().toString().contains("event:overflow")) {
+                    overflow = true;
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.example.productDemo.Entity.Product;
+import com.example.productDemo.Entity.ProductSummary;
+import com.example.productDemo.Repository.ProductSummaryRepository;
+import com.example.productDemo.Service.ProductService;
+
+@SpringBootTest
+public class ProductSummaryRepositoryTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSummaryRepository productSummaryRepository;
+
+    private final List<String> created = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        created.forEach(productService::deleteProduct);
+    }
+
+    /**
+     * Test case for the filtered summary query.
+     * Scenario: Each filter, alone or combined with the others, should narrow the page to the rows
+     * it matches, and a missing filter should not narrow it at all.
+     */
+    @Test
+    public void testOnlyPresentFiltersApply() {
+        // Arrange: prices far above the rest of the test data, so the price bounds select only these rows
+        String run = Long.toString(System.nanoTime() % 1_000_000, 36);
+        for (int i = 1; i <= 4; i++) {
+            created.add(productService.createProduct(
+                    new Product("Sum" + run + "p" + i, "Filtered", 90_000.0 + i, new ArrayList<>(), new ArrayList<>(), null)).getId());
+        }
+        PageRequest page = PageRequest.of(0, 50, Sort.by("price").and(Sort.by("id")));
+
+        // Act
+        Page<ProductSummary> all = productSummaryRepository.findSummaries(null, null, null, page);
+        Page<ProductSummary> fromPrice = productSummaryRepository.findSummaries(90_002.0, null, null, page);
+        Page<ProductSummary> priceRange = productSummaryRepository.findSummaries(90_002.0, 90_003.0, null, page);
+        Page<ProductSummary> rated = productSummaryRepository.findSummaries(90_000.0, null, 1.0, page);
+
+        // Assert
+        assertTrue(all.getTotalElements() >= 4);
+        assertEquals(List.of(created.get(1), created.get(2), created.get(3)), ids(fromPrice));
+        assertEquals(List.of(created.get(1), created.get(2)), ids(priceRange));
+        // None of them has a review, so none has a rating
+        assertEquals(0, rated.getTotalElements());
+    }
+
+    private static List<String> ids(Page<ProductSummary> page) {
+        return page.getContent().stream().map(ProductSummary::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.productDemo.DataSourceConfig.ReadRoutingContext;
+import com.example.productDemo.DataSourceConfig.ReadWriteRoutingDataSource;
+import com.example.productDemo.DataSourceConfig.ReadYourWritesFilter;
+
+/**
+ * Routing tests against two embedded H2 databases, each holding a marker row naming itself.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void setUp() {
+        primary = markedDatabase("primary");
+        replica = markedDatabase("replica");
+
+        DataSource routing = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, List.of(replica)));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        jdbcTemplate = new JdbcTemplate(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReadRoutingContext.clear();
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    /**
+     * Test case for routing by transaction type.
+     * Scenario: Read-only transactions should use the replica and read-write transactions the primary.
+     */
+    @Test
+    public void testReadOnlyTransactionsUseReplica() {
+        assertEquals("replica", readOnly.execute(status -> currentNode()));
+        assertEquals("primary", readWrite.execute(status -> currentNode()));
+    }
+
+    /**
+     * Test case for read-your-writes stickiness.
+     * Scenario: A read-only transaction on a thread pinned to the primary should not use the replica.
+     */
+    @Test
+    public void testPinnedReadsUsePrimary() {
+        ReadRoutingContext.pinToPrimary(true);
+        assertEquals("primary", readOnly.execute(status -> currentNode()));
+    }
+
+    /**
+     * Test case for the read-your-writes filter.
+     * Scenario: After a successful write, the same client's next read request should be pinned to the primary,
+     * while another client's read is not.
+     */
+    @Test
+    public void testFilterPinsReadsAfterOwnWrite() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(60_000);
+        filter.doFilter(request("PUT", "client-a"), new MockHttpServletResponse(), new MockFilterChain());
+
+        boolean[] pinned = new boolean[2];
+        filter.doFilter(request("GET", "client-a"), new MockHttpServletResponse(),
+                (req, res) -> pinned[0] = ReadRoutingContext.isPinnedToPrimary());
+        filter.doFilter(request("GET", "client-b"), new MockHttpServletResponse(),
+                (req, res) -> pinned[1] = ReadRoutingContext.isPinnedToPrimary());
+
+        assertTrue(pinned[0]);
+        assertFalse(pinned[1]);
+        assertFalse(ReadRoutingContext.isPinnedToPrimary());
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static EmbeddedDatabase markedDatabase(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName(name + "-" + UUID.randomUUID())
+                .build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return database;
+    }
+
+    private static MockHttpServletRequest request(String method, String clientId) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/products/PDNO_00001");
+        request.addHeader("X-Client-Id", clientId);
+        return request;
+    }
+}
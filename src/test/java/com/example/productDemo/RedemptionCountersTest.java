@@ -0,0 +1,149 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Index.CatalogFileStore;
+import com.example.productDemo.Repository.ProductRepository;
+import com.example.productDemo.Service.NodeIdentity;
+import com.example.productDemo.Service.RedemptionCounters;
+
+@ExtendWith(MockitoExtension.class)
+public class RedemptionCountersTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private CatalogFileStore catalogFileStore;
+
+    @Mock
+    private NodeIdentity nodeIdentity;
+
+    @InjectMocks
+    private RedemptionCounters redemptionCounters;
+
+    // The redeemed and reserved columns of the coupon_redemptions row
+    private final AtomicLong redeemed = new AtomicLong();
+    private final AtomicLong reserved = new AtomicLong();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(redemptionCounters, "stripes", 4);
+        ReflectionTestUtils.setField(redemptionCounters, "sliceSize", 7);
+        lenient().when(nodeIdentity.id()).thenReturn("node-a:8080");
+
+        lenient().when(shardRouter.inTransaction(anyString(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(1)).get());
+        when(shardRouter.inTransactionOnShard(anyInt(), anyBoolean(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(2)).get());
+        lenient().when(productRepository.lockReservedRedemptions("PDNO_00001", "SAVE25")).thenAnswer(call -> reserved.get());
+        lenient().when(productRepository.addReservedRedemptions(eq("PDNO_00001"), eq("SAVE25"), anyLong()))
+                .thenAnswer(call -> reserved.addAndGet(call.getArgument(2)) >= 0 ? 1 : 0);
+        lenient().when(productRepository.addRedeemed(eq("PDNO_00001"), eq("SAVE25"), anyLong()))
+                .thenAnswer(call -> redeemed.addAndGet(call.getArgument(2)) >= 0 ? 1 : 0);
+    }
+
+    /**
+     * Test case for redemptions racing for the last of a cap.
+     * Scenario: When many threads redeem a capped coupon at once, exactly the cap should succeed,
+     * with the database never reserving past it and the flush recording every redemption.
+     */
+    @Test
+    public void testConcurrentRedemptionsStopAtCap() throws Exception {
+        // Arrange
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Act
+        for (int thread = 0; thread < 8; thread++) {
+            results.add(pool.submit(() -> {
+                int succeeded = 0;
+                for (int i = 0; i < 200; i++) {
+                    if (redemptionCounters.tryRedeem("PDNO_00001", "SAVE25", 500)) {
+                        succeeded++;
+                    }
+                }
+                return succeeded;
+            }));
+        }
+        int succeeded = 0;
+        for (Future<Integer> result : results) {
+            succeeded += result.get();
+        }
+        pool.shutdown();
+        redemptionCounters.flush();
+
+        // Assert
+        assertEquals(500, succeeded);
+        assertEquals(500, reserved.get());
+        assertEquals(500, redeemed.get());
+    }
+
+    /**
+     * Test case for releasing redemption slices.
+     * Scenario: When the node shuts down, the unused part of its slices should be returned so that
+     * only the redemptions actually made stay reserved.
+     */
+    @Test
+    public void testReleaseReturnsUnusedSlices() {
+        // Act
+        for (int i = 0; i < 30; i++) {
+            redemptionCounters.tryRedeem("PDNO_00001", "SAVE25", 1000);
+        }
+        redemptionCounters.release();
+
+        // Assert
+        assertEquals(30, redeemed.get());
+        assertEquals(30, reserved.get());
+    }
+
+    /**
+     * Test case for reconciling expired redemption leases.
+     * Scenario: Expired leases of other nodes should be ended, while an expired lease this node still
+     * holds in memory (its flushes failed for a while) should be kept for its next flush.
+     */
+    @Test
+    public void testReconcileEndsOnlyLeasesNotHeld() {
+        // Arrange
+        redemptionCounters.tryRedeem("PDNO_00001", "SAVE25", 1000);
+        when(shardRouter.shardCount()).thenReturn(1);
+        when(productRepository.findStaleRedemptionLeases(anyLong())).thenReturn(List.of(
+                new Object[] {"node-a:8080", "PDNO_00001", "SAVE25", 7L, 0L},
+                new Object[] {"node-b:8080", "PDNO_00001", "SAVE25", 7L, 3L}));
+
+        // Act
+        redemptionCounters.reconcileStaleLeases();
+
+        // Assert
+        verify(productRepository).deleteRedemptionLease("node-b:8080", "PDNO_00001", "SAVE25");
+        verify(productRepository, never()).deleteRedemptionLease("node-a:8080", "PDNO_00001", "SAVE25");
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.Entity.Product.Review;
+import com.example.productDemo.Index.CatalogFileStore;
+import com.example.productDemo.Repository.ProductRepository;
+import com.example.productDemo.Service.NodeIdentity;
+import com.example.productDemo.Service.ReviewIngestQueue;
+import com.example.productDemo.Service.ReviewIngestQueue.QueuedReview;
+
+@ExtendWith(MockitoExtension.class)
+public class ReviewIngestQueueTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private CatalogFileStore catalogFileStore;
+
+    @Mock
+    private NodeIdentity nodeIdentity;
+
+    @InjectMocks
+    private ReviewIngestQueue reviewIngestQueue;
+
+    @AfterEach
+    public void tearDown() {
+        reviewIngestQueue.stop();
+    }
+
+    /**
+     * Test case for backpressure and batching of queued reviews.
+     * Scenario: While the writer is busy, submissions beyond the queue capacity should be refused;
+     * once it resumes, every accepted review should be written, grouped per shard, in submission order.
+     */
+    @Test
+    public void testFullQueueRefusesAndWriterDrainsPerShard() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(reviewIngestQueue, "enabled", true);
+        ReflectionTestUtils.setField(reviewIngestQueue, "queueCapacity", 4);
+        when(catalogFileStore.isReadOnly()).thenReturn(false);
+        when(shardRouter.shardFor("PDNO_00001")).thenReturn(0);
+        when(shardRouter.shardFor("PDNO_00002")).thenReturn(1);
+
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        CountDownLatch allWritten = new CountDownLatch(5);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        reviewIngestQueue.start((shard, reviews) -> {
+            writerBlocked.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (QueuedReview queued : reviews) {
+                written.add(shard + ":" + queued.getReview().getReviewer());
+                allWritten.countDown();
+            }
+        });
+
+        // Act: the first review occupies the writer, the next four fill the queue
+        assertTrue(reviewIngestQueue.submit("PDNO_00001", new Review("first", "c", 4.0)));
+        assertTrue(writerBlocked.await(5, TimeUnit.SECONDS));
+        assertTrue(reviewIngestQueue.submit("PDNO_00002", new Review("a", "c", 4.0)));
+        assertTrue(reviewIngestQueue.submit("PDNO_00001", new Review("b", "c", 4.0)));
+        assertTrue(reviewIngestQueue.submit("PDNO_00002", new Review("c", "c", 4.0)));
+        assertTrue(reviewIngestQueue.submit("PDNO_00001", new Review("d", "c", 4.0)));
+        boolean overflowAccepted = reviewIngestQueue.submit("PDNO_00001", new Review("e", "c", 4.0));
+        resume.countDown();
+
+        // Assert
+        assertFalse(overflowAccepted);
+        assertTrue(allWritten.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("0:first", "1:a", "1:c", "0:b", "0:d"), written);
+        assertEquals(0, reviewIngestQueue.depth());
+    }
+
+    /**
+     * Test case for durable ingestion on a node without a lasting id.
+     * Scenario: When the node id was made up for this run, durable ingestion should refuse to start,
+     * since its checkpoints would not be found after a restart and applied reviews would be replayed.
+     */
+    @Test
+    public void testDurableRequiresStableNodeId() {
+        // Arrange
+        ReflectionTestUtils.setField(reviewIngestQueue, "enabled", true);
+        ReflectionTestUtils.setField(reviewIngestQueue, "durable", true);
+        when(catalogFileStore.isReadOnly()).thenReturn(false);
+        when(nodeIdentity.isStable()).thenReturn(false);
+
+        // Act
+        IllegalStateException refused = assertThrows(IllegalStateException.class,
+                () -> reviewIngestQueue.start((shard, reviews) -> { }));
+
+        // Assert
+        assertTrue(refused.getMessage().contains("product.node-id"));
+        assertFalse(reviewIngestQueue.submit("PDNO_00001", new Review("a", "c", 4.0)));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.productDemo.Index.RoaringBitmap;
+
+public class RoaringBitmapTest {
+
+    private final Random random = new Random(7);
+
+    /**
+     * Test case for intersections and differences across chunk representations.
+     * Scenario: Sparse, dense and mixed bitmaps over several 65536-value chunks should give the
+     * same members and counts as java.util.BitSet for and, andNot and andCardinality.
+     */
+    @Test
+    public void testOperationsMatchBitSet() {
+        // Arrange: per chunk, densities on both sides of the 4096-value array limit
+        double[] densities = {0.001, 0.05, 0.5, 0.0};
+        BitSet[] sets = new BitSet[densities.length];
+        RoaringBitmap[] bitmaps = new RoaringBitmap[densities.length];
+        for (int i = 0; i < densities.length; i++) {
+            sets[i] = new BitSet();
+            bitmaps[i] = new RoaringBitmap();
+            for (int value = 0; value < 4 * 65536; value++) {
+                // Vary the density between chunks, too
+                if (random.nextDouble() < densities[(i + value / 65536) % densities.length]) {
+                    sets[i].set(value);
+                }
+            }
+            // Add out of order half the time to exercise inserts
+            if (i % 2 == 0) {
+                sets[i].stream().forEach(bitmaps[i]::add);
+            } else {
+                sets[i].stream().boxed().sorted((a, b) -> Integer.compare(b, a)).forEach(bitmaps[i]::add);
+            }
+        }
+
+        for (int i = 0; i < densities.length; i++) {
+            assertEquals(sets[i].cardinality(), bitmaps[i].cardinality());
+            for (int j = 0; j < densities.length; j++) {
+                // Act
+                BitSet and = (BitSet) sets[i].clone();
+                and.and(sets[j]);
+                BitSet andNot = (BitSet) sets[i].clone();
+                andNot.andNot(sets[j]);
+
+                // Assert
+                assertEquals(and.cardinality(), bitmaps[i].andCardinality(bitmaps[j]));
+                assertSame(and, bitmaps[i].and(bitmaps[j]));
+                assertSame(andNot, bitmaps[i].andNot(bitmaps[j]));
+            }
+        }
+    }
+
+    private static void assertSame(BitSet expected, RoaringBitmap actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        expected.stream().forEach(value -> assertEquals(true, actual.contains(value), "missing " + value));
+    }
+}
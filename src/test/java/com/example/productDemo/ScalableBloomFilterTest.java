@@ -0,0 +1,57 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.productDemo.Index.ScalableBloomFilter;
+
+public class ScalableBloomFilterTest {
+
+    /**
+     * Test case for values that were added.
+     * Scenario: Every added value must be reported as possibly present, even after the filter has grown.
+     */
+    @Test
+    public void testAddedValuesAreAlwaysFound() {
+        // Arrange
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            filter.add("product" + i);
+        }
+
+        // Assert
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("product" + i));
+        }
+        assertTrue(filter.stageCount() > 1);
+    }
+
+    /**
+     * Test case for values that were never added.
+     * Scenario: The false positive rate should stay close to the configured rate after growing past the expected size.
+     */
+    @Test
+    public void testFalsePositiveRateStaysBounded() {
+        // Arrange
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 5000; i++) {
+            filter.add("product" + i);
+        }
+
+        // Act
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+        assertFalse(filter.mightContain("never-added"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.productDemo.DataSourceConfig.ConnectionProperties;
+import com.example.productDemo.DataSourceConfig.ShardContext;
+import com.example.productDemo.DataSourceConfig.ShardRouter;
+import com.example.productDemo.DataSourceConfig.ShardRoutingDataSource;
+import com.example.productDemo.DataSourceConfig.ShardingProperties;
+
+/**
+ * Shard routing tests against two embedded H2 databases, each holding a marker row naming itself.
+ */
+public class ShardRouterTest {
+
+    private EmbeddedDatabase shard0;
+    private EmbeddedDatabase shard1;
+    private JdbcTemplate jdbcTemplate;
+    private ShardRouter shardRouter;
+
+    @BeforeEach
+    public void setUp() {
+        shard0 = markedDatabase("shard-0");
+        shard1 = markedDatabase("shard-1");
+
+        DataSource routing = new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(List.of(shard0, shard1)));
+        jdbcTemplate = new JdbcTemplate(routing);
+
+        ShardingProperties properties = new ShardingProperties();
+        properties.setEnabled(true);
+        properties.setShards(List.of(new ConnectionProperties(), new ConnectionProperties()));
+        shardRouter = new ShardRouter();
+        ReflectionTestUtils.setField(shardRouter, "properties", properties);
+        ReflectionTestUtils.setField(shardRouter, "transactionManager", new DataSourceTransactionManager(routing));
+        shardRouter.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        shardRouter.stop();
+        shard0.shutdown();
+        shard1.shutdown();
+    }
+
+    /**
+     * Test case for point operations.
+     * Scenario: Work for a product should run on the shard its id hashes to, and the shard selection
+     * should be cleared afterwards.
+     */
+    @Test
+    public void testTransactionRunsOnOwningShard() {
+        for (String productId : List.of("PDNO_00001", "PDNO_00002", "PDNO_00003")) {
+            int shard = Math.floorMod(productId.hashCode(), 2);
+            assertEquals(shard, shardRouter.shardFor(productId));
+            assertEquals("shard-" + shard, shardRouter.inTransaction(productId, this::currentNode));
+        }
+        assertNull(ShardContext.current());
+    }
+
+    /**
+     * Test case for scatter-gather.
+     * Scenario: Scattered work should run once on every shard and return the results in shard order.
+     */
+    @Test
+    public void testScatterQueriesEveryShard() {
+        assertEquals(List.of("shard-0", "shard-1"), shardRouter.scatter(shard -> currentNode()));
+    }
+
+    /**
+     * Test case for grouping ids.
+     * Scenario: Every id should be grouped under the shard that owns it.
+     */
+    @Test
+    public void testGroupByShard() {
+        List<String> productIds = List.of("PDNO_00001", "PDNO_00002", "PDNO_00003", "PDNO_00004");
+        Map<Integer, List<String>> groups = shardRouter.groupByShard(productIds);
+
+        assertEquals(productIds.size(), groups.values().stream().mapToInt(List::size).sum());
+        groups.forEach((shard, ids) -> ids.forEach(id -> assertEquals((int) shard, shardRouter.shardFor(id))));
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static EmbeddedDatabase markedDatabase(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName(name + "-" + UUID.randomUUID())
+                .build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return database;
+    }
+}
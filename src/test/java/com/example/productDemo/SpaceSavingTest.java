@@ -0,0 +1,82 @@
+package com.example.productDemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.productDemo.Index.SpaceSaving;
+
+public class SpaceSavingTest {
+
+    private final Random random = new Random(11);
+
+    /**
+     * Test case for finding the heavy hitters of a skewed stream.
+     * Scenario: With far more distinct keys than counters, the ten keys taking most of the stream
+     * should rank first, each with a count no lower than its true frequency and no higher than that
+     * plus its error.
+     */
+    @Test
+    public void testFindsHeavyHittersWithinBounds() {
+        // Arrange: 60% of 100000 reads go to ten products, the rest spread over 50000
+        SpaceSaving summary = new SpaceSaving(100);
+        Map<String, Long> exact = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 100000; i++) {
+            String key = random.nextDouble() < 0.6
+                    ? String.format("PDNO_%05d", random.nextInt(10))
+                    : String.format("PDNO_%05d", 10 + random.nextInt(50000));
+            exact.merge(key, 1L, Long::sum);
+            summary.offer(key);
+        }
+        List<SpaceSaving.Counter> top = summary.top(10);
+
+        // Assert
+        List<String> expected = exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(10).map(Map.Entry::getKey).sorted().collect(Collectors.toList());
+        assertEquals(expected, top.stream().map(SpaceSaving.Counter::getKey).sorted().collect(Collectors.toList()));
+        for (SpaceSaving.Counter counter : summary.top(100)) {
+            long frequency = exact.get(counter.getKey());
+            assertTrue(counter.getCount() >= frequency && counter.getGuaranteedCount() <= frequency, counter.getKey());
+        }
+        assertTrue(summary.untrackedBound() <= summary.total() / 100);
+        assertEquals(100000, summary.total());
+    }
+
+    /**
+     * Test case for decaying counts.
+     * Scenario: After a decay, a key that stops being read should be overtaken by a key read less in
+     * total but more recently, and keys halved to zero should be dropped.
+     */
+    @Test
+    public void testDecayFavoursRecentReads() {
+        // Arrange
+        SpaceSaving summary = new SpaceSaving(10);
+        for (int i = 0; i < 100; i++) {
+            summary.offer("PDNO_00001");
+        }
+        summary.offer("PDNO_00009");
+
+        // Act
+        summary.decay();
+        summary.decay();
+        for (int i = 0; i < 40; i++) {
+            summary.offer("PDNO_00002");
+        }
+
+        // Assert
+        assertEquals(List.of("PDNO_00002", "PDNO_00001"),
+                summary.top(5).stream().map(SpaceSaving.Counter::getKey).collect(Collectors.toList()));
+        assertEquals(25, summary.top(5).get(1).getCount());
+        assertEquals(2, summary.size());
+    }
+}